@@ -0,0 +1,42 @@
+package com.lims.common.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * A concurrent map of compiled artifacts capped at a fixed number of entries. Adding an entry to
+ * a full cache first drops all of them: the entries are cheap to rebuild and the working set is
+ * normally far below the cap, so the bound only guards against unbounded growth.
+ */
+public final class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+
+    public BoundedCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    public void put(K key, V value) {
+        if (!entries.containsKey(key) && entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        entries.put(key, value);
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public void removeIf(Predicate<? super K> filter) {
+        entries.keySet().removeIf(filter);
+    }
+}
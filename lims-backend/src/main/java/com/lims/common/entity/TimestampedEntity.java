@@ -0,0 +1,29 @@
+package com.lims.common.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.MappedSuperclass;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Creation/update timestamps shared by all LIMS entities.
+ * Entities that need an id strategy other than {@link BaseEntity}'s identity column
+ * (e.g. pooled sequences for batch inserts) extend this class directly.
+ */
+@MappedSuperclass
+@Getter
+@Setter
+public abstract class TimestampedEntity {
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
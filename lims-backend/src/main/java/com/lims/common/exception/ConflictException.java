@@ -0,0 +1,19 @@
+package com.lims.common.exception;
+
+/**
+ * Thrown when a write is based on a stale version of a resource.
+ * Example: a worksheet delta save sent against a version another user has already superseded.
+ */
+public class ConflictException extends RuntimeException {
+
+    private final Long currentVersion;
+
+    public ConflictException(String message, Long currentVersion) {
+        super(message);
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
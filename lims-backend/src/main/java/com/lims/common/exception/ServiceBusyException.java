@@ -0,0 +1,19 @@
+package com.lims.common.exception;
+
+/**
+ * Thrown when a shared backend resource is saturated and the request was rejected instead of queued.
+ * Example: the LibreOffice conversion pool has no free slot and its wait queue is full.
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,114 @@
+package com.lims.common.hibernate;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base for Hibernate listeners that maintain derived tables. Entity events seen in a session are
+ * collected into per-transaction state {@code P} via {@link #pendingFor}; just before the
+ * transaction commits, {@link #beforeCommit} writes what follows from them on the session's
+ * connection, in the same transaction (the way Envers writes audit rows), so the derived rows
+ * commit or roll back with the change itself.
+ * <p>
+ * Subclasses implement the post-insert/update/delete listener interfaces they need and call
+ * {@link #register} once the session factory is available. Changes that bypass the session (bulk
+ * JPQL, native SQL) are never seen.
+ */
+public abstract class BeforeCommitListener<P> {
+
+    private final Map<SharedSessionContractImplementor, P> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Appends this listener for each post-insert/update/delete event type it implements.
+     */
+    protected void register(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        if (this instanceof PostInsertEventListener listener) {
+            registry.appendListeners(EventType.POST_INSERT, listener);
+        }
+        if (this instanceof PostUpdateEventListener listener) {
+            registry.appendListeners(EventType.POST_UPDATE, listener);
+        }
+        if (this instanceof PostDeleteEventListener listener) {
+            registry.appendListeners(EventType.POST_DELETE, listener);
+        }
+    }
+
+    /** New, empty state for a transaction. */
+    protected abstract P newPending();
+
+    /**
+     * Writes the transaction's collected state; runs once per transaction that collected any.
+     */
+    protected abstract void beforeCommit(P pending, Connection connection) throws SQLException;
+
+    /**
+     * Called once the transaction has ended, e.g. to publish what was committed.
+     */
+    protected void afterCompletion(P pending, boolean committed) {
+    }
+
+    /**
+     * The state of the session's current transaction, created and hooked into its completion on
+     * first use.
+     */
+    protected P pendingFor(EventSource session) {
+        return pending.computeIfAbsent(session, s -> {
+            P created = newPending();
+            Completion completion = new Completion(created);
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) completion);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) completion);
+            return created;
+        });
+    }
+
+    /** Derived rows are written in the transaction itself, never after commit. */
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    protected static int propertyIndex(EntityPersister persister, String property) {
+        String[] names = persister.getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (property.equals(names[i])) return i;
+        }
+        throw new IllegalStateException(persister.getEntityName() + " has no " + property + " property");
+    }
+
+    private class Completion implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final P state;
+
+        Completion(P state) {
+            this.state = state;
+        }
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            session.doWork(connection -> beforeCommit(state, connection));
+        }
+
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            pending.remove(session);
+            afterCompletion(state, success);
+        }
+    }
+}
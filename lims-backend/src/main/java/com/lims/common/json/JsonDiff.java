@@ -0,0 +1,63 @@
+package com.lims.common.json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes a structural RFC 6902 diff between two {@code Map}/{@code List} JSON trees, such that
+ * {@code JsonPatch.apply(source, diff(source, target))} yields {@code target}.
+ * <p>
+ * Objects are compared key by key and arrays index by index (trailing elements are added or
+ * removed), which matches how worksheet data changes: values edited in place, rows appended or
+ * dropped at the end.
+ */
+public final class JsonDiff {
+
+    private JsonDiff() {
+    }
+
+    public static List<JsonPatchOperation> diff(Object source, Object target) {
+        List<JsonPatchOperation> ops = new ArrayList<>();
+        diff("", source, target, ops);
+        return ops;
+    }
+
+    private static void diff(String pointer, Object source, Object target, List<JsonPatchOperation> ops) {
+        if (source instanceof Map<?, ?> a && target instanceof Map<?, ?> b) {
+            for (Map.Entry<?, ?> entry : a.entrySet()) {
+                String child = pointer + "/" + escape(String.valueOf(entry.getKey()));
+                if (!b.containsKey(entry.getKey())) {
+                    ops.add(JsonPatchOperation.builder().op("remove").path(child).build());
+                } else {
+                    diff(child, entry.getValue(), b.get(entry.getKey()), ops);
+                }
+            }
+            for (Map.Entry<?, ?> entry : b.entrySet()) {
+                if (!a.containsKey(entry.getKey())) {
+                    String child = pointer + "/" + escape(String.valueOf(entry.getKey()));
+                    ops.add(JsonPatchOperation.builder().op("add").path(child).value(entry.getValue()).build());
+                }
+            }
+        } else if (source instanceof List<?> a && target instanceof List<?> b) {
+            int common = Math.min(a.size(), b.size());
+            for (int i = 0; i < common; i++) {
+                diff(pointer + "/" + i, a.get(i), b.get(i), ops);
+            }
+            // Remove from the end so earlier indices stay valid
+            for (int i = a.size() - 1; i >= common; i--) {
+                ops.add(JsonPatchOperation.builder().op("remove").path(pointer + "/" + i).build());
+            }
+            for (int i = common; i < b.size(); i++) {
+                ops.add(JsonPatchOperation.builder().op("add").path(pointer + "/-").value(b.get(i)).build());
+            }
+        } else if (!Objects.equals(source, target)) {
+            ops.add(JsonPatchOperation.builder().op("replace").path(pointer).value(target).build());
+        }
+    }
+
+    private static String escape(String token) {
+        return token.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -0,0 +1,270 @@
+package com.lims.common.json;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Applies RFC 6902 JSON Patches to documents held as plain {@code Map}/{@code List} trees
+ * (the shape Jackson and Hibernate's JSON mapping produce).
+ * <p>
+ * Besides the patched document, {@link #apply} reports the minimal set of locations whose
+ * value changed, so callers can persist or broadcast just those paths. Array insertions and
+ * removals shift indices, so they report the enclosing array; locations whose parent did not
+ * exist before the patch are widened to the first ancestor that did.
+ */
+public final class JsonPatch {
+
+    /**
+     * @param document     patched copy; the input document is never modified
+     * @param changedPaths non-overlapping JSON Pointer token lists, an empty list meaning the root
+     */
+    public record Result(Map<String, Object> document, List<List<String>> changedPaths) {
+
+        /**
+         * The value at a changed path, or {@link #ABSENT} if the path was removed.
+         */
+        public Object valueAt(List<String> path) {
+            return resolve(document, path);
+        }
+    }
+
+    /** Marker for a location that does not exist in the patched document. */
+    public static final Object ABSENT = new Object();
+
+    private JsonPatch() {
+    }
+
+    public static Result apply(Map<String, Object> document, List<JsonPatchOperation> operations) {
+        Map<String, Object> original = document != null ? document : Map.of();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> working = (Map<String, Object>) deepCopy(original);
+        Object[] root = {working};
+        List<List<String>> touched = new ArrayList<>();
+
+        for (JsonPatchOperation operation : operations != null ? operations : List.<JsonPatchOperation>of()) {
+            String op = operation.getOp();
+            if (op == null) throw new JsonPatchException("Patch operation is missing 'op'");
+            List<String> path = parsePointer(operation.getPath(), "path");
+            switch (op) {
+                case "add" -> {
+                    touched.add(changedLocation(root[0], path));
+                    add(root, path, deepCopy(operation.getValue()));
+                }
+                case "remove" -> {
+                    touched.add(changedLocation(root[0], path));
+                    remove(root, path);
+                }
+                case "replace" -> {
+                    if (resolve(root[0], path) == ABSENT) {
+                        throw new JsonPatchException("Cannot replace missing location " + operation.getPath());
+                    }
+                    touched.add(path);
+                    remove(root, path);
+                    add(root, path, deepCopy(operation.getValue()));
+                }
+                case "move" -> {
+                    List<String> from = parsePointer(operation.getFrom(), "from");
+                    if (path.size() > from.size() && path.subList(0, from.size()).equals(from)) {
+                        throw new JsonPatchException("Cannot move " + operation.getFrom() + " into one of its children");
+                    }
+                    Object value = resolve(root[0], from);
+                    if (value == ABSENT) throw new JsonPatchException("Missing 'from' location " + operation.getFrom());
+                    touched.add(changedLocation(root[0], from));
+                    remove(root, from);
+                    touched.add(changedLocation(root[0], path));
+                    add(root, path, value);
+                }
+                case "copy" -> {
+                    Object value = resolve(root[0], parsePointer(operation.getFrom(), "from"));
+                    if (value == ABSENT) throw new JsonPatchException("Missing 'from' location " + operation.getFrom());
+                    touched.add(changedLocation(root[0], path));
+                    add(root, path, deepCopy(value));
+                }
+                case "test" -> {
+                    Object actual = resolve(root[0], path);
+                    if (actual == ABSENT || !jsonEquals(actual, operation.getValue())) {
+                        throw new JsonPatchException("Test failed at " + operation.getPath());
+                    }
+                }
+                default -> throw new JsonPatchException("Unsupported patch operation '" + op + "'");
+            }
+        }
+
+        if (!(root[0] instanceof Map)) {
+            throw new JsonPatchException("Patched document must remain a JSON object");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> patched = (Map<String, Object>) root[0];
+        return new Result(patched, collapse(widenToExisting(original, touched)));
+    }
+
+    /**
+     * Parses a JSON Pointer ({@code ""} or {@code /a/b~1c}) into unescaped tokens.
+     */
+    public static List<String> parsePointer(String pointer, String field) {
+        if (pointer == null) throw new JsonPatchException("Patch operation is missing '" + field + "'");
+        if (pointer.isEmpty()) return List.of();
+        if (pointer.charAt(0) != '/') throw new JsonPatchException("Invalid JSON Pointer '" + pointer + "'");
+        List<String> tokens = new ArrayList<>();
+        for (String token : pointer.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return List.copyOf(tokens);
+    }
+
+    public static Object resolve(Object node, List<String> path) {
+        Object current = node;
+        for (String token : path) {
+            if (current instanceof Map<?, ?> map) {
+                if (!map.containsKey(token)) return ABSENT;
+                current = map.get(token);
+            } else if (current instanceof List<?> list) {
+                int index = arrayIndex(token, list.size() - 1, false);
+                if (index < 0) return ABSENT;
+                current = list.get(index);
+            } else {
+                return ABSENT;
+            }
+        }
+        return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Object[] root, List<String> path, Object value) {
+        if (path.isEmpty()) {
+            root[0] = value;
+            return;
+        }
+        Object parent = resolve(root[0], path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+        if (parent instanceof Map) {
+            ((Map<String, Object>) parent).put(last, value);
+        } else if (parent instanceof List) {
+            List<Object> list = (List<Object>) parent;
+            int index = "-".equals(last) ? list.size() : arrayIndex(last, list.size(), true);
+            list.add(index, value);
+        } else {
+            throw new JsonPatchException("Parent of /" + String.join("/", path) + " does not exist");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void remove(Object[] root, List<String> path) {
+        if (path.isEmpty()) {
+            root[0] = new LinkedHashMap<String, Object>();
+            return;
+        }
+        Object parent = resolve(root[0], path.subList(0, path.size() - 1));
+        String last = path.get(path.size() - 1);
+        if (parent instanceof Map && ((Map<String, Object>) parent).containsKey(last)) {
+            ((Map<String, Object>) parent).remove(last);
+        } else if (parent instanceof List) {
+            List<Object> list = (List<Object>) parent;
+            list.remove(arrayIndex(last, list.size() - 1, true));
+        } else {
+            throw new JsonPatchException("Cannot remove missing location /" + String.join("/", path));
+        }
+    }
+
+    /**
+     * Location whose value changes when {@code path} is added/removed: the enclosing array for
+     * element inserts and removals (indices shift), otherwise the path itself.
+     */
+    private static List<String> changedLocation(Object document, List<String> path) {
+        if (!path.isEmpty()) {
+            List<String> parentPath = path.subList(0, path.size() - 1);
+            if (resolve(document, parentPath) instanceof List) {
+                return List.copyOf(parentPath);
+            }
+        }
+        return path;
+    }
+
+    private static List<List<String>> widenToExisting(Map<String, Object> original, List<List<String>> paths) {
+        List<List<String>> widened = new ArrayList<>(paths.size());
+        for (List<String> path : paths) {
+            List<String> p = path;
+            while (!p.isEmpty() && resolve(original, p.subList(0, p.size() - 1)) == ABSENT) {
+                p = p.subList(0, p.size() - 1);
+            }
+            // A container that changed type (e.g. scalar -> object) is written whole
+            if (!p.isEmpty() && !(resolve(original, p.subList(0, p.size() - 1)) instanceof Map)
+                    && !(resolve(original, p.subList(0, p.size() - 1)) instanceof List)) {
+                p = p.subList(0, p.size() - 1);
+            }
+            widened.add(List.copyOf(p));
+        }
+        return widened;
+    }
+
+    private static List<List<String>> collapse(List<List<String>> paths) {
+        List<List<String>> result = new ArrayList<>();
+        for (List<String> candidate : paths) {
+            boolean covered = false;
+            for (List<String> other : paths) {
+                if (other.size() < candidate.size() && candidate.subList(0, other.size()).equals(other)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered && !result.contains(candidate)) result.add(candidate);
+        }
+        return result;
+    }
+
+    private static int arrayIndex(String token, int max, boolean strict) {
+        if (token.isEmpty() || !token.chars().allMatch(Character::isDigit) || (token.length() > 1 && token.charAt(0) == '0')) {
+            if (strict) throw new JsonPatchException("Invalid array index '" + token + "'");
+            return -1;
+        }
+        int index;
+        try {
+            index = Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            index = Integer.MAX_VALUE;
+        }
+        if (index > max) {
+            if (strict) throw new JsonPatchException("Array index " + token + " out of bounds");
+            return -1;
+        }
+        return index;
+    }
+
+    private static Object deepCopy(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(String.valueOf(k), deepCopy(v)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) copy.add(deepCopy(item));
+            return copy;
+        }
+        return value;
+    }
+
+    private static boolean jsonEquals(Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y) {
+            return Double.compare(x.doubleValue(), y.doubleValue()) == 0;
+        }
+        if (a instanceof Map<?, ?> x && b instanceof Map<?, ?> y) {
+            if (x.size() != y.size()) return false;
+            for (Map.Entry<?, ?> e : x.entrySet()) {
+                if (!y.containsKey(e.getKey()) || !jsonEquals(e.getValue(), y.get(e.getKey()))) return false;
+            }
+            return true;
+        }
+        if (a instanceof List<?> x && b instanceof List<?> y) {
+            if (x.size() != y.size()) return false;
+            for (int i = 0; i < x.size(); i++) {
+                if (!jsonEquals(x.get(i), y.get(i))) return false;
+            }
+            return true;
+        }
+        return Objects.equals(a, b);
+    }
+}
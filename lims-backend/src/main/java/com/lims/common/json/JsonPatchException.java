@@ -0,0 +1,11 @@
+package com.lims.common.json;
+
+/**
+ * Thrown when a JSON Patch is malformed, targets a missing location or fails a {@code test} op.
+ */
+public class JsonPatchException extends RuntimeException {
+
+    public JsonPatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,21 @@
+package com.lims.common.json;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single RFC 6902 operation: {@code add}, {@code remove}, {@code replace}, {@code move},
+ * {@code copy} or {@code test}. {@code from} is only used by move/copy.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JsonPatchOperation {
+    private String op;
+    private String path;
+    private String from;
+    private Object value;
+}
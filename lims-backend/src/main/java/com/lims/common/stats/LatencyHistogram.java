@@ -0,0 +1,105 @@
+package com.lims.common.stats;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Counts of durations in log-scaled buckets. Bucket {@code b} holds durations in
+ * ({@code GROWTH^(b-1)}, {@code GROWTH^b}] seconds, so any percentile read from it is within
+ * 10% of the true value. Because buckets are fixed, histograms of different days, clients or
+ * methods merge by adding counts, which is what lets them be stored per dimension and summed
+ * at query time.
+ */
+public final class LatencyHistogram {
+
+    public static final double GROWTH = 1.1;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+
+    private final TreeMap<Integer, Long> counts = new TreeMap<>();
+    private long total;
+
+    /**
+     * The bucket holding a duration of {@code seconds}; bucket 0 holds everything up to a second.
+     */
+    public static int bucketOf(long seconds) {
+        if (seconds <= 1) {
+            return 0;
+        }
+        // The small epsilon keeps exact powers of GROWTH in their own bucket despite rounding
+        return (int) Math.ceil(Math.log(seconds) / LOG_GROWTH - 1e-9);
+    }
+
+    public static double upperBoundSeconds(int bucket) {
+        return Math.pow(GROWTH, bucket);
+    }
+
+    public static double lowerBoundSeconds(int bucket) {
+        return bucket == 0 ? 0 : Math.pow(GROWTH, bucket - 1);
+    }
+
+    public void record(long seconds) {
+        add(bucketOf(seconds), 1);
+    }
+
+    public void add(int bucket, long count) {
+        if (count <= 0) return;
+        counts.merge(bucket, count, Long::sum);
+        total += count;
+    }
+
+    public void merge(LatencyHistogram other) {
+        other.counts.forEach(this::add);
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public SortedMap<Integer, Long> buckets() {
+        return Collections.unmodifiableSortedMap(counts);
+    }
+
+    /**
+     * The upper bound of the bucket holding the {@code p}-th percentile (0 < p <= 100), in
+     * seconds; 0 for an empty histogram.
+     */
+    public double percentile(double p) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * p / 100.0));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> bucket : counts.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return upperBoundSeconds(bucket.getKey());
+            }
+        }
+        return upperBoundSeconds(counts.lastKey());
+    }
+
+    /**
+     * Mean in seconds, taking each duration at the middle of its bucket.
+     */
+    public double mean() {
+        if (total == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (Map.Entry<Integer, Long> bucket : counts.entrySet()) {
+            int b = bucket.getKey();
+            sum += (lowerBoundSeconds(b) + upperBoundSeconds(b)) / 2 * bucket.getValue();
+        }
+        return sum / total;
+    }
+
+    public double min() {
+        return total == 0 ? 0 : lowerBoundSeconds(counts.firstKey());
+    }
+
+    public double max() {
+        return total == 0 ? 0 : upperBoundSeconds(counts.lastKey());
+    }
+}
@@ -0,0 +1,42 @@
+package com.lims.common.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content-addressed storage for large immutable binaries (PDF snapshots and the like) that should
+ * not live in database rows. Storing the same content twice yields the same reference and keeps
+ * a single copy.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores the stream's content; the stream is read to the end but not closed.
+     */
+    StoredBlob store(InputStream content) throws IOException;
+
+    default StoredBlob store(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return store(in);
+        }
+    }
+
+    /**
+     * Opens a stored blob for streaming.
+     *
+     * @throws com.lims.common.exception.ResourceNotFoundException if the reference is unknown
+     */
+    Resource load(String ref);
+
+    boolean exists(String ref);
+
+    /**
+     * Removes a stored blob; a no-op if it is not stored. Since equal content shares one blob,
+     * callers must make sure nothing else still refers to it.
+     */
+    void delete(String ref) throws IOException;
+}
@@ -0,0 +1,196 @@
+package com.lims.common.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Directory of generated files keyed by a content hash of their inputs. A key never changes
+ * meaning, so entries are never invalidated, only evicted least-recently-used once the directory
+ * exceeds its size budget.
+ * <p>
+ * Files are generated straight into the cache directory and handed out as paths, so they never
+ * need to be held in memory; callers should open a returned path promptly. Publishes
+ * {@code <metric>{result=hit|miss}} and {@code <metric>.size}.
+ */
+@Slf4j
+public class DiskLruCache {
+
+    @FunctionalInterface
+    public interface Renderer {
+        void render(Path target) throws IOException;
+    }
+
+    private final Path directory;
+    private final String suffix;
+    private final long maxBytes;
+    private final Counter hits;
+    private final Counter misses;
+
+    /** Key to file size, in access order; guarded by {@code this}. */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    public DiskLruCache(Path directory, String suffix, long maxBytes, MeterRegistry meterRegistry, String metric, String description) {
+        this.directory = directory;
+        this.suffix = suffix;
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder(metric).tag("result", "hit")
+                .description(description + " lookups").register(meterRegistry);
+        this.misses = Counter.builder(metric).tag("result", "miss")
+                .description(description + " lookups").register(meterRegistry);
+        Gauge.builder(metric + ".size", this, DiskLruCache::sizeBytes)
+                .description("Bytes held by the " + description.toLowerCase())
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        loadIndex();
+    }
+
+    /**
+     * Returns the cached file for {@code key}, generating and storing it on a miss.
+     */
+    public Path get(String key, Renderer renderer) throws IOException {
+        Path cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        Path tmp = newTempFile();
+        try {
+            renderer.render(tmp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return put(key, tmp);
+    }
+
+    /**
+     * Returns the cached file for {@code key}, or null.
+     */
+    public Path lookup(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses.increment();
+                return null;
+            }
+        }
+        Path file = fileFor(key);
+        if (!Files.exists(file)) {
+            // Removed behind our back (manual cleanup, another node sharing the directory)
+            synchronized (this) {
+                Long size = entries.remove(key);
+                if (size != null) totalBytes -= size;
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return file;
+    }
+
+    /**
+     * A new empty file in the cache directory, for rendering into before {@link #put}.
+     */
+    public Path newTempFile() throws IOException {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, "render_", ".tmp");
+    }
+
+    /**
+     * Moves a generated file into the cache under {@code key} and returns its cache path.
+     */
+    public Path put(String key, Path rendered) throws IOException {
+        Path target = fileFor(key);
+        long size = Files.size(rendered);
+        Files.move(rendered, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = entries.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String old : evicted) {
+            try {
+                Files.deleteIfExists(fileFor(old));
+            } catch (IOException e) {
+                log.warn("Could not delete evicted cache entry {}: {}", old, e.getMessage());
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Drops an entry, for caches whose keys can go stale.
+     */
+    public void remove(String key) {
+        synchronized (this) {
+            Long size = entries.remove(key);
+            if (size == null) return;
+            totalBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException e) {
+            log.warn("Could not delete cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the index from the directory, oldest file first, so LRU order survives a restart
+     * approximately. Leftover temp files of interrupted renders are removed.
+     */
+    private void loadIndex() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.sorted(Comparator.comparingLong(DiskLruCache::lastModified))
+                    .forEach(p -> {
+                        String name = p.getFileName().toString();
+                        if (name.endsWith(".tmp")) {
+                            p.toFile().delete();
+                        } else if (name.endsWith(suffix)) {
+                            long size = p.toFile().length();
+                            entries.put(name.substring(0, name.length() - suffix.length()), size);
+                            totalBytes += size;
+                        }
+                    });
+            log.info("Cache {}: {} entries, {} KB", directory, entries.size(), totalBytes / 1024);
+        } catch (IOException e) {
+            log.warn("Could not index cache at {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static long lastModified(Path path) {
+        return path.toFile().lastModified();
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + suffix);
+    }
+
+    synchronized long sizeBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,102 @@
+package com.lims.common.storage;
+
+import com.lims.common.exception.ResourceNotFoundException;
+import com.lims.common.hash.Sha256;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.regex.Pattern;
+
+/**
+ * {@link BlobStore} on the local filesystem. A blob lives at {@code <dir>/ab/cd/<sha256>}, its
+ * reference is {@code sha256:<hex>}; content is hashed while it is streamed to a temp file, which
+ * is then moved into place or dropped if that content is already stored.
+ */
+@Component
+@ConditionalOnProperty(name = "lims.storage.blob.type", havingValue = "local", matchIfMissing = true)
+@Slf4j
+public class LocalBlobStore implements BlobStore {
+
+    private static final String REF_PREFIX = "sha256:";
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path root;
+
+    public LocalBlobStore(@Value("${lims.storage.blob.local-dir:./uploads/blobs}") String root) {
+        this.root = Paths.get(root);
+    }
+
+    @Override
+    public StoredBlob store(InputStream content) throws IOException {
+        Files.createDirectories(root);
+        Path tmp = Files.createTempFile(root, "blob_", ".tmp");
+        try {
+            MessageDigest digest = Sha256.newDigest();
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                size = content.transferTo(out);
+            }
+            String hash = Sha256.hex(digest);
+
+            Path target = pathFor(hash);
+            if (Files.exists(target)) {
+                log.debug("Blob {} already stored, deduplicated", hash);
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Stored concurrently with the same content
+                }
+            }
+            return new StoredBlob(REF_PREFIX + hash, hash, size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public Resource load(String ref) {
+        Path path = resolve(ref);
+        if (!Files.isRegularFile(path)) {
+            throw new ResourceNotFoundException("Blob not found: " + ref);
+        }
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public boolean exists(String ref) {
+        return Files.isRegularFile(resolve(ref));
+    }
+
+    @Override
+    public void delete(String ref) throws IOException {
+        Files.deleteIfExists(resolve(ref));
+    }
+
+    private Path resolve(String ref) {
+        String hash = ref != null && ref.startsWith(REF_PREFIX) ? ref.substring(REF_PREFIX.length()) : null;
+        if (hash == null || !SHA256_HEX.matcher(hash).matches()) {
+            throw new ResourceNotFoundException("Blob not found: " + ref);
+        }
+        return pathFor(hash);
+    }
+
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+}
@@ -0,0 +1,8 @@
+package com.lims.common.storage;
+
+/**
+ * A blob written to a {@link BlobStore}: the store-specific reference to read it back, the
+ * SHA-256 of its content (hex) and its size in bytes.
+ */
+public record StoredBlob(String ref, String sha256, long size) {
+}
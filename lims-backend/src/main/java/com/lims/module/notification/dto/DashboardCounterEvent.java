@@ -0,0 +1,25 @@
+package com.lims.module.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardCounterEvent {
+    private String type;                     // DELTA | RESYNC (counters were corrected; refetch)
+    private List<Delta> deltas;              // committed changes summed over the recipient's clients, for DELTA
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Delta {
+        private String status;
+        private long delta;
+    }
+}
@@ -0,0 +1,24 @@
+package com.lims.module.notification.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobProgressEvent {
+    private String jobId;
+    private String type;                     // e.g. WORKSHEET_RECALCULATION
+    private Long subjectId;                  // entity the job works on, e.g. the method definition
+    private String status;                   // RUNNING | COMPLETED | FAILED
+    private int total;
+    private int processed;
+    private int failed;
+    private Instant startedAt;
+    private Instant finishedAt;
+}
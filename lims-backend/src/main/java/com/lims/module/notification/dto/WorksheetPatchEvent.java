@@ -0,0 +1,20 @@
+package com.lims.module.notification.dto;
+
+import com.lims.common.json.JsonPatchOperation;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorksheetPatchEvent {
+    private Long sampleTestId;
+    private Long version;                    // version after the patch was applied
+    private String username;
+    private List<JsonPatchOperation> patch;
+}
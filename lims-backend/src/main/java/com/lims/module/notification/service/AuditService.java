@@ -10,7 +10,7 @@ import org.hibernate.envers.AuditReaderFactory;
 import org.hibernate.envers.RevisionType;
 import org.hibernate.envers.query.AuditEntity;
 import com.lims.config.AuditRevisionEntity;
-import com.lims.common.entity.BaseEntity;
+import com.lims.common.entity.TimestampedEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -59,7 +59,7 @@ public class AuditService {
                             field.setAccessible(true);
                             // Skip collections, complex entities or very long strings
                             if (java.util.Collection.class.isAssignableFrom(field.getType())) continue;
-                            if (BaseEntity.class.isAssignableFrom(field.getType())) continue;
+                            if (TimestampedEntity.class.isAssignableFrom(field.getType())) continue;
                             
                             Object val = field.get(entityAtRev);
                             if (val != null) {
@@ -1,17 +1,27 @@
 package com.lims.module.notification.service;
 
+import com.lims.module.notification.dto.DashboardCounterEvent;
 import com.lims.module.notification.dto.DataSyncEvent;
+import com.lims.module.notification.dto.JobProgressEvent;
+import com.lims.module.notification.dto.WorksheetPatchEvent;
+import com.lims.module.security.filter.StompAuthenticationInterceptor.ClientScope;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DataSyncService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry simpUserRegistry;
 
     /**
      * Broadcast a data-change event to ALL connected clients via /topic/operations-sync.
@@ -27,4 +37,73 @@ public class DataSyncService {
         log.info("Broadcasting sync event: {} {} (ID: {})", action, entity, entityId);
         messagingTemplate.convertAndSend("/topic/operations-sync", event);
     }
+
+    /**
+     * Broadcast a worksheet delta to clients viewing that worksheet via /topic/worksheet/{sampleTestId}.
+     * Only the applied patch is sent, not the full document.
+     */
+    public void broadcastWorksheetPatch(WorksheetPatchEvent event) {
+        log.debug("Broadcasting worksheet patch: sample test {} -> version {} ({} ops)",
+                event.getSampleTestId(), event.getVersion(), event.getPatch() != null ? event.getPatch().size() : 0);
+        messagingTemplate.convertAndSend("/topic/worksheet/" + event.getSampleTestId(), event);
+    }
+
+    /**
+     * Broadcast the progress of a background job via /topic/jobs/{jobId}.
+     */
+    public void broadcastJobProgress(JobProgressEvent event) {
+        log.debug("Broadcasting job progress: {} {} {}/{}", event.getType(), event.getJobId(), event.getProcessed(), event.getTotal());
+        messagingTemplate.convertAndSend("/topic/jobs/" + event.getJobId(), event);
+    }
+
+    /**
+     * Broadcast a dashboard counter event that carries no counts, such as RESYNC, via
+     * /topic/dashboard.
+     */
+    public void broadcastDashboardCounters(DashboardCounterEvent event) {
+        log.debug("Broadcasting dashboard counters: {}", event.getType());
+        messagingTemplate.convertAndSend("/topic/dashboard", event);
+    }
+
+    /**
+     * Send committed dashboard counter changes to each connected user via /user/queue/dashboard,
+     * so open dashboards adjust their figures without re-querying. Each user receives the deltas
+     * summed by status over the clients they may see, and nothing if none of those changed.
+     *
+     * @param deltasByClient counter deltas by client id, then by sample status
+     */
+    public void sendDashboardDeltas(Map<Long, Map<String, Long>> deltasByClient) {
+        DashboardCounterEvent unrestricted = null;
+        for (SimpUser user : simpUserRegistry.getUsers()) {
+            ClientScope scope = ClientScope.of(user.getPrincipal());
+            if (scope == null) continue;
+
+            DashboardCounterEvent event;
+            if (scope.isUnrestricted()) {
+                if (unrestricted == null) unrestricted = deltaEvent(deltasByClient, scope);
+                event = unrestricted;
+            } else {
+                event = deltaEvent(deltasByClient, scope);
+            }
+            if (event.getDeltas().isEmpty()) continue;
+
+            messagingTemplate.convertAndSendToUser(user.getName(), "/queue/dashboard", event);
+        }
+    }
+
+    private static DashboardCounterEvent deltaEvent(Map<Long, Map<String, Long>> deltasByClient, ClientScope scope) {
+        Map<String, Long> byStatus = new TreeMap<>();
+        deltasByClient.forEach((clientId, deltas) -> {
+            if (scope.covers(clientId)) {
+                deltas.forEach((status, delta) -> byStatus.merge(status, delta, Long::sum));
+            }
+        });
+        return DashboardCounterEvent.builder()
+                .type("DELTA")
+                .deltas(byStatus.entrySet().stream()
+                        .filter(e -> e.getValue() != 0)
+                        .map(e -> new DashboardCounterEvent.Delta(e.getKey(), e.getValue()))
+                        .toList())
+                .build();
+    }
 }
@@ -1,22 +1,27 @@
 package com.lims.module.sample.controller;
 
 import com.lims.module.sample.entity.Attachment;
+import com.lims.module.sample.service.AttachmentPreviewService;
 import com.lims.module.sample.service.AttachmentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/attachments")
@@ -25,6 +30,7 @@ import java.util.List;
 public class AttachmentController {
 
     private final AttachmentService attachmentService;
+    private final AttachmentPreviewService attachmentPreviewService;
 
     @PostMapping("/sample/{id}")
     @Operation(summary = "Upload attachment for a sample")
@@ -32,7 +38,9 @@ public class AttachmentController {
             @PathVariable Long id,
             @RequestParam("file") MultipartFile file) throws IOException {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return ResponseEntity.ok(attachmentService.uploadForSample(id, file, username));
+        Attachment attachment = attachmentService.uploadForSample(id, file, username);
+        attachmentPreviewService.prerenderThumbnails(attachment);
+        return ResponseEntity.ok(attachment);
     }
 
     @PostMapping("/job/{id}")
@@ -41,7 +49,9 @@ public class AttachmentController {
             @PathVariable Long id,
             @RequestParam("file") MultipartFile file) throws IOException {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return ResponseEntity.ok(attachmentService.uploadForJob(id, file, username));
+        Attachment attachment = attachmentService.uploadForJob(id, file, username);
+        attachmentPreviewService.prerenderThumbnails(attachment);
+        return ResponseEntity.ok(attachment);
     }
 
     @GetMapping("/sample/{id}")
@@ -61,4 +71,37 @@ public class AttachmentController {
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
                 .body(resource);
     }
+
+    @GetMapping("/{id}/pages")
+    @Operation(summary = "Number of previewable pages of an attachment (PDF pages, Excel sheets, 1 for images)")
+    public ResponseEntity<Map<String, Integer>> getPageCount(@PathVariable Long id) throws IOException {
+        return ResponseEntity.ok(Map.of("pageCount", attachmentPreviewService.pageCount(id)));
+    }
+
+    @GetMapping("/{id}/pages/{page}")
+    @Operation(summary = "PNG preview of one attachment page (0-based), rendered on first request and cached")
+    public ResponseEntity<Resource> getPage(@PathVariable Long id, @PathVariable int page,
+                                            @RequestParam(defaultValue = "150") int dpi,
+                                            WebRequest request) throws IOException {
+        return pageImage(attachmentPreviewService.page(id, page, dpi), request);
+    }
+
+    @GetMapping("/{id}/thumbnail")
+    @Operation(summary = "Small PNG preview of an attachment page (0-based, first page by default)")
+    public ResponseEntity<Resource> getThumbnail(@PathVariable Long id, @RequestParam(defaultValue = "0") int page,
+                                                 WebRequest request) throws IOException {
+        return pageImage(attachmentPreviewService.thumbnail(id, page), request);
+    }
+
+    private static ResponseEntity<Resource> pageImage(AttachmentPreviewService.PageImage image, WebRequest request) {
+        // The key covers the file contents, page and DPI, so an unchanged key means an unchanged image
+        if (request.checkNotModified(image.key())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .eTag(image.key())
+                .cacheControl(CacheControl.noCache())
+                .body(new FileSystemResource(image.path()));
+    }
 }
@@ -1,7 +1,9 @@
 package com.lims.module.sample.controller;
 
+import com.lims.module.notification.dto.JobProgressEvent;
 import com.lims.module.sample.dto.MethodDefinitionDTO;
 import com.lims.module.sample.service.MethodDefinitionService;
+import com.lims.module.sample.service.WorksheetRecalculationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,6 +18,7 @@ import java.util.List;
 public class MethodDefinitionController {
 
     private final MethodDefinitionService methodDefinitionService; 
+    private final WorksheetRecalculationService worksheetRecalculationService;
 
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'ANALYST', 'TECHNICIAN')")
@@ -49,6 +52,20 @@ public class MethodDefinitionController {
         return ResponseEntity.ok(methodDefinitionService.publishDefinition(testMethodId, userId));
     }
 
+    @PostMapping("/{definitionId}/recalculate")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<JobProgressEvent> recalculateWorksheets(@PathVariable Long testMethodId,
+                                                                  @PathVariable Long definitionId) {
+        return ResponseEntity.accepted().body(worksheetRecalculationService.start(testMethodId, definitionId));
+    }
+
+    @GetMapping("/recalculations/{jobId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'LAB_MANAGER')")
+    public ResponseEntity<JobProgressEvent> getRecalculationProgress(@PathVariable Long testMethodId,
+                                                                     @PathVariable String jobId) {
+        return ResponseEntity.ok(worksheetRecalculationService.getProgress(jobId));
+    }
+
     @PostMapping("/template")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<MethodDefinitionDTO> uploadTemplate(@PathVariable Long testMethodId,
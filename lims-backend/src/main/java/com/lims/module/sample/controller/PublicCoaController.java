@@ -2,11 +2,12 @@ package com.lims.module.sample.controller;
 
 import com.lims.module.sample.entity.Sample;
 import com.lims.module.sample.repository.SampleRepository;
+import com.lims.module.sample.service.RenderedPdf;
 import com.lims.module.sample.service.ReportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
-import net.sf.jasperreports.engine.JRException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +15,11 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/api/public")
@@ -26,7 +32,7 @@ public class PublicCoaController {
 
     @GetMapping("/coa/{sampleId}")
     @Operation(summary = "Get authorized Certificate of Analysis (COA) PDF for public verification")
-    public ResponseEntity<byte[]> getPublicCoa(@PathVariable Long sampleId) throws JRException {
+    public ResponseEntity<StreamingResponseBody> getPublicCoa(@PathVariable Long sampleId, WebRequest request) throws IOException {
         Sample sample = sampleRepository.findById(sampleId)
                 .orElse(null);
 
@@ -34,11 +40,25 @@ public class PublicCoaController {
             return ResponseEntity.notFound().build();
         }
 
-        byte[] pdf = reportService.generateCoa(sampleId);
+        // Read-only: a QR scan must not record a COA revision, and an unchanged COA is not re-sent
+        String etag = reportService.coaETag(sampleId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        RenderedPdf pdf = reportService.renderCoa(sampleId);
+        long size = pdf.size();
+        InputStream in = pdf.open();
 
         return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
                 .contentType(MediaType.APPLICATION_PDF)
+                .contentLength(size)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"COA_" + sample.getSampleNumber() + ".pdf\"")
-                .body(pdf);
+                .body(out -> {
+                    try (in) {
+                        in.transferTo(out);
+                    }
+                });
     }
 }
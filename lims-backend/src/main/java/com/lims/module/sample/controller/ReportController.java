@@ -1,23 +1,41 @@
 package com.lims.module.sample.controller;
 
 import com.lims.module.sample.dto.OverdueSampleDTO;
+import com.lims.module.sample.dto.ReportJobDTO;
+import com.lims.module.sample.dto.ReportJobRequest;
 import com.lims.module.sample.dto.TatReportDTO;
 import com.lims.module.sample.dto.WorkloadReportDTO;
+import com.lims.module.sample.entity.ReportJob;
+import com.lims.module.sample.service.CoaBulkExportService;
+import com.lims.module.sample.service.CoaSnapshotService;
+import com.lims.module.sample.service.RenderedPdf;
+import com.lims.module.sample.service.ReportJobService;
 import com.lims.module.sample.service.ReportService;
+import com.lims.module.sample.service.WorkloadRollupService;
 import com.lims.module.sample.repository.CoaRevisionRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import net.sf.jasperreports.engine.JRException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -30,16 +48,69 @@ public class ReportController {
 
     private final ReportService reportService;
     private final CoaRevisionRepository coaRevisionRepository;
+    private final ReportJobService reportJobService;
+    private final CoaSnapshotService coaSnapshotService;
+    private final CoaBulkExportService coaBulkExportService;
+    private final WorkloadRollupService workloadRollupService;
+
+    @PostMapping("/jobs")
+    @Operation(summary = "Queue a COA, TRF or worksheet report for background generation")
+    public ResponseEntity<ReportJobDTO> submitReportJob(@RequestBody ReportJobRequest request) {
+        return ResponseEntity.accepted().body(reportJobService.submit(request));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get the status of a report job (also pushed on /topic/jobs/{jobId})")
+    public ResponseEntity<ReportJobDTO> getReportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(reportJobService.getJob(jobId));
+    }
+
+    @GetMapping("/jobs/{jobId}/download")
+    @Operation(summary = "Download the PDF of a completed report job")
+    public ResponseEntity<Resource> downloadReportJob(@PathVariable String jobId) {
+        ReportJob job = reportJobService.getCompletedJob(jobId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .contentLength(job.getResultSize())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getFileName() + "\"")
+                .body(reportJobService.loadResult(job));
+    }
 
     @GetMapping("/coa/{sampleId}")
     @Operation(summary = "Generate and download Certificate of Analysis (COA) for a sample")
-    public ResponseEntity<byte[]> downloadCoa(@PathVariable Long sampleId) throws JRException {
-        byte[] pdf = reportService.generateCoa(sampleId);
+    public ResponseEntity<StreamingResponseBody> downloadCoa(@PathVariable Long sampleId) throws IOException {
+        RenderedPdf pdf = reportService.generateCoa(sampleId);
+        long size = pdf.size();
+        InputStream in = pdf.open();
 
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_PDF)
+                .contentLength(size)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"COA_" + sampleId + ".pdf\"")
-                .body(pdf);
+                .body(out -> {
+                    try (in) {
+                        in.transferTo(out);
+                    }
+                });
+    }
+
+    @GetMapping("/coa/export")
+    @Operation(summary = "Stream the COAs of a job, a client or an authorization date range as a ZIP",
+            description = "Entries are written in sample order as they are ready. After an interrupted download, "
+                    + "pass the sample number of the last complete entry as resumeAfter to get the rest.")
+    public ResponseEntity<StreamingResponseBody> exportCoas(
+            @RequestParam(required = false) Long jobId,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) Instant authorizedFrom,
+            @RequestParam(required = false) Instant authorizedTo,
+            @RequestParam(required = false) String resumeAfter) {
+        CoaBulkExportService.Plan plan = coaBulkExportService.plan(
+                new CoaBulkExportService.Criteria(jobId, clientId, authorizedFrom, authorizedTo, resumeAfter));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"COA_export.zip\"")
+                .body(out -> coaBulkExportService.export(plan, out));
     }
 
     @GetMapping("/coa/{sampleId}/revisions")
@@ -56,21 +127,33 @@ public class ReportController {
                         .generatedBy(r.getGeneratedBy() != null ? r.getGeneratedBy().getDisplayName() : "System")
                         .generatedAt(r.getGeneratedAt())
                         .notes(r.getNotes())
+                        .pdfSha256(r.getPdfSha256())
+                        .pdfSize(r.getPdfSize())
                         .build())
                 .collect(Collectors.toList());
         return ResponseEntity.ok(revisions);
     }
 
     @GetMapping("/coa/revisions/{revisionId}/download")
-    @Operation(summary = "Download a specific Certificate of Analysis (COA) revision PDF snapshot")
-    public ResponseEntity<byte[]> downloadCoaRevision(@PathVariable Long revisionId) {
-        com.lims.module.sample.entity.CoaRevision revision = coaRevisionRepository.findById(revisionId)
-                .orElseThrow(() -> new RuntimeException("COA Revision not found: " + revisionId));
+    @Operation(summary = "Download a specific Certificate of Analysis (COA) revision PDF snapshot (supports Range requests)")
+    public ResponseEntity<Resource> downloadCoaRevision(@PathVariable Long revisionId) {
+        CoaSnapshotService.Snapshot snapshot = coaSnapshotService.open(revisionId);
+        com.lims.module.sample.entity.CoaRevision revision = snapshot.revision();
 
+        // Resource bodies are streamed by Spring, which also answers Range requests with 206
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_PDF)
+                .eTag(revision.getPdfSha256())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"COA_" + revision.getSample().getSampleNumber() + "_Rev_" + revision.getRevisionNumber() + ".pdf\"")
-                .body(revision.getPdfSnapshot());
+                .body(snapshot.content());
+    }
+
+    @PostMapping("/coa/revisions/migrate-snapshots")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Move one batch of legacy COA revision snapshots from the database to the blob store")
+    public ResponseEntity<java.util.Map<String, Long>> migrateCoaSnapshots() {
+        return ResponseEntity.ok(coaSnapshotService.migrateBatch());
     }
 
     @GetMapping("/trf/{sampleId}")
@@ -84,18 +167,43 @@ public class ReportController {
                 .body(pdf);
     }
 
+    @GetMapping("/trf/job/{jobId}")
+    @Operation(summary = "Download the Test Request Forms of every sample in a job as one PDF")
+    public ResponseEntity<byte[]> downloadJobTrf(@PathVariable Long jobId) throws JRException {
+        byte[] pdf = reportService.generateJobTrf(jobId);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"TRF_JOB_" + jobId + ".pdf\"")
+                .body(pdf);
+    }
+
     @GetMapping("/tat")
     @PreAuthorize("hasAnyRole('ADMIN', 'LAB_MANAGER')")
-    @Operation(summary = "Turnaround time summary grouped by sample status")
-    public ResponseEntity<List<TatReportDTO>> getTatReport() {
-        return ResponseEntity.ok(reportService.getTatReport());
+    @Operation(summary = "Turnaround time percentiles per metric and status, between two days (UTC, inclusive)")
+    public ResponseEntity<List<TatReportDTO>> getTatReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) Long testMethodId) {
+        return ResponseEntity.ok(reportService.getTatReport(from, to, clientId, productId, testMethodId));
     }
 
     @GetMapping("/workload")
     @PreAuthorize("hasAnyRole('ADMIN', 'LAB_MANAGER')")
-    @Operation(summary = "Analyst workload breakdown — tests assigned, completed, and pending")
-    public ResponseEntity<List<WorkloadReportDTO>> getWorkloadReport() {
-        return ResponseEntity.ok(reportService.getWorkloadReport());
+    @Operation(summary = "Analyst workload between two days (UTC, inclusive) — tests assigned, submitted, authorized, and still open")
+    public ResponseEntity<List<WorkloadReportDTO>> getWorkloadReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(reportService.getWorkloadReport(from, to));
+    }
+
+    @PostMapping("/workload/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Rebuild the analyst workload rollups from the audit trail")
+    public ResponseEntity<java.util.Map<String, Long>> rebuildWorkloadRollups() {
+        return ResponseEntity.ok(workloadRollupService.rebuild());
     }
 
     @GetMapping("/overdue")
@@ -1,11 +1,13 @@
 package com.lims.module.sample.controller;
 
 import com.lims.module.sample.dto.JobDTO;
+import com.lims.module.sample.dto.SampleCursorPage;
 import com.lims.module.sample.dto.SampleDTO;
 import com.lims.module.sample.dto.DashboardStatsDTO;
 import com.lims.module.sample.dto.SampleRegistrationRequest;
 import com.lims.module.sample.dto.SampleReceiptRequest;
 import com.lims.module.sample.dto.SampleRejectionRequest;
+import com.lims.module.sample.service.SampleExportService;
 import com.lims.module.sample.service.SampleService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,12 +15,16 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -28,6 +34,7 @@ import java.util.List;
 public class SampleController {
 
     private final SampleService sampleService;
+    private final SampleExportService sampleExportService;
 
     @PostMapping("/register")
     @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST')")
@@ -52,13 +59,35 @@ public class SampleController {
             @RequestParam(name = "search", required = false) String search,
             @RequestParam(name = "status", required = false) String status,
             Pageable pageable) {
-        
-        List<String> statusList = null;
-        if (status != null && !status.trim().isEmpty()) {
-            statusList = java.util.Arrays.asList(status.split(","));
-        }
-        
-        return sampleService.listSamples(search, statusList, pageable);
+        return sampleService.listSamples(search, parseStatuses(status), pageable);
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "List samples by cursor",
+            description = "Newest first. Pass the nextCursor of a page as after to get the next one; "
+                    + "stable under concurrent registration and as fast on deep pages as on the first")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST', 'LAB_MANAGER', 'ANALYST', 'VIEWER')")
+    public SampleCursorPage listSamplesByCursor(
+            @RequestParam(name = "after", required = false) String after,
+            @RequestParam(name = "status", required = false) String status,
+            @RequestParam(name = "size", defaultValue = "50") int size) {
+        return sampleService.listSamplesAfter(after, parseStatuses(status), size);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export the sample register",
+            description = "Streams every visible sample, oldest first, as CSV (default) or XLSX")
+    @PreAuthorize("hasAnyRole('ADMIN', 'RECEPTIONIST', 'LAB_MANAGER', 'ANALYST', 'VIEWER')")
+    public ResponseEntity<StreamingResponseBody> exportSamples(
+            @RequestParam(name = "format", defaultValue = "csv") String format,
+            @RequestParam(name = "status", required = false) String status) {
+        SampleExportService.Plan plan = sampleExportService.plan(format, parseStatuses(status));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(plan.format().contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"samples_" + LocalDate.now() + "." + plan.format().extension + "\"")
+                .body(out -> sampleExportService.export(plan, out));
     }
 
     @GetMapping("/{id}")
@@ -102,4 +131,11 @@ public class SampleController {
         sampleService.deleteSample(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static List<String> parseStatuses(String status) {
+        if (status == null || status.trim().isEmpty()) {
+            return null;
+        }
+        return java.util.Arrays.asList(status.split(","));
+    }
 }
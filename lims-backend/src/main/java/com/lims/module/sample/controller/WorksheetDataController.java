@@ -3,19 +3,24 @@ package com.lims.module.sample.controller;
 import com.lims.module.sample.dto.WorksheetSubmitRequest;
 import com.lims.module.sample.dto.SpecimenSubmitRequest;
 import com.lims.module.sample.dto.ReviewerEditRequest;
+import com.lims.module.sample.dto.WorksheetPatchRequest;
+import com.lims.module.sample.dto.WorksheetRevisionDTO;
 import com.lims.module.sample.service.ReportService;
-import com.lims.module.sample.service.WorksheetAuditService;
 import com.lims.module.sample.service.WorksheetDataService;
+import com.lims.module.sample.service.WorksheetRevisionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -26,7 +31,7 @@ public class WorksheetDataController {
 
     private final WorksheetDataService worksheetDataService;
     private final ReportService reportService;
-    private final WorksheetAuditService worksheetAuditService;
+    private final WorksheetRevisionService worksheetRevisionService;
 
     @GetMapping("/{sampleTestId}")
     @Operation(summary = "Get worksheet schema and data")
@@ -36,10 +41,31 @@ public class WorksheetDataController {
     }
 
     @GetMapping("/{sampleTestId}/history")
-    @Operation(summary = "Get worksheet revision history")
+    @Operation(summary = "Get worksheet revision history (paginated, newest first)")
     @PreAuthorize("hasAnyRole('ADMIN', 'ANALYST', 'TECHNICIAN', 'REVIEWER', 'AUTHORIZER', 'LAB_MANAGER')")
-    public ResponseEntity<List<Map<String, Object>>> getHistory(@PathVariable Long sampleTestId) {
-        return ResponseEntity.ok(worksheetAuditService.getRevisionHistory(sampleTestId));
+    public ResponseEntity<Page<WorksheetRevisionDTO>> getHistory(@PathVariable Long sampleTestId, Pageable pageable) {
+        return ResponseEntity.ok(worksheetRevisionService.getHistory(sampleTestId, pageable));
+    }
+
+    @GetMapping("/{sampleTestId}/history/legacy")
+    @Operation(summary = "Get worksheet snapshots recorded before the revision history (paginated, newest first)")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ANALYST', 'TECHNICIAN', 'REVIEWER', 'AUTHORIZER', 'LAB_MANAGER')")
+    public ResponseEntity<Page<WorksheetRevisionDTO>> getLegacyHistory(@PathVariable Long sampleTestId, Pageable pageable) {
+        return ResponseEntity.ok(worksheetRevisionService.getLegacyHistory(sampleTestId, pageable));
+    }
+
+    @GetMapping("/{sampleTestId}/history/legacy/{auditRevision}")
+    @Operation(summary = "Get the worksheet data of a snapshot recorded before the revision history")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ANALYST', 'TECHNICIAN', 'REVIEWER', 'AUTHORIZER', 'LAB_MANAGER')")
+    public ResponseEntity<WorksheetRevisionDTO> getLegacyRevision(@PathVariable Long sampleTestId, @PathVariable Long auditRevision) {
+        return ResponseEntity.ok(worksheetRevisionService.getLegacyRevision(sampleTestId, auditRevision));
+    }
+
+    @GetMapping("/{sampleTestId}/history/{revisionNumber}")
+    @Operation(summary = "Get the worksheet data as of a revision (rebuilt and integrity-checked)")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ANALYST', 'TECHNICIAN', 'REVIEWER', 'AUTHORIZER', 'LAB_MANAGER')")
+    public ResponseEntity<WorksheetRevisionDTO> getRevision(@PathVariable Long sampleTestId, @PathVariable Integer revisionNumber) {
+        return ResponseEntity.ok(worksheetRevisionService.getRevision(sampleTestId, revisionNumber));
     }
 
     @PutMapping("/{sampleTestId}/draft")
@@ -52,6 +78,16 @@ public class WorksheetDataController {
         return ResponseEntity.ok().build();
     }
 
+    @PatchMapping("/{sampleTestId}/draft")
+    @Operation(summary = "Save worksheet draft as a JSON Patch delta against a version (409 if stale)")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ANALYST', 'TECHNICIAN')")
+    public ResponseEntity<Map<String, Object>> patchDraft(
+            @PathVariable Long sampleTestId,
+            @RequestBody WorksheetPatchRequest request) {
+        Long version = worksheetDataService.patchDraft(sampleTestId, request);
+        return ResponseEntity.ok(Map.of("version", version));
+    }
+
     @PostMapping("/{sampleTestId}/submit")
     @Operation(summary = "Submit worksheet for review")
     @PreAuthorize("hasAnyRole('ADMIN', 'ANALYST', 'TECHNICIAN')")
@@ -85,9 +121,15 @@ public class WorksheetDataController {
     @GetMapping("/{sampleTestId}/report")
     @Operation(summary = "Generate and download worksheet report PDF")
     @PreAuthorize("hasAnyRole('ADMIN', 'ANALYST', 'TECHNICIAN', 'REVIEWER', 'AUTHORIZER', 'LAB_MANAGER', 'VIEWER')")
-    public ResponseEntity<byte[]> downloadReport(@PathVariable Long sampleTestId) {
+    public ResponseEntity<byte[]> downloadReport(@PathVariable Long sampleTestId, WebRequest request) {
+        String etag = reportService.worksheetReportETag(sampleTestId);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         byte[] pdfBytes = reportService.generateWorksheetReport(sampleTestId);
         return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"worksheet_report_" + sampleTestId + ".pdf\"")
                 .contentType(MediaType.APPLICATION_PDF)
                 .body(pdfBytes);
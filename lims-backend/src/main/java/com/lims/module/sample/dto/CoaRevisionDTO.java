@@ -15,4 +15,6 @@ public class CoaRevisionDTO {
     private String generatedBy;
     private Instant generatedAt;
     private String notes;
+    private String pdfSha256;
+    private Long pdfSize;
 }
@@ -3,6 +3,8 @@ package com.lims.module.sample.dto;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 @Data @Builder
 public class DashboardStatsDTO {
     private long unreceivedCount;
@@ -10,4 +12,5 @@ public class DashboardStatsDTO {
     private long awaitingAuthorizationCount;
     private long authorizedTodayCount;
     private long rejectedCount;
+    private List<Long> clientIds;    // clients the counts cover; null for all clients
 }
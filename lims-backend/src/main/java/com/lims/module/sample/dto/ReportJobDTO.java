@@ -0,0 +1,21 @@
+package com.lims.module.sample.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ReportJobDTO {
+    private String jobId;
+    private String reportType;
+    private Long subjectId;
+    private String status;
+    private String requestedBy;
+    private String fileName;
+    private Long resultSize;
+    private String errorMessage;
+    private Instant createdAt;
+    private Instant startedAt;
+    private Instant completedAt;
+}
@@ -0,0 +1,9 @@
+package com.lims.module.sample.dto;
+
+import lombok.Data;
+
+@Data
+public class ReportJobRequest {
+    private String reportType;               // COA | TRF | JOB_TRF | WORKSHEET
+    private Long subjectId;                  // sample id (COA/TRF), job id (JOB_TRF) or sample test id (WORKSHEET)
+}
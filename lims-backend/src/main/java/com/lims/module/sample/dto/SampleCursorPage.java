@@ -0,0 +1,14 @@
+package com.lims.module.sample.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class SampleCursorPage {
+    private List<SampleDTO> items;
+    private String nextCursor;    // pass as "after" for the next page; null on the last page
+}
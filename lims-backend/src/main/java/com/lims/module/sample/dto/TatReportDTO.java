@@ -5,9 +5,13 @@ import lombok.Data;
 
 @Data @Builder
 public class TatReportDTO {
+    private String metric;
     private String status;
     private long count;
     private double averageTatHours;
     private double minTatHours;
     private double maxTatHours;
+    private double p50TatHours;
+    private double p90TatHours;
+    private double p99TatHours;
 }
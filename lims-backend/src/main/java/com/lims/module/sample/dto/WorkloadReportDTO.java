@@ -6,7 +6,8 @@ import lombok.Data;
 @Data @Builder
 public class WorkloadReportDTO {
     private String analystName;
-    private long samplesAssigned;
+    private long testsAssigned;
     private long testsCompleted;
+    private long testsAuthorized;
     private long testsPending;
 }
@@ -0,0 +1,14 @@
+package com.lims.module.sample.dto;
+
+import com.lims.common.json.JsonPatchOperation;
+import lombok.*;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WorksheetPatchRequest {
+    private Long version;                      // worksheet version the patch was computed against
+    private List<JsonPatchOperation> patch;    // RFC 6902 operations on the worksheet data
+}
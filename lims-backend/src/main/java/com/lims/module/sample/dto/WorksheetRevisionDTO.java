@@ -0,0 +1,25 @@
+package com.lims.module.sample.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class WorksheetRevisionDTO {
+    private Integer revisionNumber;
+    private String action;
+    private String status;
+    private String username;
+    private Instant createdAt;
+    private boolean checkpoint;
+    private List<String> changedPaths;
+    private String contentHash;
+    // Full snapshot from the Envers audit trail, written before revisions were stored as diffs
+    private boolean legacy;
+    // Only populated when a single revision is requested
+    private Map<String, Object> data;
+    private Map<String, Object> calculatedResults;
+}
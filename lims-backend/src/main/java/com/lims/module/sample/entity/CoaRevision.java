@@ -29,8 +29,15 @@ public class CoaRevision extends BaseEntity {
     @Column(name = "specimens_total", nullable = false)
     private Integer specimensTotal;
 
-    @Column(name = "pdf_snapshot", nullable = false)
-    private byte[] pdfSnapshot;
+    /** {@link com.lims.common.storage.BlobStore} reference of the PDF; null for rows not yet migrated. */
+    @Column(name = "pdf_ref", length = 100)
+    private String pdfRef;
+
+    @Column(name = "pdf_sha256", length = 64)
+    private String pdfSha256;
+
+    @Column(name = "pdf_size")
+    private Long pdfSize;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "generated_by")
@@ -0,0 +1,20 @@
+package com.lims.module.sample.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Number of samples of one client in one status, maintained by {@code DashboardCounterListener}
+ * as samples change and corrected by the periodic reconciliation in {@code DashboardCounterService}.
+ */
+@Entity
+@Table(name = "dashboard_counters")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class DashboardCounter {
+
+    @EmbeddedId
+    private DashboardCounterId id;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+}
@@ -0,0 +1,16 @@
+package com.lims.module.sample.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+@Embeddable
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @EqualsAndHashCode
+public class DashboardCounterId implements Serializable {
+    @Column(name = "client_id")
+    private Long clientId;
+
+    @Column(name = "status", length = 30)
+    private String status;
+}
@@ -0,0 +1,66 @@
+package com.lims.module.sample.entity;
+
+import com.lims.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A report rendered in the background. Clients refer to it by the random {@code jobId}; the
+ * rendered file is kept in the blob store until the job is purged.
+ */
+@Entity
+@Table(name = "report_jobs")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class ReportJob extends BaseEntity {
+
+    @Column(name = "job_id", nullable = false, unique = true, length = 36)
+    private String jobId;
+
+    @Column(name = "report_type", nullable = false, length = 30)
+    private String reportType;
+    // COA | TRF | WORKSHEET
+
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId;
+    // sample id for COA/TRF, sample test id for WORKSHEET
+
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private String status = "QUEUED";
+    // QUEUED | RUNNING | COMPLETED | FAILED
+
+    @Column(name = "requested_by", nullable = false, length = 100)
+    private String requestedBy;
+
+    @Column(name = "file_name", length = 200)
+    private String fileName;
+
+    @Column(name = "result_ref", length = 100)
+    private String resultRef;
+
+    @Column(name = "result_size")
+    private Long resultSize;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+    // renders started, including ones lost with their worker or deferred as busy
+
+    @Column(name = "queued_at")
+    private Instant queuedAt;
+    // last handed to the queue; null while waiting for retryAt
+
+    @Column(name = "retry_at")
+    private Instant retryAt;
+}
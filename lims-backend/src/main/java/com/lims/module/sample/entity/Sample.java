@@ -66,6 +66,9 @@ public class Sample extends BaseEntity {
     @Column(name = "due_date")
     private Instant dueDate;
 
+    @Column(name = "authorized_at")
+    private Instant authorizedAt;
+
     @ManyToOne
     @JoinColumn(name = "assigned_to")
     private User assignedTo;
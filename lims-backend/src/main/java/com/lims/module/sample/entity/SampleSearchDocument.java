@@ -0,0 +1,28 @@
+package com.lims.module.sample.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Denormalized search text of a sample (numbers, description, status, client, project, product),
+ * written by {@code SampleSearchIndexer} whenever one of its sources changes. On PostgreSQL the
+ * table also has a generated {@code tsv} column; both it and {@code document} are GIN-indexed.
+ */
+@Entity
+@Table(name = "sample_search")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class SampleSearchDocument {
+
+    @Id
+    @Column(name = "sample_id")
+    private Long sampleId;
+
+    @Column(name = "client_id", nullable = false)
+    private Long clientId;
+
+    @Column(nullable = false, length = 30)
+    private String status;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String document;
+}
@@ -1,6 +1,6 @@
 package com.lims.module.sample.entity;
 
-import com.lims.common.entity.BaseEntity;
+import com.lims.common.entity.TimestampedEntity;
 import com.lims.module.security.entity.User;
 import jakarta.persistence.*;
 import lombok.*;
@@ -13,7 +13,16 @@ import java.time.Instant;
 @Table(name = "specimens")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 @Audited
-public class Specimen extends BaseEntity {
+public class Specimen extends TimestampedEntity {
+
+    /**
+     * Pooled sequence rather than an identity column so bulk specimen submissions can be
+     * written with JDBC batch inserts; see V32 for the matching sequence increment.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "specimens_seq")
+    @SequenceGenerator(name = "specimens_seq", sequenceName = "specimens_id_seq", allocationSize = 50)
+    private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "sample_id", nullable = false)
@@ -45,4 +54,10 @@ public class Specimen extends BaseEntity {
 
     @Column(name = "authorized_at")
     private Instant authorizedAt;
+
+    /**
+     * Fingerprint of the specimen's lock-checked worksheet values, taken when it was authorized.
+     */
+    @Column(name = "lock_fingerprint", length = 64)
+    private String lockFingerprint;
 }
@@ -0,0 +1,54 @@
+package com.lims.module.sample.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * One status change of a sample or sample test, appended by {@code StatusTransitionRecorder}.
+ * Client, product and test method are copied in so analytics never join back to the samples.
+ * {@code aggregated} is set once the change has been folded into the TAT histograms.
+ */
+@Entity
+@Table(name = "status_transitions")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class StatusTransition {
+
+    public static final String SAMPLE = "SAMPLE";
+    public static final String SAMPLE_TEST = "SAMPLE_TEST";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entity_type", nullable = false, length = 20)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "sample_id", nullable = false)
+    private Long sampleId;
+
+    @Column(name = "client_id", nullable = false)
+    private Long clientId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "test_method_id")
+    private Long testMethodId;
+
+    @Column(name = "from_status", length = 30)
+    private String fromStatus;
+
+    @Column(name = "to_status", nullable = false, length = 30)
+    private String toStatus;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    @Column(nullable = false)
+    private boolean aggregated;
+}
@@ -0,0 +1,20 @@
+package com.lims.module.sample.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Count of one {@code LatencyHistogram} bucket for a metric, status, client, product, test
+ * method (0 for sample-level metrics) and day. Histograms of any slice are the sum of its rows.
+ */
+@Entity
+@Table(name = "tat_histograms")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class TatHistogramBucket {
+
+    @EmbeddedId
+    private TatHistogramBucketId id;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+}
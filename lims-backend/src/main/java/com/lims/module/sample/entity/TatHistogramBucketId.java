@@ -0,0 +1,32 @@
+package com.lims.module.sample.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @EqualsAndHashCode
+public class TatHistogramBucketId implements Serializable {
+    @Column(name = "metric", length = 20)
+    private String metric;
+
+    @Column(name = "status", length = 30)
+    private String status;
+
+    @Column(name = "client_id")
+    private Long clientId;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "test_method_id")
+    private Long testMethodId;
+
+    @Column(name = "occurred_on")
+    private LocalDate occurredOn;
+
+    @Column(name = "bucket")
+    private Integer bucket;
+}
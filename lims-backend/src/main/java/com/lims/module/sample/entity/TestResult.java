@@ -1,6 +1,6 @@
 package com.lims.module.sample.entity;
 
-import com.lims.common.entity.BaseEntity;
+import com.lims.common.entity.TimestampedEntity;
 import com.lims.module.security.entity.User;
 import jakarta.persistence.*;
 import lombok.*;
@@ -15,7 +15,16 @@ import java.util.List;
 @Table(name = "test_results")
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 @Audited
-public class TestResult extends BaseEntity {
+public class TestResult extends TimestampedEntity {
+
+    /**
+     * Pooled sequence rather than an identity column so bulk specimen submissions can be
+     * written with JDBC batch inserts; see V32 for the matching sequence increment.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_results_seq")
+    @SequenceGenerator(name = "test_results_seq", sequenceName = "test_results_id_seq", allocationSize = 50)
+    private Long id;
 
     @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "sample_test_id", nullable = false)
@@ -0,0 +1,27 @@
+package com.lims.module.sample.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Sample tests per analyst, UTC day and workload bucket: assigned, submitted for review and
+ * authorized that day, plus the signed change in open (assigned, not yet submitted) tests.
+ * Maintained by {@code WorkloadRollupListener}; rebuilt from the audit trail by
+ * {@code WorkloadRollupService}.
+ */
+@Entity
+@Table(name = "workload_rollups")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class WorkloadRollup {
+
+    public static final String ASSIGNED = "ASSIGNED";
+    public static final String SUBMITTED = "SUBMITTED";
+    public static final String AUTHORIZED = "AUTHORIZED";
+    public static final String OPEN = "OPEN";
+
+    @EmbeddedId
+    private WorkloadRollupId id;
+
+    @Column(name = "test_count", nullable = false)
+    private long testCount;
+}
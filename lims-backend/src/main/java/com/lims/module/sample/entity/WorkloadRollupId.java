@@ -0,0 +1,20 @@
+package com.lims.module.sample.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @EqualsAndHashCode @ToString
+public class WorkloadRollupId implements Serializable {
+    @Column(name = "analyst_id")
+    private Long analystId;
+
+    @Column(name = "occurred_on")
+    private LocalDate occurredOn;
+
+    @Column(name = "bucket", length = 20)
+    private String bucket;
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
@@ -26,14 +27,19 @@ public class WorksheetData extends BaseEntity {
     @JoinColumn(name = "method_definition_id", nullable = false)
     private MethodDefinition methodDefinition;
 
+    /**
+     * History of the worksheet documents is kept as diffs in {@link WorksheetRevision}, not in Envers.
+     */
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "jsonb", nullable = false)
     @Builder.Default
+    @NotAudited
     private Map<String, Object> data = new HashMap<>();
 
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "calculated_results", columnDefinition = "jsonb", nullable = false)
     @Builder.Default
+    @NotAudited
     private Map<String, Object> calculatedResults = new HashMap<>();
 
     @Column(name = "is_interim_submission", nullable = false)
@@ -55,4 +61,11 @@ public class WorksheetData extends BaseEntity {
 
     @Column(name = "submitted_at")
     private Instant submittedAt;
+
+    /**
+     * Incremented on every write; delta saves are applied against the version the client last saw.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
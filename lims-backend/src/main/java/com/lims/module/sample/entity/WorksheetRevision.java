@@ -0,0 +1,63 @@
+package com.lims.module.sample.entity;
+
+import com.lims.common.entity.BaseEntity;
+import com.lims.common.json.JsonPatchOperation;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only revision of a worksheet's {@code data}/{@code calculatedResults}.
+ * Every revision stores the diff from its predecessor; checkpoint revisions additionally hold
+ * the full document so any revision can be rebuilt by replaying forward from the nearest one.
+ * {@code contentHash} = SHA-256(previousHash + canonical document) chains revisions together
+ * so edits to stored history are detectable.
+ */
+@Entity
+@Table(name = "worksheet_revisions", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"worksheet_data_id", "revision_number"})
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class WorksheetRevision extends BaseEntity {
+
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
+    @JoinColumn(name = "worksheet_data_id", nullable = false)
+    private WorksheetData worksheetData;
+
+    @Column(name = "sample_test_id", nullable = false)
+    private Long sampleTestId;
+
+    @Column(name = "revision_number", nullable = false)
+    private Integer revisionNumber;
+
+    @Column(name = "is_checkpoint", nullable = false)
+    private boolean checkpoint;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
+    private Map<String, Object> snapshot;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb", nullable = false)
+    private List<JsonPatchOperation> diff;
+
+    @Column(nullable = false, length = 30)
+    private String status;
+
+    @Column(nullable = false, length = 30)
+    private String action;
+    // CREATE | DRAFT_SAVE | DRAFT_PATCH | SUBMIT | SUBMIT_INTERIM | SUBMIT_FINAL | FINALIZE | REJECT | AUTHORIZE | REVIEWER_EDIT
+
+    @Column(nullable = false, length = 100)
+    private String username;
+
+    @Column(name = "previous_hash", length = 64)
+    private String previousHash;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+}
@@ -0,0 +1,7 @@
+package com.lims.module.sample.event;
+
+/**
+ * Published when a method definition version becomes the active one for its test method.
+ */
+public record MethodDefinitionPublishedEvent(Long definitionId, Long testMethodId) {
+}
@@ -0,0 +1,22 @@
+package com.lims.module.sample.formula;
+
+/**
+ * Worksheet values as seen by formula evaluation. Numeric lookups return {@link Double#NaN}
+ * for blank or non-numeric entries and throw {@link FormulaException} for unknown paths.
+ */
+public interface FormulaData {
+
+    double number(String path);
+
+    /**
+     * Row {@code index} of a list column, {@code path} being the original reference for error reporting.
+     */
+    double element(String columnKey, int index, String path);
+
+    /**
+     * All rows of a list column; blank rows are NaN. Returns an empty array for unknown columns.
+     */
+    double[] column(String columnKey);
+
+    String text(String path);
+}
@@ -0,0 +1,22 @@
+package com.lims.module.sample.formula;
+
+/**
+ * Thrown when a computed-variable formula cannot be tokenized, parsed, type-checked or evaluated.
+ */
+public class FormulaException extends RuntimeException {
+
+    private final int position;
+
+    public FormulaException(String message) {
+        this(message, -1);
+    }
+
+    public FormulaException(String message, int position) {
+        super(position >= 0 ? message + " (at position " + position + ")" : message);
+        this.position = position;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,127 @@
+package com.lims.module.sample.formula;
+
+import com.lims.module.sample.formula.FormulaNode.ValueType;
+
+import java.util.List;
+
+/**
+ * Built-in formula functions. Aggregates accept any mix of scalar arguments and
+ * {@code section.*.field} columns; blank (NaN) entries are skipped.
+ */
+public enum FormulaFunction {
+
+    ROUND(2, 2, ValueType.NUMBER),
+    ABS(1, 1, ValueType.NUMBER),
+    SQRT(1, 1, ValueType.NUMBER),
+    POWER(2, 2, ValueType.NUMBER),
+    AVG(1, Integer.MAX_VALUE, ValueType.NUMBER),
+    SUM(1, Integer.MAX_VALUE, ValueType.NUMBER),
+    MIN(1, Integer.MAX_VALUE, ValueType.NUMBER),
+    MAX(1, Integer.MAX_VALUE, ValueType.NUMBER),
+    COUNT(1, Integer.MAX_VALUE, ValueType.NUMBER),
+    AND(1, Integer.MAX_VALUE, ValueType.BOOLEAN),
+    OR(1, Integer.MAX_VALUE, ValueType.BOOLEAN),
+    NOT(1, 1, ValueType.BOOLEAN);
+
+    private final int minArgs;
+    private final int maxArgs;
+    private final ValueType returnType;
+
+    FormulaFunction(int minArgs, int maxArgs, ValueType returnType) {
+        this.minArgs = minArgs;
+        this.maxArgs = maxArgs;
+        this.returnType = returnType;
+    }
+
+    public ValueType returnType() {
+        return returnType;
+    }
+
+    public boolean isAggregate() {
+        return this == AVG || this == SUM || this == MIN || this == MAX || this == COUNT;
+    }
+
+    /**
+     * Resolves a function name, accepting the common aliases POW and AVERAGE.
+     */
+    public static FormulaFunction lookup(String name) {
+        String upper = name.toUpperCase();
+        switch (upper) {
+            case "POW": return POWER;
+            case "AVERAGE": return AVG;
+            default: break;
+        }
+        for (FormulaFunction f : values()) {
+            if (f.name().equals(upper)) return f;
+        }
+        return null;
+    }
+
+    void checkArity(int count, int position) {
+        if (count < minArgs || count > maxArgs) {
+            String expected = minArgs == maxArgs ? String.valueOf(minArgs)
+                    : maxArgs == Integer.MAX_VALUE ? "at least " + minArgs : minArgs + "-" + maxArgs;
+            throw new FormulaException(name() + " expects " + expected + " argument(s), got " + count, position);
+        }
+    }
+
+    double apply(List<FormulaNode> args, FormulaData data, double[] computed) {
+        switch (this) {
+            case ROUND: {
+                double val = args.get(0).eval(data, computed);
+                double scale = Math.pow(10, (int) args.get(1).eval(data, computed));
+                return Math.round(val * scale) / scale;
+            }
+            case ABS: return Math.abs(args.get(0).eval(data, computed));
+            case SQRT: return Math.sqrt(args.get(0).eval(data, computed));
+            case POWER: return Math.pow(args.get(0).eval(data, computed), args.get(1).eval(data, computed));
+            case NOT: return args.get(0).eval(data, computed) == 0 ? 1 : 0;
+            case AND: {
+                for (FormulaNode arg : args) {
+                    if (arg.eval(data, computed) == 0) return 0;
+                }
+                return 1;
+            }
+            case OR: {
+                for (FormulaNode arg : args) {
+                    if (arg.eval(data, computed) != 0) return 1;
+                }
+                return 0;
+            }
+            default: return aggregate(args, data, computed);
+        }
+    }
+
+    private double aggregate(List<FormulaNode> args, FormulaData data, double[] computed) {
+        int n = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (FormulaNode arg : args) {
+            if (arg instanceof FormulaNode.Column column) {
+                for (double v : data.column(column.columnKey())) {
+                    if (Double.isNaN(v)) continue;
+                    n++;
+                    sum += v;
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+            } else {
+                double v = arg.eval(data, computed);
+                if (Double.isNaN(v)) continue;
+                n++;
+                sum += v;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+        }
+        switch (this) {
+            case SUM: return sum;
+            case COUNT: return n;
+            case AVG: return n == 0 ? 0 : sum / n;
+            case MIN: return n == 0 ? 0 : min;
+            case MAX: return n == 0 ? 0 : max;
+            default: throw new FormulaException("Not an aggregate: " + name());
+        }
+    }
+}
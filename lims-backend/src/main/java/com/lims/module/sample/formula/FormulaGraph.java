@@ -0,0 +1,332 @@
+package com.lims.module.sample.formula;
+
+import com.lims.module.sample.formula.FormulaNode.ValueType;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IllegalFormatException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compiled set of a schema's computed variables, ordered so every variable is evaluated after
+ * the {@code calc:} variables it references.
+ * <p>
+ * Compilation is lenient: a variable that fails to parse, references an unknown or text
+ * variable, or sits on a cycle is kept with an error and always evaluates to blank, so one bad
+ * formula does not take down the rest of a report. {@link #errors()} lists these problems for
+ * publish-time validation. Instances are immutable and safe to share; evaluation state lives in
+ * a {@link Session}.
+ */
+public final class FormulaGraph {
+
+    /**
+     * One computed variable. {@code node} is null when {@code error} is set.
+     */
+    public record Variable(String id, String expression, String format, FormulaNode node, String error,
+                           Set<String> dataReferences, Set<String> calcReferences) {
+
+        public ValueType type() {
+            return node != null ? node.type() : ValueType.NUMBER;
+        }
+    }
+
+    private final List<Variable> variables;
+    private final int[] order;
+    private final int[][] dependents;
+    private final Map<String, Integer> slots;
+
+    private FormulaGraph(List<Variable> variables, int[] order, int[][] dependents, Map<String, Integer> slots) {
+        this.variables = variables;
+        this.order = order;
+        this.dependents = dependents;
+        this.slots = slots;
+    }
+
+    /**
+     * Compiles {@code schemaDefinition.computedVariables}: entries of {@code id}, {@code expression}
+     * and optional {@code format}.
+     */
+    public static FormulaGraph compile(List<Map<String, Object>> computedVariables) {
+        List<Map<String, Object>> defs = computedVariables != null ? computedVariables : List.of();
+        int n = defs.size();
+        String[] ids = new String[n];
+        String[] expressions = new String[n];
+        String[] formats = new String[n];
+        FormulaNode[] nodes = new FormulaNode[n];
+        String[] errors = new String[n];
+        Map<String, Integer> slots = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> def = defs.get(i);
+            ids[i] = def.get("id") != null ? String.valueOf(def.get("id")) : null;
+            expressions[i] = def.get("expression") != null ? String.valueOf(def.get("expression")) : null;
+            formats[i] = def.get("format") != null ? String.valueOf(def.get("format")) : null;
+
+            if (ids[i] == null || ids[i].isBlank()) {
+                errors[i] = "Computed variable #" + (i + 1) + " has no id";
+                continue;
+            }
+            if (slots.putIfAbsent(ids[i], i) != null) {
+                errors[i] = "Duplicate computed variable id '" + ids[i] + "'";
+                continue;
+            }
+            try {
+                nodes[i] = FormulaParser.parse(expressions[i]);
+            } catch (FormulaException e) {
+                errors[i] = e.getMessage();
+            }
+        }
+
+        // Dependency edges; references to broken or text variables are errors of the referrer
+        List<Set<String>> dataRefs = new ArrayList<>(n);
+        List<Set<String>> calcRefs = new ArrayList<>(n);
+        int[] inDegree = new int[n];
+        List<List<Integer>> edges = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Set<String> data = new LinkedHashSet<>();
+            Set<String> calc = new LinkedHashSet<>();
+            if (nodes[i] != null) collectReferences(nodes[i], data, calc);
+            dataRefs.add(Collections.unmodifiableSet(data));
+            calcRefs.add(Collections.unmodifiableSet(calc));
+            edges.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            if (errors[i] != null) continue;
+            for (String ref : calcRefs.get(i)) {
+                Integer dep = slots.get(ref);
+                if (dep == null) {
+                    errors[i] = "Unknown reference calc:" + ref;
+                } else if (nodes[dep] != null && nodes[dep].type() == ValueType.TEXT) {
+                    errors[i] = "calc:" + ref + " is a text value and cannot be used in a formula";
+                } else {
+                    edges.get(dep).add(i);
+                    inDegree[i]++;
+                }
+            }
+        }
+
+        // Kahn's algorithm; whatever is left with incoming edges sits on or behind a cycle
+        int[] order = new int[n];
+        int count = 0;
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0) ready.add(i);
+        }
+        while (!ready.isEmpty()) {
+            int i = ready.poll();
+            order[count++] = i;
+            for (int next : edges.get(i)) {
+                if (--inDegree[next] == 0) ready.add(next);
+            }
+        }
+        if (count < n) {
+            List<String> cyclic = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (inDegree[i] > 0) cyclic.add(ids[i]);
+            }
+            for (int i = 0; i < n; i++) {
+                if (inDegree[i] > 0) {
+                    errors[i] = "Circular reference among computed variables " + cyclic;
+                    order[count++] = i;
+                }
+            }
+        }
+
+        int[][] dependents = new int[n][];
+        List<Variable> variables = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            dependents[i] = edges.get(i).stream().mapToInt(Integer::intValue).toArray();
+            FormulaNode bound = errors[i] == null ? nodes[i].bind(slots::get) : null;
+            variables.add(new Variable(ids[i], expressions[i], formats[i], bound, errors[i], dataRefs.get(i), calcRefs.get(i)));
+        }
+        return new FormulaGraph(List.copyOf(variables), order, dependents, Map.copyOf(slots));
+    }
+
+    public List<Variable> variables() {
+        return variables;
+    }
+
+    /**
+     * Problems found at compile time, one message per broken variable.
+     */
+    public List<String> errors() {
+        List<String> errors = new ArrayList<>();
+        for (Variable v : variables) {
+            if (v.error() != null) {
+                errors.add(v.id() != null ? "'" + v.id() + "': " + v.error() : v.error());
+            }
+        }
+        return errors;
+    }
+
+    public Session newSession(FormulaData data) {
+        return new Session(data);
+    }
+
+    /**
+     * Convenience for one-shot evaluation: all variables, formatted, keyed by id.
+     */
+    public Map<String, String> evaluate(FormulaData data) {
+        Session session = newSession(data);
+        session.recompute();
+        return session.results();
+    }
+
+    private static void collectReferences(FormulaNode node, Set<String> data, Set<String> calc) {
+        if (node instanceof FormulaNode.Var v) {
+            data.add(v.path());
+        } else if (node instanceof FormulaNode.Column c) {
+            data.add(c.path());
+        } else if (node instanceof FormulaNode.CalcRef r) {
+            calc.add(r.id());
+        }
+        for (FormulaNode child : node.children()) {
+            collectReferences(child, data, calc);
+        }
+    }
+
+    static String format(Variable variable, double value, String text) {
+        if (variable.type() == ValueType.TEXT) {
+            return text != null ? text : "";
+        }
+        if (variable.type() == ValueType.BOOLEAN) {
+            return Double.isNaN(value) ? "" : String.valueOf(value != 0);
+        }
+        if (!Double.isFinite(value)) return "";
+        String format = variable.format();
+        if (format != null && !format.isBlank()) {
+            try {
+                return String.format(format, value);
+            } catch (IllegalFormatException e) {
+                return "";
+            }
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Evaluation state over one worksheet. Values are held in primitive slots; after a section
+     * changes, only the variables reading it (and, if their value moved, their dependents) are
+     * recomputed.
+     */
+    public final class Session {
+
+        private final FormulaData data;
+        private final double[] values;
+        private final String[] texts;
+        private final String[] failures;
+        private final boolean[] dirty;
+
+        private Session(FormulaData data) {
+            int n = variables.size();
+            this.data = data;
+            this.values = new double[n];
+            this.texts = new String[n];
+            this.failures = new String[n];
+            this.dirty = new boolean[n];
+            Arrays.fill(values, Double.NaN);
+            Arrays.fill(dirty, true);
+        }
+
+        /**
+         * Marks every variable reading {@code sectionId} for recomputation.
+         */
+        public void invalidateSection(String sectionId) {
+            String prefix = sectionId + ".";
+            for (int i = 0; i < variables.size(); i++) {
+                for (String ref : variables.get(i).dataReferences()) {
+                    if (ref.startsWith(prefix)) {
+                        dirty[i] = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reloads one section into the underlying {@link WorksheetValues} and invalidates its readers.
+         */
+        public void updateSection(String sectionId, Object sectionData) {
+            if (!(data instanceof WorksheetValues values)) {
+                throw new IllegalStateException("Session data is not updatable");
+            }
+            values.putSection(sectionId, sectionData);
+            invalidateSection(sectionId);
+        }
+
+        /**
+         * Recomputes dirty variables in dependency order and returns how many were evaluated.
+         */
+        public int recompute() {
+            int evaluated = 0;
+            for (int i : order) {
+                if (!dirty[i]) continue;
+                dirty[i] = false;
+                evaluated++;
+
+                double previousValue = values[i];
+                String previousText = texts[i];
+                evaluate(i);
+                boolean changed = Double.compare(previousValue, values[i]) != 0
+                        || !Objects.equals(previousText, texts[i]);
+                if (changed) {
+                    for (int dep : dependents[i]) dirty[dep] = true;
+                }
+            }
+            return evaluated;
+        }
+
+        private void evaluate(int i) {
+            Variable variable = variables.get(i);
+            failures[i] = variable.error();
+            values[i] = Double.NaN;
+            texts[i] = null;
+            if (variable.node() == null) return;
+            try {
+                if (variable.type() == ValueType.TEXT) {
+                    texts[i] = variable.node().text(data, values);
+                } else {
+                    values[i] = variable.node().eval(data, values);
+                }
+            } catch (FormulaException e) {
+                failures[i] = e.getMessage();
+            }
+        }
+
+        public double value(String id) {
+            Integer slot = slots.get(id);
+            return slot != null ? values[slot] : Double.NaN;
+        }
+
+        /**
+         * Evaluation error of a variable, or null if it produced a value.
+         */
+        public String failure(String id) {
+            Integer slot = slots.get(id);
+            return slot != null ? failures[slot] : null;
+        }
+
+        /**
+         * Formatted results keyed by variable id, in schema order; failed variables are blank.
+         */
+        public Map<String, String> results() {
+            Map<String, String> results = new LinkedHashMap<>();
+            for (int i = 0; i < variables.size(); i++) {
+                Variable variable = variables.get(i);
+                if (variable.id() == null || results.containsKey(variable.id())) continue;
+                results.put(variable.id(), failures[i] != null ? "" : format(variable, values[i], texts[i]));
+            }
+            return results;
+        }
+    }
+}
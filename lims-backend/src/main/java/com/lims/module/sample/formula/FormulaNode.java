@@ -0,0 +1,185 @@
+package com.lims.module.sample.formula;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+/**
+ * Typed AST of a computed-variable formula.
+ * <p>
+ * Numeric and boolean nodes evaluate to primitive doubles (booleans as 1/0); text nodes only
+ * appear for header values, string literals and comparisons on them. Types are fixed at parse
+ * time, so evaluation never converts between representations.
+ */
+public sealed interface FormulaNode {
+
+    enum ValueType { NUMBER, BOOLEAN, TEXT, LIST }
+
+    ValueType type();
+
+    default double eval(FormulaData data, double[] computed) {
+        throw new FormulaException("Expression of type " + type() + " has no numeric value");
+    }
+
+    default String text(FormulaData data, double[] computed) {
+        throw new FormulaException("Expression of type " + type() + " has no text value");
+    }
+
+    default List<FormulaNode> children() {
+        return List.of();
+    }
+
+    /**
+     * Returns a copy of this node with every {@code calc:} reference resolved to its value slot.
+     */
+    default FormulaNode bind(ToIntFunction<String> slots) {
+        return this;
+    }
+
+    record Num(double value) implements FormulaNode {
+        public ValueType type() { return ValueType.NUMBER; }
+        public double eval(FormulaData data, double[] computed) { return value; }
+    }
+
+    record Bool(boolean value) implements FormulaNode {
+        public ValueType type() { return ValueType.BOOLEAN; }
+        public double eval(FormulaData data, double[] computed) { return value ? 1 : 0; }
+    }
+
+    record Text(String value) implements FormulaNode {
+        public ValueType type() { return ValueType.TEXT; }
+        public String text(FormulaData data, double[] computed) { return value; }
+    }
+
+    /**
+     * Reference to a worksheet value: {@code section.field}, {@code section.row.col},
+     * {@code section.field.N} or {@code header.x}. For indexed paths the column key and index
+     * are split once at parse time.
+     */
+    record Var(String path, String columnKey, int index) implements FormulaNode {
+        static Var of(String path) {
+            int dot = path.lastIndexOf('.');
+            String last = path.substring(dot + 1);
+            if (path.indexOf('.') != dot && !last.isEmpty() && last.chars().allMatch(Character::isDigit)) {
+                return new Var(path, path.substring(0, dot), Integer.parseInt(last));
+            }
+            return new Var(path, null, -1);
+        }
+
+        public String section() { return path.substring(0, path.indexOf('.')); }
+
+        public ValueType type() { return path.startsWith("header.") ? ValueType.TEXT : ValueType.NUMBER; }
+
+        public double eval(FormulaData data, double[] computed) {
+            return columnKey != null ? data.element(columnKey, index, path) : data.number(path);
+        }
+
+        public String text(FormulaData data, double[] computed) { return data.text(path); }
+    }
+
+    /**
+     * Wildcard column reference {@code section.*.field}; only valid as an aggregate argument.
+     */
+    record Column(String path, String columnKey) implements FormulaNode {
+        static Column of(String path) {
+            return new Column(path, path.replace(".*.", "."));
+        }
+
+        public String section() { return path.substring(0, path.indexOf('.')); }
+
+        public ValueType type() { return ValueType.LIST; }
+    }
+
+    record CalcRef(String id, int slot) implements FormulaNode {
+        public ValueType type() { return ValueType.NUMBER; }
+
+        public double eval(FormulaData data, double[] computed) {
+            if (slot < 0) throw new FormulaException("Unresolved reference calc:" + id);
+            return computed[slot];
+        }
+
+        public FormulaNode bind(ToIntFunction<String> slots) { return new CalcRef(id, slots.applyAsInt(id)); }
+    }
+
+    record Unary(String op, FormulaNode operand) implements FormulaNode {
+        public ValueType type() { return "-".equals(op) ? ValueType.NUMBER : ValueType.BOOLEAN; }
+
+        public double eval(FormulaData data, double[] computed) {
+            double v = operand.eval(data, computed);
+            return "-".equals(op) ? -v : (v == 0 ? 1 : 0);
+        }
+
+        public List<FormulaNode> children() { return List.of(operand); }
+
+        public FormulaNode bind(ToIntFunction<String> slots) { return new Unary(op, operand.bind(slots)); }
+    }
+
+    record Binary(String op, FormulaNode left, FormulaNode right, ValueType type) implements FormulaNode {
+        public double eval(FormulaData data, double[] computed) {
+            if (left.type() == ValueType.TEXT) {
+                boolean eq = Objects.equals(left.text(data, computed), right.text(data, computed));
+                return ("==".equals(op) ? eq : !eq) ? 1 : 0;
+            }
+            switch (op) {
+                case "&&": return left.eval(data, computed) != 0 && right.eval(data, computed) != 0 ? 1 : 0;
+                case "||": return left.eval(data, computed) != 0 || right.eval(data, computed) != 0 ? 1 : 0;
+                default: break;
+            }
+            double l = left.eval(data, computed);
+            double r = right.eval(data, computed);
+            switch (op) {
+                case "+": return l + r;
+                case "-": return l - r;
+                case "*": return l * r;
+                case "/": return l / r;
+                case "%": return l % r;
+                case "^": return Math.pow(l, r);
+                case "==": return l == r ? 1 : 0;
+                case "!=": return l != r ? 1 : 0;
+                case "<": return l < r ? 1 : 0;
+                case "<=": return l <= r ? 1 : 0;
+                case ">": return l > r ? 1 : 0;
+                case ">=": return l >= r ? 1 : 0;
+                default: throw new FormulaException("Unknown operator " + op);
+            }
+        }
+
+        public List<FormulaNode> children() { return List.of(left, right); }
+
+        public FormulaNode bind(ToIntFunction<String> slots) {
+            return new Binary(op, left.bind(slots), right.bind(slots), type);
+        }
+    }
+
+    record Conditional(FormulaNode condition, FormulaNode whenTrue, FormulaNode whenFalse, ValueType type)
+            implements FormulaNode {
+        public double eval(FormulaData data, double[] computed) {
+            return condition.eval(data, computed) != 0 ? whenTrue.eval(data, computed) : whenFalse.eval(data, computed);
+        }
+
+        public String text(FormulaData data, double[] computed) {
+            return condition.eval(data, computed) != 0 ? whenTrue.text(data, computed) : whenFalse.text(data, computed);
+        }
+
+        public List<FormulaNode> children() { return List.of(condition, whenTrue, whenFalse); }
+
+        public FormulaNode bind(ToIntFunction<String> slots) {
+            return new Conditional(condition.bind(slots), whenTrue.bind(slots), whenFalse.bind(slots), type);
+        }
+    }
+
+    record Call(FormulaFunction function, List<FormulaNode> args) implements FormulaNode {
+        public ValueType type() { return function.returnType(); }
+
+        public double eval(FormulaData data, double[] computed) { return function.apply(args, data, computed); }
+
+        public List<FormulaNode> children() { return args; }
+
+        public FormulaNode bind(ToIntFunction<String> slots) {
+            List<FormulaNode> bound = new ArrayList<>(args.size());
+            for (FormulaNode arg : args) bound.add(arg.bind(slots));
+            return new Call(function, List.copyOf(bound));
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.lims.module.sample.formula;
+
+import com.lims.module.sample.formula.FormulaNode.ValueType;
+import com.lims.module.sample.formula.FormulaTokenizer.Token;
+import com.lims.module.sample.formula.FormulaTokenizer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive-descent parser producing a type-checked {@link FormulaNode}.
+ * <p>
+ * Precedence, lowest first: {@code ?:}, {@code ||}/OR, {@code &&}/AND, {@code == != <>},
+ * {@code < <= > >=}, {@code + -}, {@code * / %}, unary {@code - ! NOT}, {@code ^}.
+ * {@code IF(cond, a, b)} is sugar for the ternary operator.
+ */
+public final class FormulaParser {
+
+    private final List<Token> tokens;
+    private int pos;
+
+    private FormulaParser(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    public static FormulaNode parse(String source) {
+        if (source == null || source.isBlank()) {
+            throw new FormulaException("Expression is empty");
+        }
+        FormulaParser parser = new FormulaParser(FormulaTokenizer.tokenize(source));
+        FormulaNode node = parser.ternary();
+        Token trailing = parser.peek();
+        if (trailing.type() != TokenType.EOF) {
+            throw new FormulaException("Unexpected '" + trailing.text() + "'", trailing.position());
+        }
+        if (node.type() == ValueType.LIST) {
+            throw new FormulaException("Wildcard reference must be wrapped in AVG, SUM, MIN, MAX or COUNT", 0);
+        }
+        return node;
+    }
+
+    private FormulaNode ternary() {
+        FormulaNode condition = or();
+        if (peek().type() != TokenType.QUESTION) return condition;
+        Token question = next();
+        FormulaNode whenTrue = ternary();
+        expect(TokenType.COLON, ":");
+        FormulaNode whenFalse = ternary();
+        return conditional(condition, whenTrue, whenFalse, question.position());
+    }
+
+    private FormulaNode or() {
+        FormulaNode left = and();
+        while (peek().is(TokenType.OPERATOR, "||") || peek().is(TokenType.IDENTIFIER, "or")) {
+            Token op = next();
+            FormulaNode right = and();
+            left = new FormulaNode.Binary("||", numeric(left, op), numeric(right, op), ValueType.BOOLEAN);
+        }
+        return left;
+    }
+
+    private FormulaNode and() {
+        FormulaNode left = equality();
+        while (peek().is(TokenType.OPERATOR, "&&") || peek().is(TokenType.IDENTIFIER, "and")) {
+            Token op = next();
+            FormulaNode right = equality();
+            left = new FormulaNode.Binary("&&", numeric(left, op), numeric(right, op), ValueType.BOOLEAN);
+        }
+        return left;
+    }
+
+    private FormulaNode equality() {
+        FormulaNode left = comparison();
+        while (isOperator("==", "=", "!=", "<>")) {
+            Token op = next();
+            FormulaNode right = comparison();
+            String symbol = op.text().equals("==") || op.text().equals("=") ? "==" : "!=";
+            boolean leftText = left.type() == ValueType.TEXT;
+            if (leftText != (right.type() == ValueType.TEXT)) {
+                throw new FormulaException("Cannot compare text with a number", op.position());
+            }
+            if (!leftText) {
+                numeric(left, op);
+                numeric(right, op);
+            }
+            left = new FormulaNode.Binary(symbol, left, right, ValueType.BOOLEAN);
+        }
+        return left;
+    }
+
+    private FormulaNode comparison() {
+        FormulaNode left = additive();
+        while (isOperator("<", "<=", ">", ">=")) {
+            Token op = next();
+            FormulaNode right = additive();
+            left = new FormulaNode.Binary(op.text(), numeric(left, op), numeric(right, op), ValueType.BOOLEAN);
+        }
+        return left;
+    }
+
+    private FormulaNode additive() {
+        FormulaNode left = multiplicative();
+        while (isOperator("+", "-")) {
+            Token op = next();
+            FormulaNode right = multiplicative();
+            left = new FormulaNode.Binary(op.text(), numeric(left, op), numeric(right, op), ValueType.NUMBER);
+        }
+        return left;
+    }
+
+    private FormulaNode multiplicative() {
+        FormulaNode left = unary();
+        while (isOperator("*", "/", "%")) {
+            Token op = next();
+            FormulaNode right = unary();
+            left = new FormulaNode.Binary(op.text(), numeric(left, op), numeric(right, op), ValueType.NUMBER);
+        }
+        return left;
+    }
+
+    private FormulaNode unary() {
+        if (isOperator("-")) {
+            Token op = next();
+            return new FormulaNode.Unary("-", numeric(unary(), op));
+        }
+        if (isOperator("+")) {
+            Token op = next();
+            return numeric(unary(), op);
+        }
+        if (isOperator("!") || (peek().is(TokenType.IDENTIFIER, "not") && peekAt(1).type() != TokenType.LPAREN)) {
+            Token op = next();
+            return new FormulaNode.Unary("!", numeric(unary(), op));
+        }
+        return power();
+    }
+
+    private FormulaNode power() {
+        FormulaNode base = primary();
+        if (isOperator("^")) {
+            Token op = next();
+            FormulaNode exponent = unary();
+            return new FormulaNode.Binary("^", numeric(base, op), numeric(exponent, op), ValueType.NUMBER);
+        }
+        return base;
+    }
+
+    private FormulaNode primary() {
+        Token token = next();
+        switch (token.type()) {
+            case NUMBER:
+                try {
+                    return new FormulaNode.Num(Double.parseDouble(token.text()));
+                } catch (NumberFormatException e) {
+                    throw new FormulaException("Invalid number '" + token.text() + "'", token.position());
+                }
+            case STRING:
+                return new FormulaNode.Text(token.text());
+            case LPAREN: {
+                FormulaNode inner = ternary();
+                expect(TokenType.RPAREN, ")");
+                return inner;
+            }
+            case IDENTIFIER:
+                return identifier(token);
+            case EOF:
+                throw new FormulaException("Unexpected end of expression", token.position());
+            default:
+                throw new FormulaException("Unexpected '" + token.text() + "'", token.position());
+        }
+    }
+
+    private FormulaNode identifier(Token token) {
+        String text = token.text();
+        if (peek().type() == TokenType.LPAREN) {
+            return call(token);
+        }
+        if (text.equalsIgnoreCase("true")) return new FormulaNode.Bool(true);
+        if (text.equalsIgnoreCase("false")) return new FormulaNode.Bool(false);
+        if (text.startsWith("calc:")) {
+            return new FormulaNode.CalcRef(text.substring("calc:".length()), -1);
+        }
+        if (text.indexOf('.') < 0) {
+            throw new FormulaException("Unknown identifier '" + text + "'; expected section.field", token.position());
+        }
+        if (text.contains("*")) {
+            if (!text.matches("[A-Za-z0-9_]+\\.\\*\\.[A-Za-z0-9_]+")) {
+                throw new FormulaException("Wildcard reference must have the form section.*.field", token.position());
+            }
+            return FormulaNode.Column.of(text);
+        }
+        return FormulaNode.Var.of(text);
+    }
+
+    private FormulaNode call(Token name) {
+        next(); // (
+        List<FormulaNode> args = new ArrayList<>();
+        if (peek().type() != TokenType.RPAREN) {
+            do {
+                args.add(ternary());
+            } while (accept(TokenType.COMMA));
+        }
+        expect(TokenType.RPAREN, ")");
+
+        if (name.text().equalsIgnoreCase("IF")) {
+            if (args.size() != 3) {
+                throw new FormulaException("IF expects 3 arguments, got " + args.size(), name.position());
+            }
+            return conditional(args.get(0), args.get(1), args.get(2), name.position());
+        }
+
+        FormulaFunction function = FormulaFunction.lookup(name.text());
+        if (function == null) {
+            throw new FormulaException("Unknown function '" + name.text() + "'", name.position());
+        }
+        function.checkArity(args.size(), name.position());
+        for (FormulaNode arg : args) {
+            if (arg.type() == ValueType.LIST && function.isAggregate()) continue;
+            numeric(arg, name);
+        }
+        return new FormulaNode.Call(function, List.copyOf(args));
+    }
+
+    private FormulaNode conditional(FormulaNode condition, FormulaNode whenTrue, FormulaNode whenFalse, int position) {
+        numeric(condition, position);
+        ValueType t = whenTrue.type();
+        ValueType f = whenFalse.type();
+        ValueType type;
+        if (t == ValueType.TEXT || f == ValueType.TEXT) {
+            if (t != f) throw new FormulaException("Both branches must be text or both numeric", position);
+            type = ValueType.TEXT;
+        } else {
+            numeric(whenTrue, position);
+            numeric(whenFalse, position);
+            type = t == ValueType.BOOLEAN && f == ValueType.BOOLEAN ? ValueType.BOOLEAN : ValueType.NUMBER;
+        }
+        return new FormulaNode.Conditional(condition, whenTrue, whenFalse, type);
+    }
+
+    private static FormulaNode numeric(FormulaNode node, Token at) {
+        return numeric(node, at.position());
+    }
+
+    private static FormulaNode numeric(FormulaNode node, int position) {
+        if (node.type() == ValueType.TEXT) {
+            throw new FormulaException("Text value used where a number is expected", position);
+        }
+        if (node.type() == ValueType.LIST) {
+            throw new FormulaException("Wildcard reference must be wrapped in AVG, SUM, MIN, MAX or COUNT", position);
+        }
+        return node;
+    }
+
+    private boolean isOperator(String... ops) {
+        Token t = peek();
+        if (t.type() != TokenType.OPERATOR) return false;
+        for (String op : ops) {
+            if (t.text().equals(op)) return true;
+        }
+        return false;
+    }
+
+    private Token peek() {
+        return tokens.get(pos);
+    }
+
+    private Token peekAt(int offset) {
+        return tokens.get(Math.min(pos + offset, tokens.size() - 1));
+    }
+
+    private Token next() {
+        Token t = tokens.get(pos);
+        if (t.type() != TokenType.EOF) pos++;
+        return t;
+    }
+
+    private boolean accept(TokenType type) {
+        if (peek().type() == type) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(TokenType type, String text) {
+        Token t = peek();
+        if (t.type() != type) {
+            throw new FormulaException("Expected '" + text + "' but found '" + t.text() + "'", t.position());
+        }
+        pos++;
+    }
+}
@@ -0,0 +1,134 @@
+package com.lims.module.sample.formula;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a computed-variable formula into tokens.
+ * <p>
+ * Variable references are single tokens including their dotted path, e.g. {@code results.mass.0},
+ * {@code results.*.mass}, {@code header.sampleId} or {@code calc:avgMass}.
+ */
+public final class FormulaTokenizer {
+
+    public enum TokenType {
+        NUMBER, STRING, IDENTIFIER, OPERATOR, LPAREN, RPAREN, COMMA, QUESTION, COLON, EOF
+    }
+
+    public record Token(TokenType type, String text, int position) {
+        boolean is(TokenType t, String value) {
+            return type == t && text.equalsIgnoreCase(value);
+        }
+    }
+
+    private FormulaTokenizer() {
+    }
+
+    public static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int len = source.length();
+        while (i < len) {
+            char ch = source.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                i++;
+            } else if (Character.isDigit(ch) || (ch == '.' && i + 1 < len && Character.isDigit(source.charAt(i + 1)))) {
+                i = readNumber(source, i, tokens);
+            } else if (Character.isLetter(ch) || ch == '_') {
+                i = readIdentifier(source, i, tokens);
+            } else if (ch == '\'' || ch == '"') {
+                i = readString(source, i, tokens);
+            } else if (ch == '(') {
+                tokens.add(new Token(TokenType.LPAREN, "(", i++));
+            } else if (ch == ')') {
+                tokens.add(new Token(TokenType.RPAREN, ")", i++));
+            } else if (ch == ',') {
+                tokens.add(new Token(TokenType.COMMA, ",", i++));
+            } else if (ch == '?') {
+                tokens.add(new Token(TokenType.QUESTION, "?", i++));
+            } else if (ch == ':') {
+                tokens.add(new Token(TokenType.COLON, ":", i++));
+            } else {
+                i = readOperator(source, i, tokens);
+            }
+        }
+        tokens.add(new Token(TokenType.EOF, "", len));
+        return tokens;
+    }
+
+    private static int readNumber(String source, int start, List<Token> tokens) {
+        int i = start;
+        int len = source.length();
+        while (i < len && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '.')) i++;
+        if (i < len && (source.charAt(i) == 'e' || source.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < len && (source.charAt(j) == '+' || source.charAt(j) == '-')) j++;
+            if (j < len && Character.isDigit(source.charAt(j))) {
+                i = j;
+                while (i < len && Character.isDigit(source.charAt(i))) i++;
+            }
+        }
+        tokens.add(new Token(TokenType.NUMBER, source.substring(start, i), start));
+        return i;
+    }
+
+    private static int readIdentifier(String source, int start, List<Token> tokens) {
+        int i = start;
+        int len = source.length();
+        while (i < len && isIdentifierPart(source.charAt(i))) i++;
+
+        // calc:<id> references another computed variable
+        if (i < len && source.charAt(i) == ':' && "calc".equals(source.substring(start, i))
+                && i + 1 < len && isIdentifierPart(source.charAt(i + 1))) {
+            i++;
+            while (i < len && isIdentifierPart(source.charAt(i))) i++;
+            tokens.add(new Token(TokenType.IDENTIFIER, source.substring(start, i), start));
+            return i;
+        }
+
+        // Dotted path segments: .field, .0, .*
+        while (i + 1 < len && source.charAt(i) == '.'
+                && (isIdentifierPart(source.charAt(i + 1)) || source.charAt(i + 1) == '*')) {
+            i++;
+            if (source.charAt(i) == '*') {
+                i++;
+            } else {
+                while (i < len && isIdentifierPart(source.charAt(i))) i++;
+            }
+        }
+        tokens.add(new Token(TokenType.IDENTIFIER, source.substring(start, i), start));
+        return i;
+    }
+
+    private static int readString(String source, int start, List<Token> tokens) {
+        char quote = source.charAt(start);
+        int end = source.indexOf(quote, start + 1);
+        if (end < 0) {
+            throw new FormulaException("Unterminated string literal", start);
+        }
+        tokens.add(new Token(TokenType.STRING, source.substring(start + 1, end), start));
+        return end + 1;
+    }
+
+    private static int readOperator(String source, int start, List<Token> tokens) {
+        String two = start + 1 < source.length() ? source.substring(start, start + 2) : "";
+        switch (two) {
+            case "==", "!=", "<>", "<=", ">=", "&&", "||" -> {
+                tokens.add(new Token(TokenType.OPERATOR, two, start));
+                return start + 2;
+            }
+            default -> {
+            }
+        }
+        char ch = source.charAt(start);
+        if ("+-*/%^<>=!".indexOf(ch) >= 0) {
+            tokens.add(new Token(TokenType.OPERATOR, String.valueOf(ch), start));
+            return start + 1;
+        }
+        throw new FormulaException("Unexpected character '" + ch + "'", start);
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_';
+    }
+}
@@ -0,0 +1,110 @@
+package com.lims.module.sample.formula;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numeric view of a worksheet's data for formula evaluation. Values are parsed once when a
+ * section is loaded: list sections become one {@code double[]} per column (keyed
+ * {@code section.field}), scalar and matrix cells are keyed by their full path.
+ */
+public final class WorksheetValues implements FormulaData {
+
+    private static final double[] EMPTY = new double[0];
+
+    private final Map<String, Double> scalars = new HashMap<>();
+    private final Map<String, double[]> columns = new HashMap<>();
+    private final Map<String, String> headers;
+
+    public WorksheetValues(Map<String, Object> data, Map<String, String> headers) {
+        this.headers = headers != null ? headers : Map.of();
+        if (data != null) {
+            data.forEach(this::putSection);
+        }
+    }
+
+    /**
+     * Replaces the parsed values of one section.
+     */
+    public void putSection(String sectionId, Object sectionData) {
+        String prefix = sectionId + ".";
+        scalars.keySet().removeIf(k -> k.startsWith(prefix));
+        columns.keySet().removeIf(k -> k.startsWith(prefix));
+
+        if (sectionData instanceof Map<?, ?> mapData) {
+            for (Map.Entry<?, ?> fieldEntry : mapData.entrySet()) {
+                String key = prefix + fieldEntry.getKey();
+                if (fieldEntry.getValue() instanceof Map<?, ?> rowMap) {
+                    // Matrix row: {section.rowKey.colKey}
+                    for (Map.Entry<?, ?> cellEntry : rowMap.entrySet()) {
+                        scalars.put(key + "." + cellEntry.getKey(), toDouble(cellEntry.getValue()));
+                    }
+                } else {
+                    scalars.put(key, toDouble(fieldEntry.getValue()));
+                }
+            }
+        } else if (sectionData instanceof List<?> rows) {
+            int size = rows.size();
+            for (int i = 0; i < size; i++) {
+                if (!(rows.get(i) instanceof Map<?, ?> rowMap)) continue;
+                for (Map.Entry<?, ?> entry : rowMap.entrySet()) {
+                    double[] column = columns.computeIfAbsent(prefix + entry.getKey(), k -> {
+                        double[] values = new double[size];
+                        Arrays.fill(values, Double.NaN);
+                        return values;
+                    });
+                    column[i] = toDouble(entry.getValue());
+                }
+            }
+        }
+    }
+
+    @Override
+    public double number(String path) {
+        Double value = scalars.get(path);
+        if (value == null) {
+            throw new FormulaException("Unknown variable: " + path);
+        }
+        return value;
+    }
+
+    @Override
+    public double element(String columnKey, int index, String path) {
+        double[] column = columns.get(columnKey);
+        if (column == null) {
+            // Matrix cells may have numeric column keys: section.row.0
+            return number(path);
+        }
+        if (index >= column.length) {
+            throw new FormulaException("Unknown variable: " + path);
+        }
+        return column[index];
+    }
+
+    @Override
+    public double[] column(String columnKey) {
+        return columns.getOrDefault(columnKey, EMPTY);
+    }
+
+    @Override
+    public String text(String path) {
+        if (!headers.containsKey(path)) {
+            throw new FormulaException("Unknown variable: " + path);
+        }
+        return headers.get(path);
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number n) return n.doubleValue();
+        if (value instanceof String s && !s.isBlank()) {
+            try {
+                return Double.parseDouble(s.trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+}
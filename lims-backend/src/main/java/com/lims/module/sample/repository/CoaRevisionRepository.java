@@ -12,4 +12,5 @@ public interface CoaRevisionRepository extends JpaRepository<CoaRevision, Long>
     List<CoaRevision> findBySampleIdOrderByRevisionNumberDesc(Long sampleId);
     Optional<CoaRevision> findTopBySampleIdOrderByRevisionNumberDesc(Long sampleId);
     int countBySampleId(Long sampleId);
+    boolean existsByPdfRef(String pdfRef);
 }
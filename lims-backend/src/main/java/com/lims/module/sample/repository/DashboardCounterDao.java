@@ -0,0 +1,83 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.DashboardCounterId;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC increments of the dashboard counters. Methods take the connection to work on, so the
+ * listener can write inside the flushing session and reconciliation in its own transaction.
+ */
+@Repository
+public class DashboardCounterDao {
+
+    private static final String UPSERT_POSTGRES = """
+            INSERT INTO dashboard_counters (client_id, status, sample_count) VALUES (?, ?, ?)
+            ON CONFLICT (client_id, status) DO UPDATE SET sample_count = dashboard_counters.sample_count + EXCLUDED.sample_count
+            """;
+    private static final String UPSERT_STANDARD = """
+            MERGE INTO dashboard_counters t
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR(30)), CAST(? AS BIGINT))) AS d(client_id, status, delta)
+            ON t.client_id = d.client_id AND t.status = d.status
+            WHEN MATCHED THEN UPDATE SET sample_count = t.sample_count + d.delta
+            WHEN NOT MATCHED THEN INSERT (client_id, status, sample_count) VALUES (d.client_id, d.status, d.delta)
+            """;
+
+    /** Advisory lock key held by the instance that is reconciling the counters. */
+    private static final long RECONCILE_LOCK_KEY = 0x6c696d732d646371L;
+
+    /** Locking the rows in one order keeps concurrent transactions from deadlocking on them. */
+    public static final Comparator<DashboardCounterId> KEY_ORDER =
+            Comparator.comparing(DashboardCounterId::getClientId).thenComparing(DashboardCounterId::getStatus);
+
+    private volatile Boolean postgres;
+
+    /** Adds the non-zero deltas to their counters, creating missing ones. */
+    public void increment(Connection connection, Map<DashboardCounterId, Long> deltas) throws SQLException {
+        List<Map.Entry<DashboardCounterId, Long>> rows = deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(KEY_ORDER))
+                .toList();
+        if (rows.isEmpty()) return;
+        try (PreparedStatement ps = connection.prepareStatement(isPostgres(connection) ? UPSERT_POSTGRES : UPSERT_STANDARD)) {
+            for (Map.Entry<DashboardCounterId, Long> row : rows) {
+                ps.setLong(1, row.getKey().getClientId());
+                ps.setString(2, row.getKey().getStatus());
+                ps.setLong(3, row.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Takes the reconciliation lock for the rest of the connection's transaction, or returns
+     * false if another transaction holds it. Advisory locks are PostgreSQL-only; on the test
+     * database the lock is always granted.
+     */
+    public boolean tryLockReconciliation(Connection connection) throws SQLException {
+        if (!isPostgres(connection)) return true;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+            ps.setLong(1, RECONCILE_LOCK_KEY);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private boolean isPostgres(Connection connection) throws SQLException {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            postgres = pg;
+        }
+        return pg;
+    }
+}
@@ -0,0 +1,14 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.DashboardCounter;
+import com.lims.module.sample.entity.DashboardCounterId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DashboardCounterRepository extends JpaRepository<DashboardCounter, DashboardCounterId> {
+
+    List<DashboardCounter> findByIdClientIdIn(List<Long> clientIds);
+}
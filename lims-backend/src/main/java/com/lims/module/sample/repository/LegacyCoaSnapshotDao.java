@@ -0,0 +1,99 @@
+package com.lims.module.sample.repository;
+
+import com.lims.common.storage.StoredBlob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * JDBC access to the legacy {@code coa_revisions.pdf_snapshot} bytea column, which is no longer
+ * mapped by {@code CoaRevision}. Used only to move old snapshots into the blob store.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LegacyCoaSnapshotDao {
+
+    @FunctionalInterface
+    public interface SnapshotReader<T> {
+        T read(InputStream snapshot) throws IOException;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean columnPresent;
+
+    /**
+     * Whether the legacy column still exists; schemas generated from the entities (H2 in
+     * dev/test) never had it.
+     */
+    public boolean isColumnPresent() {
+        Boolean present = columnPresent;
+        if (present == null) {
+            present = jdbcTemplate.execute((ConnectionCallback<Boolean>) c -> {
+                DatabaseMetaData meta = c.getMetaData();
+                for (String table : List.of("coa_revisions", "COA_REVISIONS")) {
+                    for (String column : List.of("pdf_snapshot", "PDF_SNAPSHOT")) {
+                        try (ResultSet rs = meta.getColumns(null, null, table, column)) {
+                            if (rs.next()) return true;
+                        }
+                    }
+                }
+                return false;
+            });
+            columnPresent = present;
+        }
+        return present;
+    }
+
+    public List<Long> findUnmigratedIds(int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT id FROM coa_revisions
+                WHERE pdf_ref IS NULL AND pdf_snapshot IS NOT NULL
+                ORDER BY id
+                LIMIT ?
+                """, Long.class, limit);
+    }
+
+    public long countUnmigrated() {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM coa_revisions WHERE pdf_ref IS NULL AND pdf_snapshot IS NOT NULL", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Streams one revision's legacy snapshot to {@code reader}.
+     *
+     * @return the reader's result, or null if the row has no legacy snapshot
+     */
+    public <T> T readSnapshot(Long revisionId, SnapshotReader<T> reader) {
+        return jdbcTemplate.query("SELECT pdf_snapshot FROM coa_revisions WHERE id = ? AND pdf_snapshot IS NOT NULL",
+                rs -> {
+                    if (!rs.next()) return null;
+                    try (InputStream in = rs.getBinaryStream(1)) {
+                        return reader.read(in);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, revisionId);
+    }
+
+    /**
+     * Points a revision at its stored blob and clears the legacy column.
+     *
+     * @return false if another worker migrated the row first
+     */
+    public boolean markMigrated(Long revisionId, StoredBlob blob) {
+        return jdbcTemplate.update("""
+                UPDATE coa_revisions SET pdf_ref = ?, pdf_sha256 = ?, pdf_size = ?, pdf_snapshot = NULL
+                WHERE id = ? AND pdf_ref IS NULL
+                """, blob.ref(), blob.sha256(), blob.size(), revisionId) > 0;
+    }
+}
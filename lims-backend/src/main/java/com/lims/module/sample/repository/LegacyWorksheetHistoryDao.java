@@ -0,0 +1,85 @@
+package com.lims.module.sample.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to the full worksheet snapshots Envers stored in {@code worksheet_data_aud} before
+ * worksheet history moved to {@code worksheet_revisions}. The {@code data} and
+ * {@code calculated_results} columns are no longer mapped, so these rows are read directly.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LegacyWorksheetHistoryDao {
+
+    /** One legacy snapshot; the documents are raw JSON text and only read for a single revision. */
+    public record Snapshot(long revision, Instant at, String username, String status,
+                           String data, String calculatedResults) {}
+
+    private static final String SELECT = """
+            SELECT a.rev, r.revtstmp, r.username, a.status, %s
+            FROM worksheet_data_aud a
+            JOIN revinfo r ON r.rev = a.rev
+            WHERE a.sample_test_id = ? AND a.data IS NOT NULL
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean columnPresent;
+
+    /**
+     * Whether the legacy document column still exists; schemas generated from the entities (H2
+     * in dev/test) never had it.
+     */
+    public boolean isColumnPresent() {
+        Boolean present = columnPresent;
+        if (present == null) {
+            present = jdbcTemplate.execute((ConnectionCallback<Boolean>) c -> {
+                DatabaseMetaData meta = c.getMetaData();
+                for (String table : List.of("worksheet_data_aud", "WORKSHEET_DATA_AUD")) {
+                    for (String column : List.of("data", "DATA")) {
+                        try (ResultSet rs = meta.getColumns(null, null, table, column)) {
+                            if (rs.next()) return true;
+                        }
+                    }
+                }
+                return false;
+            });
+            columnPresent = present;
+        }
+        return present;
+    }
+
+    public long count(Long sampleTestId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM worksheet_data_aud WHERE sample_test_id = ? AND data IS NOT NULL",
+                Long.class, sampleTestId);
+        return count != null ? count : 0;
+    }
+
+    /** Snapshots of a sample test's worksheet, newest first, without their documents. */
+    public List<Snapshot> findPage(Long sampleTestId, long offset, int limit) {
+        return jdbcTemplate.query(SELECT.formatted("NULL, NULL") + "ORDER BY a.rev DESC LIMIT ? OFFSET ?",
+                (rs, i) -> map(rs), sampleTestId, limit, offset);
+    }
+
+    public Optional<Snapshot> find(Long sampleTestId, long revision) {
+        return jdbcTemplate.query(SELECT.formatted("CAST(a.data AS VARCHAR), CAST(a.calculated_results AS VARCHAR)")
+                        + "AND a.rev = ?",
+                (rs, i) -> map(rs), sampleTestId, revision).stream().findFirst();
+    }
+
+    private static Snapshot map(ResultSet rs) throws SQLException {
+        return new Snapshot(rs.getLong(1), Instant.ofEpochMilli(rs.getLong(2)), rs.getString(3), rs.getString(4),
+                rs.getString(5), rs.getString(6));
+    }
+}
@@ -0,0 +1,80 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.ReportJob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+    Optional<ReportJob> findByJobId(String jobId);
+    Optional<ReportJob> findByJobIdAndRequestedBy(String jobId, String requestedBy);
+    long countByStatus(String status);
+    List<ReportJob> findByStatusInAndCompletedAtBefore(List<String> statuses, Instant cutoff);
+
+    boolean existsByResultRef(String resultRef);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM ReportJob j WHERE j.jobId = :jobId")
+    Optional<ReportJob> findAndLockByJobId(@Param("jobId") String jobId);
+
+    /** Atomically moves a QUEUED job to RUNNING; returns 0 if another worker already took it. */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE ReportJob j SET j.status = 'RUNNING', j.startedAt = :startedAt, j.attempts = j.attempts + 1
+        WHERE j.jobId = :jobId AND j.status = 'QUEUED' AND j.retryAt IS NULL
+    """)
+    int claim(@Param("jobId") String jobId, @Param("startedAt") Instant startedAt);
+
+    /** QUEUED jobs whose backoff has passed, and those whose queue message may have been lost. */
+    @Query("""
+        SELECT j.jobId FROM ReportJob j
+        WHERE j.status = 'QUEUED'
+          AND (j.retryAt <= :now OR (j.retryAt IS NULL AND j.queuedAt < :queuedBefore))
+        ORDER BY j.id
+    """)
+    List<String> findDueForRequeue(@Param("now") Instant now, @Param("queuedBefore") Instant queuedBefore);
+
+    /** Hands a QUEUED job to the queue again, unless another node already did. */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE ReportJob j SET j.retryAt = NULL, j.queuedAt = :now
+        WHERE j.jobId = :jobId AND j.status = 'QUEUED'
+          AND (j.retryAt <= :now OR (j.retryAt IS NULL AND j.queuedAt < :queuedBefore))
+    """)
+    int markRequeued(@Param("jobId") String jobId, @Param("now") Instant now, @Param("queuedBefore") Instant queuedBefore);
+
+    /** RUNNING jobs started before the cutoff, whose worker is presumed lost. */
+    List<ReportJob> findByStatusAndStartedAtBefore(String status, Instant cutoff);
+
+    /** Puts a stale RUNNING job back on the queue, unless it finished or was recovered meanwhile. */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE ReportJob j SET j.status = 'QUEUED', j.startedAt = NULL, j.queuedAt = :now
+        WHERE j.jobId = :jobId AND j.status = 'RUNNING' AND j.attempts = :attempts
+    """)
+    int requeueStale(@Param("jobId") String jobId, @Param("attempts") int attempts, @Param("now") Instant now);
+
+    /** Fails an unfinished job, unless its state changed since it was read. */
+    @Transactional
+    @Modifying
+    @Query("""
+        UPDATE ReportJob j SET j.status = 'FAILED', j.errorMessage = :errorMessage, j.completedAt = :now,
+               j.retryAt = NULL
+        WHERE j.jobId = :jobId AND j.status = :status AND j.attempts = :attempts
+    """)
+    int fail(@Param("jobId") String jobId, @Param("status") String status, @Param("attempts") int attempts,
+             @Param("errorMessage") String errorMessage, @Param("now") Instant now);
+}
@@ -0,0 +1,65 @@
+package com.lims.module.sample.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward-only read of the sample register for exports. Rows are fetched from the database
+ * {@value #FETCH_SIZE} at a time (on PostgreSQL this needs the surrounding transaction, which
+ * keeps the server-side cursor open) and handed to the caller one by one, so memory use does not
+ * depend on the number of samples.
+ */
+@Repository
+public class SampleExportDao {
+
+    static final int FETCH_SIZE = 500;
+
+    /** Columns, in this order: the export writes one field per column. */
+    public static final List<String> COLUMNS = List.of(
+            "sample_number", "job_number", "client", "project", "product", "description", "status",
+            "condition_on_receipt", "sampled_at", "received_at", "due_date", "authorized_at", "registered_at");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SampleExportDao(DataSource dataSource) {
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(FETCH_SIZE);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    /**
+     * Streams the samples, oldest first, to {@code handler}.
+     *
+     * @param clientIds only samples of these clients; null for all
+     * @param statuses  only samples in these statuses; null or empty for all
+     */
+    public void streamRows(List<Long> clientIds, List<String> statuses, RowCallbackHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> where = new ArrayList<>();
+        if (clientIds != null) {
+            params.addValue("clientIds", clientIds.isEmpty() ? List.of(-1L) : clientIds);
+            where.add("j.client_id IN (:clientIds)");
+        }
+        if (statuses != null && !statuses.isEmpty()) {
+            params.addValue("statuses", statuses);
+            where.add("s.status IN (:statuses)");
+        }
+        jdbcTemplate.query("""
+                SELECT s.sample_number, j.job_number, c.name AS client, j.project_name AS project,
+                       p.name AS product, s.description, s.status, s.condition_on_receipt,
+                       s.sampled_at, s.received_at, s.due_date, s.authorized_at, s.created_at AS registered_at
+                FROM samples s
+                JOIN jobs j ON j.id = s.job_id
+                JOIN clients c ON c.id = j.client_id
+                JOIN products p ON p.id = s.product_id
+                """ + (where.isEmpty() ? "" : "WHERE " + String.join(" AND ", where) + "\n")
+                + "ORDER BY s.created_at, s.id", params, handler);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,26 +20,73 @@ public interface SampleRepository extends JpaRepository<Sample, Long>, JpaSpecif
     List<Sample> findByJobId(Long jobId);
     long countByJobId(Long jobId);
 
-    // Status-based counts for dashboard
-    long countByStatus(String status);
-    long countByStatusAndJobClientIdIn(String status, List<Long> clientIds);
+    /** Sample counts per (client id, status), the source of truth for the dashboard counters */
+    @Query("""
+            SELECT j.client.id, s.status, COUNT(s)
+            FROM Sample s JOIN s.job j
+            GROUP BY j.client.id, s.status
+            """)
+    List<Object[]> countByClientAndStatus();
 
     Page<Sample> findByOrderByCreatedAtDesc(Pageable pageable);
 
-    // --- Report queries ---
+    // --- Sample list read model ---
+
+    /**
+     * Ids of one page of the sample list. A filter applies only when its {@code all...} flag is
+     * false; pass a non-empty placeholder list otherwise.
+     */
+    @Query(value = """
+            SELECT s.id FROM Sample s
+            WHERE (:allClients = true OR s.job.client.id IN :clientIds)
+              AND (:allStatuses = true OR s.status IN :statuses)
+            """,
+            countQuery = """
+            SELECT COUNT(s) FROM Sample s
+            WHERE (:allClients = true OR s.job.client.id IN :clientIds)
+              AND (:allStatuses = true OR s.status IN :statuses)
+            """)
+    Page<Long> findListPageIds(@Param("allClients") boolean allClients,
+                               @Param("clientIds") List<Long> clientIds,
+                               @Param("allStatuses") boolean allStatuses,
+                               @Param("statuses") List<String> statuses,
+                               Pageable pageable);
 
-    /** Group samples by status with TAT aggregates (hours between createdAt and updatedAt) */
+    /**
+     * Keyset page of the sample list, newest first: id and createdAt of up to the pageable's size
+     * samples ordered before ({@code createdAt}, {@code id}). Filters as in {@link #findListPageIds}.
+     */
     @Query("""
-        SELECT s.status,
-               COUNT(s),
-               COALESCE(AVG(timestampdiff(SECOND, s.createdAt, s.updatedAt)) / 3600.0, 0),
-               COALESCE(MIN(timestampdiff(SECOND, s.createdAt, s.updatedAt)) / 3600.0, 0),
-               COALESCE(MAX(timestampdiff(SECOND, s.createdAt, s.updatedAt)) / 3600.0, 0)
-        FROM Sample s
-        GROUP BY s.status
-        ORDER BY COUNT(s) DESC
-    """)
-    List<Object[]> getTatStatsByStatus();
+            SELECT s.id, s.createdAt FROM Sample s
+            WHERE (s.createdAt, s.id) < (:createdAt, :id)
+              AND (:allClients = true OR s.job.client.id IN :clientIds)
+              AND (:allStatuses = true OR s.status IN :statuses)
+            ORDER BY s.createdAt DESC, s.id DESC
+            """)
+    List<Object[]> findListIdsBefore(@Param("createdAt") Instant createdAt,
+                                     @Param("id") Long id,
+                                     @Param("allClients") boolean allClients,
+                                     @Param("clientIds") List<Long> clientIds,
+                                     @Param("allStatuses") boolean allStatuses,
+                                     @Param("statuses") List<String> statuses,
+                                     Pageable pageable);
+
+    /**
+     * List columns of the given samples. Columns: id, sampleNumber, productName, description,
+     * status, conditionOnReceipt, receivedAt, sampledAt, clientName, jobNumber.
+     */
+    @Query("""
+            SELECT s.id, s.sampleNumber, p.name, s.description, s.status, s.conditionOnReceipt,
+                   s.receivedAt, s.sampledAt, c.name, j.jobNumber
+            FROM Sample s
+            JOIN s.product p
+            JOIN s.job j
+            JOIN j.client c
+            WHERE s.id IN :ids
+            """)
+    List<Object[]> findListRows(@Param("ids") Collection<Long> ids);
+
+    // --- Report queries ---
 
     /** All samples past their due date that are not in a terminal status */
     @Query("""
@@ -53,6 +101,30 @@ public interface SampleRepository extends JpaRepository<Sample, Long>, JpaSpecif
     """)
     List<Sample> findOverdueSamples(@Param("now") Instant now);
 
+    /**
+     * Authorized samples for a bulk COA export, by id after {@code afterId}: id and sample number.
+     * Null filters are ignored; unless {@code allClients}, only samples of {@code clientIds}.
+     */
+    @Query("""
+        SELECT s.id, s.sampleNumber FROM Sample s
+        WHERE s.status = 'AUTHORIZED'
+          AND s.id > :afterId
+          AND (:jobId IS NULL OR s.job.id = :jobId)
+          AND (:clientId IS NULL OR s.job.client.id = :clientId)
+          AND (:allClients = true OR s.job.client.id IN :clientIds)
+          AND (:authorizedFrom IS NULL OR s.authorizedAt >= :authorizedFrom)
+          AND (:authorizedTo IS NULL OR s.authorizedAt < :authorizedTo)
+        ORDER BY s.id
+    """)
+    List<Object[]> findCoaExportSamples(@Param("jobId") Long jobId,
+                                        @Param("clientId") Long clientId,
+                                        @Param("allClients") boolean allClients,
+                                        @Param("clientIds") Collection<Long> clientIds,
+                                        @Param("authorizedFrom") Instant authorizedFrom,
+                                        @Param("authorizedTo") Instant authorizedTo,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
+
     /** Find all distinct statuses in the system */
     @Query("SELECT DISTINCT s.status FROM Sample s")
     List<String> findDistinctStatuses();
@@ -0,0 +1,116 @@
+package com.lims.module.sample.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ranked lookups in {@code sample_search}. On PostgreSQL a hit is a prefix match of every word
+ * (full-text, GIN on {@code tsv}), a substring match or a close misspelling (pg_trgm, GIN on
+ * {@code document}); hits are ranked by text rank plus word similarity. Other databases (H2 in
+ * dev/test) fall back to a substring match of every word, newest first.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SampleSearchDao {
+
+    public record Hits(List<Long> sampleIds, long total) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /** Counting stops here; beyond it the total is only a lower bound. */
+    @Value("${lims.search.max-count:10000}")
+    private int maxCount;
+
+    private volatile Boolean postgres;
+
+    /**
+     * One page of samples matching {@code text}, best first.
+     *
+     * @param statuses  only samples in these statuses; null or empty for all
+     * @param clientIds only samples of these clients; null for all
+     */
+    public Hits search(String text, List<String> statuses, List<Long> clientIds, long offset, int limit) {
+        String normalized = text.trim().toLowerCase(Locale.ROOT);
+        List<String> words = Arrays.stream(normalized.split("[^\\p{L}\\p{N}]+"))
+                .filter(w -> !w.isEmpty())
+                .toList();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("text", normalized)
+                .addValue("like", "%" + escapeLike(normalized) + "%")
+                .addValue("limit", limit)
+                .addValue("offset", offset)
+                .addValue("maxCount", maxCount);
+
+        List<String> where = new ArrayList<>();
+        String orderBy;
+        if (isPostgres()) {
+            List<String> match = new ArrayList<>(List.of("d.document LIKE :like", ":text <% d.document"));
+            String rank = "word_similarity(:text, d.document)";
+            if (!words.isEmpty()) {
+                params.addValue("tsquery", String.join(" & ", words.stream().map(w -> w + ":*").toList()));
+                match.add(0, "d.tsv @@ to_tsquery('simple', :tsquery)");
+                rank = "ts_rank(d.tsv, to_tsquery('simple', :tsquery)) + " + rank;
+            }
+            where.add("(" + String.join(" OR ", match) + ")");
+            orderBy = rank + " DESC, d.sample_id DESC";
+        } else {
+            List<String> terms = words.isEmpty() ? List.of(normalized) : words;
+            for (int i = 0; i < terms.size(); i++) {
+                params.addValue("word" + i, "%" + escapeLike(terms.get(i)) + "%");
+                where.add("d.document LIKE :word" + i);
+            }
+            orderBy = "d.sample_id DESC";
+        }
+        if (statuses != null && !statuses.isEmpty()) {
+            params.addValue("statuses", statuses);
+            where.add("d.status IN (:statuses)");
+        }
+        if (clientIds != null) {
+            if (clientIds.isEmpty()) {
+                return new Hits(List.of(), 0);
+            }
+            params.addValue("clientIds", clientIds);
+            where.add("d.client_id IN (:clientIds)");
+        }
+        String from = "FROM sample_search d WHERE " + String.join(" AND ", where);
+
+        List<Long> ids = namedJdbcTemplate.queryForList(
+                "SELECT d.sample_id " + from + " ORDER BY " + orderBy + " LIMIT :limit OFFSET :offset",
+                params, Long.class);
+        long total;
+        if (offset == 0 && ids.size() < limit) {
+            total = ids.size();
+        } else {
+            Long counted = namedJdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM (SELECT 1 " + from + " LIMIT :maxCount) hits", params, Long.class);
+            total = Math.max(counted != null ? counted : 0, offset + ids.size());
+        }
+        return new Hits(ids, total);
+    }
+
+    private boolean isPostgres() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            pg = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = pg;
+        }
+        return pg;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -3,8 +3,11 @@ package com.lims.module.sample.repository;
 import com.lims.module.sample.entity.Specimen;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +18,48 @@ public interface SpecimenRepository extends JpaRepository<Specimen, Long>, JpaSp
     Optional<Specimen> findBySampleIdAndSpecimenNumber(Long sampleId, Integer specimenNumber);
     long countBySampleIdAndStatus(Long sampleId, String status);
     long countBySampleId(Long sampleId);
+
+    /**
+     * Lock fingerprints of the authorized specimens of a sample. Columns: specimenNumber, lockFingerprint.
+     */
+    @Query("""
+        SELECT sp.specimenNumber, sp.lockFingerprint
+        FROM Specimen sp
+        WHERE sp.sample.id = :sampleId AND sp.status = 'AUTHORIZED'
+    """)
+    List<Object[]> findAuthorizedLocks(@Param("sampleId") Long sampleId);
+
+    /**
+     * Specimen statuses of a worksheet with user display names and the test's result id.
+     * Columns: id, specimenNumber, label, scheduledTestDate, status, testedBy, testedAt,
+     * authorizedBy, authorizedAt, testResultId.
+     */
+    @Query("""
+        SELECT sp.id, sp.specimenNumber, sp.label, sp.scheduledTestDate, sp.status,
+               tb.displayName, sp.testedAt, ab.displayName, sp.authorizedAt, tr.id
+        FROM Specimen sp
+        LEFT JOIN sp.testedBy tb
+        LEFT JOIN sp.authorizedBy ab
+        LEFT JOIN TestResult tr ON tr.specimen = sp AND tr.sampleTest.id = :sampleTestId
+        WHERE sp.sample.id = :sampleId
+        ORDER BY sp.specimenNumber ASC, tr.id ASC
+    """)
+    List<Object[]> findWorksheetSpecimenStatuses(@Param("sampleId") Long sampleId,
+                                                 @Param("sampleTestId") Long sampleTestId);
+
+    /**
+     * Specimens of several samples with user display names, for the sample list.
+     * Columns: sampleId, id, specimenNumber, label, scheduledTestDate, status, testedBy, testedAt,
+     * authorizedBy, authorizedAt.
+     */
+    @Query("""
+        SELECT sp.sample.id, sp.id, sp.specimenNumber, sp.label, sp.scheduledTestDate, sp.status,
+               tb.displayName, sp.testedAt, ab.displayName, sp.authorizedAt
+        FROM Specimen sp
+        LEFT JOIN sp.testedBy tb
+        LEFT JOIN sp.authorizedBy ab
+        WHERE sp.sample.id IN :sampleIds
+        ORDER BY sp.sample.id, sp.specimenNumber ASC
+    """)
+    List<Object[]> findListSpecimens(@Param("sampleIds") Collection<Long> sampleIds);
 }
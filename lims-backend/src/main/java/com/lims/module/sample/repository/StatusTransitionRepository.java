@@ -0,0 +1,47 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.StatusTransition;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StatusTransitionRepository extends JpaRepository<StatusTransition, Long> {
+
+    /**
+     * The oldest transitions not yet in the TAT histograms that happened before {@code before},
+     * locked; rows another instance is aggregating are skipped.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+        SELECT t FROM StatusTransition t
+        WHERE t.aggregated = false AND t.occurredAt < :before
+        ORDER BY t.id
+    """)
+    List<StatusTransition> findUnaggregated(@Param("before") Instant before, Pageable pageable);
+
+    /** Every transition of the given samples or sample tests, per entity in the order recorded. */
+    @Query("""
+        SELECT t FROM StatusTransition t
+        WHERE t.entityType = :entityType AND t.entityId IN :entityIds
+        ORDER BY t.entityId, t.id
+    """)
+    List<StatusTransition> findHistory(@Param("entityType") String entityType,
+                                       @Param("entityIds") Collection<Long> entityIds);
+
+    @Modifying
+    @Query("UPDATE StatusTransition t SET t.aggregated = true WHERE t.id IN :ids")
+    int markAggregated(@Param("ids") Collection<Long> ids);
+}
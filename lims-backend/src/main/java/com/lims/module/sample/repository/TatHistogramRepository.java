@@ -0,0 +1,34 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.TatHistogramBucket;
+import com.lims.module.sample.entity.TatHistogramBucketId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TatHistogramRepository extends JpaRepository<TatHistogramBucket, TatHistogramBucketId> {
+
+    /**
+     * Bucket counts summed over the days from {@code from} to {@code to}: metric, status, bucket, count.
+     * Null filters are ignored.
+     */
+    @Query("""
+        SELECT h.id.metric, h.id.status, h.id.bucket, SUM(h.sampleCount)
+        FROM TatHistogramBucket h
+        WHERE h.id.occurredOn BETWEEN :from AND :to
+          AND (:clientId IS NULL OR h.id.clientId = :clientId)
+          AND (:productId IS NULL OR h.id.productId = :productId)
+          AND (:testMethodId IS NULL OR h.id.testMethodId = :testMethodId)
+        GROUP BY h.id.metric, h.id.status, h.id.bucket
+    """)
+    List<Object[]> sumBuckets(@Param("from") LocalDate from,
+                              @Param("to") LocalDate to,
+                              @Param("clientId") Long clientId,
+                              @Param("productId") Long productId,
+                              @Param("testMethodId") Long testMethodId);
+}
@@ -0,0 +1,77 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.TatHistogramBucketId;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adds counts to {@code tat_histograms} buckets in one batched upsert, creating buckets as needed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TatHistogramWriter {
+
+    private static final String UPSERT_POSTGRES = """
+            INSERT INTO tat_histograms (metric, status, client_id, product_id, test_method_id, occurred_on, bucket, sample_count)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (metric, status, client_id, product_id, test_method_id, occurred_on, bucket)
+            DO UPDATE SET sample_count = tat_histograms.sample_count + EXCLUDED.sample_count
+            """;
+    private static final String UPSERT_STANDARD = """
+            MERGE INTO tat_histograms h
+            USING (VALUES (CAST(? AS VARCHAR(20)), CAST(? AS VARCHAR(30)), CAST(? AS BIGINT), CAST(? AS BIGINT),
+                           CAST(? AS BIGINT), CAST(? AS DATE), CAST(? AS INT), CAST(? AS BIGINT)))
+                  AS d (metric, status, client_id, product_id, test_method_id, occurred_on, bucket, sample_count)
+            ON h.metric = d.metric AND h.status = d.status AND h.client_id = d.client_id
+               AND h.product_id = d.product_id AND h.test_method_id = d.test_method_id
+               AND h.occurred_on = d.occurred_on AND h.bucket = d.bucket
+            WHEN MATCHED THEN UPDATE SET sample_count = h.sample_count + d.sample_count
+            WHEN NOT MATCHED THEN INSERT (metric, status, client_id, product_id, test_method_id, occurred_on, bucket, sample_count)
+                 VALUES (d.metric, d.status, d.client_id, d.product_id, d.test_method_id, d.occurred_on, d.bucket, d.sample_count)
+            """;
+
+    /** Buckets in a fixed order, so concurrent writers lock rows in the same order. */
+    private static final Comparator<TatHistogramBucketId> ORDER = Comparator
+            .comparing(TatHistogramBucketId::getMetric)
+            .thenComparing(TatHistogramBucketId::getStatus)
+            .thenComparing(TatHistogramBucketId::getClientId)
+            .thenComparing(TatHistogramBucketId::getProductId)
+            .thenComparing(TatHistogramBucketId::getTestMethodId)
+            .thenComparing(TatHistogramBucketId::getOccurredOn)
+            .thenComparing(TatHistogramBucketId::getBucket);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile String upsert;
+
+    public void increment(Map<TatHistogramBucketId, Long> counts) {
+        if (counts.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(counts.size());
+        counts.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(ORDER))
+                .forEach(e -> {
+                    TatHistogramBucketId id = e.getKey();
+                    rows.add(new Object[]{id.getMetric(), id.getStatus(), id.getClientId(), id.getProductId(),
+                            id.getTestMethodId(), Date.valueOf(id.getOccurredOn()), id.getBucket(), e.getValue()});
+                });
+        jdbcTemplate.batchUpdate(upsertStatement(), rows);
+    }
+
+    private String upsertStatement() {
+        String sql = upsert;
+        if (sql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            sql = "PostgreSQL".equalsIgnoreCase(product) ? UPSERT_POSTGRES : UPSERT_STANDARD;
+            upsert = sql;
+        }
+        return sql;
+    }
+}
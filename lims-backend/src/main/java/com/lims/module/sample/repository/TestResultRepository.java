@@ -2,6 +2,8 @@ package com.lims.module.sample.repository;
 
 import com.lims.module.sample.entity.TestResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,11 @@ import java.util.Optional;
 public interface TestResultRepository extends JpaRepository<TestResult, Long> {
     List<TestResult> findBySampleTestIdOrderByEnteredAtDesc(Long sampleTestId);
     Optional<TestResult> findBySampleTestIdAndSpecimenId(Long sampleTestId, Long specimenId);
+
+    @Query("""
+        SELECT r FROM TestResult r
+        JOIN FETCH r.specimen
+        WHERE r.sampleTest.id = :sampleTestId
+    """)
+    List<TestResult> findSpecimenResultsBySampleTestId(@Param("sampleTestId") Long sampleTestId);
 }
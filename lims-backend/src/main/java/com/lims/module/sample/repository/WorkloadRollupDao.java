@@ -0,0 +1,274 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.WorkloadRollupId;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * JDBC access for the workload rollups: batched increments, and the reads of the sample test audit
+ * trail and results the rollups are rebuilt from. Methods take the connection to work on, so the
+ * listener can write inside the flushing session and the rebuild on connections of its own.
+ */
+@Repository
+public class WorkloadRollupDao {
+
+    private static final String UPSERT_POSTGRES = """
+            INSERT INTO workload_rollups (analyst_id, occurred_on, bucket, test_count) VALUES (?, ?, ?, ?)
+            ON CONFLICT (analyst_id, occurred_on, bucket)
+            DO UPDATE SET test_count = workload_rollups.test_count + EXCLUDED.test_count
+            """;
+    private static final String UPSERT_STANDARD = """
+            MERGE INTO workload_rollups w
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS DATE), CAST(? AS VARCHAR(20)), CAST(? AS BIGINT)))
+                  AS d (analyst_id, occurred_on, bucket, test_count)
+            ON w.analyst_id = d.analyst_id AND w.occurred_on = d.occurred_on AND w.bucket = d.bucket
+            WHEN MATCHED THEN UPDATE SET test_count = w.test_count + d.test_count
+            WHEN NOT MATCHED THEN INSERT (analyst_id, occurred_on, bucket, test_count)
+                 VALUES (d.analyst_id, d.occurred_on, d.bucket, d.test_count)
+            """;
+
+    /** Audited sample test states with the time of their revision (epoch milliseconds). */
+    private static final String AUDIT_SELECT = """
+            SELECT a.id, a.rev, r.revtstmp,
+                   CASE WHEN a.revtype = 2 THEN NULL ELSE a.assigned_to END,
+                   CASE WHEN a.revtype = 2 THEN NULL ELSE a.status END
+            FROM sample_tests_aud a
+            JOIN revinfo r ON r.rev = a.rev
+            """;
+
+    /** Rows in a fixed order, so concurrent writers lock them in the same order. */
+    private static final Comparator<WorkloadRollupId> ORDER = Comparator
+            .comparing(WorkloadRollupId::getAnalystId)
+            .thenComparing(WorkloadRollupId::getOccurredOn)
+            .thenComparing(WorkloadRollupId::getBucket);
+
+    /** Ids per statement, well below driver parameter limits. */
+    private static final int CHUNK = 500;
+
+    /** One audited state of a sample test; a deleted test has no assignee and no status. */
+    public record AuditedState(long sampleTestId, long revision, Instant at, Long assigneeId, String status) {}
+
+    private volatile Boolean postgres;
+
+    public boolean isPostgres(Connection connection) throws SQLException {
+        Boolean pg = postgres;
+        if (pg == null) {
+            pg = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+            postgres = pg;
+        }
+        return pg;
+    }
+
+    public void increment(Connection connection, Map<WorkloadRollupId, Long> deltas) throws SQLException {
+        List<Map.Entry<WorkloadRollupId, Long>> rows = deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .sorted(Map.Entry.comparingByKey(ORDER))
+                .toList();
+        if (rows.isEmpty()) return;
+        try (PreparedStatement ps = connection.prepareStatement(isPostgres(connection) ? UPSERT_POSTGRES : UPSERT_STANDARD)) {
+            for (Map.Entry<WorkloadRollupId, Long> row : rows) {
+                ps.setLong(1, row.getKey().getAnalystId());
+                ps.setDate(2, Date.valueOf(row.getKey().getOccurredOn()));
+                ps.setString(3, row.getKey().getBucket());
+                ps.setLong(4, row.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** Replaces every rollup row with {@code totals}. */
+    public void replaceAll(Connection connection, Map<WorkloadRollupId, Long> totals) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate("DELETE FROM workload_rollups");
+        }
+        increment(connection, totals);
+    }
+
+    /**
+     * Keeps other transactions from changing the rollups until this one ends (PostgreSQL only;
+     * elsewhere a no-op).
+     */
+    public void lock(Connection connection) throws SQLException {
+        if (!isPostgres(connection)) return;
+        try (Statement st = connection.createStatement()) {
+            st.execute("LOCK TABLE workload_rollups IN SHARE ROW EXCLUSIVE MODE");
+        }
+    }
+
+    /** The analyst who last entered a result, per sample test; tests without results are absent. */
+    public Map<Long, Long> resultAnalysts(Connection connection, Collection<Long> sampleTestIds) throws SQLException {
+        Map<Long, Long> analysts = new HashMap<>();
+        List<Long> all = new ArrayList<>(sampleTestIds);
+        for (int from = 0; from < all.size(); from += CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + CHUNK));
+            String sql = "SELECT sample_test_id, entered_by FROM test_results WHERE entered_by IS NOT NULL AND sample_test_id IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY id";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        analysts.put(rs.getLong(1), rs.getLong(2));
+                    }
+                }
+            }
+        }
+        return analysts;
+    }
+
+    /** The newest audit revision, or 0 if there is none. */
+    public long latestRevision(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(rev), 0) FROM revinfo")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Ranges of revision numbers up to {@code revision} without a committed revision: numbers
+     * skipped by the sequence or rolled back, and those of transactions still in flight.
+     */
+    public List<long[]> revisionGaps(Connection connection, long revision) throws SQLException {
+        List<long[]> gaps = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement("""
+                SELECT prev + 1, rev - 1
+                FROM (SELECT rev, LAG(rev, 1, 0) OVER (ORDER BY rev) AS prev FROM revinfo WHERE rev <= ?) r
+                WHERE rev > prev + 1
+                ORDER BY rev
+                """)) {
+            ps.setLong(1, revision);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) gaps.add(new long[]{rs.getLong(1), rs.getLong(2)});
+            }
+        }
+        return gaps;
+    }
+
+    /** Revisions committed since within the given ranges. */
+    public List<Long> revisionsIn(Connection connection, List<long[]> ranges) throws SQLException {
+        List<Long> revisions = new ArrayList<>();
+        for (int from = 0; from < ranges.size(); from += CHUNK) {
+            List<long[]> chunk = ranges.subList(from, Math.min(ranges.size(), from + CHUNK));
+            String sql = "SELECT rev FROM revinfo WHERE "
+                    + String.join(" OR ", Collections.nCopies(chunk.size(), "rev BETWEEN ? AND ?"));
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(2 * i + 1, chunk.get(i)[0]);
+                    ps.setLong(2 * i + 2, chunk.get(i)[1]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) revisions.add(rs.getLong(1));
+                }
+            }
+        }
+        return revisions;
+    }
+
+    /** Lowest and highest audited sample test id, or null if no sample test was audited. */
+    public long[] auditedTestIdRange(Connection connection) throws SQLException {
+        try (Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT MIN(id), MAX(id) FROM sample_tests_aud")) {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        }
+    }
+
+    /** Sample tests with an audit revision after {@code revision}. */
+    public List<Long> testsChangedAfter(Connection connection, long revision) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT DISTINCT id FROM sample_tests_aud WHERE rev > ?")) {
+            ps.setLong(1, revision);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    /** Sample tests with an audit row in one of the given revisions. */
+    public List<Long> testsChangedIn(Connection connection, Collection<Long> revisions) throws SQLException {
+        Set<Long> ids = new TreeSet<>();
+        List<Long> all = new ArrayList<>(revisions);
+        for (int from = 0; from < all.size(); from += CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + CHUNK));
+            try (PreparedStatement ps = connection.prepareStatement("SELECT DISTINCT id FROM sample_tests_aud WHERE rev IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")")) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Audited states of the sample tests with ids from {@code fromId} to {@code toId}, up to and
+     * including {@code maxRevision}, per test in revision order.
+     */
+    public List<AuditedState> auditedStates(Connection connection, long fromId, long toId, long maxRevision) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(AUDIT_SELECT + """
+                WHERE a.id BETWEEN ? AND ? AND a.rev <= ?
+                ORDER BY a.id, a.rev
+                """)) {
+            ps.setLong(1, fromId);
+            ps.setLong(2, toId);
+            ps.setLong(3, maxRevision);
+            return readStates(ps);
+        }
+    }
+
+    /** Every audited state of the given sample tests, per test in revision order. */
+    public List<AuditedState> auditedStates(Connection connection, Collection<Long> sampleTestIds) throws SQLException {
+        List<AuditedState> states = new ArrayList<>();
+        List<Long> all = new ArrayList<>(sampleTestIds);
+        Collections.sort(all);
+        for (int from = 0; from < all.size(); from += CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + CHUNK));
+            try (PreparedStatement ps = connection.prepareStatement(AUDIT_SELECT
+                    + "WHERE a.id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")\n"
+                    + "ORDER BY a.id, a.rev")) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 1, chunk.get(i));
+                }
+                states.addAll(readStates(ps));
+            }
+        }
+        return states;
+    }
+
+    private static List<AuditedState> readStates(PreparedStatement ps) throws SQLException {
+        List<AuditedState> states = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                long assignee = rs.getLong(4);
+                Long assigneeId = rs.wasNull() ? null : assignee;
+                states.add(new AuditedState(rs.getLong(1), rs.getLong(2), Instant.ofEpochMilli(rs.getLong(3)),
+                        assigneeId, rs.getString(5)));
+            }
+        }
+        return states;
+    }
+}
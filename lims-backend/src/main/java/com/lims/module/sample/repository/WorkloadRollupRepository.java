@@ -0,0 +1,31 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.WorkloadRollup;
+import com.lims.module.sample.entity.WorkloadRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface WorkloadRollupRepository extends JpaRepository<WorkloadRollup, WorkloadRollupId> {
+
+    /**
+     * Per analyst: tests assigned, submitted and authorized from {@code from} to {@code to}, and
+     * tests open at the end of {@code to}.
+     */
+    @Query("""
+        SELECT w.id.analystId,
+               SUM(CASE WHEN w.id.bucket = 'ASSIGNED' AND w.id.occurredOn >= :from THEN w.testCount ELSE 0 END),
+               SUM(CASE WHEN w.id.bucket = 'SUBMITTED' AND w.id.occurredOn >= :from THEN w.testCount ELSE 0 END),
+               SUM(CASE WHEN w.id.bucket = 'AUTHORIZED' AND w.id.occurredOn >= :from THEN w.testCount ELSE 0 END),
+               SUM(CASE WHEN w.id.bucket = 'OPEN' THEN w.testCount ELSE 0 END)
+        FROM WorkloadRollup w
+        WHERE w.id.occurredOn <= :to
+        GROUP BY w.id.analystId
+    """)
+    List<Object[]> sumByAnalyst(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
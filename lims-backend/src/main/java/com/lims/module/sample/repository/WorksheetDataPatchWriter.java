@@ -0,0 +1,109 @@
+package com.lims.module.sample.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lims.common.json.JsonPatch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes only the changed paths of a patched {@code worksheet_data.data} document using
+ * Postgres jsonb operators, guarded by the row version.
+ * <p>
+ * The update bypasses Hibernate, so it produces no Envers revision; drafts are still captured
+ * by the next full save or submission.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WorksheetDataPatchWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    private volatile Boolean postgres;
+
+    /**
+     * Whether partial jsonb updates are available; other databases (H2 in dev/test) fall back
+     * to a full-document save through JPA.
+     */
+    public boolean supportsPartialUpdate() {
+        Boolean pg = postgres;
+        if (pg == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            pg = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = pg;
+        }
+        return pg;
+    }
+
+    /**
+     * Applies the changed paths of {@code result} to the stored document.
+     *
+     * @return false if the row is no longer at {@code expectedVersion}
+     */
+    public boolean writeChangedPaths(Long worksheetId, Long expectedVersion, JsonPatch.Result result) {
+        List<String[]> paths = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        StringBuilder expr = new StringBuilder("data");
+        for (List<String> path : result.changedPaths()) {
+            Object value = result.valueAt(path);
+            if (path.isEmpty()) {
+                expr.setLength(0);
+                expr.append("CAST(? AS jsonb)");
+                paths.clear();
+                values.clear();
+                paths.add(null);
+                values.add(toJson(value == JsonPatch.ABSENT ? Map.of() : value));
+            } else if (value == JsonPatch.ABSENT) {
+                expr.insert(0, "(").append(" #- ?)");
+                paths.add(path.toArray(new String[0]));
+                values.add(null);
+            } else {
+                expr.insert(0, "jsonb_set(").append(", ?, CAST(? AS jsonb), true)");
+                paths.add(path.toArray(new String[0]));
+                values.add(toJson(value));
+            }
+        }
+        if (paths.isEmpty()) {
+            return true;
+        }
+
+        String sql = "UPDATE worksheet_data SET data = " + expr
+                + ", version = version + 1, updated_at = ? WHERE id = ? AND version = ?";
+        int updated = jdbcTemplate.update((Connection con) -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int i = 1;
+            for (int k = 0; k < paths.size(); k++) {
+                if (paths.get(k) != null) {
+                    ps.setArray(i++, con.createArrayOf("text", paths.get(k)));
+                }
+                if (values.get(k) != null) {
+                    ps.setString(i++, values.get(k));
+                }
+            }
+            ps.setTimestamp(i++, Timestamp.from(Instant.now()));
+            ps.setLong(i++, worksheetId);
+            ps.setLong(i, expectedVersion);
+            return ps;
+        });
+        return updated == 1;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Patch value is not serializable", e);
+        }
+    }
+}
@@ -1,13 +1,57 @@
 package com.lims.module.sample.repository;
 
 import com.lims.module.sample.entity.WorksheetData;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface WorksheetDataRepository extends JpaRepository<WorksheetData, Long> {
     
     Optional<WorksheetData> findBySampleTestId(Long sampleTestId);
+
+    /**
+     * Row lock on a worksheet, so its revisions are numbered one writer at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT wd FROM WorksheetData wd WHERE wd.id = :id")
+    Optional<WorksheetData> findAndLockById(@Param("id") Long id);
+
+    /**
+     * Worksheet view: data, status, version, schema and header context in one row.
+     * Columns: data, status, version, schemaDefinition, sampleId, sampleNumber, productName,
+     * receivedAt, sampledAt, jobNumber, projectName, poNumber, clientName.
+     */
+    @Query("""
+        SELECT wd.data, wd.status, wd.version, md.schemaDefinition,
+               s.id, s.sampleNumber, p.name, s.receivedAt, s.sampledAt,
+               j.jobNumber, j.projectName, j.poNumber, c.name
+        FROM WorksheetData wd
+        JOIN wd.methodDefinition md
+        JOIN wd.sampleTest st
+        JOIN st.sample s
+        LEFT JOIN s.product p
+        LEFT JOIN s.job j
+        LEFT JOIN j.client c
+        WHERE st.id = :sampleTestId
+    """)
+    List<Object[]> findWorksheetView(@Param("sampleTestId") Long sampleTestId);
+
+    /**
+     * Worksheets of a test method in the given statuses, for batch recalculation.
+     */
+    @Query("""
+        SELECT wd.id FROM WorksheetData wd
+        WHERE wd.sampleTest.testMethod.id = :testMethodId
+          AND wd.status IN :statuses
+        ORDER BY wd.id
+    """)
+    List<Long> findIdsByTestMethodAndStatusIn(@Param("testMethodId") Long testMethodId,
+                                              @Param("statuses") List<String> statuses);
 }
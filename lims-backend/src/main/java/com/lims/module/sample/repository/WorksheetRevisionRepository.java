@@ -0,0 +1,34 @@
+package com.lims.module.sample.repository;
+
+import com.lims.module.sample.entity.WorksheetRevision;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WorksheetRevisionRepository extends JpaRepository<WorksheetRevision, Long> {
+
+    Optional<WorksheetRevision> findTopByWorksheetDataIdOrderByRevisionNumberDesc(Long worksheetDataId);
+
+    Optional<WorksheetRevision> findBySampleTestIdAndRevisionNumber(Long sampleTestId, Integer revisionNumber);
+
+    Page<WorksheetRevision> findBySampleTestIdOrderByRevisionNumberDesc(Long sampleTestId, Pageable pageable);
+
+    @Query("""
+        SELECT MAX(r.revisionNumber) FROM WorksheetRevision r
+        WHERE r.worksheetData.id = :worksheetDataId
+          AND r.checkpoint = true
+          AND r.revisionNumber <= :revisionNumber
+    """)
+    Integer findCheckpointAtOrBefore(@Param("worksheetDataId") Long worksheetDataId,
+                                     @Param("revisionNumber") Integer revisionNumber);
+
+    List<WorksheetRevision> findByWorksheetDataIdAndRevisionNumberBetweenOrderByRevisionNumberAsc(
+            Long worksheetDataId, Integer fromRevision, Integer toRevision);
+}
@@ -0,0 +1,204 @@
+package com.lims.module.sample.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-indexed view of a {@code MethodDefinition.schemaDefinition}. Built once per
+ * published definition so request paths do not re-walk the raw JSON map with unchecked casts.
+ */
+public final class CompiledSchema {
+
+    /**
+     * A field of a SINGLE_VALUE section or a column of a table section.
+     */
+    public record Column(String id, String inputType, String systemMapping, boolean summaryField) {
+
+        /**
+         * Whether the value is entered by the analyst and must therefore stay unchanged once
+         * its specimen is authorized (system-mapped, calculated and summary fields are exempt).
+         */
+        public boolean isLockChecked() {
+            return systemMapping == null && !"CALCULATED".equals(inputType) && !summaryField;
+        }
+    }
+
+    /**
+     * A system mapping on a SINGLE_VALUE field or a matrix cell; {@code rowId} is null for fields.
+     */
+    public record SystemMapping(String rowId, String fieldId, String mapping) {
+    }
+
+    public record CellPosition(String rowId, String colId) {
+    }
+
+    public record Section(String id, String type, boolean specimenData, boolean multiDaySpecimen, Integer minRows,
+                          List<Column> fields, List<Column> columns, List<SystemMapping> fieldMappings,
+                          List<SystemMapping> cellMappings, List<String> rowIds, Map<String, CellPosition> cellIndex) {
+
+        /**
+         * Splits a matrix cell key {@code rowId_colId}. Row ids may themselves contain underscores,
+         * so known keys come from the precomputed index and the row-header prefix scan is only a
+         * fallback for cells outside it.
+         */
+        public CellPosition resolveCell(String cellKey) {
+            if (cellKey == null) return null;
+            CellPosition known = cellIndex.get(cellKey);
+            return known != null ? known : fallbackPosition(cellKey, rowIds);
+        }
+    }
+
+    private static final CompiledSchema EMPTY = new CompiledSchema(List.of(), Map.of());
+
+    private final List<Section> sections;
+    private final Map<String, Section> sectionIndex;
+    private final List<Section> multiDaySpecimenSections;
+
+    private CompiledSchema(List<Section> sections, Map<String, Section> sectionIndex) {
+        this.sections = sections;
+        this.sectionIndex = sectionIndex;
+        this.multiDaySpecimenSections = sections.stream().filter(Section::multiDaySpecimen).toList();
+    }
+
+    public static CompiledSchema empty() {
+        return EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static CompiledSchema compile(Map<String, Object> schema) {
+        if (schema == null || !(schema.get("sections") instanceof List)) {
+            return EMPTY;
+        }
+        List<Section> sections = new ArrayList<>();
+        Map<String, Section> index = new LinkedHashMap<>();
+        for (Object raw : (List<Object>) schema.get("sections")) {
+            if (!(raw instanceof Map)) continue;
+            Section section = compileSection((Map<String, Object>) raw);
+            sections.add(section);
+            if (section.id() != null) {
+                index.putIfAbsent(section.id(), section);
+            }
+        }
+        return new CompiledSchema(List.copyOf(sections), Collections.unmodifiableMap(index));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Section compileSection(Map<String, Object> section) {
+        String id = (String) section.get("id");
+        Number minRows = (Number) section.get("minRows");
+
+        List<Column> fields = columns(section.get("fields"));
+        Object columnsRaw = section.get("columns") != null ? section.get("columns") : section.get("dataColumns");
+        List<Column> columns = columns(columnsRaw);
+
+        List<SystemMapping> fieldMappings = new ArrayList<>();
+        for (Column field : fields) {
+            if (field.id() != null && field.systemMapping() != null && !field.systemMapping().isEmpty()) {
+                fieldMappings.add(new SystemMapping(null, field.id(), field.systemMapping()));
+            }
+        }
+
+        List<String> rowIds = new ArrayList<>();
+        if (section.get("rowHeaders") instanceof List) {
+            for (Map<String, Object> rh : (List<Map<String, Object>>) section.get("rowHeaders")) {
+                String rowId = (String) rh.get("id");
+                if (rowId != null) rowIds.add(rowId);
+            }
+        }
+
+        // Index every rowId_colId combination plus the mapped cells, so lookups are a single get
+        Map<String, CellPosition> cellIndex = new HashMap<>();
+        for (String rowId : rowIds) {
+            for (Column col : columns) {
+                if (col.id() != null) {
+                    cellIndex.putIfAbsent(rowId + "_" + col.id(), new CellPosition(rowId, col.id()));
+                }
+            }
+        }
+
+        List<SystemMapping> cellMappings = new ArrayList<>();
+        if (section.get("cellMappings") instanceof Map) {
+            Map<String, String> raw = (Map<String, String>) section.get("cellMappings");
+            for (Map.Entry<String, String> entry : raw.entrySet()) {
+                String mapping = entry.getValue();
+                if (mapping == null || mapping.isEmpty()) continue;
+                CellPosition pos = cellIndex.get(entry.getKey());
+                if (pos == null) {
+                    pos = fallbackPosition(entry.getKey(), rowIds);
+                    if (pos == null) continue;
+                    cellIndex.put(entry.getKey(), pos);
+                }
+                cellMappings.add(new SystemMapping(pos.rowId(), pos.colId(), mapping));
+            }
+        }
+
+        return new Section(
+                id,
+                (String) section.get("type"),
+                !Boolean.FALSE.equals(section.get("isSpecimenData")),
+                Boolean.TRUE.equals(section.get("hasMultiDaySpecimen")),
+                minRows != null ? minRows.intValue() : null,
+                fields,
+                columns,
+                List.copyOf(fieldMappings),
+                List.copyOf(cellMappings),
+                List.copyOf(rowIds),
+                Map.copyOf(cellIndex));
+    }
+
+    private static CellPosition fallbackPosition(String cellKey, List<String> rowIds) {
+        if (cellKey == null || !cellKey.contains("_")) return null;
+        for (String rowId : rowIds) {
+            if (cellKey.startsWith(rowId + "_")) {
+                return new CellPosition(rowId, cellKey.substring(rowId.length() + 1));
+            }
+        }
+        String[] parts = cellKey.split("_", 2);
+        return new CellPosition(parts[0], parts[1]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Column> columns(Object raw) {
+        if (!(raw instanceof List)) return List.of();
+        List<Column> columns = new ArrayList<>();
+        for (Object item : (List<Object>) raw) {
+            if (!(item instanceof Map)) continue;
+            Map<String, Object> col = (Map<String, Object>) item;
+            columns.add(new Column(
+                    (String) col.get("id"),
+                    (String) col.get("inputType"),
+                    (String) col.get("systemMapping"),
+                    Boolean.TRUE.equals(col.get("isSummaryField"))));
+        }
+        return List.copyOf(columns);
+    }
+
+    public List<Section> getSections() {
+        return sections;
+    }
+
+    public Section getSection(String sectionId) {
+        return sectionIndex.get(sectionId);
+    }
+
+    public List<Section> getMultiDaySpecimenSections() {
+        return multiDaySpecimenSections;
+    }
+
+    public boolean hasMultiDaySpecimen() {
+        return !multiDaySpecimenSections.isEmpty();
+    }
+
+    /**
+     * Specimen count of the first multi-day section ({@code minRows}, defaulting to 1), or 0.
+     */
+    public int getTotalSpecimens() {
+        if (multiDaySpecimenSections.isEmpty()) return 0;
+        Integer minRows = multiDaySpecimenSections.get(0).minRows();
+        return minRows != null ? minRows : 1;
+    }
+}
@@ -0,0 +1,41 @@
+package com.lims.module.sample.schema;
+
+import com.lims.common.hash.Sha256;
+
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Canonical SHA-256 of one specimen's slice of a worksheet: the lock-checked columns of every
+ * multi-day specimen section at that specimen's index, in schema order. Values are compared the
+ * way the lock check always has, as strings with null and missing both meaning blank.
+ */
+public final class SpecimenFingerprint {
+
+    private SpecimenFingerprint() {
+    }
+
+    public static String of(CompiledSchema schema, Map<String, Object> data, int specimenIndex) {
+        MessageDigest digest = Sha256.newDigest();
+        for (CompiledSchema.Section section : schema.getMultiDaySpecimenSections()) {
+            Map<?, ?> slice = slice(data, section.id(), specimenIndex);
+            Sha256.update(digest, section.id());
+            for (CompiledSchema.Column col : section.columns()) {
+                if (!col.isLockChecked()) continue;
+                Object value = slice.get(col.id());
+                Sha256.update(digest, col.id());
+                Sha256.update(digest, value != null ? String.valueOf(value) : "");
+            }
+        }
+        return Sha256.hex(digest);
+    }
+
+    private static Map<?, ?> slice(Map<String, Object> data, String sectionId, int specimenIndex) {
+        Object sectionValue = data != null ? data.get(sectionId) : null;
+        if (sectionValue instanceof List<?> list && specimenIndex < list.size() && list.get(specimenIndex) instanceof Map<?, ?> map) {
+            return map;
+        }
+        return Map.of();
+    }
+}
@@ -11,6 +11,7 @@ import com.lims.module.sample.repository.SampleRepository;
 import com.lims.module.sample.repository.SampleTestRepository;
 import com.lims.module.sample.repository.TestResultRepository;
 import com.lims.module.sample.repository.SpecimenRepository;
+import com.lims.module.sample.schema.CompiledSchema;
 import com.lims.module.security.entity.User;
 import com.lims.module.security.repository.UserRepository;
 import com.lims.module.inventory.repository.InstrumentRepository;
@@ -22,7 +23,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,6 +37,7 @@ public class AnalysisService {
     private final InstrumentRepository instrumentRepository;
     private final DataSyncService dataSyncService;
     private final SpecimenRepository specimenRepository;
+    private final CompiledSchemaCache compiledSchemaCache;
 
     @Transactional(readOnly = true)
     public List<SampleTestDTO> getTestsForSample(Long sampleId) {
@@ -115,18 +116,9 @@ public class AnalysisService {
         boolean hasMultiDaySpecimen = false;
         int totalSpecimens = 0;
         if (st.getWorksheetData() != null) {
-            Map<String, Object> schema = st.getWorksheetData().getMethodDefinition().getSchemaDefinition();
-            if (schema != null && schema.get("sections") instanceof List) {
-                List<Map<String, Object>> sections = (List<Map<String, Object>>) schema.get("sections");
-                for (Map<String, Object> section : sections) {
-                    if (Boolean.TRUE.equals(section.get("hasMultiDaySpecimen"))) {
-                        hasMultiDaySpecimen = true;
-                        Number minRows = (Number) section.get("minRows");
-                        totalSpecimens = minRows != null ? minRows.intValue() : 1;
-                        break;
-                    }
-                }
-            }
+            CompiledSchema schema = compiledSchemaCache.get(st.getWorksheetData().getMethodDefinition());
+            hasMultiDaySpecimen = schema.hasMultiDaySpecimen();
+            totalSpecimens = schema.getTotalSpecimens();
         }
         
         int finalizedSpecimens = 0;
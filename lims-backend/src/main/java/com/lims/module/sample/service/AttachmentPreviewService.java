@@ -0,0 +1,142 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.common.exception.ResourceNotFoundException;
+import com.lims.common.storage.DiskLruCache;
+import com.lims.module.sample.entity.Attachment;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Page images of attachments, rendered on demand one page at a time and kept in a disk cache
+ * keyed by the attachment's content hash, the page and the DPI. Pages render independently, so
+ * requests for several pages run in parallel; a page that is already cached is served without
+ * opening the document.
+ */
+@Service
+@Slf4j
+public class AttachmentPreviewService {
+
+    public static final int MIN_DPI = 24;
+    public static final int MAX_DPI = 300;
+
+    private final AttachmentService attachmentService;
+    private final DocumentConversionService documentConversionService;
+    private final ReportRenderKeys renderKeys;
+    private final DiskLruCache pageCache;
+    private final ExecutorService executor;
+    private final int thumbnailDpi;
+
+    /** Page counts by content hash; counting means opening the document. */
+    private final Map<String, Integer> pageCounts = new ConcurrentHashMap<>();
+
+    public AttachmentPreviewService(AttachmentService attachmentService,
+                                    DocumentConversionService documentConversionService,
+                                    ReportRenderKeys renderKeys,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${lims.attachments.preview.cache-dir:./uploads/preview-cache}") String cacheDir,
+                                    @Value("${lims.attachments.preview.cache-max-size-mb:256}") long cacheMaxSizeMb,
+                                    @Value("${lims.attachments.preview.parallelism:4}") int parallelism,
+                                    @Value("${lims.attachments.preview.thumbnail-dpi:36}") int thumbnailDpi) {
+        this.attachmentService = attachmentService;
+        this.documentConversionService = documentConversionService;
+        this.renderKeys = renderKeys;
+        this.pageCache = new DiskLruCache(Paths.get(cacheDir), ".png", cacheMaxSizeMb * 1024 * 1024, meterRegistry,
+                "lims.attachments.preview.cache", "Attachment page image cache");
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        this.thumbnailDpi = thumbnailDpi;
+    }
+
+    /** A rendered page image, with its cache key for use as an ETag. */
+    public record PageImage(Path path, String key) {}
+
+    public int pageCount(Long attachmentId) throws IOException {
+        Attachment attachment = attachmentService.getAttachment(attachmentId);
+        Path file = fileOf(attachment);
+        String hash = renderKeys.fileHash(file);
+        Integer known = pageCounts.get(hash);
+        if (known != null) {
+            return known;
+        }
+        int count = documentConversionService.pageCount(file, attachment.getFileType());
+        pageCounts.put(hash, count);
+        return count;
+    }
+
+    public PageImage page(Long attachmentId, int page, int dpi) throws IOException {
+        if (dpi < MIN_DPI || dpi > MAX_DPI) {
+            throw new BusinessRuleException("dpi must be between " + MIN_DPI + " and " + MAX_DPI);
+        }
+        int pages = pageCount(attachmentId);
+        if (page < 0 || page >= pages) {
+            throw new ResourceNotFoundException("Attachment " + attachmentId + " has no page " + page);
+        }
+        Attachment attachment = attachmentService.getAttachment(attachmentId);
+        return render(fileOf(attachment), attachment.getFileType(), page, dpi);
+    }
+
+    public PageImage thumbnail(Long attachmentId, int page) throws IOException {
+        return page(attachmentId, page, thumbnailDpi);
+    }
+
+    /**
+     * Renders the thumbnails of every page in the background, in parallel, so the attachment list
+     * shows them without a render on first view. Failures are only logged.
+     */
+    public void prerenderThumbnails(Attachment attachment) {
+        executor.submit(() -> {
+            try {
+                Path file = fileOf(attachment);
+                int count = pageCount(attachment.getId());
+                for (int i = 0; i < count; i++) {
+                    int page = i;
+                    executor.submit(() -> {
+                        try {
+                            render(file, attachment.getFileType(), page, thumbnailDpi);
+                        } catch (IOException | RuntimeException e) {
+                            log.warn("Could not render thumbnail of attachment {} page {}: {}", attachment.getId(), page, e.getMessage());
+                        }
+                    });
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not prepare thumbnails of attachment {}: {}", attachment.getId(), e.getMessage());
+            }
+        });
+    }
+
+    private PageImage render(Path file, String fileType, int page, int dpi) throws IOException {
+        String key = renderKeys.fileHash(file) + "_p" + page + "_" + dpi;
+        Path path = pageCache.get(key, target -> {
+            try (OutputStream out = Files.newOutputStream(target)) {
+                documentConversionService.renderPage(file, fileType, page, dpi, out);
+            }
+        });
+        return new PageImage(path, key);
+    }
+
+    private static Path fileOf(Attachment attachment) {
+        Path file = Paths.get(attachment.getFilePath());
+        if (!Files.isRegularFile(file)) {
+            throw new ResourceNotFoundException("File of attachment " + attachment.getId() + " is missing");
+        }
+        return file;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,5 +1,6 @@
 package com.lims.module.sample.service;
 
+import com.lims.common.exception.ResourceNotFoundException;
 import com.lims.module.sample.entity.Attachment;
 import com.lims.module.sample.entity.Job;
 import com.lims.module.sample.entity.Sample;
@@ -81,6 +82,11 @@ public class AttachmentService {
         return attachmentRepository.findByJobIdOrderByCreatedAtDesc(jobId);
     }
 
+    public Attachment getAttachment(Long id) {
+        return attachmentRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Attachment", id));
+    }
+
     public Path getFilePath(Long id) {
         Attachment attachment = attachmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Attachment not found"));
@@ -0,0 +1,273 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.common.exception.ResourceNotFoundException;
+import com.lims.common.exception.ServiceBusyException;
+import com.lims.module.sample.entity.CoaRevision;
+import com.lims.module.sample.entity.Sample;
+import com.lims.module.sample.repository.CoaRevisionRepository;
+import com.lims.module.sample.repository.SampleRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams the COAs of many authorized samples as one ZIP. The latest recorded revision of a
+ * sample is reused as is; samples without one are rendered (and recorded) on a small bounded pool
+ * a few samples ahead of the writer, so entries go out in sample order as soon as they are ready.
+ * <p>
+ * Entries are named {@code COA_<sampleNumber>.pdf} and written in sample id order. A client that
+ * lost the connection resumes by passing the sample number of the last complete entry as
+ * {@code resumeAfter}; the new archive holds the remaining samples only.
+ */
+@Service
+@Slf4j
+public class CoaBulkExportService {
+
+    public record Criteria(Long jobId, Long clientId, Instant authorizedFrom, Instant authorizedTo, String resumeAfter) {}
+
+    /**
+     * A validated export with the caller's client scope resolved ({@code clientIds} null for all
+     * clients), ready to stream on another thread.
+     */
+    public record Plan(Criteria criteria, List<Long> clientIds, long afterId) {}
+
+    private record ExportSample(long id, String sampleNumber) {}
+
+    private record Part(ExportSample sample, String source, Integer revision, String sha256, InputStreamOpener opener) {}
+
+    @FunctionalInterface
+    private interface InputStreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_BUSY_RETRIES = 5;
+
+    private final SampleRepository sampleRepository;
+    private final SampleService sampleService;
+    private final CoaRevisionRepository coaRevisionRepository;
+    private final CoaSnapshotService coaSnapshotService;
+    private final ReportService reportService;
+    private final ExecutorService executor;
+    private final int lookAhead;
+
+    public CoaBulkExportService(SampleRepository sampleRepository,
+                                SampleService sampleService,
+                                CoaRevisionRepository coaRevisionRepository,
+                                CoaSnapshotService coaSnapshotService,
+                                ReportService reportService,
+                                @Value("${lims.reports.bulk-export.parallelism:2}") int parallelism) {
+        this.sampleRepository = sampleRepository;
+        this.sampleService = sampleService;
+        this.coaRevisionRepository = coaRevisionRepository;
+        this.coaSnapshotService = coaSnapshotService;
+        this.reportService = reportService;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        this.lookAhead = Math.max(1, parallelism) * 2;
+    }
+
+    public Plan plan(Criteria criteria) {
+        if (criteria.jobId() == null && criteria.clientId() == null
+                && criteria.authorizedFrom() == null && criteria.authorizedTo() == null) {
+            throw new BusinessRuleException("A COA export needs a job, a client or an authorization date range");
+        }
+        if (criteria.authorizedFrom() != null && criteria.authorizedTo() != null
+                && !criteria.authorizedFrom().isBefore(criteria.authorizedTo())) {
+            throw new BusinessRuleException("The authorization date range is empty");
+        }
+        List<Long> clientIds = sampleService.getRestrictedClientIds();
+        if (clientIds != null && criteria.clientId() != null && !clientIds.contains(criteria.clientId())) {
+            throw new AccessDeniedException("Access Denied");
+        }
+        long afterId = 0;
+        if (criteria.resumeAfter() != null && !criteria.resumeAfter().isBlank()) {
+            afterId = sampleRepository.findBySampleNumber(criteria.resumeAfter().trim())
+                    .map(Sample::getId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Sample " + criteria.resumeAfter() + " not found"));
+        }
+        return new Plan(criteria, clientIds, afterId);
+    }
+
+    /**
+     * Writes the ZIP to {@code out}. Stops with an IOException when the client goes away; work
+     * already queued for later entries is cancelled.
+     */
+    public void export(Plan plan, OutputStream out) throws IOException {
+        Deque<Future<Part>> pending = new ArrayDeque<>();
+        StringBuilder manifest = new StringBuilder("sample_number,source,revision,sha256\n");
+        int written = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            // PDFs are compressed already
+            zip.setLevel(Deflater.BEST_SPEED);
+            SampleCursor cursor = new SampleCursor(plan);
+            while (true) {
+                while (pending.size() < lookAhead && cursor.hasNext()) {
+                    ExportSample sample = cursor.next();
+                    pending.add(executor.submit(new DelegatingSecurityContextCallable<>(() -> prepareOrFail(sample))));
+                }
+                if (pending.isEmpty()) break;
+
+                Part part = await(pending.removeFirst());
+                if (part.opener() != null) {
+                    zip.putNextEntry(new ZipEntry("COA_" + part.sample().sampleNumber() + ".pdf"));
+                    try (InputStream in = part.opener().open()) {
+                        in.transferTo(zip);
+                    }
+                    zip.closeEntry();
+                    written++;
+                }
+                manifest.append(csv(part.sample().sampleNumber())).append(',')
+                        .append(part.source()).append(',')
+                        .append(part.revision() != null ? part.revision() : "").append(',')
+                        .append(part.sha256() != null ? part.sha256() : "").append('\n');
+            }
+            zip.putNextEntry(new ZipEntry("manifest.csv"));
+            zip.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            log.info("COA export streamed {} certificate(s)", written);
+        } finally {
+            for (Future<Part> future : pending) {
+                future.cancel(true);
+                discard(future);
+            }
+        }
+    }
+
+    /**
+     * A sample whose COA cannot be produced is listed in the manifest as failed and skipped, so
+     * one bad worksheet does not abort the whole export.
+     */
+    private Part prepareOrFail(ExportSample sample) {
+        try {
+            return prepare(sample);
+        } catch (RuntimeException e) {
+            log.error("COA export skipped sample {}", sample.sampleNumber(), e);
+            return new Part(sample, "failed", null, null, null);
+        }
+    }
+
+    /**
+     * Finds or renders one sample's COA. Runs on the export pool.
+     */
+    private Part prepare(ExportSample sample) {
+        Optional<CoaRevision> latest = coaRevisionRepository.findTopBySampleIdOrderByRevisionNumberDesc(sample.id());
+        if (latest.isPresent()) {
+            try {
+                CoaSnapshotService.Snapshot snapshot = coaSnapshotService.open(latest.get().getId());
+                CoaRevision revision = snapshot.revision();
+                return new Part(sample, "revision", revision.getRevisionNumber(), revision.getPdfSha256(),
+                        snapshot.content()::getInputStream);
+            } catch (ResourceNotFoundException e) {
+                log.warn("COA revision {} of sample {} has no readable snapshot, rendering instead",
+                        latest.get().getId(), sample.sampleNumber());
+            }
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                RenderedPdf pdf = reportService.generateCoa(sample.id());
+                return new Part(sample, "rendered", null, null, pdf::open);
+            } catch (ServiceBusyException busy) {
+                if (attempt >= MAX_BUSY_RETRIES) throw busy;
+                // A bulk export should wait its turn on the conversion pool rather than fail
+                try {
+                    Thread.sleep(busy.getRetryAfterSeconds() * 1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw busy;
+                }
+            }
+        }
+    }
+
+    private Part await(Future<Part> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting COAs", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("COA export failed", e.getCause());
+        }
+    }
+
+    /** Deletes the temporary file of a rendered COA that will never be written. */
+    private static void discard(Future<Part> future) {
+        if (!future.isDone() || future.isCancelled()) return;
+        try {
+            Part part = future.get();
+            if (part.opener() != null && "rendered".equals(part.source())) {
+                part.opener().open().close();
+            }
+        } catch (Exception ignored) {
+            // Nothing to clean up
+        }
+    }
+
+    private static String csv(String value) {
+        return value.contains(",") || value.contains("\"") ? "\"" + value.replace("\"", "\"\"") + "\"" : value;
+    }
+
+    /**
+     * Pages through the matching sample ids with a keyset cursor, so the export never holds the
+     * full list.
+     */
+    private final class SampleCursor {
+        private final Criteria criteria;
+        private final List<Long> clientIds;
+        private long afterId;
+        private final Deque<ExportSample> page = new ArrayDeque<>();
+        private boolean exhausted;
+
+        SampleCursor(Plan plan) {
+            this.criteria = plan.criteria();
+            this.clientIds = plan.clientIds();
+            this.afterId = plan.afterId();
+        }
+
+        boolean hasNext() {
+            if (page.isEmpty() && !exhausted) {
+                List<Object[]> rows = sampleRepository.findCoaExportSamples(criteria.jobId(), criteria.clientId(),
+                        clientIds == null, clientIds == null || clientIds.isEmpty() ? List.of(-1L) : clientIds,
+                        criteria.authorizedFrom(), criteria.authorizedTo(), afterId, PageRequest.of(0, PAGE_SIZE));
+                for (Object[] row : rows) {
+                    page.add(new ExportSample(((Number) row[0]).longValue(), (String) row[1]));
+                }
+                exhausted = rows.size() < PAGE_SIZE;
+                if (!page.isEmpty()) afterId = page.peekLast().id();
+            }
+            return !page.isEmpty();
+        }
+
+        ExportSample next() {
+            return page.removeFirst();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
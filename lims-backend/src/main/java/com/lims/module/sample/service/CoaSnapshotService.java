@@ -0,0 +1,134 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.ResourceNotFoundException;
+import com.lims.common.storage.BlobStore;
+import com.lims.common.storage.StoredBlob;
+import com.lims.module.sample.entity.CoaRevision;
+import com.lims.module.sample.repository.CoaRevisionRepository;
+import com.lims.module.sample.repository.LegacyCoaSnapshotDao;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * COA revision PDFs in the {@link BlobStore}: storing new snapshots, opening them for download and
+ * moving legacy bytea snapshots out of {@code coa_revisions}. The move runs in batches in the
+ * background after startup and on demand; a legacy revision requested before its batch ran is
+ * moved on the spot.
+ */
+@Service
+@Slf4j
+public class CoaSnapshotService {
+
+    public record Snapshot(CoaRevision revision, Resource content) {}
+
+    private final CoaRevisionRepository coaRevisionRepository;
+    private final LegacyCoaSnapshotDao legacyCoaSnapshotDao;
+    private final BlobStore blobStore;
+    private final boolean migrateOnStartup;
+    private final int batchSize;
+    private final ExecutorService migrationThread = Executors.newSingleThreadExecutor();
+
+    public CoaSnapshotService(CoaRevisionRepository coaRevisionRepository,
+                              LegacyCoaSnapshotDao legacyCoaSnapshotDao,
+                              BlobStore blobStore,
+                              @Value("${lims.storage.coa-snapshot-migration.on-startup:true}") boolean migrateOnStartup,
+                              @Value("${lims.storage.coa-snapshot-migration.batch-size:50}") int batchSize) {
+        this.coaRevisionRepository = coaRevisionRepository;
+        this.legacyCoaSnapshotDao = legacyCoaSnapshotDao;
+        this.blobStore = blobStore;
+        this.migrateOnStartup = migrateOnStartup;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public StoredBlob store(Path pdf) throws IOException {
+        return blobStore.store(pdf);
+    }
+
+    public Snapshot open(Long revisionId) {
+        CoaRevision revision = coaRevisionRepository.findById(revisionId)
+                .orElseThrow(() -> new ResourceNotFoundException("COA Revision", revisionId));
+        if (revision.getPdfRef() == null) {
+            StoredBlob blob = migrate(revisionId);
+            if (blob == null) {
+                throw new ResourceNotFoundException("COA Revision " + revisionId + " has no PDF snapshot");
+            }
+            revision.setPdfRef(blob.ref());
+            revision.setPdfSha256(blob.sha256());
+            revision.setPdfSize(blob.size());
+        }
+        return new Snapshot(revision, blobStore.load(revision.getPdfRef()));
+    }
+
+    /**
+     * Moves up to one batch of legacy snapshots into the blob store.
+     *
+     * @return the number of revisions moved and still remaining
+     */
+    public Map<String, Long> migrateBatch() {
+        if (!legacyCoaSnapshotDao.isColumnPresent()) {
+            return Map.of("migrated", 0L, "remaining", 0L);
+        }
+        long migrated = 0;
+        for (Long id : legacyCoaSnapshotDao.findUnmigratedIds(batchSize)) {
+            try {
+                if (migrate(id) != null) migrated++;
+            } catch (RuntimeException e) {
+                log.error("Failed to move COA revision {} snapshot to the blob store", id, e);
+            }
+        }
+        return Map.of("migrated", migrated, "remaining", legacyCoaSnapshotDao.countUnmigrated());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void migrateInBackground() {
+        if (!migrateOnStartup) return;
+        migrationThread.submit(() -> {
+            try {
+                if (!legacyCoaSnapshotDao.isColumnPresent() || legacyCoaSnapshotDao.countUnmigrated() == 0) return;
+                log.info("Moving {} legacy COA snapshots to the blob store", legacyCoaSnapshotDao.countUnmigrated());
+                long total = 0;
+                while (!Thread.currentThread().isInterrupted()) {
+                    Map<String, Long> result = migrateBatch();
+                    total += result.get("migrated");
+                    if (result.get("migrated") == 0) {
+                        log.info("COA snapshot migration finished: {} moved, {} remaining", total, result.get("remaining"));
+                        return;
+                    }
+                    log.info("COA snapshot migration: {} moved, {} remaining", total, result.get("remaining"));
+                }
+            } catch (RuntimeException e) {
+                log.error("COA snapshot migration stopped", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        migrationThread.shutdownNow();
+    }
+
+    private StoredBlob migrate(Long revisionId) {
+        StoredBlob blob = legacyCoaSnapshotDao.isColumnPresent()
+                ? legacyCoaSnapshotDao.readSnapshot(revisionId, blobStore::store)
+                : null;
+        if (blob == null) {
+            return null;
+        }
+        if (!legacyCoaSnapshotDao.markMigrated(revisionId, blob)) {
+            // Migrated concurrently; the content is the same, so the stored blob is shared
+            log.debug("COA revision {} was migrated concurrently", revisionId);
+        }
+        return blob;
+    }
+}
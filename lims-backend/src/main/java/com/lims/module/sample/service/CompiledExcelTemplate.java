@@ -0,0 +1,72 @@
+package com.lims.module.sample.service;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An Excel report template parsed once: the prepared workbook (target sheet isolated, print
+ * setup applied) serialized to bytes, plus the location of every placeholder on the target sheet
+ * in row-major order. Rendering opens a fresh copy and only visits the recorded slots.
+ */
+public final class CompiledExcelTemplate {
+
+    public enum SlotType { TAG, TABLE, QR }
+
+    /**
+     * A placeholder cell. For TAG slots {@code segments} alternates literal text and tag names,
+     * starting and ending with literal text; TABLE slots carry the section id of {@code {table:id}}.
+     */
+    public record Slot(SlotType type, int row, int col, String text, List<String> segments, String sectionId) {
+
+        /**
+         * The tag name when the whole cell is a single {@code {tag}}, so the value can keep its type.
+         */
+        public String wholeTag() {
+            return segments.size() == 3 && segments.get(0).isEmpty() && segments.get(2).isEmpty()
+                    ? segments.get(1) : null;
+        }
+
+        public String resolve(Map<String, String> values) {
+            StringBuilder sb = new StringBuilder(text.length() + 16);
+            for (int i = 0; i < segments.size(); i++) {
+                String segment = segments.get(i);
+                sb.append(i % 2 == 0 ? segment : values.getOrDefault(segment, ""));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final String templatePath;
+    private final byte[] workbookBytes;
+    private final List<Slot> slots;
+
+    CompiledExcelTemplate(String templatePath, byte[] workbookBytes, List<Slot> slots) {
+        this.templatePath = templatePath;
+        this.workbookBytes = workbookBytes;
+        this.slots = List.copyOf(slots);
+    }
+
+    /**
+     * A fresh, independent copy of the prepared workbook; the target sheet is at index 0.
+     */
+    public Workbook open() throws IOException {
+        return new XSSFWorkbook(new ByteArrayInputStream(workbookBytes));
+    }
+
+    public String getTemplatePath() {
+        return templatePath;
+    }
+
+    public List<Slot> getSlots() {
+        return slots;
+    }
+
+    public int getSize() {
+        return workbookBytes.length;
+    }
+}
@@ -0,0 +1,41 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.cache.BoundedCache;
+import com.lims.module.sample.entity.MethodDefinition;
+import com.lims.module.sample.schema.CompiledSchema;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds one {@link CompiledSchema} per published method definition, keyed by definition id and
+ * version. Drafts are edited in place and are compiled on every call instead.
+ */
+@Component
+public class CompiledSchemaCache {
+
+    private static final int MAX_CACHE_ENTRIES = 500;
+
+    private final BoundedCache<CacheKey, CompiledSchema> cache = new BoundedCache<>(MAX_CACHE_ENTRIES);
+
+    public CompiledSchema get(MethodDefinition definition) {
+        if (definition == null) {
+            return CompiledSchema.empty();
+        }
+        if (definition.getId() == null || "DRAFT".equals(definition.getStatus())) {
+            return CompiledSchema.compile(definition.getSchemaDefinition());
+        }
+
+        CacheKey key = new CacheKey(definition.getId(), definition.getVersion());
+        CompiledSchema compiled = cache.get(key);
+        if (compiled == null) {
+            compiled = CompiledSchema.compile(definition.getSchemaDefinition());
+            cache.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    public void evict(Long definitionId) {
+        cache.removeIf(k -> k.definitionId().equals(definitionId));
+    }
+
+    private record CacheKey(Long definitionId, Integer version) {}
+}
@@ -0,0 +1,154 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.cache.BoundedCache;
+import com.lims.module.sample.config.ReportPrintingConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.PrintSetup;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFPrintSetup;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Holds one {@link CompiledExcelTemplate} per report template file. An entry is reused while the
+ * file's size and modification time and the {@link ReportPrintingConfig} it was prepared with
+ * are unchanged; templates are compiled eagerly on upload and lazily on first use otherwise.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CompiledTemplateCache {
+
+    private static final int MAX_CACHE_ENTRIES = 100;
+
+    static final Pattern TAG_PATTERN = Pattern.compile("\\{([^}]+)\\}");
+    static final Pattern TABLE_TAG_PATTERN = Pattern.compile("\\{table:([^}]+)\\}");
+
+    private final ReportPrintingConfig printingConfig;
+
+    private final BoundedCache<Path, Entry> cache = new BoundedCache<>(MAX_CACHE_ENTRIES);
+
+    public CompiledExcelTemplate get(String templatePath) throws IOException {
+        Path path = Path.of(templatePath).toAbsolutePath();
+        if (!Files.exists(path)) {
+            throw new IOException("Template file not found at: " + templatePath);
+        }
+        Stamp stamp = new Stamp(Files.size(path), Files.getLastModifiedTime(path).toMillis(),
+                printingConfig.getTargetSheetIndex(), printingConfig.isIsolateTargetSheet(), printingConfig.isFitToWidth());
+
+        Entry entry = cache.get(path);
+        if (entry == null || !entry.stamp().equals(stamp)) {
+            entry = new Entry(stamp, compile(templatePath, path));
+            cache.put(path, entry);
+        }
+        return entry.template();
+    }
+
+    public void evict(String templatePath) {
+        cache.remove(Path.of(templatePath).toAbsolutePath());
+    }
+
+    private CompiledExcelTemplate compile(String templatePath, Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path);
+             Workbook workbook = new XSSFWorkbook(in)) {
+
+            prepareWorkbook(workbook);
+            Sheet sheet = workbook.getSheetAt(0); // The target sheet is now at index 0 after preparation
+
+            List<CompiledExcelTemplate.Slot> slots = new ArrayList<>();
+            for (int r = 0; r <= sheet.getLastRowNum(); r++) {
+                Row row = sheet.getRow(r);
+                if (row == null) continue;
+                for (int c = 0; c < row.getLastCellNum(); c++) {
+                    Cell cell = row.getCell(c);
+                    if (cell == null || cell.getCellType() != CellType.STRING) continue;
+                    CompiledExcelTemplate.Slot slot = slotFor(r, c, cell.getStringCellValue());
+                    if (slot != null) slots.add(slot);
+                }
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            CompiledExcelTemplate template = new CompiledExcelTemplate(templatePath, out.toByteArray(), slots);
+            log.info("Compiled Excel template {}: {} placeholder(s), {} KB", templatePath, slots.size(), template.getSize() / 1024);
+            return template;
+        }
+    }
+
+    static CompiledExcelTemplate.Slot slotFor(int row, int col, String text) {
+        if (text == null || !text.contains("{")) return null;
+
+        String trimmed = text.trim();
+        if (trimmed.equalsIgnoreCase("{qr}") || trimmed.equalsIgnoreCase("{qr:coa}")) {
+            return new CompiledExcelTemplate.Slot(CompiledExcelTemplate.SlotType.QR, row, col, text, List.of(), null);
+        }
+
+        List<String> segments = new ArrayList<>();
+        Matcher matcher = TAG_PATTERN.matcher(text);
+        int lastEnd = 0;
+        while (matcher.find()) {
+            segments.add(text.substring(lastEnd, matcher.start()));
+            segments.add(matcher.group(1));
+            lastEnd = matcher.end();
+        }
+        if (segments.isEmpty()) return null;
+        segments.add(text.substring(lastEnd));
+
+        Matcher table = TABLE_TAG_PATTERN.matcher(text);
+        if (table.find()) {
+            return new CompiledExcelTemplate.Slot(CompiledExcelTemplate.SlotType.TABLE, row, col, text, List.copyOf(segments), table.group(1));
+        }
+        return new CompiledExcelTemplate.Slot(CompiledExcelTemplate.SlotType.TAG, row, col, text, List.copyOf(segments), null);
+    }
+
+    /**
+     * Prepares the workbook based on the configuration (Sheet selection and isolation, 'Fit to Width' scaling).
+     */
+    private void prepareWorkbook(Workbook workbook) throws IOException {
+        int targetIndex = printingConfig.getTargetSheetIndex();
+
+        if (workbook.getNumberOfSheets() <= targetIndex) {
+            throw new IOException("The template does not contain a sheet at index: " + targetIndex);
+        }
+
+        if (printingConfig.isIsolateTargetSheet()) {
+            // Remove everything before the target index
+            for (int i = 0; i < targetIndex; i++) {
+                workbook.removeSheetAt(0);
+            }
+            // Remove everything that was originally after the target index
+            while (workbook.getNumberOfSheets() > 1) {
+                workbook.removeSheetAt(1);
+            }
+        }
+
+        if (printingConfig.isFitToWidth()) {
+            Sheet sheet = workbook.getSheetAt(0);
+            PrintSetup ps = sheet.getPrintSetup();
+            sheet.setFitToPage(true);
+            sheet.setAutobreaks(true);
+            ps.setPaperSize(XSSFPrintSetup.A4_PAPERSIZE);
+            ps.setFitWidth((short) 1);  // Force to 1 page wide
+            ps.setFitHeight((short) 0); // Allow as many pages long as needed
+        }
+    }
+
+    private record Stamp(long size, long modified, int targetSheetIndex, boolean isolateTargetSheet, boolean fitToWidth) {}
+
+    private record Entry(Stamp stamp, CompiledExcelTemplate template) {}
+}
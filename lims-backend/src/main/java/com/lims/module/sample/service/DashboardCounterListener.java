@@ -0,0 +1,123 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.hibernate.BeforeCommitListener;
+import com.lims.module.notification.service.DataSyncService;
+import com.lims.module.sample.entity.DashboardCounterId;
+import com.lims.module.sample.entity.Sample;
+import com.lims.module.sample.repository.DashboardCounterDao;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Keeps {@code dashboard_counters} in step with sample statuses. Every sample insert, status
+ * change and delete adds a delta to its transaction; the summed deltas are added to the counters
+ * before commit and sent once committed, to each user summed over the clients they may see.
+ * <p>
+ * Samples moved to another client are not seen here; {@link DashboardCounterService#reconcile()}
+ * corrects them along with changes that bypass the session.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardCounterListener extends BeforeCommitListener<DashboardCounterListener.PendingDeltas>
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final DashboardCounterDao dashboardCounterDao;
+    private final DataSyncService dataSyncService;
+
+    @PostConstruct
+    void register() {
+        register(entityManagerFactory);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Sample sample) {
+            record(event.getSession(), sample, sample.getStatus(), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Sample sample) || event.getOldState() == null) {
+            return;
+        }
+        String previous = (String) event.getOldState()[propertyIndex(event.getPersister(), "status")];
+        if (!Objects.equals(previous, sample.getStatus())) {
+            record(event.getSession(), sample, previous, -1);
+            record(event.getSession(), sample, sample.getStatus(), 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Sample sample) {
+            Object[] state = event.getDeletedState();
+            String status = state != null ? (String) state[propertyIndex(event.getPersister(), "status")] : sample.getStatus();
+            record(event.getSession(), sample, status, -1);
+        }
+    }
+
+    private void record(EventSource session, Sample sample, String status, long delta) {
+        if (status == null || sample.getJob() == null || sample.getJob().getClient() == null) {
+            return;
+        }
+        pendingFor(session).add(new DashboardCounterId(sample.getJob().getClient().getId(), status), delta);
+    }
+
+    @Override
+    protected PendingDeltas newPending() {
+        return new PendingDeltas();
+    }
+
+    @Override
+    protected void beforeCommit(PendingDeltas pending, Connection connection) throws SQLException {
+        dashboardCounterDao.increment(connection, pending.snapshot());
+    }
+
+    @Override
+    protected void afterCompletion(PendingDeltas pending, boolean committed) {
+        if (!committed) return;
+        Map<Long, Map<String, Long>> byClient = new TreeMap<>();
+        pending.snapshot().forEach((counter, delta) -> {
+            if (delta != 0) byClient.computeIfAbsent(counter.getClientId(), k -> new TreeMap<>()).put(counter.getStatus(), delta);
+        });
+        if (byClient.isEmpty()) return;
+        try {
+            dataSyncService.sendDashboardDeltas(byClient);
+        } catch (RuntimeException e) {
+            log.warn("Could not send dashboard counter deltas: {}", e.getMessage());
+        }
+    }
+
+    /** Deltas of one transaction, summed per counter. */
+    static class PendingDeltas {
+
+        private final TreeMap<DashboardCounterId, Long> byCounter = new TreeMap<>(DashboardCounterDao.KEY_ORDER);
+
+        synchronized void add(DashboardCounterId counter, long delta) {
+            byCounter.merge(counter, delta, Long::sum);
+        }
+
+        synchronized Map<DashboardCounterId, Long> snapshot() {
+            return new TreeMap<>(byCounter);
+        }
+    }
+}
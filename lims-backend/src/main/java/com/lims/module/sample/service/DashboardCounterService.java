@@ -0,0 +1,134 @@
+package com.lims.module.sample.service;
+
+import com.lims.module.notification.dto.DashboardCounterEvent;
+import com.lims.module.notification.service.DataSyncService;
+import com.lims.module.sample.entity.DashboardCounter;
+import com.lims.module.sample.entity.DashboardCounterId;
+import com.lims.module.sample.repository.DashboardCounterDao;
+import com.lims.module.sample.repository.DashboardCounterRepository;
+import com.lims.module.sample.repository.SampleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sample counts per (client, status) for the dashboard, read from {@code dashboard_counters}
+ * in one query. The counters are maintained by {@link DashboardCounterListener} and periodically
+ * reconciled against a {@code GROUP BY} over the samples.
+ */
+@Service
+@Slf4j
+public class DashboardCounterService {
+
+    private final DashboardCounterRepository counterRepository;
+    private final DashboardCounterDao dashboardCounterDao;
+    private final SampleRepository sampleRepository;
+    private final DataSyncService dataSyncService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final Counter driftCounter;
+
+    public DashboardCounterService(DashboardCounterRepository counterRepository,
+                                   DashboardCounterDao dashboardCounterDao,
+                                   SampleRepository sampleRepository,
+                                   DataSyncService dataSyncService,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.counterRepository = counterRepository;
+        this.dashboardCounterDao = dashboardCounterDao;
+        this.sampleRepository = sampleRepository;
+        this.dataSyncService = dataSyncService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.driftCounter = Counter.builder("lims.dashboard.counters.drift")
+                .description("Dashboard counters corrected by reconciliation")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sample counts by status over the given clients, or over all clients when {@code clientIds} is null.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Long> countsByStatus(List<Long> clientIds) {
+        List<DashboardCounter> counters = clientIds != null
+                ? counterRepository.findByIdClientIdIn(clientIds)
+                : counterRepository.findAll();
+        Map<String, Long> byStatus = new HashMap<>();
+        for (DashboardCounter counter : counters) {
+            byStatus.merge(counter.getId().getStatus(), counter.getSampleCount(), Long::sum);
+        }
+        return byStatus;
+    }
+
+    /**
+     * Recounts the samples and corrects every counter that drifted, without blocking sample
+     * changes. The recount and the counters are read in one repeatable-read snapshot, in which
+     * they are consistent because counters change in the transactions that change the samples;
+     * the drift found there is then added to the counters as a delta, so changes committed
+     * meanwhile keep theirs. Open dashboards are told to refetch when anything was corrected.
+     * <p>
+     * The correction runs under a transaction-scoped lock that covers the snapshot, so when
+     * several instances are scheduled at once only one of them applies the drift.
+     */
+    @Scheduled(fixedDelayString = "${lims.dashboard.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        Map<DashboardCounterId, Long> drift = transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Map<DashboardCounterId, Long>>) connection -> {
+            if (!dashboardCounterDao.tryLockReconciliation(connection)) {
+                log.debug("Dashboard counters are being reconciled by another instance, skipping");
+                return Map.of();
+            }
+            Map<DashboardCounterId, Long> corrections = snapshotTransaction.execute(snapshot -> recount());
+            if (corrections != null) {
+                dashboardCounterDao.increment(connection, corrections);
+            }
+            return corrections;
+        }));
+        if (drift == null || drift.isEmpty()) return;
+
+        driftCounter.increment(drift.size());
+        dataSyncService.broadcastDashboardCounters(DashboardCounterEvent.builder().type("RESYNC").build());
+    }
+
+    /** Differences between the recounted samples and the counters, per counter. */
+    private Map<DashboardCounterId, Long> recount() {
+        Map<DashboardCounterId, Long> actual = new HashMap<>();
+        for (Object[] row : sampleRepository.countByClientAndStatus()) {
+            actual.put(new DashboardCounterId((Long) row[0], (String) row[1]), (Long) row[2]);
+        }
+
+        Map<DashboardCounterId, Long> corrections = new HashMap<>();
+        for (DashboardCounter counter : counterRepository.findAll()) {
+            long expected = actual.getOrDefault(counter.getId(), 0L);
+            actual.remove(counter.getId());
+            if (counter.getSampleCount() != expected) {
+                log.warn("Dashboard counter {}/{} was {}, recounted {}",
+                        counter.getId().getClientId(), counter.getId().getStatus(), counter.getSampleCount(), expected);
+                corrections.put(counter.getId(), expected - counter.getSampleCount());
+            }
+        }
+        for (Map.Entry<DashboardCounterId, Long> missing : actual.entrySet()) {
+            log.warn("Dashboard counter {}/{} was missing, recounted {}",
+                    missing.getKey().getClientId(), missing.getKey().getStatus(), missing.getValue());
+            corrections.put(missing.getKey(), missing.getValue());
+        }
+        return corrections;
+    }
+}
@@ -9,7 +9,6 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
-import org.apache.poi.ss.util.CellRangeAddress;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
@@ -18,94 +17,169 @@ import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.Shape;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Converts uploaded attachments (PDF, Excel, Images) into PNG byte arrays
- * suitable for embedding in JasperReports.
+ * Converts uploaded attachments (PDF, Excel, Images) into PNG images, one per page or sheet,
+ * suitable for embedding in JasperReports. Pages are rendered one at a time so callers can render
+ * lazily and in parallel; every call opens its own document, so calls are thread-safe.
  */
 @Service
 public class DocumentConversionService {
 
-    private static final int PDF_DPI = 150;
+    /** Resolution at which images are used as is and Excel sheets are drawn at their natural size. */
+    public static final int PDF_DPI = 150;
     private static final int EXCEL_CELL_WIDTH_FACTOR = 8;  // approx pixels per character width unit
     private static final int EXCEL_ROW_HEIGHT_FACTOR = 1;  // twips to pixels factor
     private static final int EXCEL_MAX_WIDTH = 1600;       // max image width in pixels
 
-    /**
-     * Convert a file to a list of PNG images (one per page/sheet).
-     */
-    public List<byte[]> convertToImages(Path filePath, String fileType) throws IOException {
+    public enum Kind { IMAGE, PDF, EXCEL, UNSUPPORTED }
+
+    public static Kind kindOf(Path filePath, String fileType) {
         if (fileType == null) {
-            return List.of();
+            return Kind.UNSUPPORTED;
         }
-
         String type = fileType.toLowerCase();
-
+        String name = filePath.toString().toLowerCase();
         if (type.startsWith("image/")) {
-            return List.of(Files.readAllBytes(filePath));
+            return Kind.IMAGE;
         } else if (type.equals("application/pdf")) {
-            return convertPdfToImages(filePath);
+            return Kind.PDF;
         } else if (type.contains("spreadsheet") || type.contains("excel") ||
-                   type.endsWith(".sheet") || filePath.toString().toLowerCase().endsWith(".xlsx") ||
-                   filePath.toString().toLowerCase().endsWith(".xls")) {
-            return convertExcelToImages(filePath);
+                   type.endsWith(".sheet") || name.endsWith(".xlsx") || name.endsWith(".xls")) {
+            return Kind.EXCEL;
         }
+        return Kind.UNSUPPORTED;
+    }
 
-        // Unsupported type — skip
-        return List.of();
+    /**
+     * Convert a file to a list of PNG images (one per page/sheet).
+     */
+    public List<byte[]> convertToImages(Path filePath, String fileType) throws IOException {
+        List<byte[]> images = new ArrayList<>();
+        int pages = pageCount(filePath, fileType);
+        for (int i = 0; i < pages; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            renderPage(filePath, fileType, i, PDF_DPI, out);
+            images.add(out.toByteArray());
+        }
+        return images;
+    }
+
+    /**
+     * Number of pages: PDF pages, non-empty Excel sheets, 1 for an image, 0 if unsupported.
+     */
+    public int pageCount(Path filePath, String fileType) throws IOException {
+        return switch (kindOf(filePath, fileType)) {
+            case IMAGE -> 1;
+            case PDF -> {
+                try (PDDocument doc = Loader.loadPDF(filePath.toFile())) {
+                    yield doc.getNumberOfPages();
+                }
+            }
+            case EXCEL -> {
+                try (Workbook wb = WorkbookFactory.create(filePath.toFile(), null, true)) {
+                    yield nonEmptySheets(wb).size();
+                }
+            }
+            case UNSUPPORTED -> 0;
+        };
+    }
+
+    /**
+     * Renders one page as PNG to {@code out}. {@code dpi} scales images and Excel sheets relative
+     * to {@link #PDF_DPI}; images are never scaled up.
+     */
+    public void renderPage(Path filePath, String fileType, int page, int dpi, OutputStream out) throws IOException {
+        BufferedImage image = switch (kindOf(filePath, fileType)) {
+            case IMAGE -> {
+                if (page != 0) throw new IllegalArgumentException("Images have a single page");
+                yield renderImage(filePath, dpi);
+            }
+            case PDF -> renderPdfPage(filePath, page, dpi);
+            case EXCEL -> renderExcelSheet(filePath, page, dpi);
+            case UNSUPPORTED -> throw new IllegalArgumentException("Unsupported attachment type: " + fileType);
+        };
+        ImageIO.write(image, "png", out);
+    }
+
+    // ==================== Image Conversion ====================
+
+    private BufferedImage renderImage(Path filePath, int dpi) throws IOException {
+        BufferedImage source = ImageIO.read(filePath.toFile());
+        if (source == null) {
+            throw new IOException("Unreadable image: " + filePath.getFileName());
+        }
+        if (dpi >= PDF_DPI) {
+            return source;
+        }
+        double scale = (double) dpi / PDF_DPI;
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
     }
 
     // ==================== PDF Conversion ====================
 
-    private List<byte[]> convertPdfToImages(Path filePath) throws IOException {
-        List<byte[]> images = new ArrayList<>();
+    private BufferedImage renderPdfPage(Path filePath, int page, int dpi) throws IOException {
         try (PDDocument doc = Loader.loadPDF(filePath.toFile())) {
-            PDFRenderer renderer = new PDFRenderer(doc);
-            for (int i = 0; i < doc.getNumberOfPages(); i++) {
-                BufferedImage img = renderer.renderImageWithDPI(i, PDF_DPI);
-                images.add(bufferedImageToPng(img));
+            if (page < 0 || page >= doc.getNumberOfPages()) {
+                throw new IllegalArgumentException("Page " + page + " out of range");
             }
+            return new PDFRenderer(doc).renderImageWithDPI(page, dpi);
         }
-        return images;
     }
 
     // ==================== Excel Conversion ====================
 
-    private List<byte[]> convertExcelToImages(Path filePath) throws IOException {
-        List<byte[]> images = new ArrayList<>();
-        try (Workbook wb = WorkbookFactory.create(filePath.toFile())) {
-            for (int s = 0; s < wb.getNumberOfSheets(); s++) {
-                Sheet sheet = wb.getSheetAt(s);
-                byte[] img = renderSheetToImage(sheet);
-                if (img != null) {
-                    images.add(img);
-                }
+    private BufferedImage renderExcelSheet(Path filePath, int page, int dpi) throws IOException {
+        try (Workbook wb = WorkbookFactory.create(filePath.toFile(), null, true)) {
+            List<Sheet> sheets = nonEmptySheets(wb);
+            if (page < 0 || page >= sheets.size()) {
+                throw new IllegalArgumentException("Page " + page + " out of range");
             }
+            return renderSheetToImage(sheets.get(page), (double) dpi / PDF_DPI);
         }
-        return images;
     }
 
-    private byte[] renderSheetToImage(Sheet sheet) throws IOException {
-        int firstRow = sheet.getFirstRowNum();
-        int lastRow = sheet.getLastRowNum();
-        if (lastRow < firstRow) return null;
+    private static List<Sheet> nonEmptySheets(Workbook wb) {
+        List<Sheet> sheets = new ArrayList<>();
+        for (int s = 0; s < wb.getNumberOfSheets(); s++) {
+            Sheet sheet = wb.getSheetAt(s);
+            if (maxColumn(sheet) > 0) {
+                sheets.add(sheet);
+            }
+        }
+        return sheets;
+    }
 
-        // Determine columns range
+    private static int maxColumn(Sheet sheet) {
         int maxCol = 0;
-        for (int r = firstRow; r <= lastRow; r++) {
+        for (int r = sheet.getFirstRowNum(); r <= sheet.getLastRowNum(); r++) {
             Row row = sheet.getRow(r);
             if (row != null && row.getLastCellNum() > maxCol) {
                 maxCol = row.getLastCellNum();
             }
         }
-        if (maxCol == 0) return null;
+        return maxCol;
+    }
+
+    private BufferedImage renderSheetToImage(Sheet sheet, double zoom) {
+        int firstRow = sheet.getFirstRowNum();
+        int lastRow = sheet.getLastRowNum();
+        int maxCol = maxColumn(sheet);
 
         // Calculate column widths in pixels
         int[] colWidths = new int[maxCol];
@@ -146,8 +220,10 @@ public class DocumentConversionService {
         int imgWidth = totalWidth + marginX * 2;
         int imgHeight = totalHeight + marginY * 2;
 
-        BufferedImage image = new BufferedImage(imgWidth, imgHeight, BufferedImage.TYPE_INT_RGB);
+        BufferedImage image = new BufferedImage(Math.max(1, (int) Math.ceil(imgWidth * zoom)),
+                Math.max(1, (int) Math.ceil(imgHeight * zoom)), BufferedImage.TYPE_INT_RGB);
         Graphics2D g = image.createGraphics();
+        g.scale(zoom, zoom);
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
 
@@ -157,6 +233,8 @@ public class DocumentConversionService {
 
         // Draw cells
         DataFormatter formatter = new DataFormatter();
+        MergedRegionIndex merged = new MergedRegionIndex(sheet);
+        Font font = new Font("SansSerif", Font.PLAIN, 11);
         int y = marginY;
         for (int r = firstRow; r <= lastRow; r++) {
             Row row = sheet.getRow(r);
@@ -167,7 +245,7 @@ public class DocumentConversionService {
                 int colW = colWidths[c];
 
                 // Check if this cell is part of a merged region (and not the top-left)
-                if (!isMergedButNotFirst(sheet, r, c)) {
+                if (!merged.isMergedButNotFirst(r, c)) {
                     // Draw cell border
                     g.setColor(java.awt.Color.LIGHT_GRAY);
                     g.drawRect(x, y, colW, rowH);
@@ -178,13 +256,14 @@ public class DocumentConversionService {
                         if (cell != null) {
                             String value = formatter.formatCellValue(cell);
                             g.setColor(java.awt.Color.BLACK);
-                            g.setFont(new java.awt.Font("SansSerif", java.awt.Font.PLAIN, 11));
+                            g.setFont(font);
                             FontMetrics fm = g.getFontMetrics();
                             int textY = y + (rowH + fm.getAscent() - fm.getDescent()) / 2;
                             // Clip to cell bounds
-                            g.setClip(x + 2, y, colW - 4, rowH);
+                            Shape clip = g.getClip();
+                            g.clipRect(x + 2, y, colW - 4, rowH);
                             g.drawString(value, x + 3, textY);
-                            g.setClip(null);
+                            g.setClip(clip);
                         }
                     }
                 }
@@ -194,25 +273,6 @@ public class DocumentConversionService {
         }
 
         g.dispose();
-        return bufferedImageToPng(image);
-    }
-
-    private boolean isMergedButNotFirst(Sheet sheet, int row, int col) {
-        for (int i = 0; i < sheet.getNumMergedRegions(); i++) {
-            CellRangeAddress range = sheet.getMergedRegion(i);
-            if (range.isInRange(row, col)) {
-                return row != range.getFirstRow() || col != range.getFirstColumn();
-            }
-        }
-        return false;
-    }
-
-    // ==================== Utilities ====================
-
-    private byte[] bufferedImageToPng(BufferedImage image) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "png", baos);
-            return baos.toByteArray();
-        }
+        return image;
     }
 }
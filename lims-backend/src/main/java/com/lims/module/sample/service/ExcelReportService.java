@@ -1,19 +1,14 @@
 package com.lims.module.sample.service;
 
-import com.lims.module.sample.entity.Sample;
 import com.lims.module.sample.entity.WorksheetData;
-import com.lims.module.sample.config.ReportPrintingConfig;
+import com.lims.module.sample.formula.WorksheetValues;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.apache.poi.xssf.usermodel.XSSFPrintSetup;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -25,25 +20,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import javax.imageio.ImageIO;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.image.BufferedImage;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExcelReportService {
 
-    private final ReportPrintingConfig printingConfig;
     private final ComputedVariableEvaluator computedVariableEvaluator;
-    private final QrCodeService qrCodeService;
+    private final ReportImageCache reportImageCache;
+    private final CompiledTemplateCache compiledTemplateCache;
 
     @Value("${lims.app-url:http://localhost:5173}")
     private String appUrl;
 
-    private static final Pattern TAG_PATTERN = Pattern.compile("\\{([^}]+)\\}");
-    private static final Pattern TABLE_TAG_PATTERN = Pattern.compile("\\{table:([^}]+)\\}");
+    private static final Pattern SIGNATURE_PATTERN = Pattern.compile("([^\\s]*uploads[/\\\\]signatures[/\\\\][^\\s]*\\.(png|jpg|jpeg))", Pattern.CASE_INSENSITIVE);
 
     /**
      * Injects worksheet data into an Excel template.
@@ -53,57 +43,53 @@ public class ExcelReportService {
      * @return Path to the generated temporary Excel file
      */
     public Path generateExcelReport(WorksheetData worksheetData, String templatePath) throws IOException {
-        Path inputPath = Path.of(templatePath);
-        if (!Files.exists(inputPath)) {
-            throw new IOException("Template file not found at: " + templatePath);
-        }
+        CompiledExcelTemplate template = compiledTemplateCache.get(templatePath);
 
-        try (FileInputStream fis = new FileInputStream(templatePath);
-             Workbook workbook = new XSSFWorkbook(fis)) {
+        try (Workbook workbook = template.open()) {
 
             log.info("Generating Excel report for SampleTest: {} using template: {}", 
                 worksheetData.getSampleTest().getId(), templatePath);
 
-            // Phase 1: Prepare workbook
-            prepareWorkbook(workbook);
-
-            Sheet sheet = workbook.getSheetAt(0); // The target sheet is now at index 0 after preparation
-            
-            // Phase 2: Process legacy dynamic table markers ({table:sectionId})
-            processTableMarkers(sheet, worksheetData);
+            Sheet sheet = workbook.getSheetAt(0); // The target sheet is at index 0 in the compiled template
 
-            // Phase 3 & 4: Build Variable Resolution Map (Scalars, Indexed, Matrix, Count, Computed)
+            // Build Variable Resolution Map (Scalars, Indexed, Matrix, Count, Computed)
             Map<String, String> resolutionMap = buildResolutionMap(worksheetData);
+            List<Map<String, Object>> sections = tableSections(worksheetData);
+
+            // Visit the recorded placeholders in row order. A table inserts rows below its marker,
+            // so every slot on a later template row moves down by the rows inserted above it.
+            int rowOffset = 0;
+            int insertedOnCurrentRow = 0;
+            int currentRow = -1;
+            for (CompiledExcelTemplate.Slot slot : template.getSlots()) {
+                if (slot.row() != currentRow) {
+                    rowOffset += insertedOnCurrentRow;
+                    insertedOnCurrentRow = 0;
+                    currentRow = slot.row();
+                }
+                Row row = sheet.getRow(slot.row() + rowOffset);
+                Cell cell = row != null ? row.getCell(slot.col()) : null;
+                // Skip cells a table on the same row has already overwritten
+                if (cell == null || cell.getCellType() != CellType.STRING || !slot.text().equals(cell.getStringCellValue())) {
+                    continue;
+                }
 
-            // Phase 5: Process scalar cells and substitutions
-            for (int r = 0; r <= sheet.getLastRowNum(); r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) continue;
-                for (int c = 0; c < row.getLastCellNum(); c++) {
-                    Cell cell = row.getCell(c);
-                    if (cell != null) {
-                        if (cell.getCellType() == CellType.STRING) {
-                            String val = cell.getStringCellValue();
-                            if (val != null && (val.trim().equalsIgnoreCase("{qr}") || val.trim().equalsIgnoreCase("{qr:coa}"))) {
-                                embedQrCode(sheet, workbook, cell, worksheetData);
-                                continue;
-                            }
+                switch (slot.type()) {
+                    case QR -> embedQrCode(sheet, workbook, cell, worksheetData);
+                    case TABLE -> {
+                        int inserted = sections != null
+                                ? renderTableSection(sheet, cell.getRowIndex(), slot.col(), slot.sectionId(), sections, worksheetData)
+                                : -1;
+                        if (inserted >= 0) {
+                            insertedOnCurrentRow += inserted;
+                        } else {
+                            applyTagSlot(cell, slot, resolutionMap);
                         }
-                        processCellWithMap(cell, resolutionMap);
                     }
+                    case TAG -> applyTagSlot(cell, slot, resolutionMap);
                 }
             }
 
-            // Phase 6: Apply 'Fit to Width' scaling and recalculate
-            if (printingConfig.isFitToWidth()) {
-                PrintSetup ps = sheet.getPrintSetup();
-                sheet.setFitToPage(true);
-                sheet.setAutobreaks(true);
-                ps.setPaperSize(XSSFPrintSetup.A4_PAPERSIZE);
-                ps.setFitWidth((short) 1);  // Force to 1 page wide
-                ps.setFitHeight((short) 0); // Allow as many pages long as needed
-            }
-
             // Force formula recalculation
             workbook.getCreationHelper().createFormulaEvaluator().evaluateAll();
 
@@ -122,15 +108,8 @@ public class ExcelReportService {
         Map<String, String> map = new HashMap<>();
         
         // 1. Header Resolution
-        Sample sample = wd.getSampleTest().getSample();
-        map.put("header.sampleId", sample.getSampleNumber());
-        if (sample.getJob() != null && sample.getJob().getClient() != null) {
-            map.put("header.customer", sample.getJob().getClient().getName());
-        } else {
-            map.put("header.customer", "");
-        }
-        map.put("header.testMethod", wd.getSampleTest().getTestMethod().getName());
-        map.put("header.receivedAt", sample.getReceivedAt() != null ? sample.getReceivedAt().toString() : "");
+        Map<String, String> headers = WorksheetCalculationService.headerValues(wd.getSampleTest());
+        map.putAll(headers);
 
         // 2. Data Resolution (Scalars, Indexed Tables, Matrix)
         Map<String, Object> data = wd.getData();
@@ -181,81 +160,44 @@ public class ExcelReportService {
         }
         
         // Phase 4: Evaluate Computed Variables
-        if (wd.getMethodDefinition() != null) {
-            Map<String, Object> schemaDef = wd.getMethodDefinition().getSchemaDefinition();
-            if (schemaDef != null && schemaDef.containsKey("computedVariables")) {
-                Object cvObj = schemaDef.get("computedVariables");
-                if (cvObj instanceof List) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> computedVars = (List<Map<String, Object>>) cvObj;
-                    for (Map<String, Object> cv : computedVars) {
-                        String id = (String) cv.get("id");
-                        String expression = (String) cv.get("expression");
-                        String format = (String) cv.get("format");
-                        
-                        if (id != null && expression != null && computedVariableEvaluator != null) {
-                            String result = computedVariableEvaluator.evaluate(expression, format, map);
-                            map.put("calc:" + id, result);
-                        }
-                    }
-                }
-            }
+        if (wd.getMethodDefinition() != null && computedVariableEvaluator != null) {
+            WorksheetValues values = new WorksheetValues(data, headers);
+            computedVariableEvaluator.evaluateAll(wd.getMethodDefinition(), values)
+                    .forEach((id, result) -> map.put("calc:" + id, result));
         }
         return map;
     }
 
-    private void processCellWithMap(Cell cell, Map<String, String> resolutionMap) {
-        if (cell.getCellType() != CellType.STRING) return;
-
-        String originalValue = cell.getStringCellValue();
-        if (originalValue == null || !originalValue.contains("{")) return;
-
+    private void applyTagSlot(Cell cell, CompiledExcelTemplate.Slot slot, Map<String, String> resolutionMap) {
         // Case 1: Entire cell is a single tag (e.g. "{results.value.0}")
         // We do this to preserve data types (Numeric/Boolean) for Excel formulas
-        if (originalValue.matches("^\\{[^}]+\\}$")) {
-            String tag = originalValue.substring(1, originalValue.length() - 1);
-            String replacement = resolutionMap.getOrDefault(tag, "");
-            setCellValueTyped(cell, replacement);
+        String wholeTag = slot.wholeTag();
+        if (wholeTag != null) {
+            setCellValueTyped(cell, resolutionMap.getOrDefault(wholeTag, ""));
             return;
         }
 
         // Case 2: Mixed content (e.g. "Result: {res} mg/L")
-        Matcher matcher = TAG_PATTERN.matcher(originalValue);
-        StringBuilder sb = new StringBuilder();
-        int lastEnd = 0;
-        boolean found = false;
-
-        while (matcher.find()) {
-            found = true;
-            sb.append(originalValue, lastEnd, matcher.start());
-            String tag = matcher.group(1);
-            sb.append(resolutionMap.getOrDefault(tag, ""));
-            lastEnd = matcher.end();
-        }
+        String finalString = slot.resolve(resolutionMap);
         
-        if (found) {
-            sb.append(originalValue.substring(lastEnd));
-            String finalString = sb.toString();
-            
-            Matcher sigMatcher = Pattern.compile("([^\\s]*uploads[/\\\\]signatures[/\\\\][^\\s]*\\.(png|jpg|jpeg))", Pattern.CASE_INSENSITIVE).matcher(finalString);
-            if (sigMatcher.find()) {
-                String pathStr = sigMatcher.group(1);
-                String normalizedPath = pathStr.replace("\\", "/");
-                Path imgPath = Paths.get(normalizedPath).toAbsolutePath();
-                if (Files.exists(imgPath)) {
-                    embedImage(cell.getSheet(), cell.getSheet().getWorkbook(), cell, imgPath);
-                    String remainingText = finalString.replace(pathStr, "").trim();
-                    if (!remainingText.isEmpty()) {
-                        cell.setCellValue(remainingText);
-                    }
-                    return;
-                } else {
-                    log.warn("Signature image path mapped (mixed) but file not found on disk: {}", imgPath);
+        Matcher sigMatcher = SIGNATURE_PATTERN.matcher(finalString);
+        if (sigMatcher.find()) {
+            String pathStr = sigMatcher.group(1);
+            String normalizedPath = pathStr.replace("\\", "/");
+            Path imgPath = Paths.get(normalizedPath).toAbsolutePath();
+            if (Files.exists(imgPath)) {
+                embedImage(cell.getSheet(), cell.getSheet().getWorkbook(), cell, imgPath);
+                String remainingText = finalString.replace(pathStr, "").trim();
+                if (!remainingText.isEmpty()) {
+                    cell.setCellValue(remainingText);
                 }
+                return;
+            } else {
+                log.warn("Signature image path mapped (mixed) but file not found on disk: {}", imgPath);
             }
-            
-            cell.setCellValue(finalString);
         }
+        
+        cell.setCellValue(finalString);
     }
 
     private void setCellValueTyped(Cell cell, String value) {
@@ -288,64 +230,21 @@ public class ExcelReportService {
         }
     }
 
-    /**
-     * Prepares the workbook based on the configuration (Sheet selection and isolation).
-     */
-    private void prepareWorkbook(Workbook workbook) throws IOException {
-        int targetIndex = printingConfig.getTargetSheetIndex();
-        
-        if (workbook.getNumberOfSheets() <= targetIndex) {
-            throw new IOException("The template does not contain a sheet at index: " + targetIndex);
-        }
-
-        if (printingConfig.isIsolateTargetSheet()) {
-            // Remove everything before the target index
-            for (int i = 0; i < targetIndex; i++) {
-                workbook.removeSheetAt(0);
-            }
-            // Remove everything that was originally after the target index
-            while (workbook.getNumberOfSheets() > 1) {
-                workbook.removeSheetAt(1);
-            }
-        }
-    }
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> tableSections(WorksheetData wd) {
+        if (wd.getSampleTest() == null || wd.getSampleTest().getTestMethod() == null) return null;
+        if (wd.getMethodDefinition() == null || wd.getMethodDefinition().getSchemaDefinition() == null) return null;
 
-    private void processTableMarkers(Sheet sheet, WorksheetData wd) {
-        if (wd.getSampleTest() == null || wd.getSampleTest().getTestMethod() == null) return;
-        if (wd.getMethodDefinition() == null || wd.getMethodDefinition().getSchemaDefinition() == null) return;
-
-        Map<String, Object> schemaDef = wd.getMethodDefinition().getSchemaDefinition();
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> sections = (List<Map<String, Object>>) schemaDef.get("sections");
-        if (sections == null || sections.isEmpty()) return;
-
-        boolean markerFound = true;
-        while (markerFound) {
-            markerFound = false;
-            for (int r = 0; r <= sheet.getLastRowNum(); r++) {
-                Row row = sheet.getRow(r);
-                if (row == null) continue;
-                for (int c = 0; c < row.getLastCellNum(); c++) {
-                    Cell cell = row.getCell(c);
-                    if (cell != null && cell.getCellType() == CellType.STRING) {
-                        String text = cell.getStringCellValue();
-                        if (text != null) {
-                            Matcher m = TABLE_TAG_PATTERN.matcher(text);
-                            if (m.find()) {
-                                String sectionId = m.group(1);
-                                renderTableSection(sheet, row.getRowNum(), cell.getColumnIndex(), sectionId, sections, wd);
-                                markerFound = true;
-                                break;
-                            }
-                        }
-                    }
-                }
-                if (markerFound) break;
-            }
-        }
+        List<Map<String, Object>> sections = (List<Map<String, Object>>) wd.getMethodDefinition().getSchemaDefinition().get("sections");
+        return sections == null || sections.isEmpty() ? null : sections;
     }
 
-    private void renderTableSection(Sheet sheet, int startRow, int startCol, String sectionId, 
+    /**
+     * Renders a {@code {table:sectionId}} marker.
+     *
+     * @return rows inserted below the marker row, or -1 if the section does not exist
+     */
+    private int renderTableSection(Sheet sheet, int startRow, int startCol, String sectionId, 
                                     List<Map<String, Object>> sections, WorksheetData wd) {
         Map<String, Object> targetSection = null;
         for (Map<String, Object> sec : sections) {
@@ -355,7 +254,7 @@ public class ExcelReportService {
             }
         }
 
-        if (targetSection == null) return;
+        if (targetSection == null) return -1;
 
         String sectionType = (String) targetSection.get("type");
         Object rawData = wd.getData() != null ? wd.getData().get(sectionId) : null;
@@ -369,20 +268,21 @@ public class ExcelReportService {
         }
 
         if ("DATA_TABLE".equals(sectionType) || "GROUPED_TABLE".equals(sectionType)) {
-            renderDataTable(sheet, startRow, startCol, targetSection, rawData, dataStyle);
+            return renderDataTable(sheet, startRow, startCol, targetSection, rawData, dataStyle);
         } else if ("MATRIX_TABLE".equals(sectionType)) {
-            renderMatrixTable(sheet, startRow, startCol, targetSection, rawData, dataStyle);
+            return renderMatrixTable(sheet, startRow, startCol, targetSection, rawData, dataStyle);
         }
+        return 0;
     }
 
     @SuppressWarnings("unchecked")
-    private void renderDataTable(Sheet sheet, int startRow, int startCol, 
+    private int renderDataTable(Sheet sheet, int startRow, int startCol, 
                                  Map<String, Object> section, Object rawData, CellStyle dataStyle) {
         List<Map<String, Object>> columns = (List<Map<String, Object>>) section.get("columns");
         if (columns == null || columns.isEmpty()) {
             columns = (List<Map<String, Object>>) section.get("dataColumns");
         }
-        if (columns == null || columns.isEmpty()) return;
+        if (columns == null || columns.isEmpty()) return 0;
 
         List<Map<String, Object>> rowsData = new ArrayList<>();
         if (rawData instanceof List) {
@@ -450,15 +350,16 @@ public class ExcelReportService {
                 }
             }
         }
+        return totalRowsToInsert - 1;
     }
 
     @SuppressWarnings("unchecked")
-    private void renderMatrixTable(Sheet sheet, int startRow, int startCol, 
+    private int renderMatrixTable(Sheet sheet, int startRow, int startCol, 
                                   Map<String, Object> section, Object rawData, CellStyle dataStyle) {
         List<Map<String, Object>> columns = (List<Map<String, Object>>) section.get("columns");
         List<Map<String, Object>> rowHeaders = (List<Map<String, Object>>) section.get("rowHeaders");
 
-        if (columns == null || columns.isEmpty() || rowHeaders == null || rowHeaders.isEmpty()) return;
+        if (columns == null || columns.isEmpty() || rowHeaders == null || rowHeaders.isEmpty()) return 0;
 
         Map<String, Object> matrixMap = (rawData instanceof Map) ? (Map<String, Object>) rawData : new HashMap<>();
 
@@ -528,6 +429,7 @@ public class ExcelReportService {
                 }
             }
         }
+        return totalRowsToInsert - 1;
     }
 
     private void embedQrCode(Sheet sheet, Workbook workbook, Cell cell, WorksheetData worksheetData) {
@@ -545,7 +447,7 @@ public class ExcelReportService {
         }
 
         try {
-            byte[] qrBytes = qrCodeService.generateQrCodePng(targetUrl);
+            byte[] qrBytes = reportImageCache.qrCode(targetUrl);
             int pictureIdx = workbook.addPicture(qrBytes, Workbook.PICTURE_TYPE_PNG);
 
             int startCol = cell.getColumnIndex();
@@ -600,74 +502,27 @@ public class ExcelReportService {
                 }
             }
 
-            byte[] finalImgBytes;
-            int pictureType = Workbook.PICTURE_TYPE_PNG;
-
-            BufferedImage origImg = null;
-            try {
-                origImg = ImageIO.read(imagePath.toFile());
-            } catch (Exception ex) {
-                log.warn("ImageIO could not read image file: {}", imagePath, ex);
+            // Calculate target cell / region dimensions in points
+            double totalWidthPoints = 0;
+            for (int c = startCol; c < endCol; c++) {
+                int colWidth256 = sheet.getColumnWidth(c);
+                totalWidthPoints += (colWidth256 / 256.0) * 5.7; // ~5.7 pt per character unit
             }
 
-            if (origImg != null && origImg.getWidth() > 0 && origImg.getHeight() > 0) {
-                int origW = origImg.getWidth();
-                int origH = origImg.getHeight();
-
-                // Calculate target cell / region dimensions in points
-                double totalWidthPoints = 0;
-                for (int c = startCol; c < endCol; c++) {
-                    int colWidth256 = sheet.getColumnWidth(c);
-                    totalWidthPoints += (colWidth256 / 256.0) * 5.7; // ~5.7 pt per character unit
-                }
-
-                double totalHeightPoints = 0;
-                for (int r = startRow; r < endRow; r++) {
-                    Row rObj = sheet.getRow(r);
-                    float h = (rObj != null && rObj.getHeightInPoints() > 0) ? rObj.getHeightInPoints() : sheet.getDefaultRowHeightInPoints();
-                    if (h <= 0) h = 15.0f;
-                    totalHeightPoints += h;
-                }
-
-                if (totalWidthPoints <= 0) totalWidthPoints = 100;
-                if (totalHeightPoints <= 0) totalHeightPoints = 30;
-
-                double targetAspect = totalWidthPoints / totalHeightPoints;
-                double origAspect = (double) origW / origH;
+            double totalHeightPoints = 0;
+            for (int r = startRow; r < endRow; r++) {
+                Row rObj = sheet.getRow(r);
+                float h = (rObj != null && rObj.getHeightInPoints() > 0) ? rObj.getHeightInPoints() : sheet.getDefaultRowHeightInPoints();
+                if (h <= 0) h = 15.0f;
+                totalHeightPoints += h;
+            }
 
-                int canvasW;
-                int canvasH;
+            if (totalWidthPoints <= 0) totalWidthPoints = 100;
+            if (totalHeightPoints <= 0) totalHeightPoints = 30;
 
-                if (origAspect > targetAspect) {
-                    // Original is wider than target: fit to width, expand canvas height
-                    canvasW = origW;
-                    canvasH = (int) Math.max(origH, Math.round(canvasW / targetAspect));
-                } else {
-                    // Original is taller than target: fit to height, expand canvas width
-                    canvasH = origH;
-                    canvasW = (int) Math.max(origW, Math.round(canvasH * targetAspect));
-                }
-
-                // Add slight inner margin (e.g., 90% scaling) so signature does not touch cell borders
-                double marginFactor = 0.90;
-                int drawW = Math.max(1, (int) Math.round(origW * marginFactor));
-                int drawH = Math.max(1, (int) Math.round(origH * marginFactor));
-                int drawX = (canvasW - drawW) / 2;
-                int drawY = (canvasH - drawH) / 2;
-
-                BufferedImage canvas = new BufferedImage(canvasW, canvasH, BufferedImage.TYPE_INT_ARGB);
-                Graphics2D g2d = canvas.createGraphics();
-                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-                g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-                g2d.drawImage(origImg, drawX, drawY, drawW, drawH, null);
-                g2d.dispose();
-
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ImageIO.write(canvas, "png", baos);
-                finalImgBytes = baos.toByteArray();
-                pictureType = Workbook.PICTURE_TYPE_PNG;
-            } else {
+            byte[] finalImgBytes = reportImageCache.fittedImage(imagePath, totalWidthPoints, totalHeightPoints);
+            int pictureType = Workbook.PICTURE_TYPE_PNG;
+            if (finalImgBytes == null) {
                 // Fallback to raw file bytes
                 finalImgBytes = Files.readAllBytes(imagePath);
                 String filename = imagePath.getFileName().toString().toLowerCase();
@@ -0,0 +1,38 @@
+package com.lims.module.sample.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for the report queue: a fixed pool of {@code lims.reports.workers} threads.
+ * Jobs still queued at shutdown wait for {@link ReportJobService#recover()} to queue them again,
+ * so this is meant for tests and single-node setups.
+ */
+@Component
+@ConditionalOnProperty(name = "lims.reports.broker", havingValue = "memory")
+public class InMemoryReportJobQueue implements ReportJobQueue {
+
+    private final ReportJobWorker reportJobWorker;
+    private final ExecutorService workers;
+
+    public InMemoryReportJobQueue(ReportJobWorker reportJobWorker,
+                                  @Value("${lims.reports.workers:2}") int workers) {
+        this.reportJobWorker = reportJobWorker;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers));
+    }
+
+    @Override
+    public void enqueue(String jobId) {
+        workers.submit(() -> reportJobWorker.process(jobId));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+}
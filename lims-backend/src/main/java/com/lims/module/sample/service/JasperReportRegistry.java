@@ -0,0 +1,144 @@
+package com.lims.module.sample.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled JasperReports templates by name. {@code <name>.jrxml} is looked up in the optional
+ * override directory ({@code lims.reports.jasper.dir}) first and on the classpath under
+ * {@code reports/} otherwise. A compiled report is reused until its source file changes, so edited
+ * templates are picked up without a restart; all classpath templates are compiled at startup.
+ */
+@Component
+@Slf4j
+public class JasperReportRegistry {
+
+    private static final String CLASSPATH_LOCATION = "classpath:reports/";
+    private static final String SUFFIX = ".jrxml";
+
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+    private final Path overrideDir;
+    private final boolean precompile;
+
+    private final Map<String, Entry> reports = new ConcurrentHashMap<>();
+
+    public JasperReportRegistry(@Value("${lims.reports.jasper.dir:}") String overrideDir,
+                                @Value("${lims.reports.jasper.precompile:true}") boolean precompile) {
+        this.overrideDir = overrideDir.isBlank() ? null : Paths.get(overrideDir);
+        this.precompile = precompile;
+    }
+
+    /**
+     * The compiled report for {@code name} (without extension), compiling it on first use and
+     * again after its source changed.
+     */
+    public JasperReport get(String name) throws JRException {
+        Resource source = locate(name);
+        long modified = lastModified(source);
+        String location = source.getDescription();
+
+        Entry entry = reports.get(name);
+        if (entry != null && entry.modified() == modified && entry.location().equals(location)) {
+            return entry.report();
+        }
+        try {
+            return reports.compute(name, (key, current) -> {
+                // Another thread may have compiled the same version meanwhile
+                if (current != null && current.modified() == modified && current.location().equals(location)) {
+                    return current;
+                }
+                return new Entry(location, modified, compile(name, source));
+            }).report();
+        } catch (CompileFailure e) {
+            throw e.cause;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void precompileAll() {
+        if (!precompile) return;
+        try {
+            Resource[] templates = resourceResolver.getResources(CLASSPATH_LOCATION + "*" + SUFFIX);
+            int compiled = 0;
+            for (Resource template : templates) {
+                String filename = template.getFilename();
+                if (filename == null) continue;
+                try {
+                    get(filename.substring(0, filename.length() - SUFFIX.length()));
+                    compiled++;
+                } catch (JRException | RuntimeException e) {
+                    log.error("Could not compile report template {}", filename, e);
+                }
+            }
+            log.info("Precompiled {} of {} report template(s)", compiled, templates.length);
+        } catch (IOException e) {
+            log.warn("Could not list report templates: {}", e.getMessage());
+        }
+    }
+
+    private Resource locate(String name) throws JRException {
+        if (overrideDir != null) {
+            Path override = overrideDir.resolve(name + SUFFIX);
+            if (Files.isRegularFile(override)) {
+                return new FileSystemResource(override);
+            }
+        }
+        Resource resource = resourceResolver.getResource(CLASSPATH_LOCATION + name + SUFFIX);
+        if (!resource.exists()) {
+            throw new JRException("Report template not found: " + name + SUFFIX);
+        }
+        return resource;
+    }
+
+    private static JasperReport compile(String name, Resource source) {
+        long start = System.nanoTime();
+        try (InputStream in = source.getInputStream()) {
+            JasperReport report = JasperCompileManager.compileReport(in);
+            log.info("Compiled report template {} from {} in {} ms", name, source.getDescription(), (System.nanoTime() - start) / 1_000_000);
+            return report;
+        } catch (IOException e) {
+            throw new CompileFailure(new JRException("Failed to read report template " + name, e));
+        } catch (JRException e) {
+            throw new CompileFailure(e);
+        }
+    }
+
+    /** Modification time for change detection; 0 for sources that cannot change (inside a jar). */
+    private static long lastModified(Resource source) {
+        try {
+            return source.isFile() ? source.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private record Entry(String location, long modified, JasperReport report) {}
+
+    /** Carries a checked compile failure out of {@link Map#compute}. */
+    private static final class CompileFailure extends RuntimeException {
+        private final JRException cause;
+
+        CompileFailure(JRException cause) {
+            super(cause);
+            this.cause = cause;
+        }
+    }
+}
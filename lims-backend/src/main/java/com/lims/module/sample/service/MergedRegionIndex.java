@@ -0,0 +1,52 @@
+package com.lims.module.sample.service;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merged regions of a sheet bucketed by row, built once so that a cell lookup only checks the
+ * few regions crossing its row instead of every region on the sheet.
+ */
+final class MergedRegionIndex {
+
+    private final Map<Integer, List<CellRangeAddress>> byRow = new HashMap<>();
+
+    MergedRegionIndex(Sheet sheet) {
+        this(sheet.getMergedRegions());
+    }
+
+    MergedRegionIndex(List<CellRangeAddress> regions) {
+        for (CellRangeAddress region : regions) {
+            for (int r = region.getFirstRow(); r <= region.getLastRow(); r++) {
+                byRow.computeIfAbsent(r, k -> new ArrayList<>(2)).add(region);
+            }
+        }
+    }
+
+    /**
+     * The merged region containing the cell, or null.
+     */
+    CellRangeAddress regionAt(int row, int col) {
+        List<CellRangeAddress> candidates = byRow.get(row);
+        if (candidates == null) return null;
+        for (CellRangeAddress region : candidates) {
+            if (col >= region.getFirstColumn() && col <= region.getLastColumn()) {
+                return region;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether the cell is covered by a merged region without being its top-left cell.
+     */
+    boolean isMergedButNotFirst(int row, int col) {
+        CellRangeAddress region = regionAt(row, col);
+        return region != null && (row != region.getFirstRow() || col != region.getFirstColumn());
+    }
+}
@@ -1,14 +1,17 @@
 package com.lims.module.sample.service;
 
+import com.lims.common.exception.BusinessRuleException;
 import com.lims.module.sample.dto.MethodDefinitionDTO;
 import com.lims.module.sample.entity.MethodDefinition;
 import com.lims.module.sample.entity.TestMethod;
+import com.lims.module.sample.event.MethodDefinitionPublishedEvent;
 import com.lims.module.sample.repository.MethodDefinitionRepository;
 import com.lims.module.sample.repository.TestMethodRepository;
 import com.lims.module.security.entity.User;
 import com.lims.module.security.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -32,6 +35,8 @@ public class MethodDefinitionService {
     private final TestMethodRepository testMethodRepository;
     private final UserRepository userRepository;
     private final SchemaValidator schemaValidator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CompiledTemplateCache compiledTemplateCache;
 
     @Value("${lims.upload.dir:./uploads}")
     private String uploadDir;
@@ -63,6 +68,17 @@ public class MethodDefinitionService {
             Path filePath = root.resolve(fileName);
             Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
 
+            // Compile now so a broken template is rejected at upload instead of on the first report
+            try {
+                compiledTemplateCache.get(filePath.toString());
+            } catch (Exception e) {
+                Files.deleteIfExists(filePath);
+                throw new BusinessRuleException("Invalid Excel report template: " + e.getMessage());
+            }
+
+            if (def.getReportTemplatePath() != null) {
+                compiledTemplateCache.evict(def.getReportTemplatePath());
+            }
             def.setReportTemplatePath(filePath.toString());
             return toDto(methodDefinitionRepository.save(def));
         } catch (IOException e) {
@@ -171,6 +187,9 @@ public class MethodDefinitionService {
         tm.setActiveDefinitionId(publishedId.getId());
         testMethodRepository.save(tm);
 
+        // Open worksheets are recalculated against the new version once this commits
+        eventPublisher.publishEvent(new MethodDefinitionPublishedEvent(publishedId.getId(), tm.getId()));
+
         return toDto(publishedId);
     }
 
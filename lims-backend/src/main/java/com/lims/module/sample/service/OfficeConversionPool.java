@@ -0,0 +1,163 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.jodconverter.core.DocumentConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of the JODConverter office processes. JODConverter itself runs one
+ * LibreOffice process per configured port, recycles a process after {@code max-tasks-per-process}
+ * conversions and kills one that exceeds {@code task-execution-timeout}; its own task queue is
+ * unbounded though, so under load every request thread would pile up behind it.
+ * <p>
+ * This pool lets {@code processes} conversions run, up to {@code queue-capacity} more wait for at
+ * most {@code queue-timeout}, and rejects everything beyond that immediately with a
+ * {@link ServiceBusyException} carrying a retry hint derived from the observed conversion time.
+ */
+@Component
+@Slf4j
+public class OfficeConversionPool {
+
+    /**
+     * A conversion executed on an office process.
+     */
+    @FunctionalInterface
+    public interface Conversion<T> {
+        T run(DocumentConverter converter) throws Exception;
+    }
+
+    private static final long DEFAULT_RETRY_SECONDS = 5;
+    private static final long MAX_RETRY_SECONDS = 120;
+
+    private final DocumentConverter converter;
+    private final MeterRegistry meterRegistry;
+    private final int processes;
+    private final int queueCapacity;
+    private final Duration queueTimeout;
+    private final Semaphore admission;
+    private final Semaphore officeSlots;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public OfficeConversionPool(DocumentConverter converter,
+                                MeterRegistry meterRegistry,
+                                @Value("#{'${jodconverter.local.port-numbers:2002}'.split(',').length}") int processes,
+                                @Value("${lims.conversion.queue-capacity:20}") int queueCapacity,
+                                @Value("${lims.conversion.queue-timeout-seconds:60}") long queueTimeoutSeconds) {
+        this.converter = converter;
+        this.meterRegistry = meterRegistry;
+        this.processes = Math.max(1, processes);
+        this.queueCapacity = Math.max(0, queueCapacity);
+        this.queueTimeout = Duration.ofSeconds(queueTimeoutSeconds);
+        this.admission = new Semaphore(this.processes + this.queueCapacity, true);
+        this.officeSlots = new Semaphore(this.processes, true);
+
+        this.queueWait = Timer.builder("lims.conversion.queue.wait")
+                .description("Time a conversion waited for a free office process")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("lims.conversion.rejected")
+                .description("Conversions rejected because the pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("lims.conversion.active", officeSlots, s -> this.processes - s.availablePermits())
+                .description("Conversions currently running on an office process")
+                .register(meterRegistry);
+        Gauge.builder("lims.conversion.queue.depth", this, OfficeConversionPool::queued)
+                .description("Conversions waiting for a free office process")
+                .register(meterRegistry);
+
+        log.info("Office conversion pool: {} process(es), queue capacity {}, queue timeout {}s",
+                this.processes, this.queueCapacity, queueTimeoutSeconds);
+    }
+
+    /**
+     * Runs a conversion on a free office process, waiting in the bounded queue if all are busy.
+     *
+     * @throws ServiceBusyException if the queue is full or no process freed up within the queue timeout
+     */
+    public <T> T execute(String description, Conversion<T> conversion) throws IOException {
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            throw busy("Document conversion queue is full");
+        }
+        try {
+            long queuedAt = System.nanoTime();
+            boolean acquired = officeSlots.tryAcquire(queueTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                rejected.increment();
+                throw busy("No document conversion process became available within " + queueTimeout.toSeconds() + "s");
+            }
+            try {
+                return convert(description, conversion);
+            } finally {
+                officeSlots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a document conversion process", e);
+        } finally {
+            admission.release();
+        }
+    }
+
+    private <T> T convert(String description, Conversion<T> conversion) throws IOException {
+        long startedAt = System.nanoTime();
+        String outcome = "failure";
+        try {
+            T result = conversion.run(converter);
+            outcome = "success";
+            return result;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Document conversion failed for " + description + ": " + e.getMessage(), e);
+        } finally {
+            conversionTimer(outcome).record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer conversionTimer(String outcome) {
+        return Timer.builder("lims.conversion.duration")
+                .description("Time spent converting a document on an office process")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    int queued() {
+        int inPool = (processes + queueCapacity) - admission.availablePermits();
+        int running = processes - officeSlots.availablePermits();
+        return Math.max(0, inPool - running);
+    }
+
+    /**
+     * Estimated seconds until the current backlog drains: queued conversions spread over the
+     * office processes at the mean successful conversion time.
+     */
+    long retryAfterSeconds() {
+        double meanSeconds = conversionTimer("success").mean(TimeUnit.SECONDS);
+        if (meanSeconds <= 0) {
+            return DEFAULT_RETRY_SECONDS;
+        }
+        double backlog = Math.max(1, queued()) / (double) processes;
+        return Math.min(MAX_RETRY_SECONDS, Math.max(1, (long) Math.ceil(backlog * meanSeconds)));
+    }
+
+    private ServiceBusyException busy(String reason) {
+        long retryAfter = retryAfterSeconds();
+        log.warn("{}; rejecting conversion, retry after {}s", reason, retryAfter);
+        return new ServiceBusyException(reason + "; retry in " + retryAfter + " seconds", retryAfter);
+    }
+}
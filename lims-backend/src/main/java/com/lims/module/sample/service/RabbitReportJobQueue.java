@@ -0,0 +1,32 @@
+package com.lims.module.sample.service;
+
+import com.lims.config.RabbitMQConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Report jobs over the {@code lims.report-generation} queue. Messages carry only the job id and
+ * are sent straight to the queue (default exchange) so they do not also land in the
+ * {@code event.#} notification queue; the number of consumers bounds rendering per node.
+ */
+@Component
+@ConditionalOnProperty(name = "lims.reports.broker", havingValue = "rabbit", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RabbitReportJobQueue implements ReportJobQueue {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ReportJobWorker reportJobWorker;
+
+    @Override
+    public void enqueue(String jobId) {
+        rabbitTemplate.convertAndSend("", RabbitMQConfig.REPORT_GENERATION_QUEUE, jobId);
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.REPORT_GENERATION_QUEUE, concurrency = "${lims.reports.workers:2}")
+    public void onMessage(String jobId) {
+        reportJobWorker.process(jobId);
+    }
+}
@@ -0,0 +1,23 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.storage.DiskLruCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+
+/**
+ * Local-disk cache of rendered PDFs, keyed by a content hash of everything that goes into the
+ * render (see {@link ReportRenderKeys}).
+ */
+@Component
+public class RenderedDocumentCache extends DiskLruCache {
+
+    public RenderedDocumentCache(@Value("${lims.reports.cache.dir:./uploads/render-cache}") String directory,
+                                 @Value("${lims.reports.cache.max-size-mb:512}") long maxSizeMb,
+                                 MeterRegistry meterRegistry) {
+        super(Paths.get(directory), ".pdf", maxSizeMb * 1024 * 1024, meterRegistry,
+                "lims.reports.cache", "Rendered document cache");
+    }
+}
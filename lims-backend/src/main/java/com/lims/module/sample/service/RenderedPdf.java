@@ -0,0 +1,35 @@
+package com.lims.module.sample.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A rendered PDF on disk: either an entry of the {@link RenderedDocumentCache} or a one-off
+ * temporary file that is deleted once read. Open it promptly; a cache entry may be evicted later.
+ */
+public record RenderedPdf(Path path, boolean temporary) {
+
+    public static RenderedPdf cached(Path path) {
+        return new RenderedPdf(path, false);
+    }
+
+    public static RenderedPdf temporary(Path path) {
+        return new RenderedPdf(path, true);
+    }
+
+    public long size() throws IOException {
+        return Files.size(path);
+    }
+
+    /**
+     * Opens the file for reading; closing the stream deletes a temporary file.
+     */
+    public InputStream open() throws IOException {
+        return temporary
+                ? Files.newInputStream(path, StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE)
+                : Files.newInputStream(path);
+    }
+}
@@ -0,0 +1,207 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.hash.Sha256;
+import com.lims.common.storage.DiskLruCache;
+import com.lims.module.security.event.SignatureReplacedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PNGs prepared for embedding in Excel reports: signature and attachment images fitted to their
+ * anchor, keyed by (source file hash, anchor size), and sample QR codes keyed by their text.
+ * Encoded bytes are kept in a bounded in-memory LRU backed by a disk tier, so a report only
+ * decodes, rescales and re-encodes an image the first time that combination is seen.
+ * <p>
+ * Keys include the file hash, so a changed file never hits a stale entry; entries of a replaced
+ * signature are dropped eagerly when {@link SignatureReplacedEvent} is published.
+ */
+@Component
+@Slf4j
+public class ReportImageCache {
+
+    /** Margin so a fitted image does not touch the cell borders. */
+    private static final double MARGIN_FACTOR = 0.90;
+
+    private final ReportRenderKeys renderKeys;
+    private final QrCodeService qrCodeService;
+    private final DiskLruCache diskTier;
+    private final long memoryMaxBytes;
+
+    /** Key to PNG bytes, in access order; guarded by {@code this}. */
+    private final LinkedHashMap<String, byte[]> memoryTier = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+
+    /** Keys derived from each source file, for invalidation. */
+    private final Map<Path, Set<String>> keysBySource = new ConcurrentHashMap<>();
+
+    public ReportImageCache(ReportRenderKeys renderKeys,
+                            QrCodeService qrCodeService,
+                            MeterRegistry meterRegistry,
+                            @Value("${lims.reports.images.memory-max-mb:16}") long memoryMaxMb,
+                            @Value("${lims.reports.images.cache-dir:./uploads/image-cache}") String cacheDir,
+                            @Value("${lims.reports.images.cache-max-size-mb:128}") long cacheMaxSizeMb) {
+        this.renderKeys = renderKeys;
+        this.qrCodeService = qrCodeService;
+        this.memoryMaxBytes = memoryMaxMb * 1024 * 1024;
+        this.diskTier = new DiskLruCache(Paths.get(cacheDir), ".png", cacheMaxSizeMb * 1024 * 1024, meterRegistry,
+                "lims.reports.images.cache", "Report image cache");
+    }
+
+    /**
+     * The image at {@code source} centred on a canvas with the aspect ratio of an anchor of
+     * {@code widthPoints} x {@code heightPoints}, as PNG; null if the file is not a readable image.
+     */
+    public byte[] fittedImage(Path source, double widthPoints, double heightPoints) throws IOException {
+        Path absolute = source.toAbsolutePath();
+        // Tenths of a point are far below what a cell anchor can show
+        String key = renderKeys.fileHash(absolute) + "_" + Math.round(widthPoints * 10) + "x" + Math.round(heightPoints * 10);
+        keysBySource.computeIfAbsent(absolute, p -> ConcurrentHashMap.newKeySet()).add(key);
+        return get(key, () -> {
+            BufferedImage image = readImage(absolute);
+            return image != null ? fitToAnchor(image, widthPoints, heightPoints) : null;
+        });
+    }
+
+    /**
+     * The QR code PNG for {@code text} at the default size.
+     */
+    public byte[] qrCode(String text) throws IOException {
+        return get("qr_" + Sha256.hex(text), () -> qrCodeService.generateQrCodePng(text));
+    }
+
+    @EventListener
+    public void onSignatureReplaced(SignatureReplacedEvent event) {
+        if (event.previousPath() != null) {
+            invalidate(Paths.get(event.previousPath().replace("\\", "/")));
+        }
+    }
+
+    public void invalidate(Path source) {
+        Set<String> keys = keysBySource.remove(source.toAbsolutePath());
+        if (keys == null) return;
+        synchronized (this) {
+            for (String key : keys) {
+                byte[] removed = memoryTier.remove(key);
+                if (removed != null) memoryBytes -= removed.length;
+            }
+        }
+        keys.forEach(diskTier::remove);
+        log.debug("Dropped {} prepared image(s) of {}", keys.size(), source);
+    }
+
+    @FunctionalInterface
+    private interface Producer {
+        byte[] produce() throws IOException;
+    }
+
+    private byte[] get(String key, Producer producer) throws IOException {
+        synchronized (this) {
+            byte[] hit = memoryTier.get(key);
+            if (hit != null) return hit;
+        }
+        Path onDisk = diskTier.lookup(key);
+        if (onDisk != null) {
+            try {
+                byte[] bytes = Files.readAllBytes(onDisk);
+                remember(key, bytes);
+                return bytes;
+            } catch (IOException e) {
+                // Evicted between lookup and read; produce it again
+            }
+        }
+
+        byte[] bytes = producer.produce();
+        if (bytes == null) {
+            return null;
+        }
+        Path tmp = diskTier.newTempFile();
+        try {
+            Files.write(tmp, bytes);
+            diskTier.put(key, tmp);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            log.warn("Could not store prepared image {} on disk: {}", key, e.getMessage());
+        }
+        remember(key, bytes);
+        return bytes;
+    }
+
+    private synchronized void remember(String key, byte[] bytes) {
+        if (bytes.length > memoryMaxBytes) return;
+        byte[] previous = memoryTier.put(key, bytes);
+        memoryBytes += bytes.length - (previous != null ? previous.length : 0);
+        Iterator<Map.Entry<String, byte[]>> it = memoryTier.entrySet().iterator();
+        while (memoryBytes > memoryMaxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue;
+            memoryBytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    private static BufferedImage readImage(Path path) {
+        try {
+            BufferedImage image = ImageIO.read(path.toFile());
+            return image != null && image.getWidth() > 0 && image.getHeight() > 0 ? image : null;
+        } catch (Exception ex) {
+            log.warn("ImageIO could not read image file: {}", path, ex);
+            return null;
+        }
+    }
+
+    private static byte[] fitToAnchor(BufferedImage origImg, double totalWidthPoints, double totalHeightPoints) throws IOException {
+        int origW = origImg.getWidth();
+        int origH = origImg.getHeight();
+
+        double targetAspect = totalWidthPoints / totalHeightPoints;
+        double origAspect = (double) origW / origH;
+
+        int canvasW;
+        int canvasH;
+
+        if (origAspect > targetAspect) {
+            // Original is wider than target: fit to width, expand canvas height
+            canvasW = origW;
+            canvasH = (int) Math.max(origH, Math.round(canvasW / targetAspect));
+        } else {
+            // Original is taller than target: fit to height, expand canvas width
+            canvasH = origH;
+            canvasW = (int) Math.max(origW, Math.round(canvasH * targetAspect));
+        }
+
+        int drawW = Math.max(1, (int) Math.round(origW * MARGIN_FACTOR));
+        int drawH = Math.max(1, (int) Math.round(origH * MARGIN_FACTOR));
+        int drawX = (canvasW - drawW) / 2;
+        int drawY = (canvasH - drawH) / 2;
+
+        BufferedImage canvas = new BufferedImage(canvasW, canvasH, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = canvas.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.drawImage(origImg, drawX, drawY, drawW, drawH, null);
+        g2d.dispose();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(canvas, "png", baos);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,11 @@
+package com.lims.module.sample.service;
+
+/**
+ * Transport for report jobs between the API and the render workers. Backed by RabbitMQ
+ * ({@code lims.reports.broker=rabbit}, the default) or an in-process pool ({@code memory},
+ * used by tests and single-node setups without a broker).
+ */
+public interface ReportJobQueue {
+
+    void enqueue(String jobId);
+}
@@ -0,0 +1,232 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.common.exception.ResourceNotFoundException;
+import com.lims.common.exception.ServiceBusyException;
+import com.lims.common.storage.BlobStore;
+import com.lims.module.notification.service.DataSyncService;
+import com.lims.module.sample.dto.ReportJobDTO;
+import com.lims.module.sample.dto.ReportJobRequest;
+import com.lims.module.sample.entity.ReportJob;
+import com.lims.module.sample.repository.CoaRevisionRepository;
+import com.lims.module.sample.repository.ReportJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Asynchronous report API: jobs are recorded, handed to the {@link ReportJobQueue} and rendered by
+ * {@link ReportJobWorker}s into the {@link BlobStore}; clients poll the job or listen on
+ * /topic/jobs/{jobId}, then download from any node.
+ * <p>
+ * {@link #recover()} keeps jobs from getting stuck: it re-queues jobs whose busy backoff has
+ * passed or whose queue message was lost, and jobs still RUNNING after the running timeout
+ * (their worker died), failing those that used up their attempts.
+ */
+@Service
+@Slf4j
+public class ReportJobService {
+
+    private static final Set<String> REPORT_TYPES = Set.of("COA", "TRF", "JOB_TRF", "WORKSHEET");
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportJobQueue reportJobQueue;
+    private final CoaRevisionRepository coaRevisionRepository;
+    private final DataSyncService dataSyncService;
+    private final BlobStore blobStore;
+    private final Duration retention;
+    private final Duration queuedTimeout;
+    private final Duration runningTimeout;
+    private final int maxAttempts;
+
+    public ReportJobService(ReportJobRepository reportJobRepository,
+                            ReportJobQueue reportJobQueue,
+                            CoaRevisionRepository coaRevisionRepository,
+                            DataSyncService dataSyncService,
+                            BlobStore blobStore,
+                            MeterRegistry meterRegistry,
+                            @Value("${lims.reports.retention-hours:24}") long retentionHours,
+                            @Value("${lims.reports.queued-timeout-minutes:10}") long queuedTimeoutMinutes,
+                            @Value("${lims.reports.running-timeout-minutes:15}") long runningTimeoutMinutes,
+                            @Value("${lims.reports.max-attempts:3}") int maxAttempts) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportJobQueue = reportJobQueue;
+        this.coaRevisionRepository = coaRevisionRepository;
+        this.dataSyncService = dataSyncService;
+        this.blobStore = blobStore;
+        this.retention = Duration.ofHours(retentionHours);
+        this.queuedTimeout = Duration.ofMinutes(queuedTimeoutMinutes);
+        this.runningTimeout = Duration.ofMinutes(runningTimeoutMinutes);
+        this.maxAttempts = Math.max(1, maxAttempts);
+
+        Gauge.builder("lims.reports.queue.depth", reportJobRepository, r -> r.countByStatus("QUEUED"))
+                .description("Report jobs waiting for a render worker")
+                .register(meterRegistry);
+        Gauge.builder("lims.reports.running", reportJobRepository, r -> r.countByStatus("RUNNING"))
+                .description("Report jobs currently rendering")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a job and queues it. Not transactional: the row must be committed before a worker
+     * on another node can pick the message up. If the queue rejects the message the job is failed
+     * and the caller is told to retry.
+     */
+    public ReportJobDTO submit(ReportJobRequest request) {
+        String type = request.getReportType() != null ? request.getReportType().toUpperCase() : null;
+        if (type == null || !REPORT_TYPES.contains(type)) {
+            throw new BusinessRuleException("Unsupported report type: " + request.getReportType());
+        }
+        if (request.getSubjectId() == null) {
+            throw new BusinessRuleException("subjectId is required");
+        }
+
+        ReportJob job = reportJobRepository.save(ReportJob.builder()
+                .jobId(UUID.randomUUID().toString())
+                .reportType(type)
+                .subjectId(request.getSubjectId())
+                .requestedBy(currentUsername())
+                .queuedAt(Instant.now())
+                .build());
+        try {
+            reportJobQueue.enqueue(job.getJobId());
+        } catch (RuntimeException e) {
+            log.error("Could not queue report job {}", job.getJobId(), e);
+            reportJobRepository.fail(job.getJobId(), "QUEUED", 0, "Report queue unavailable", Instant.now());
+            throw new ServiceBusyException("Report queue unavailable; retry in 30 seconds", 30);
+        }
+        dataSyncService.broadcastJobProgress(ReportJobWorker.toEvent(job));
+        return toDto(job);
+    }
+
+    public ReportJobDTO getJob(String jobId) {
+        return toDto(findJob(jobId));
+    }
+
+    /**
+     * Returns a completed job whose rendered file is still stored.
+     */
+    public ReportJob getCompletedJob(String jobId) {
+        ReportJob job = findJob(jobId);
+        if (!"COMPLETED".equals(job.getStatus())) {
+            throw new BusinessRuleException("Report job " + jobId + " is " + job.getStatus());
+        }
+        if (job.getResultRef() == null || !blobStore.exists(job.getResultRef())) {
+            throw new ResourceNotFoundException("Report file for job " + jobId + " is no longer available");
+        }
+        return job;
+    }
+
+    public Resource loadResult(ReportJob job) {
+        return blobStore.load(job.getResultRef());
+    }
+
+    /**
+     * Re-queues jobs that are due again or were lost with their message or worker; see the class
+     * comment. Every step is a conditional update, so nodes running this at once do not collide.
+     */
+    @Scheduled(fixedDelayString = "${lims.reports.recovery-interval-ms:30000}")
+    public void recover() {
+        Instant now = Instant.now();
+        Instant queuedBefore = now.minus(queuedTimeout);
+        for (String jobId : reportJobRepository.findDueForRequeue(now, queuedBefore)) {
+            if (reportJobRepository.markRequeued(jobId, now, queuedBefore) > 0) {
+                requeue(jobId);
+            }
+        }
+
+        for (ReportJob job : reportJobRepository.findByStatusAndStartedAtBefore("RUNNING", now.minus(runningTimeout))) {
+            if (job.getAttempts() >= maxAttempts) {
+                if (reportJobRepository.fail(job.getJobId(), "RUNNING", job.getAttempts(),
+                        "Report rendering did not finish after " + job.getAttempts() + " attempt(s)", now) > 0) {
+                    log.warn("Report job {} failed, still running after {} attempt(s)", job.getJobId(), job.getAttempts());
+                    reportJobRepository.findByJobId(job.getJobId())
+                            .ifPresent(failed -> dataSyncService.broadcastJobProgress(ReportJobWorker.toEvent(failed)));
+                }
+            } else if (reportJobRepository.requeueStale(job.getJobId(), job.getAttempts(), now) > 0) {
+                log.warn("Report job {} still running after {}, re-queued", job.getJobId(), runningTimeout);
+                requeue(job.getJobId());
+            }
+        }
+    }
+
+    private void requeue(String jobId) {
+        try {
+            reportJobQueue.enqueue(jobId);
+        } catch (RuntimeException e) {
+            // queued_at was just set, so the next sweep after the queued timeout tries again
+            log.warn("Could not re-queue report job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes finished jobs and their files once they are older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${lims.reports.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        List<ReportJob> expired = reportJobRepository.findByStatusInAndCompletedAtBefore(
+                List.of("COMPLETED", "FAILED"), Instant.now().minus(retention));
+        reportJobRepository.deleteAll(expired);
+        // Equal content shares one blob (a COA job's output is often its revision snapshot), so a
+        // file is only deleted once no remaining job or COA revision refers to it
+        expired.stream().map(ReportJob::getResultRef).filter(Objects::nonNull).distinct()
+                .filter(ref -> !reportJobRepository.existsByResultRef(ref) && !coaRevisionRepository.existsByPdfRef(ref))
+                .forEach(ref -> {
+                    try {
+                        blobStore.delete(ref);
+                    } catch (IOException e) {
+                        log.warn("Could not delete report file {}: {}", ref, e.getMessage());
+                    }
+                });
+        if (!expired.isEmpty()) {
+            log.info("Purged {} expired report jobs", expired.size());
+        }
+    }
+
+    /**
+     * A job of the current user; admins see every job. Other users' jobs are reported as not
+     * found, so job ids cannot be probed.
+     */
+    private ReportJob findJob(String jobId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        boolean admin = auth != null && auth.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
+        return (admin ? reportJobRepository.findByJobId(jobId)
+                : reportJobRepository.findByJobIdAndRequestedBy(jobId, currentUsername()))
+                .orElseThrow(() -> new ResourceNotFoundException("Report job " + jobId + " not found"));
+    }
+
+    private static String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : "SYSTEM";
+    }
+
+    private static ReportJobDTO toDto(ReportJob job) {
+        return ReportJobDTO.builder()
+                .jobId(job.getJobId())
+                .reportType(job.getReportType())
+                .subjectId(job.getSubjectId())
+                .status(job.getStatus())
+                .requestedBy(job.getRequestedBy())
+                .fileName(job.getFileName())
+                .resultSize(job.getResultSize())
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .completedAt(job.getCompletedAt())
+                .build();
+    }
+}
@@ -0,0 +1,186 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.ServiceBusyException;
+import com.lims.common.storage.BlobStore;
+import com.lims.common.storage.StoredBlob;
+import com.lims.module.notification.dto.JobProgressEvent;
+import com.lims.module.notification.service.DataSyncService;
+import com.lims.module.sample.entity.ReportJob;
+import com.lims.module.sample.repository.ReportJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Renders one report job into the {@link BlobStore}. At most {@code lims.reports.max-concurrent}
+ * jobs render at a time on this node, whatever the number of queue consumers, to protect the
+ * LibreOffice processes.
+ * <p>
+ * A render rejected with {@link ServiceBusyException} goes back to QUEUED with a retry time
+ * (exponential backoff, at least the hinted delay) until {@code lims.reports.max-attempts} is
+ * reached; {@link ReportJobService#recover()} re-queues it when that time has passed. The result
+ * is only written if the job is still on this attempt, so a render that outlived the running
+ * timeout and was handed to another worker cannot overwrite the newer one.
+ */
+@Component
+@Slf4j
+public class ReportJobWorker {
+
+    /** What a render attempt ended in; applied to the job by {@link #finish}. */
+    private record Outcome(String status, StoredBlob result, String errorMessage, Instant retryAt) {}
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportService reportService;
+    private final DataSyncService dataSyncService;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore renderPermits;
+    private final int maxAttempts;
+    private final long retryDelaySeconds;
+
+    public ReportJobWorker(ReportJobRepository reportJobRepository,
+                           ReportService reportService,
+                           DataSyncService dataSyncService,
+                           BlobStore blobStore,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${lims.reports.max-concurrent:2}") int maxConcurrent,
+                           @Value("${lims.reports.max-attempts:3}") int maxAttempts,
+                           @Value("${lims.reports.retry-delay-seconds:30}") long retryDelaySeconds) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportService = reportService;
+        this.dataSyncService = dataSyncService;
+        this.blobStore = blobStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.renderPermits = new Semaphore(Math.max(1, maxConcurrent));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelaySeconds = Math.max(1, retryDelaySeconds);
+    }
+
+    public void process(String jobId) {
+        try {
+            renderPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            if (reportJobRepository.claim(jobId, Instant.now()) == 0) {
+                log.debug("Report job {} already taken or gone, skipping", jobId);
+                return;
+            }
+            ReportJob job = reportJobRepository.findByJobId(jobId).orElseThrow();
+            dataSyncService.broadcastJobProgress(toEvent(job));
+            ReportJob finished = finish(job, render(job));
+            if (finished != null) {
+                dataSyncService.broadcastJobProgress(toEvent(finished));
+            } else {
+                log.warn("Report job {} was recovered by another worker during attempt {}; result discarded",
+                        jobId, job.getAttempts());
+            }
+        } finally {
+            renderPermits.release();
+        }
+    }
+
+    private Outcome render(ReportJob job) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(job.getRequestedBy(), null, List.of()));
+        try {
+            StoredBlob result;
+            if ("COA".equals(job.getReportType())) {
+                try (InputStream in = reportService.generateCoa(job.getSubjectId()).open()) {
+                    result = blobStore.store(in);
+                }
+            } else {
+                byte[] pdf = switch (job.getReportType()) {
+                    case "TRF" -> reportService.generateTrf(job.getSubjectId());
+                    case "JOB_TRF" -> reportService.generateJobTrf(job.getSubjectId());
+                    case "WORKSHEET" -> reportService.generateWorksheetReport(job.getSubjectId());
+                    default -> throw new IllegalArgumentException("Unknown report type " + job.getReportType());
+                };
+                result = blobStore.store(new ByteArrayInputStream(pdf));
+            }
+            log.info("Report job {} ({} {}) completed, {} bytes", job.getJobId(), job.getReportType(), job.getSubjectId(), result.size());
+            return new Outcome("COMPLETED", result, null, null);
+        } catch (Exception e) {
+            ServiceBusyException busy = busyCause(e);
+            if (busy != null && job.getAttempts() < maxAttempts) {
+                long backoff = retryDelaySeconds << Math.min(job.getAttempts() - 1, 10);
+                long delay = Math.max(busy.getRetryAfterSeconds(), backoff);
+                log.info("Report job {} deferred after attempt {} of {}, retrying in {}s: {}",
+                        job.getJobId(), job.getAttempts(), maxAttempts, delay, busy.getMessage());
+                return new Outcome("QUEUED", null, truncate(busy.getMessage()), Instant.now().plusSeconds(delay));
+            }
+            log.error("Report job {} ({} {}) failed after {} attempt(s)", job.getJobId(), job.getReportType(),
+                    job.getSubjectId(), job.getAttempts(), e);
+            return new Outcome("FAILED", null, truncate(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()), null);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Applies the outcome if the job is still RUNNING on the same attempt.
+     *
+     * @return the updated job, or null if it was recovered (re-queued or failed) meanwhile
+     */
+    private ReportJob finish(ReportJob rendered, Outcome outcome) {
+        return transactionTemplate.execute(tx -> {
+            ReportJob job = reportJobRepository.findAndLockByJobId(rendered.getJobId()).orElse(null);
+            if (job == null || !"RUNNING".equals(job.getStatus()) || job.getAttempts() != rendered.getAttempts()) {
+                return null;
+            }
+            job.setStatus(outcome.status());
+            job.setErrorMessage(outcome.errorMessage());
+            if ("QUEUED".equals(outcome.status())) {
+                job.setStartedAt(null);
+                job.setQueuedAt(null);
+                job.setRetryAt(outcome.retryAt());
+            } else {
+                job.setCompletedAt(Instant.now());
+            }
+            if (outcome.result() != null) {
+                job.setResultRef(outcome.result().ref());
+                job.setResultSize(outcome.result().size());
+                job.setFileName(job.getReportType() + "_" + job.getSubjectId() + ".pdf");
+            }
+            return reportJobRepository.save(job);
+        });
+    }
+
+    private static ServiceBusyException busyCause(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ServiceBusyException busy) return busy;
+        }
+        return null;
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    static JobProgressEvent toEvent(ReportJob job) {
+        boolean done = "COMPLETED".equals(job.getStatus()) || "FAILED".equals(job.getStatus());
+        return JobProgressEvent.builder()
+                .jobId(job.getJobId())
+                .type("REPORT_" + job.getReportType())
+                .subjectId(job.getSubjectId())
+                .status(job.getStatus())
+                .total(1)
+                .processed(done ? 1 : 0)
+                .failed("FAILED".equals(job.getStatus()) ? 1 : 0)
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getCompletedAt())
+                .build();
+    }
+}
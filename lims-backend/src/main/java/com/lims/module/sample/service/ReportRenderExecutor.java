@@ -0,0 +1,34 @@
+package com.lims.module.sample.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Shared, bounded pool that renders the worksheet parts of COAs in parallel. It is sized with
+ * {@code lims.reports.coa.parallelism} across all requests, so concurrent COAs queue here rather
+ * than flooding the office conversion pool.
+ */
+@Component
+public class ReportRenderExecutor {
+
+    private final ExecutorService executor;
+
+    public ReportRenderExecutor(@Value("${lims.reports.coa.parallelism:4}") int parallelism) {
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+    }
+
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
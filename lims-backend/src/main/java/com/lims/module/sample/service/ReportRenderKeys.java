@@ -0,0 +1,135 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.hash.Sha256;
+import com.lims.module.sample.entity.MethodDefinition;
+import com.lims.module.sample.entity.WorksheetData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache keys for {@link RenderedDocumentCache}: SHA-256 over every input of a render. For a
+ * worksheet report that is the worksheet version and status, the definition version, the template
+ * file contents, the header values and the contents of every signature image the data refers to.
+ */
+@Component
+public class ReportRenderKeys {
+
+    /** Bump when the rendering code changes in a way that alters output for the same inputs. */
+    private static final String RENDER_FORMAT = "1";
+
+    private static final Pattern SIGNATURE_PATH = Pattern.compile(
+            "([^\\s]*uploads[/\\\\]signatures[/\\\\][^\\s]*\\.(png|jpg|jpeg))", Pattern.CASE_INSENSITIVE);
+
+    /** File hashes by absolute path, reused while size and modification time are unchanged. */
+    private final Map<Path, FileHash> fileHashes = new ConcurrentHashMap<>();
+
+    @Value("${lims.app-url:http://localhost:5173}")
+    private String appUrl;
+
+    public String worksheetReport(WorksheetData wd) {
+        MethodDefinition md = wd.getMethodDefinition();
+        MessageDigest digest = Sha256.newDigest();
+        Sha256.update(digest, "WORKSHEET");
+        Sha256.update(digest, RENDER_FORMAT);
+        Sha256.update(digest, appUrl);
+        Sha256.update(digest, String.valueOf(wd.getId()));
+        Sha256.update(digest, String.valueOf(wd.getVersion()));
+        Sha256.update(digest, wd.getStatus());
+        Sha256.update(digest, md != null ? md.getId() + "@" + md.getVersion() : "");
+        Sha256.update(digest, md != null && md.getReportTemplatePath() != null ? inputHash(Path.of(md.getReportTemplatePath())) : "");
+
+        new TreeMap<>(WorksheetCalculationService.headerValues(wd.getSampleTest())).forEach((k, v) -> {
+            Sha256.update(digest, k);
+            Sha256.update(digest, v);
+        });
+
+        TreeSet<String> signatures = new TreeSet<>();
+        collectSignaturePaths(wd.getData(), signatures);
+        for (String signature : signatures) {
+            Sha256.update(digest, signature);
+            Sha256.update(digest, inputHash(Paths.get(signature.replace("\\", "/")).toAbsolutePath()));
+        }
+        return Sha256.hex(digest);
+    }
+
+    /**
+     * A COA is the merge of its worksheet reports, so its key is derived from theirs in order.
+     */
+    public String coa(Long sampleId, List<String> worksheetKeys) {
+        MessageDigest digest = Sha256.newDigest();
+        Sha256.update(digest, "COA");
+        Sha256.update(digest, RENDER_FORMAT);
+        Sha256.update(digest, String.valueOf(sampleId));
+        worksheetKeys.forEach(k -> Sha256.update(digest, k));
+        return Sha256.hex(digest);
+    }
+
+    /**
+     * SHA-256 of a file's contents, or "missing" when it does not exist.
+     */
+    public String fileHash(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        if (!Files.exists(absolute)) {
+            return "missing";
+        }
+        long size = Files.size(absolute);
+        long modified = Files.getLastModifiedTime(absolute).toMillis();
+        FileHash known = fileHashes.get(absolute);
+        if (known != null && known.size() == size && known.modified() == modified) {
+            return known.hash();
+        }
+        MessageDigest digest = Sha256.newDigest();
+        try (InputStream in = Files.newInputStream(absolute)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        String hash = Sha256.hex(digest);
+        fileHashes.put(absolute, new FileHash(size, modified, hash));
+        return hash;
+    }
+
+    /**
+     * A report input's hash, or "unreadable". A report with an unreadable template fails to render
+     * and one with an unreadable signature shows its path instead, so the key stays stable.
+     */
+    private String inputHash(Path path) {
+        try {
+            return fileHash(path);
+        } catch (IOException e) {
+            return "unreadable";
+        }
+    }
+
+    private static void collectSignaturePaths(Object value, Collection<String> into) {
+        if (value instanceof String s) {
+            Matcher m = SIGNATURE_PATH.matcher(s);
+            while (m.find()) {
+                into.add(m.group(1));
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            map.values().forEach(v -> collectSignaturePaths(v, into));
+        } else if (value instanceof Collection<?> list) {
+            list.forEach(v -> collectSignaturePaths(v, into));
+        }
+    }
+
+    private record FileHash(long size, long modified, String hash) {}
+}
@@ -1,5 +1,7 @@
 package com.lims.module.sample.service;
 
+import com.lims.common.exception.ResourceNotFoundException;
+import com.lims.common.exception.ServiceBusyException;
 import com.lims.module.sample.dto.OverdueSampleDTO;
 import com.lims.module.sample.dto.TatReportDTO;
 import com.lims.module.sample.dto.WorkloadReportDTO;
@@ -14,23 +16,23 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import lombok.RequiredArgsConstructor;
 import net.sf.jasperreports.engine.*;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
-import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
 import org.apache.pdfbox.io.IOUtils;
 import lombok.extern.slf4j.Slf4j;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,7 +42,6 @@ public class ReportService {
 
     private final SampleRepository sampleRepository;
     private final SampleTestRepository sampleTestRepository;
-    private final ResourceLoader resourceLoader;
     private final AttachmentService attachmentService;
     private final DocumentConversionService documentConversionService;
     private final ExcelReportService excelReportService;
@@ -50,11 +51,26 @@ public class ReportService {
     private final CoaRevisionRepository coaRevisionRepository;
     private final TestResultRepository testResultRepository;
     private final UserRepository userRepository;
+    private final RenderedDocumentCache renderedDocumentCache;
+    private final ReportRenderKeys renderKeys;
+    private final ReportRenderExecutor reportRenderExecutor;
+    private final CoaSnapshotService coaSnapshotService;
+    private final JasperReportRegistry jasperReportRegistry;
+    private final TatAnalyticsService tatAnalyticsService;
+    private final WorkloadRollupService workloadRollupService;
+
+    /**
+     * ETag of the worksheet report as it would currently render; lets callers answer
+     * If-None-Match without rendering.
+     */
+    @Transactional(readOnly = true)
+    public String worksheetReportETag(Long sampleTestId) {
+        return renderKeys.worksheetReport(findWorksheet(sampleTestId));
+    }
 
     @Transactional(readOnly = true)
     public byte[] generateWorksheetReport(Long sampleTestId) {
-        WorksheetData wd = worksheetDataRepository.findBySampleTestId(sampleTestId)
-                .orElseThrow(() -> new RuntimeException("Worksheet data not found for test: " + sampleTestId));
+        WorksheetData wd = findWorksheet(sampleTestId);
 
         String templatePath = wd.getMethodDefinition().getReportTemplatePath();
         if (templatePath == null || templatePath.isEmpty()) {
@@ -62,22 +78,30 @@ public class ReportService {
         }
 
         try {
-            // 1. Inject data into Excel
-            Path excelPath = excelReportService.generateExcelReport(wd, templatePath);
-            
+            return Files.readAllBytes(renderedDocumentCache.get(renderKeys.worksheetReport(wd),
+                    target -> renderWorksheetReport(wd, templatePath, target)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to generate worksheet report from Excel template", e);
+        }
+    }
+
+    private WorksheetData findWorksheet(Long sampleTestId) {
+        return worksheetDataRepository.findBySampleTestId(sampleTestId)
+                .orElseThrow(() -> new RuntimeException("Worksheet data not found for test: " + sampleTestId));
+    }
+
+    private void renderWorksheetReport(WorksheetData wd, String templatePath, Path target) throws IOException {
+        // 1. Inject data into Excel
+        Path excelPath = excelReportService.generateExcelReport(wd, templatePath);
+        try {
             // 2. Convert to PDF
             Path pdfPath = pdfConversionService.convertExcelToPdf(excelPath);
-            
-            // 3. Read and cleanup
-            byte[] bytes = Files.readAllBytes(pdfPath);
-            
+
+            // 3. Move into place
+            Files.move(pdfPath, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
             // Cleanup temp files
-            Files.deleteIfExists(pdfPath);
             Files.deleteIfExists(excelPath);
-            
-            return bytes;
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to generate worksheet report from Excel template", e);
         }
     }
 
@@ -88,53 +112,140 @@ public class ReportService {
 
     // ==================== CoA Report ====================
 
-    @Transactional
-    public byte[] generateCoa(Long sampleId) throws JRException {
-        Sample sample = sampleRepository.findById(sampleId)
-                .orElseThrow(() -> new RuntimeException("Sample not found"));
+    /**
+     * ETag of the COA as it would currently render.
+     */
+    @Transactional(readOnly = true)
+    public String coaETag(Long sampleId) {
+        return renderKeys.coa(sampleId, coaWorksheets(sampleId).stream().map(renderKeys::worksheetReport).toList());
+    }
+
+    /**
+     * Renders the COA without recording a revision; repeated calls for unchanged data are served
+     * from the rendered document cache. Used for public QR verification.
+     * <p>
+     * The worksheet parts render in parallel on the {@link ReportRenderExecutor} and are merged
+     * file-to-file with a temp-file stream cache, so heap use does not grow with the report.
+     */
+    @Transactional(readOnly = true)
+    public RenderedPdf renderCoa(Long sampleId) {
+        List<WorksheetData> worksheets = coaWorksheets(sampleId);
+        // Computing the keys initializes every lazy association the renderers read, so the
+        // parts can be rendered on other threads without touching this session
+        List<String> worksheetKeys = worksheets.stream().map(renderKeys::worksheetReport).toList();
+        String key = renderKeys.coa(sampleId, worksheetKeys);
+        try {
+            Path cached = renderedDocumentCache.lookup(key);
+            if (cached != null) {
+                return RenderedPdf.cached(cached);
+            }
+
+            List<Path> parts = renderCoaParts(worksheets, worksheetKeys);
+            if (parts.isEmpty()) {
+                throw new IllegalStateException("No Excel COA template configured or generated for the tests in this sample.");
+            }
+            boolean complete = parts.size() == worksheets.size();
+            if (complete && parts.size() == 1) {
+                return RenderedPdf.cached(parts.get(0));
+            }
 
-        List<SampleTest> tests = sampleTestRepository.findBySampleIdOrderBySortOrderAscIdAsc(sampleId);
-        List<byte[]> pdfs = new ArrayList<>();
+            Path merged = renderedDocumentCache.newTempFile();
+            try {
+                mergePdfs(parts, merged);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(merged);
+                throw e;
+            }
+            // A COA missing a failed worksheet must not be cached under the key of the complete one
+            return complete ? RenderedPdf.cached(renderedDocumentCache.put(key, merged)) : RenderedPdf.temporary(merged);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to merge PDF COA reports", e);
+        }
+    }
 
-        for (SampleTest t : tests) {
+    /**
+     * Renders (or fetches from cache) every worksheet part in parallel, in test order. Failed parts
+     * are logged and left out, except a saturated conversion pool, which fails the whole COA.
+     */
+    private List<Path> renderCoaParts(List<WorksheetData> worksheets, List<String> worksheetKeys) {
+        List<Future<Path>> futures = new ArrayList<>();
+        for (int i = 0; i < worksheets.size(); i++) {
+            WorksheetData wd = worksheets.get(i);
+            String worksheetKey = worksheetKeys.get(i);
+            String templatePath = wd.getMethodDefinition().getReportTemplatePath();
+            futures.add(reportRenderExecutor.submit(() -> renderedDocumentCache.get(worksheetKey,
+                    target -> renderWorksheetReport(wd, templatePath, target))));
+        }
+
+        List<Path> parts = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    parts.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ServiceBusyException busy) {
+                        throw busy;
+                    }
+                    log.error("Failed to generate Excel-based COA report for test: {}", worksheets.get(i).getSampleTest().getId(), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rendering COA", e);
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+        return parts;
+    }
+
+    /**
+     * Worksheets of the sample's tests that have an Excel report template on disk, in test order.
+     */
+    private List<WorksheetData> coaWorksheets(Long sampleId) {
+        List<WorksheetData> worksheets = new ArrayList<>();
+        for (SampleTest t : sampleTestRepository.findBySampleIdOrderBySortOrderAscIdAsc(sampleId)) {
             Optional<WorksheetData> wdOpt = worksheetDataRepository.findBySampleTestId(t.getId());
             if (wdOpt.isPresent()) {
                 WorksheetData wd = wdOpt.get();
                 if (wd.getMethodDefinition() != null && wd.getMethodDefinition().getReportTemplatePath() != null) {
                     String templatePath = wd.getMethodDefinition().getReportTemplatePath();
-                    if (templatePath != null && !templatePath.trim().isEmpty() && Files.exists(Path.of(templatePath))) {
-                        try {
-                            byte[] pdfBytes = generateWorksheetReport(t.getId());
-                            pdfs.add(pdfBytes);
-                        } catch (Exception e) {
-                            log.error("Failed to generate Excel-based COA report for test: {}", t.getId(), e);
-                        }
+                    if (!templatePath.trim().isEmpty() && Files.exists(Path.of(templatePath))) {
+                        worksheets.add(wd);
                     }
                 }
             }
         }
+        return worksheets;
+    }
 
-        if (pdfs.isEmpty()) {
-            throw new IllegalStateException("No Excel COA template configured or generated for the tests in this sample.");
-        }
-
-        byte[] finalPdf;
-        if (pdfs.size() == 1) {
-            finalPdf = pdfs.get(0);
-        } else {
-            try {
-                PDFMergerUtility merger = new PDFMergerUtility();
-                ByteArrayOutputStream mergedOut = new ByteArrayOutputStream();
-                merger.setDestinationStream(mergedOut);
-                for (byte[] pdfBytes : pdfs) {
-                    merger.addSource(new RandomAccessReadBuffer(pdfBytes));
-                }
-                merger.mergeDocuments(IOUtils.createMemoryOnlyStreamCache());
-                finalPdf = mergedOut.toByteArray();
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to merge PDF COA reports", e);
+    private static void mergePdfs(List<Path> parts, Path target) throws IOException {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        merger.setDestinationFileName(target.toString());
+        List<RandomAccessReadBufferedFile> sources = new ArrayList<>();
+        try {
+            // Opened now so a part evicted from the cache meanwhile stays readable
+            for (Path part : parts) {
+                RandomAccessReadBufferedFile source = new RandomAccessReadBufferedFile(part.toFile());
+                sources.add(source);
+                merger.addSource(source);
+            }
+            merger.mergeDocuments(IOUtils.createTempFileOnlyStreamCache());
+        } finally {
+            for (RandomAccessReadBufferedFile source : sources) {
+                source.close();
             }
         }
+    }
+
+    /**
+     * Renders the COA and, once the sample is authorized, records it as a new COA revision.
+     */
+    @Transactional
+    public RenderedPdf generateCoa(Long sampleId) {
+        Sample sample = sampleRepository.findById(sampleId)
+                .orElseThrow(() -> new RuntimeException("Sample not found"));
+
+        RenderedPdf finalPdf = renderCoa(sampleId);
 
         // Save a snapshot of this CoA revision only if AUTHORIZED
         if ("AUTHORIZED".equals(sample.getStatus())) {
@@ -150,13 +261,16 @@ public class ReportService {
                 
                 com.lims.module.security.entity.User currentUser = userRepository.findByUsername(username).orElse(null);
 
+                com.lims.common.storage.StoredBlob snapshot = coaSnapshotService.store(finalPdf.path());
                 CoaRevision revision = CoaRevision.builder()
                         .sample(sample)
                         .revisionNumber(nextRev)
                         .isInterim(false)
                         .specimensIncluded(0)
                         .specimensTotal(0)
-                        .pdfSnapshot(finalPdf)
+                        .pdfRef(snapshot.ref())
+                        .pdfSha256(snapshot.sha256())
+                        .pdfSize(snapshot.size())
                         .generatedBy(currentUser)
                         .generatedAt(Instant.now())
                         .build();
@@ -171,13 +285,43 @@ public class ReportService {
 
     // ==================== TRF Report ====================
 
+    private static final String TRF_TEMPLATE = "trf_template";
+
     @Transactional(readOnly = true)
     public byte[] generateTrf(Long sampleId) throws JRException {
         Sample sample = sampleRepository.findById(sampleId)
                 .orElseThrow(() -> new RuntimeException("Sample not found"));
+        return JasperExportManager.exportReportToPdf(fillTrf(jasperReportRegistry.get(TRF_TEMPLATE), sample));
+    }
 
-        List<SampleTest> tests = sampleTestRepository.findBySampleIdOrderBySortOrderAscIdAsc(sampleId);
+    /**
+     * One PDF with the TRFs of every sample in a job, in sample number order. The template is
+     * filled once per sample and the pages appended to a single print.
+     */
+    @Transactional(readOnly = true)
+    public byte[] generateJobTrf(Long jobId) throws JRException {
+        List<Sample> samples = new ArrayList<>(sampleRepository.findByJobId(jobId));
+        if (samples.isEmpty()) {
+            throw new ResourceNotFoundException("No samples found for job " + jobId);
+        }
+        samples.sort(Comparator.comparing(Sample::getSampleNumber));
+
+        JasperReport report = jasperReportRegistry.get(TRF_TEMPLATE);
+        JasperPrint batch = null;
+        for (Sample sample : samples) {
+            JasperPrint print = fillTrf(report, sample);
+            if (batch == null) {
+                batch = print;
+                batch.setName("TRF_JOB_" + jobId);
+            } else {
+                print.getPages().forEach(batch::addPage);
+            }
+        }
+        return JasperExportManager.exportReportToPdf(batch);
+    }
 
+    private JasperPrint fillTrf(JasperReport report, Sample sample) throws JRException {
+        List<SampleTest> tests = sampleTestRepository.findBySampleIdOrderBySortOrderAscIdAsc(sample.getId());
         // Map Header Parameters (22 Fields)
         Map<String, Object> params = new HashMap<>();
         Job job = sample.getJob();
@@ -226,43 +370,19 @@ public class ReportService {
 
         JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(testData);
 
-        // Load TRF template from requirements folder
-        try (InputStream is = resourceLoader.getResource("file:d:/Workspace/LIMS/requirements/test.jrxml").getInputStream()) {
-            JasperReport jasperReport = JasperCompileManager.compileReport(is);
-            JasperPrint jasperPrint = JasperFillManager.fillReport(jasperReport, params, dataSource);
-            return JasperExportManager.exportReportToPdf(jasperPrint);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load TRF template", e);
-        }
+        return JasperFillManager.fillReport(report, params, dataSource);
     }
 
     // ==================== TAT Report ====================
 
-    @Transactional(readOnly = true)
-    public List<TatReportDTO> getTatReport() {
-        return sampleRepository.getTatStatsByStatus().stream()
-                .map(row -> TatReportDTO.builder()
-                        .status((String) row[0])
-                        .count(((Number) row[1]).longValue())
-                        .averageTatHours(((Number) row[2]).doubleValue())
-                        .minTatHours(((Number) row[3]).doubleValue())
-                        .maxTatHours(((Number) row[4]).doubleValue())
-                        .build())
-                .collect(Collectors.toList());
+    public List<TatReportDTO> getTatReport(LocalDate from, LocalDate to, Long clientId, Long productId, Long testMethodId) {
+        return tatAnalyticsService.report(from, to, clientId, productId, testMethodId);
     }
 
     // ==================== Workload Report ====================
 
-    @Transactional(readOnly = true)
-    public List<WorkloadReportDTO> getWorkloadReport() {
-        return sampleTestRepository.getWorkloadByAnalyst().stream()
-                .map(row -> WorkloadReportDTO.builder()
-                        .analystName((String) row[0])
-                        .samplesAssigned(((Number) row[1]).longValue())
-                        .testsCompleted(((Number) row[2]).longValue())
-                        .testsPending(((Number) row[3]).longValue())
-                        .build())
-                .collect(Collectors.toList());
+    public List<WorkloadReportDTO> getWorkloadReport(LocalDate from, LocalDate to) {
+        return workloadRollupService.report(from, to);
     }
 
     // ==================== Overdue Samples Report ====================
@@ -11,6 +11,8 @@ import com.lims.module.sample.repository.SampleRepository;
 import com.lims.module.sample.repository.SampleTestRepository;
 import com.lims.module.sample.repository.TestResultRepository;
 import com.lims.module.sample.repository.SpecimenRepository;
+import com.lims.module.sample.schema.CompiledSchema;
+import com.lims.module.sample.schema.SpecimenFingerprint;
 import com.lims.module.security.entity.User;
 import com.lims.module.security.repository.UserRepository;
 import com.lims.module.notification.service.DataSyncService;
@@ -26,7 +28,6 @@ import java.util.stream.Collectors;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -42,6 +43,8 @@ public class ReviewService {
     private final SpecimenRepository specimenRepository;
     private final WorksheetDataRepository worksheetDataRepository;
     private final WorksheetDataService worksheetDataService;
+    private final CompiledSchemaCache compiledSchemaCache;
+    private final WorksheetRevisionService worksheetRevisionService;
 
     @Transactional
     public void reviewResult(ResultReviewRequest request) {
@@ -64,20 +67,9 @@ public class ReviewService {
         resultReviewRepository.save(review);
 
         SampleTest st = result.getSampleTest();
-        boolean hasMultiDaySpecimen = false;
         WorksheetData wd = st.getWorksheetData();
-        if (wd != null) {
-            Map<String, Object> schema = wd.getMethodDefinition().getSchemaDefinition();
-            if (schema != null && schema.get("sections") instanceof List) {
-                List<Map<String, Object>> sections = (List<Map<String, Object>>) schema.get("sections");
-                for (Map<String, Object> section : sections) {
-                    if (Boolean.TRUE.equals(section.get("hasMultiDaySpecimen"))) {
-                        hasMultiDaySpecimen = true;
-                        break;
-                    }
-                }
-            }
-        }
+        CompiledSchema schema = wd != null ? compiledSchemaCache.get(wd.getMethodDefinition()) : CompiledSchema.empty();
+        boolean hasMultiDaySpecimen = schema.hasMultiDaySpecimen();
 
         if (hasMultiDaySpecimen) {
             List<Specimen> finalizedSpecimens = specimenRepository.findBySampleIdOrderBySpecimenNumberAsc(st.getSample().getId())
@@ -90,6 +82,7 @@ public class ReviewService {
                     spec.setStatus("AUTHORIZED");
                     spec.setAuthorizedBy(currentUser);
                     spec.setAuthorizedAt(Instant.now());
+                    spec.setLockFingerprint(SpecimenFingerprint.of(schema, wd.getData(), spec.getSpecimenNumber() - 1));
                 } else if ("REJECT".equals(request.getAction())) {
                     spec.setStatus("REJECTED");
                 }
@@ -104,11 +97,13 @@ public class ReviewService {
                     st.setStatus("INTERIM_AUTHORIZED");
                     wd.setStatus("INTERIM_AUTHORIZED");
                     worksheetDataRepository.save(wd);
+                    worksheetRevisionService.record(wd, "AUTHORIZE");
                 } else {
                     st.setStatus("AUTHORIZED");
                     if (wd != null) {
                         wd.setStatus("FINALIZED");
                         worksheetDataRepository.save(wd);
+                        worksheetRevisionService.record(wd, "AUTHORIZE");
                     }
                 }
             } else if ("REJECT".equals(request.getAction())) {
@@ -116,6 +111,7 @@ public class ReviewService {
                 if (wd != null) {
                     wd.setStatus("DRAFT");
                     worksheetDataRepository.save(wd);
+                    worksheetRevisionService.record(wd, "REJECT");
                 }
                 for (Specimen spec : finalizedSpecimens) {
                     spec.setStatus("DRAFT");
@@ -131,6 +127,7 @@ public class ReviewService {
                 if (wd != null) {
                     wd.setStatus("FINALIZED");
                     worksheetDataRepository.save(wd);
+                    worksheetRevisionService.record(wd, "AUTHORIZE");
                 }
                 eventPublisher.publishEvent(new ResultAuthorizedEvent(this, result.getEnteredBy().getId(), st.getSample().getSampleNumber(), st.getTestMethod().getName()));
             } else if ("REJECT".equals(request.getAction())) {
@@ -138,6 +135,7 @@ public class ReviewService {
                 if (wd != null) {
                     wd.setStatus("DRAFT");
                     worksheetDataRepository.save(wd);
+                    worksheetRevisionService.record(wd, "REJECT");
                 }
             }
         }
@@ -159,6 +157,9 @@ public class ReviewService {
         } else {
             boolean allTestsAuthorized = tests.stream().allMatch(t -> "AUTHORIZED".equals(t.getStatus()));
             if (allTestsAuthorized) {
+                if (!"AUTHORIZED".equals(sample.getStatus())) {
+                    sample.setAuthorizedAt(Instant.now());
+                }
                 sample.setStatus("AUTHORIZED");
             } else {
                 boolean anyActive = tests.stream().anyMatch(t -> "IN_PROGRESS".equals(t.getStatus()) 
@@ -0,0 +1,193 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.module.sample.repository.SampleExportDao;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Exports the sample register as CSV or XLSX, row by row from a database cursor to the response.
+ * XLSX is written with a streaming workbook that keeps only a small window of rows in memory,
+ * so neither format holds the register in memory.
+ */
+@Service
+@Slf4j
+public class SampleExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    /** A validated export with the caller's client scope resolved, ready to stream on another thread. */
+    public record Plan(Format format, List<Long> clientIds, List<String> statuses) {}
+
+    /** Rows of an XLSX export held in memory before being flushed to a temp file. */
+    private static final int XLSX_WINDOW = 100;
+
+    private final SampleService sampleService;
+    private final SampleExportDao sampleExportDao;
+    private final TransactionTemplate transactionTemplate;
+
+    public SampleExportService(SampleService sampleService,
+                               SampleExportDao sampleExportDao,
+                               PlatformTransactionManager transactionManager) {
+        this.sampleService = sampleService;
+        this.sampleExportDao = sampleExportDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public Plan plan(String format, List<String> statuses) {
+        Format parsed;
+        try {
+            parsed = Format.valueOf((format != null ? format : "csv").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessRuleException("Unsupported export format: " + format);
+        }
+        return new Plan(parsed, sampleService.getRestrictedClientIds(), statuses);
+    }
+
+    public void export(Plan plan, OutputStream out) throws IOException {
+        try {
+            long rows = transactionTemplate.execute(status -> switch (plan.format()) {
+                case CSV -> writeCsv(plan, out);
+                case XLSX -> writeXlsx(plan, out);
+            });
+            log.info("Sample export streamed {} row(s) as {}", rows, plan.format());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long writeCsv(Plan plan, OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long[] count = {0};
+        try {
+            // BOM so spreadsheet applications read the file as UTF-8
+            writer.write('\uFEFF');
+            writeCsvLine(writer, SampleExportDao.COLUMNS);
+            sampleExportDao.streamRows(plan.clientIds(), plan.statuses(), rs -> {
+                try {
+                    writeCsvLine(writer, values(rs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count[0];
+    }
+
+    private long writeXlsx(Plan plan, OutputStream out) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(XLSX_WINDOW);
+        workbook.setCompressTempFiles(true);
+        long[] count = {0};
+        try (workbook) {
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            CellStyle headerStyle = workbook.createCellStyle();
+            headerStyle.setFont(bold);
+
+            int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows();
+            Sheet[] sheet = {newSheet(workbook, "Samples", headerStyle)};
+            int[] rowIndex = {1};
+            sampleExportDao.streamRows(plan.clientIds(), plan.statuses(), rs -> {
+                if (rowIndex[0] >= maxRows) {
+                    // A sheet holds about a million rows; continue on the next one
+                    sheet[0] = newSheet(workbook, "Samples " + (workbook.getNumberOfSheets() + 1), headerStyle);
+                    rowIndex[0] = 1;
+                }
+                Row row = sheet[0].createRow(rowIndex[0]++);
+                List<String> values = values(rs);
+                for (int i = 0; i < values.size(); i++) {
+                    if (values.get(i) != null) row.createCell(i).setCellValue(values.get(i));
+                }
+                count[0]++;
+            });
+            workbook.write(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count[0];
+    }
+
+    private static Sheet newSheet(SXSSFWorkbook workbook, String name, CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet(name);
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < SampleExportDao.COLUMNS.size(); i++) {
+            Cell cell = header.createCell(i);
+            cell.setCellValue(SampleExportDao.COLUMNS.get(i));
+            cell.setCellStyle(headerStyle);
+        }
+        return sheet;
+    }
+
+    private static List<String> values(ResultSet rs) throws SQLException {
+        String[] values = new String[SampleExportDao.COLUMNS.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = rs.getObject(i + 1);
+            values[i] = value == null ? null
+                    : value instanceof Timestamp ts ? ts.toInstant().toString()
+                    : value.toString();
+        }
+        return Arrays.asList(values);
+    }
+
+    private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) writer.write(',');
+            writer.write(csvField(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String csvField(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        // Keep spreadsheet applications from evaluating free text as a formula
+        if ("=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
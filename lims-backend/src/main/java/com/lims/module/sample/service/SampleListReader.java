@@ -0,0 +1,93 @@
+package com.lims.module.sample.service;
+
+import com.lims.module.sample.dto.SampleDTO;
+import com.lims.module.sample.dto.SpecimenDTO;
+import com.lims.module.sample.repository.SampleRepository;
+import com.lims.module.sample.repository.SpecimenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read model of the sample list. A page of sample ids is turned into DTOs with two statements
+ * whatever its size: one for the samples with their product, job and client columns, one for
+ * the specimens of all of them with their users' names. No entities are loaded, so none of
+ * their eager associations are fetched either.
+ */
+@Service
+@RequiredArgsConstructor
+public class SampleListReader {
+
+    private final SampleRepository sampleRepository;
+    private final SpecimenRepository specimenRepository;
+
+    @Transactional(readOnly = true)
+    public Page<SampleDTO> read(Page<Long> sampleIds) {
+        return new PageImpl<>(read(sampleIds.getContent()), sampleIds.getPageable(), sampleIds.getTotalElements());
+    }
+
+    /**
+     * DTOs of the given samples, in the order given; ids of samples that no longer exist are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<SampleDTO> read(List<Long> sampleIds) {
+        if (sampleIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<SpecimenDTO>> specimensBySample = new HashMap<>();
+        for (Object[] sp : specimenRepository.findListSpecimens(sampleIds)) {
+            Long sampleId = (Long) sp[0];
+            specimensBySample.computeIfAbsent(sampleId, k -> new ArrayList<>()).add(SpecimenDTO.builder()
+                    .id((Long) sp[1])
+                    .sampleId(sampleId)
+                    .specimenNumber((Integer) sp[2])
+                    .label((String) sp[3])
+                    .scheduledTestDate((LocalDate) sp[4])
+                    .status((String) sp[5])
+                    .testedBy((String) sp[6])
+                    .testedAt((Instant) sp[7])
+                    .authorizedBy((String) sp[8])
+                    .authorizedAt((Instant) sp[9])
+                    .build());
+        }
+
+        Map<Long, SampleDTO> byId = new HashMap<>();
+        for (Object[] row : sampleRepository.findListRows(sampleIds)) {
+            Long id = (Long) row[0];
+            List<SpecimenDTO> specimens = specimensBySample.getOrDefault(id, List.of());
+            long authorizedCount = specimens.stream().filter(s -> "AUTHORIZED".equals(s.getStatus())).count();
+            byId.put(id, SampleDTO.builder()
+                    .id(id)
+                    .sampleNumber((String) row[1])
+                    .productName((String) row[2])
+                    .description((String) row[3])
+                    .status((String) row[4])
+                    .conditionOnReceipt((String) row[5])
+                    .receivedAt((Instant) row[6])
+                    .sampledAt((Instant) row[7])
+                    .clientName((String) row[8])
+                    .jobNumber((String) row[9])
+                    .specimens(specimens)
+                    .specimenCount(specimens.size())
+                    .authorizedSpecimenCount((int) authorizedCount)
+                    .build());
+        }
+
+        List<SampleDTO> ordered = new ArrayList<>(sampleIds.size());
+        for (Long id : sampleIds) {
+            SampleDTO dto = byId.get(id);
+            if (dto != null) ordered.add(dto);
+        }
+        return ordered;
+    }
+}
@@ -0,0 +1,175 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.hibernate.BeforeCommitListener;
+import com.lims.module.sample.entity.Client;
+import com.lims.module.sample.entity.Job;
+import com.lims.module.sample.entity.Product;
+import com.lims.module.sample.entity.Sample;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps {@code sample_search} in step with the data it is built from. Inserted samples and
+ * changes to any searchable field of a sample, job, client or product mark the affected search
+ * documents, which are rebuilt before commit with one statement per kind of change.
+ * <p>
+ * Bulk JPQL and native SQL must refresh {@code sample_search} themselves.
+ */
+@Component
+@RequiredArgsConstructor
+public class SampleSearchIndexer extends BeforeCommitListener<SampleSearchIndexer.PendingRefresh>
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String DOCUMENT_SELECT = """
+            SELECT s.id, j.client_id, s.status,
+                   LOWER(CONCAT_WS(' ', s.sample_number, s.barcode, s.description, s.status,
+                                   j.job_number, j.project_name, c.name, p.name))
+            FROM samples s
+            JOIN jobs j ON j.id = s.job_id
+            JOIN clients c ON c.id = j.client_id
+            JOIN products p ON p.id = s.product_id
+            """;
+    private static final String UPSERT_POSTGRES = """
+            INSERT INTO sample_search (sample_id, client_id, status, document)
+            %s
+            ON CONFLICT (sample_id) DO UPDATE
+            SET client_id = EXCLUDED.client_id, status = EXCLUDED.status, document = EXCLUDED.document
+            """;
+    private static final String UPSERT_STANDARD = """
+            MERGE INTO sample_search (sample_id, client_id, status, document) KEY (sample_id)
+            %s
+            """;
+
+    /** Ids per statement, well below driver parameter limits. */
+    private static final int CHUNK = 500;
+
+    private static final Set<String> SAMPLE_FIELDS = Set.of("sampleNumber", "barcode", "description", "status", "job", "product");
+    private static final Set<String> JOB_FIELDS = Set.of("jobNumber", "projectName", "client");
+    private static final Set<String> NAME_FIELD = Set.of("name");
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private String upsertTemplate;
+
+    @PostConstruct
+    void register() {
+        register(entityManagerFactory);
+        upsertTemplate = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect ? UPSERT_POSTGRES : UPSERT_STANDARD;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Sample sample) {
+            pendingFor(event.getSession()).samples.add(sample.getId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Sample sample && changed(event, SAMPLE_FIELDS)) {
+            pendingFor(event.getSession()).samples.add(sample.getId());
+        } else if (entity instanceof Job job && changed(event, JOB_FIELDS)) {
+            pendingFor(event.getSession()).jobs.add(job.getId());
+        } else if (entity instanceof Client client && changed(event, NAME_FIELD)) {
+            pendingFor(event.getSession()).clients.add(client.getId());
+        } else if (entity instanceof Product product && changed(event, NAME_FIELD)) {
+            pendingFor(event.getSession()).products.add(product.getId());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Sample sample) {
+            pendingFor(event.getSession()).deletedSamples.add(sample.getId());
+        }
+    }
+
+    private static boolean changed(PostUpdateEvent event, Set<String> fields) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            // Detached update without a snapshot: assume the worst
+            return true;
+        }
+        String[] names = event.getPersister().getPropertyNames();
+        Object[] state = event.getState();
+        for (int i = 0; i < names.length; i++) {
+            if (fields.contains(names[i]) && !Objects.equals(oldState[i], state[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected PendingRefresh newPending() {
+        return new PendingRefresh();
+    }
+
+    @Override
+    protected void beforeCommit(PendingRefresh pending, Connection connection) throws SQLException {
+        delete(connection, pending.deletedSamples);
+        pending.samples.removeAll(pending.deletedSamples);
+        refresh(connection, "s.id", pending.samples);
+        refresh(connection, "s.job_id", pending.jobs);
+        refresh(connection, "j.client_id", pending.clients);
+        refresh(connection, "s.product_id", pending.products);
+    }
+
+    private static void delete(Connection connection, Set<Long> ids) throws SQLException {
+        if (ids.isEmpty()) return;
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM sample_search WHERE sample_id = ?")) {
+            for (Long id : ids) {
+                ps.setLong(1, id);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void refresh(Connection connection, String column, Set<Long> ids) throws SQLException {
+        List<Long> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + CHUNK));
+            String select = DOCUMENT_SELECT + "WHERE " + column + " IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")";
+            try (PreparedStatement ps = connection.prepareStatement(upsertTemplate.formatted(select))) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 1, chunk.get(i));
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /** Documents to rebuild in one transaction, by what changed. */
+    static class PendingRefresh {
+
+        final Set<Long> samples = new TreeSet<>();
+        final Set<Long> jobs = new TreeSet<>();
+        final Set<Long> clients = new TreeSet<>();
+        final Set<Long> products = new TreeSet<>();
+        final Set<Long> deletedSamples = new TreeSet<>();
+    }
+}
@@ -1,6 +1,8 @@
 package com.lims.module.sample.service;
 
+import com.lims.common.exception.BusinessRuleException;
 import com.lims.module.sample.dto.JobDTO;
+import com.lims.module.sample.dto.SampleCursorPage;
 import com.lims.module.sample.dto.SampleDTO;
 import com.lims.module.sample.dto.DashboardStatsDTO;
 import com.lims.module.sample.dto.SampleRegistrationRequest;
@@ -16,6 +18,7 @@ import com.lims.module.sample.repository.SampleTestRepository;
 import com.lims.module.sample.repository.ProductRepository;
 import com.lims.module.sample.repository.ProjectRepository;
 import com.lims.module.sample.repository.SampleRepository;
+import com.lims.module.sample.repository.SampleSearchDao;
 import com.lims.module.sample.repository.AttachmentRepository;
 import com.lims.module.sample.repository.SpecimenRepository;
 import com.lims.module.sample.entity.Attachment;
@@ -30,21 +33,24 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
-import jakarta.persistence.criteria.Predicate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.access.AccessDeniedException;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.Year;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
@@ -52,6 +58,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Slf4j
 public class SampleService {
 
+    /** Position before every sample, for the first keyset page. */
+    private static final Instant CURSOR_START = Instant.parse("9999-12-31T23:59:59Z");
+    public static final int MAX_CURSOR_PAGE_SIZE = 200;
+
     private final JobRepository jobRepository;
     private final SampleRepository sampleRepository;
     private final ClientRepository clientRepository;
@@ -65,6 +75,9 @@ public class SampleService {
     private final DataSyncService dataSyncService;
     private final com.lims.common.service.SequenceService sequenceService;
     private final SpecimenRepository specimenRepository;
+    private final DashboardCounterService dashboardCounterService;
+    private final SampleSearchDao sampleSearchDao;
+    private final SampleListReader sampleListReader;
 
     @Transactional
     public JobDTO registerJob(SampleRegistrationRequest request, String username) {
@@ -171,7 +184,10 @@ public class SampleService {
         return mapToDTO(saved);
     }
 
-    private List<Long> getRestrictedClientIds() {
+    /**
+     * Clients the current user is limited to, or null when they may see every client.
+     */
+    List<Long> getRestrictedClientIds() {
         if (SecurityContextHolder.getContext().getAuthentication() == null) return null;
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         if (username == null || "anonymousUser".equals(username)) return null;
@@ -186,69 +202,83 @@ public class SampleService {
     @Transactional(readOnly = true)
     public DashboardStatsDTO getDashboardStats() {
         List<Long> restrictedClientIds = getRestrictedClientIds();
-        long unreceived, inProgress, awaitingAuth, authorizedToday, rejected;
-
-        if (restrictedClientIds != null) {
-            unreceived = sampleRepository.countByStatusAndJobClientIdIn("REGISTERED", restrictedClientIds);
-            inProgress = sampleRepository.countByStatusAndJobClientIdIn("RECEIVED", restrictedClientIds) + sampleRepository.countByStatusAndJobClientIdIn("IN_PROGRESS", restrictedClientIds);
-            awaitingAuth = sampleRepository.countByStatusAndJobClientIdIn("COMPLETED", restrictedClientIds);
-            authorizedToday = sampleRepository.countByStatusAndJobClientIdIn("AUTHORIZED", restrictedClientIds);
-            rejected = sampleRepository.countByStatusAndJobClientIdIn("REJECTED", restrictedClientIds);
-        } else {
-            unreceived = sampleRepository.countByStatus("REGISTERED");
-            inProgress = sampleRepository.countByStatus("RECEIVED") + sampleRepository.countByStatus("IN_PROGRESS");
-            awaitingAuth = sampleRepository.countByStatus("COMPLETED");
-            authorizedToday = sampleRepository.countByStatus("AUTHORIZED");
-            rejected = sampleRepository.countByStatus("REJECTED");
-        }
+        Map<String, Long> byStatus = dashboardCounterService.countsByStatus(restrictedClientIds);
 
         return DashboardStatsDTO.builder()
-                .unreceivedCount(unreceived)
-                .inProgressCount(inProgress)
-                .awaitingAuthorizationCount(awaitingAuth)
-                .authorizedTodayCount(authorizedToday)
-                .rejectedCount(rejected)
+                .unreceivedCount(byStatus.getOrDefault("REGISTERED", 0L))
+                .inProgressCount(byStatus.getOrDefault("RECEIVED", 0L) + byStatus.getOrDefault("IN_PROGRESS", 0L))
+                .awaitingAuthorizationCount(byStatus.getOrDefault("COMPLETED", 0L))
+                .authorizedTodayCount(byStatus.getOrDefault("AUTHORIZED", 0L))
+                .rejectedCount(byStatus.getOrDefault("REJECTED", 0L))
+                .clientIds(restrictedClientIds)
                 .build();
     }
 
+    /**
+     * Samples visible to the current user. With a search text, matches come from the
+     * {@code sample_search} index ranked by relevance (the pageable's sort is not applied);
+     * without one, the pageable's sort is used.
+     */
     @Transactional(readOnly = true)
     public Page<SampleDTO> listSamples(String search, List<String> statuses, Pageable pageable) {
         List<Long> restrictedClientIds = getRestrictedClientIds();
 
-        Specification<Sample> spec = (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
-            
-            if (restrictedClientIds != null) {
-                predicates.add(root.join("job").get("client").get("id").in(restrictedClientIds));
-            }
-            
-            if (statuses != null && !statuses.isEmpty()) {
-                predicates.add(root.get("status").in(statuses));
-            }
-            
-            if (search != null && !search.trim().isEmpty()) {
-                String lowercaseSearch = "%" + search.toLowerCase() + "%";
-                List<Predicate> searchPredicates = new ArrayList<>();
-                // Search in Sample fields
-                searchPredicates.add(cb.like(cb.lower(root.get("sampleNumber")), lowercaseSearch));
-                searchPredicates.add(cb.like(cb.lower(root.get("description")), lowercaseSearch));
-                searchPredicates.add(cb.like(cb.lower(root.get("status")), lowercaseSearch));
-                
-                // Search in related Job/Client/Project fields
-                searchPredicates.add(cb.like(cb.lower(root.join("job").get("client").get("name")), lowercaseSearch));
-                searchPredicates.add(cb.like(cb.lower(root.join("job").get("projectName")), lowercaseSearch));
-                
-                // Search in Product fields
-                searchPredicates.add(cb.like(cb.lower(root.join("product").get("name")), lowercaseSearch));
-                
-                predicates.add(cb.or(searchPredicates.toArray(new Predicate[0])));
+        if (search != null && !search.trim().isEmpty()) {
+            SampleSearchDao.Hits hits = sampleSearchDao.search(search, statuses, restrictedClientIds,
+                    pageable.getOffset(), pageable.getPageSize());
+            return new PageImpl<>(sampleListReader.read(hits.sampleIds()), pageable, hits.total());
+        }
+
+        boolean allStatuses = statuses == null || statuses.isEmpty();
+        Page<Long> ids = sampleRepository.findListPageIds(
+                restrictedClientIds == null, restrictedClientIds != null ? restrictedClientIds : List.of(-1L),
+                allStatuses, allStatuses ? List.of("") : statuses,
+                pageable);
+        return sampleListReader.read(ids);
+    }
+
+    /**
+     * One page of the sample list, newest first, after the position encoded in {@code cursor}
+     * (null for the first page). Unlike offset paging, deep pages cost the same as the first
+     * and rows inserted meanwhile neither shift nor repeat.
+     */
+    @Transactional(readOnly = true)
+    public SampleCursorPage listSamplesAfter(String cursor, List<String> statuses, int size) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new BusinessRuleException("size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+        List<Long> restrictedClientIds = getRestrictedClientIds();
+        Instant createdAt = CURSOR_START;
+        Long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("_", 2);
+                createdAt = Instant.parse(parts[0]);
+                id = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new BusinessRuleException("Invalid cursor");
             }
-            
-            return predicates.isEmpty() ? cb.conjunction() : cb.and(predicates.toArray(new Predicate[0]));
-        };
+        }
 
-        return sampleRepository.findAll(spec, pageable)
-                .map(this::mapToDTO);
+        boolean allStatuses = statuses == null || statuses.isEmpty();
+        List<Object[]> rows = sampleRepository.findListIdsBefore(createdAt, id,
+                restrictedClientIds == null, restrictedClientIds != null ? restrictedClientIds : List.of(-1L),
+                allStatuses, allStatuses ? List.of("") : statuses,
+                PageRequest.of(0, size + 1));
+
+        boolean more = rows.size() > size;
+        List<Object[]> page = more ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (more) {
+            Object[] last = page.get(page.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last[1] + "_" + last[0]).getBytes(StandardCharsets.UTF_8));
+        }
+        List<Long> ids = page.stream().map(r -> (Long) r[0]).toList();
+        return SampleCursorPage.builder()
+                .items(sampleListReader.read(ids))
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -1,7 +1,11 @@
 package com.lims.module.sample.service;
 
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.module.sample.formula.FormulaGraph;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -13,20 +17,20 @@ public class SchemaValidator {
     /**
      * Validates the structure and references within a method definition schema.
      * @param schema The JSON deserialized into a Map
-     * @throws IllegalArgumentException if validation fails
+     * @throws BusinessRuleException if validation fails
      */
     public void validateSchema(Map<String, Object> schema) {
         if (schema == null || schema.isEmpty()) {
-            throw new IllegalArgumentException("Schema definition cannot be empty");
+            throw new BusinessRuleException("Schema definition cannot be empty");
         }
 
         if (!schema.containsKey("sections")) {
-            throw new IllegalArgumentException("Schema must contain a 'sections' array");
+            throw new BusinessRuleException("Schema must contain a 'sections' array");
         }
 
-        List<Map<String, Object>> sections = (List<Map<String, Object>>) schema.get("sections");
-        if (sections == null || sections.isEmpty()) {
-            throw new IllegalArgumentException("Schema must contain at least one section");
+        List<Map<String, Object>> sections = objects(schema.get("sections"), "'sections'");
+        if (sections.isEmpty()) {
+            throw new BusinessRuleException("Schema must contain at least one section");
         }
 
         Set<String> allFieldIds = new HashSet<>();
@@ -35,29 +39,79 @@ public class SchemaValidator {
             validateSection(section, allFieldIds);
         }
 
-        // Additional overall validation logic could be evaluating formula syntax and ensuring
-        // referenced fields exist in allFieldIds.
+        validateComputedVariables(schema, sections);
+    }
+
+    /**
+     * Compiles the computed variables and checks that every formula parses, type-checks, is free of
+     * cycles and only references sections (and, for field-based sections, fields) that exist.
+     */
+    private void validateComputedVariables(Map<String, Object> schema, List<Map<String, Object>> sections) {
+        Object cvObj = schema.get("computedVariables");
+        if (cvObj == null) return;
+
+        FormulaGraph graph = FormulaGraph.compile(objects(cvObj, "'computedVariables'"));
+        List<String> errors = graph.errors();
+        if (!errors.isEmpty()) {
+            throw new BusinessRuleException("Invalid computed variable " + errors.get(0));
+        }
+
+        // Section id -> field ids; null where data keys are not plain field ids (e.g. matrix rows)
+        Map<String, Set<String>> sectionFields = new HashMap<>();
+        for (Map<String, Object> section : sections) {
+            String type = text(section, "type");
+            Set<String> fields = null;
+            if ("SINGLE_VALUE".equals(type) || "DATA_TABLE".equals(type)) {
+                fields = new HashSet<>();
+                String arrayKey = "SINGLE_VALUE".equals(type) ? "fields" : "columns";
+                if (section.get(arrayKey) != null) {
+                    for (Map<String, Object> field : objects(section.get(arrayKey), "'" + arrayKey + "'")) {
+                        fields.add(text(field, "id"));
+                    }
+                }
+            }
+            sectionFields.put(text(section, "id"), fields);
+        }
+
+        for (FormulaGraph.Variable variable : graph.variables()) {
+            for (String ref : variable.dataReferences()) {
+                String[] parts = ref.split("\\.");
+                String field = parts.length > 2 && "*".equals(parts[1]) ? parts[2] : parts[1];
+                if ("header".equals(parts[0])) {
+                    if (!WorksheetCalculationService.headerKeys().contains(field)) {
+                        throw new BusinessRuleException("Computed variable '" + variable.id() + "' references unknown header value: " + ref);
+                    }
+                } else if (!sectionFields.containsKey(parts[0])) {
+                    throw new BusinessRuleException("Computed variable '" + variable.id() + "' references unknown section: " + ref);
+                } else {
+                    Set<String> fields = sectionFields.get(parts[0]);
+                    if (fields != null && !fields.contains(field)) {
+                        throw new BusinessRuleException("Computed variable '" + variable.id() + "' references unknown field: " + ref);
+                    }
+                }
+            }
+        }
     }
 
     private void validateSection(Map<String, Object> section, Set<String> allFieldIds) {
         if (!section.containsKey("id") || section.get("id") == null) {
-            throw new IllegalArgumentException("Every section must have an 'id'");
+            throw new BusinessRuleException("Every section must have an 'id'");
         }
         if (!section.containsKey("type") || section.get("type") == null) {
-            throw new IllegalArgumentException("Section '" + section.get("id") + "' must have a 'type'");
+            throw new BusinessRuleException("Section '" + section.get("id") + "' must have a 'type'");
         }
 
-        String type = (String) section.get("type");
+        String type = text(section, "type");
 
         if (section.containsKey("hasMultiDaySpecimen") && Boolean.TRUE.equals(section.get("hasMultiDaySpecimen"))) {
             if (!"DATA_TABLE".equals(type) && !"GROUPED_TABLE".equals(type)) {
-                throw new IllegalArgumentException("Section '" + section.get("id") + "' hasMultiDaySpecimen is only allowed on DATA_TABLE or GROUPED_TABLE");
+                throw new BusinessRuleException("Section '" + section.get("id") + "' hasMultiDaySpecimen is only allowed on DATA_TABLE or GROUPED_TABLE");
             }
             if (!"COLUMNS_AS_TRIALS".equals(section.get("orientation"))) {
-                throw new IllegalArgumentException("Section '" + section.get("id") + "' hasMultiDaySpecimen requires COLUMNS_AS_TRIALS orientation");
+                throw new BusinessRuleException("Section '" + section.get("id") + "' hasMultiDaySpecimen requires COLUMNS_AS_TRIALS orientation");
             }
             if (Boolean.FALSE.equals(section.get("isSpecimenData"))) {
-                throw new IllegalArgumentException("Section '" + section.get("id") + "': isSpecimenData cannot be false when hasMultiDaySpecimen is true");
+                throw new BusinessRuleException("Section '" + section.get("id") + "': isSpecimenData cannot be false when hasMultiDaySpecimen is true");
             }
         }
 
@@ -76,7 +130,7 @@ public class SchemaValidator {
             case "CHART":
                 break;
             default:
-                throw new IllegalArgumentException("Unknown section type: " + type);
+                throw new BusinessRuleException("Unknown section type: " + type);
         }
     }
 
@@ -88,17 +142,47 @@ public class SchemaValidator {
             arrayKey = "dataColumns";
         }
 
-        if (section.containsKey(arrayKey)) {
-            List<Map<String, Object>> fields = (List<Map<String, Object>>) section.get(arrayKey);
+        if (section.get(arrayKey) != null) {
+            List<Map<String, Object>> fields = objects(section.get(arrayKey), "'" + arrayKey + "' of section '" + section.get("id") + "'");
             for (Map<String, Object> field : fields) {
                 if (!field.containsKey("id") || field.get("id") == null) {
-                    throw new IllegalArgumentException("Field inside section '" + section.get("id") + "' is missing an 'id'");
+                    throw new BusinessRuleException("Field inside section '" + section.get("id") + "' is missing an 'id'");
                 }
-                String fieldId = (String) field.get("id");
+                String fieldId = text(field, "id");
                 if (!allFieldIds.add(fieldId)) {
-                    throw new IllegalArgumentException("Duplicate field id found: " + fieldId);
+                    throw new BusinessRuleException("Duplicate field id found: " + fieldId);
                 }
             }
         }
     }
+
+    /**
+     * A JSON array of objects, as the deserialized schema holds it.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> objects(Object value, String name) {
+        if (!(value instanceof List<?> list)) {
+            throw new BusinessRuleException(name + " must be an array");
+        }
+        List<Map<String, Object>> objects = new ArrayList<>(list.size());
+        for (Object item : list) {
+            if (!(item instanceof Map<?, ?> map)) {
+                throw new BusinessRuleException(name + " must only contain objects");
+            }
+            // JSON object keys are always strings
+            objects.add((Map<String, Object>) map);
+        }
+        return objects;
+    }
+
+    /**
+     * A string property of a schema object, or null when absent.
+     */
+    private static String text(Map<String, Object> object, String key) {
+        Object value = object.get(key);
+        if (value != null && !(value instanceof String)) {
+            throw new BusinessRuleException("'" + key + "' must be a string, got: " + value);
+        }
+        return (String) value;
+    }
 }
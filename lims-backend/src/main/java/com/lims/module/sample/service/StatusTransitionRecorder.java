@@ -0,0 +1,127 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.hibernate.BeforeCommitListener;
+import com.lims.module.sample.entity.Sample;
+import com.lims.module.sample.entity.SampleTest;
+import com.lims.module.sample.entity.StatusTransition;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Appends a row to {@code status_transitions} for every status a sample or sample test takes,
+ * including the one it is created in, with the client and product looked up from the sample in
+ * the insert itself; {@link TatAnalyticsService} folds them into the TAT histograms later.
+ * <p>
+ * Bulk JPQL and native SQL must record their own transitions.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatusTransitionRecorder extends BeforeCommitListener<List<StatusTransitionRecorder.Row>>
+        implements PostInsertEventListener, PostUpdateEventListener {
+
+    private static final String INSERT = """
+            INSERT INTO status_transitions (entity_type, entity_id, sample_id, client_id, product_id,
+                                            test_method_id, from_status, to_status, occurred_at, aggregated)
+            SELECT ?, ?, s.id, j.client_id, s.product_id, ?, ?, ?, ?, FALSE
+            FROM samples s
+            JOIN jobs j ON j.id = s.job_id
+            WHERE s.id = ?
+            """;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void register() {
+        register(entityManagerFactory);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Sample sample) {
+            record(event.getSession(), StatusTransition.SAMPLE, sample.getId(), sample.getId(), null,
+                    null, sample.getStatus());
+        } else if (event.getEntity() instanceof SampleTest test) {
+            // Ids of the lazy associations are read from the proxies without loading them
+            record(event.getSession(), StatusTransition.SAMPLE_TEST, test.getId(), test.getSample().getId(),
+                    test.getTestMethod().getId(), null, test.getStatus());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Object entity = event.getEntity();
+        if (!(entity instanceof Sample) && !(entity instanceof SampleTest)) {
+            return;
+        }
+        String from = oldStatus(event);
+        String to = entity instanceof Sample sample ? sample.getStatus() : ((SampleTest) entity).getStatus();
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        if (entity instanceof Sample sample) {
+            record(event.getSession(), StatusTransition.SAMPLE, sample.getId(), sample.getId(), null, from, to);
+        } else {
+            SampleTest test = (SampleTest) entity;
+            record(event.getSession(), StatusTransition.SAMPLE_TEST, test.getId(), test.getSample().getId(),
+                    test.getTestMethod().getId(), from, to);
+        }
+    }
+
+    private static String oldStatus(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        // Detached update without a snapshot: the previous status is unknown
+        return oldState != null ? (String) oldState[propertyIndex(event.getPersister(), "status")] : null;
+    }
+
+    private void record(EventSource session, String entityType, Long entityId, Long sampleId, Long testMethodId,
+                        String from, String to) {
+        pendingFor(session).add(new Row(entityType, entityId, sampleId, testMethodId, from, to, Instant.now()));
+    }
+
+    @Override
+    protected List<Row> newPending() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    protected void beforeCommit(List<Row> rows, Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            for (Row row : rows) {
+                ps.setString(1, row.entityType());
+                ps.setLong(2, row.entityId());
+                if (row.testMethodId() != null) {
+                    ps.setLong(3, row.testMethodId());
+                } else {
+                    ps.setNull(3, Types.BIGINT);
+                }
+                ps.setString(4, row.from());
+                ps.setString(5, row.to());
+                ps.setTimestamp(6, Timestamp.from(row.occurredAt()));
+                ps.setLong(7, row.sampleId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** One transition, in the order they happened within the transaction. */
+    record Row(String entityType, Long entityId, Long sampleId, Long testMethodId,
+               String from, String to, Instant occurredAt) {}
+}
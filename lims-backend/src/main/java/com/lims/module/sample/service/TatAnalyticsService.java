@@ -0,0 +1,221 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.common.stats.LatencyHistogram;
+import com.lims.module.sample.dto.TatReportDTO;
+import com.lims.module.sample.entity.StatusTransition;
+import com.lims.module.sample.entity.TatHistogramBucketId;
+import com.lims.module.sample.repository.StatusTransitionRepository;
+import com.lims.module.sample.repository.TatHistogramRepository;
+import com.lims.module.sample.repository.TatHistogramWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Turnaround analytics from the status transition log. Transitions recorded by
+ * {@link StatusTransitionRecorder} are folded, in batches, into {@link LatencyHistogram} bucket
+ * counts per metric, status, client, product, test method and day. The TAT report sums the buckets
+ * of the requested slice, so its cost depends on the number of days and dimensions asked for, not
+ * on the number of samples.
+ * <p>
+ * Metrics:
+ * <ul>
+ *   <li>{@code SAMPLE_TAT}: sample received (registered, if never received) to authorized</li>
+ *   <li>{@code TEST_TAT}: sample test created to authorized</li>
+ *   <li>{@code SAMPLE_DWELL} / {@code TEST_DWELL}: time spent in each status before leaving it</li>
+ * </ul>
+ * Durations are attributed to the UTC day of the transition that ends them.
+ */
+@Service
+@Slf4j
+public class TatAnalyticsService {
+
+    public static final String SAMPLE_TAT = "SAMPLE_TAT";
+    public static final String TEST_TAT = "TEST_TAT";
+    public static final String SAMPLE_DWELL = "SAMPLE_DWELL";
+    public static final String TEST_DWELL = "TEST_DWELL";
+
+    private static final List<String> METRIC_ORDER = List.of(SAMPLE_TAT, TEST_TAT, SAMPLE_DWELL, TEST_DWELL);
+
+    /** Test method id stored for sample-level metrics, so it can be part of the key. */
+    private static final long NO_TEST_METHOD = 0L;
+
+    private static final int DEFAULT_REPORT_DAYS = 90;
+
+    private final StatusTransitionRepository transitionRepository;
+    private final TatHistogramRepository histogramRepository;
+    private final TatHistogramWriter histogramWriter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${lims.analytics.tat.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${lims.analytics.tat.settle-seconds:60}")
+    private long settleSeconds;
+
+    public TatAnalyticsService(StatusTransitionRepository transitionRepository,
+                               TatHistogramRepository histogramRepository,
+                               TatHistogramWriter histogramWriter,
+                               PlatformTransactionManager transactionManager) {
+        this.transitionRepository = transitionRepository;
+        this.histogramRepository = histogramRepository;
+        this.histogramWriter = histogramWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Folds new transitions into the histograms, one batch per transaction. Only transitions older
+     * than the settle time are taken, so transactions still committing earlier transitions of the
+     * same sample have finished.
+     */
+    @Scheduled(fixedDelayString = "${lims.analytics.tat.aggregate-interval-ms:60000}")
+    public void aggregate() {
+        long total = 0;
+        while (true) {
+            Integer processed = transactionTemplate.execute(status -> aggregateBatch());
+            if (processed == null || processed == 0) break;
+            total += processed;
+            if (processed < batchSize) break;
+        }
+        if (total > 0) {
+            log.debug("Aggregated {} status transition(s) into TAT histograms", total);
+        }
+    }
+
+    private int aggregateBatch() {
+        Instant before = Instant.now().minusSeconds(settleSeconds);
+        List<StatusTransition> batch = transitionRepository.findUnaggregated(before, PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Map<Long, List<StatusTransition>>> histories = new HashMap<>();
+        for (String type : List.of(StatusTransition.SAMPLE, StatusTransition.SAMPLE_TEST)) {
+            List<Long> ids = batch.stream()
+                    .filter(t -> type.equals(t.getEntityType()))
+                    .map(StatusTransition::getEntityId)
+                    .distinct()
+                    .toList();
+            if (ids.isEmpty()) continue;
+            histories.put(type, transitionRepository.findHistory(type, ids).stream()
+                    .collect(Collectors.groupingBy(StatusTransition::getEntityId, LinkedHashMap::new, Collectors.toList())));
+        }
+
+        Map<TatHistogramBucketId, Long> counts = new HashMap<>();
+        for (StatusTransition transition : batch) {
+            List<StatusTransition> history = histories.get(transition.getEntityType()).get(transition.getEntityId());
+            collect(transition, history, counts);
+        }
+
+        histogramWriter.increment(counts);
+        transitionRepository.markAggregated(batch.stream().map(StatusTransition::getId).toList());
+        return batch.size();
+    }
+
+    private static void collect(StatusTransition transition, List<StatusTransition> history,
+                                Map<TatHistogramBucketId, Long> counts) {
+        int index = indexOf(history, transition);
+        if (index <= 0) {
+            // Creation of the sample or test: nothing has elapsed yet
+            return;
+        }
+        boolean sample = StatusTransition.SAMPLE.equals(transition.getEntityType());
+
+        StatusTransition previous = history.get(index - 1);
+        add(counts, transition, sample ? SAMPLE_DWELL : TEST_DWELL, previous.getToStatus(), previous.getOccurredAt());
+
+        if ("AUTHORIZED".equals(transition.getToStatus())) {
+            StatusTransition start = history.get(0);
+            if (sample) {
+                for (int i = index - 1; i >= 0; i--) {
+                    if ("RECEIVED".equals(history.get(i).getToStatus())) {
+                        start = history.get(i);
+                        break;
+                    }
+                }
+            }
+            add(counts, transition, sample ? SAMPLE_TAT : TEST_TAT, "AUTHORIZED", start.getOccurredAt());
+        }
+    }
+
+    private static int indexOf(List<StatusTransition> history, StatusTransition transition) {
+        for (int i = 0; i < history.size(); i++) {
+            if (history.get(i).getId().equals(transition.getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void add(Map<TatHistogramBucketId, Long> counts, StatusTransition end,
+                            String metric, String status, Instant start) {
+        long seconds = Math.max(0, Duration.between(start, end.getOccurredAt()).getSeconds());
+        TatHistogramBucketId id = new TatHistogramBucketId(
+                metric,
+                status,
+                end.getClientId(),
+                end.getProductId(),
+                end.getTestMethodId() != null ? end.getTestMethodId() : NO_TEST_METHOD,
+                LocalDate.ofInstant(end.getOccurredAt(), ZoneOffset.UTC),
+                LatencyHistogram.bucketOf(seconds));
+        counts.merge(id, 1L, Long::sum);
+    }
+
+    /**
+     * Turnaround per metric and status between two UTC days (inclusive; the last
+     * {@value #DEFAULT_REPORT_DAYS} days by default), optionally for one client, product or test
+     * method. Percentiles are read from the histogram and are within 10% of the exact value.
+     */
+    @Transactional(readOnly = true)
+    public List<TatReportDTO> report(LocalDate from, LocalDate to, Long clientId, Long productId, Long testMethodId) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_REPORT_DAYS - 1);
+        if (start.isAfter(end)) {
+            throw new BusinessRuleException("TAT report start date is after its end date");
+        }
+
+        Map<List<String>, LatencyHistogram> histograms = new LinkedHashMap<>();
+        for (Object[] row : histogramRepository.sumBuckets(start, end, clientId, productId, testMethodId)) {
+            histograms.computeIfAbsent(List.of((String) row[0], (String) row[1]), k -> new LatencyHistogram())
+                    .add(((Number) row[2]).intValue(), ((Number) row[3]).longValue());
+        }
+
+        List<TatReportDTO> report = new ArrayList<>();
+        histograms.forEach((key, histogram) -> report.add(TatReportDTO.builder()
+                .metric(key.get(0))
+                .status(key.get(1))
+                .count(histogram.count())
+                .averageTatHours(hours(histogram.mean()))
+                .minTatHours(hours(histogram.min()))
+                .maxTatHours(hours(histogram.max()))
+                .p50TatHours(hours(histogram.percentile(50)))
+                .p90TatHours(hours(histogram.percentile(90)))
+                .p99TatHours(hours(histogram.percentile(99)))
+                .build()));
+        report.sort(Comparator.comparingInt((TatReportDTO r) -> METRIC_ORDER.indexOf(r.getMetric()))
+                .thenComparing(Comparator.comparingLong(TatReportDTO::getCount).reversed()));
+        return report;
+    }
+
+    private static double hours(double seconds) {
+        return seconds / 3600.0;
+    }
+}
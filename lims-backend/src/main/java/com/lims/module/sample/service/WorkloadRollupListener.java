@@ -0,0 +1,104 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.hibernate.BeforeCommitListener;
+import com.lims.module.sample.entity.SampleTest;
+import com.lims.module.sample.entity.WorkloadRollupId;
+import com.lims.module.sample.repository.WorkloadRollupDao;
+import com.lims.module.security.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps {@code workload_rollups} current as sample tests are created, assigned, submitted,
+ * authorized and deleted. Each change adds contributions per {@link WorkloadRollupRules}; before
+ * commit they are summed, with result entry analysts of unassigned tests looked up in one query.
+ * <p>
+ * {@link WorkloadRollupService#rebuild()} recomputes the rollups from the audit trail, including
+ * changes that bypassed the session.
+ */
+@Component
+@RequiredArgsConstructor
+public class WorkloadRollupListener extends BeforeCommitListener<List<WorkloadRollupRules.Contribution>>
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final WorkloadRollupDao workloadRollupDao;
+
+    @PostConstruct
+    void register() {
+        register(entityManagerFactory);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof SampleTest test) {
+            record(event.getSession(), test.getId(), null, null, idOf(test.getAssignedTo()), test.getStatus());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof SampleTest test) || event.getOldState() == null) {
+            return;
+        }
+        Object[] oldState = event.getOldState();
+        record(event.getSession(), test.getId(),
+                idOf((User) oldState[propertyIndex(event.getPersister(), "assignedTo")]),
+                (String) oldState[propertyIndex(event.getPersister(), "status")],
+                idOf(test.getAssignedTo()), test.getStatus());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof SampleTest test) {
+            record(event.getSession(), test.getId(), idOf(test.getAssignedTo()), test.getStatus(), null, null);
+        }
+    }
+
+    private void record(EventSource session, Long sampleTestId, Long oldAssignee, String oldStatus,
+                        Long newAssignee, String newStatus) {
+        List<WorkloadRollupRules.Contribution> changes = new ArrayList<>();
+        WorkloadRollupRules.changes(sampleTestId, oldAssignee, oldStatus, newAssignee, newStatus,
+                LocalDate.now(ZoneOffset.UTC), changes);
+        if (changes.isEmpty()) return;
+        pendingFor(session).addAll(changes);
+    }
+
+    private static Long idOf(User user) {
+        // The id of a lazy proxy is read without loading the user
+        return user != null ? user.getId() : null;
+    }
+
+    @Override
+    protected List<WorkloadRollupRules.Contribution> newPending() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    protected void beforeCommit(List<WorkloadRollupRules.Contribution> contributions, Connection connection) throws SQLException {
+        List<Long> unresolved = WorkloadRollupRules.unresolvedTests(contributions);
+        Map<Long, Long> resultAnalysts = unresolved.isEmpty()
+                ? Map.of() : workloadRollupDao.resultAnalysts(connection, unresolved);
+        Map<WorkloadRollupId, Long> deltas = new HashMap<>();
+        WorkloadRollupRules.sum(contributions, resultAnalysts, deltas);
+        workloadRollupDao.increment(connection, deltas);
+    }
+}
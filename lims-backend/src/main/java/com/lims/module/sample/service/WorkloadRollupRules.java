@@ -0,0 +1,82 @@
+package com.lims.module.sample.service;
+
+import com.lims.module.sample.entity.WorkloadRollup;
+import com.lims.module.sample.entity.WorkloadRollupId;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * What one change of a sample test adds to the workload rollups. Shared by the live listener and
+ * the rebuild from the audit trail, so both count the same way.
+ * <p>
+ * Open tests are those assigned and {@code PENDING} or {@code IN_PROGRESS}; their count depends only
+ * on the states before and after a change, so the deltas add up however the changes are grouped.
+ * Submissions and authorizations are credited to the assigned analyst or, for unassigned tests,
+ * to whoever entered the test's result.
+ */
+final class WorkloadRollupRules {
+
+    private static final Set<String> OPEN_STATUSES = Set.of("PENDING", "IN_PROGRESS");
+    private static final Set<String> SUBMITTED_STATUSES = Set.of("UNDER_REVIEW", "COMPLETED");
+    private static final Set<String> AUTHORIZED_STATUSES = Set.of("AUTHORIZED");
+
+    /** One delta; {@code analystId} is null while it still has to be looked up from the test's results. */
+    record Contribution(long sampleTestId, Long analystId, LocalDate day, String bucket, long delta) {}
+
+    private WorkloadRollupRules() {}
+
+    static void changes(long sampleTestId, Long oldAssignee, String oldStatus, Long newAssignee, String newStatus,
+                        LocalDate day, Collection<Contribution> out) {
+        if (newAssignee != null && !newAssignee.equals(oldAssignee)) {
+            out.add(new Contribution(sampleTestId, newAssignee, day, WorkloadRollup.ASSIGNED, 1));
+        }
+
+        Long wasOpenFor = oldAssignee != null && in(OPEN_STATUSES, oldStatus) ? oldAssignee : null;
+        Long isOpenFor = newAssignee != null && in(OPEN_STATUSES, newStatus) ? newAssignee : null;
+        if (!Objects.equals(wasOpenFor, isOpenFor)) {
+            if (wasOpenFor != null) out.add(new Contribution(sampleTestId, wasOpenFor, day, WorkloadRollup.OPEN, -1));
+            if (isOpenFor != null) out.add(new Contribution(sampleTestId, isOpenFor, day, WorkloadRollup.OPEN, 1));
+        }
+
+        if (entered(SUBMITTED_STATUSES, oldStatus, newStatus)) {
+            out.add(new Contribution(sampleTestId, newAssignee, day, WorkloadRollup.SUBMITTED, 1));
+        }
+        if (entered(AUTHORIZED_STATUSES, oldStatus, newStatus)) {
+            out.add(new Contribution(sampleTestId, newAssignee, day, WorkloadRollup.AUTHORIZED, 1));
+        }
+    }
+
+    /**
+     * Sums contributions per rollup row. Those without an analyst take the result entry analyst
+     * from {@code resultAnalysts} and are dropped if the test has none.
+     */
+    static void sum(List<Contribution> contributions, Map<Long, Long> resultAnalysts, Map<WorkloadRollupId, Long> into) {
+        for (Contribution c : contributions) {
+            Long analyst = c.analystId() != null ? c.analystId() : resultAnalysts.get(c.sampleTestId());
+            if (analyst == null) continue;
+            into.merge(new WorkloadRollupId(analyst, c.day(), c.bucket()), c.delta(), Long::sum);
+        }
+    }
+
+    static List<Long> unresolvedTests(List<Contribution> contributions) {
+        return contributions.stream()
+                .filter(c -> c.analystId() == null)
+                .map(Contribution::sampleTestId)
+                .distinct()
+                .toList();
+    }
+
+    private static boolean entered(Set<String> statuses, String oldStatus, String newStatus) {
+        return in(statuses, newStatus) && !in(statuses, oldStatus);
+    }
+
+    private static boolean in(Set<String> statuses, String status) {
+        // Set.of rejects null lookups; a test that does not exist yet has no status
+        return status != null && statuses.contains(status);
+    }
+}
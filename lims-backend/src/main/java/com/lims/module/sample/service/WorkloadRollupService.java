@@ -0,0 +1,270 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.module.sample.dto.WorkloadReportDTO;
+import com.lims.module.sample.entity.WorkloadRollupId;
+import com.lims.module.sample.repository.WorkloadRollupDao;
+import com.lims.module.sample.repository.WorkloadRollupDao.AuditedState;
+import com.lims.module.sample.repository.WorkloadRollupRepository;
+import com.lims.module.security.entity.User;
+import com.lims.module.security.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Analyst workload from {@code workload_rollups}, which {@link WorkloadRollupListener} keeps
+ * current. A report reads the rows of the requested days only (open tests: all days up to the
+ * end of the range), never the sample tests.
+ * <p>
+ * {@link #rebuild()} recomputes the rollups from the sample test audit trail: ranges of sample
+ * test ids are replayed in parallel up to the newest revision at the start, then the rollups are
+ * locked, tests with revisions committed meanwhile are replayed again, and the table is replaced in
+ * one transaction. Revision numbers are taken before commit, so a revision committed meanwhile may
+ * be numbered below that cutoff; the parallel replay leaves out the numbers that had no committed
+ * revision at the start, and the tests of any that have one by then are replayed under the lock.
+ */
+@Service
+@Slf4j
+public class WorkloadRollupService {
+
+    /** Start of the report range when none is given. */
+    private static final LocalDate EPOCH = LocalDate.of(1970, 1, 1);
+
+    private final WorkloadRollupRepository workloadRollupRepository;
+    private final WorkloadRollupDao workloadRollupDao;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int parallelism;
+    private final long chunkSize;
+    private final boolean rebuildOnStartup;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService startupThread = Executors.newSingleThreadExecutor();
+
+    public WorkloadRollupService(WorkloadRollupRepository workloadRollupRepository,
+                                 WorkloadRollupDao workloadRollupDao,
+                                 UserRepository userRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${lims.reports.workload.rebuild-parallelism:4}") int parallelism,
+                                 @Value("${lims.reports.workload.rebuild-chunk-size:5000}") long chunkSize,
+                                 @Value("${lims.reports.workload.rebuild-on-startup:true}") boolean rebuildOnStartup) {
+        this.workloadRollupRepository = workloadRollupRepository;
+        this.workloadRollupDao = workloadRollupDao;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    /**
+     * Workload per analyst between two UTC days (inclusive; from the first recorded day to today by
+     * default): tests assigned, submitted and authorized in the range, and tests open at its end.
+     */
+    @Transactional(readOnly = true)
+    public List<WorkloadReportDTO> report(LocalDate from, LocalDate to) {
+        LocalDate start = from != null ? from : EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        if (start.isAfter(end)) {
+            throw new BusinessRuleException("Workload report start date is after its end date");
+        }
+
+        List<Object[]> rows = workloadRollupRepository.sumByAnalyst(start, end);
+        Map<Long, String> names = userRepository.findAllById(rows.stream().map(row -> (Long) row[0]).toList()).stream()
+                .collect(Collectors.toMap(User::getId, User::getDisplayName));
+        return rows.stream()
+                .map(row -> WorkloadReportDTO.builder()
+                        .analystName(names.getOrDefault((Long) row[0], "User " + row[0]))
+                        .testsAssigned(((Number) row[1]).longValue())
+                        .testsCompleted(((Number) row[2]).longValue())
+                        .testsAuthorized(((Number) row[3]).longValue())
+                        .testsPending(((Number) row[4]).longValue())
+                        .build())
+                .filter(dto -> dto.getTestsAssigned() + dto.getTestsCompleted() + dto.getTestsAuthorized()
+                        + dto.getTestsPending() > 0)
+                .sorted(Comparator.comparingLong(WorkloadReportDTO::getTestsAssigned).reversed()
+                        .thenComparing(WorkloadReportDTO::getAnalystName))
+                .toList();
+    }
+
+    /**
+     * Recomputes every rollup from the audit trail.
+     *
+     * @return the number of chunks replayed and rollup rows written
+     */
+    public Map<String, Long> rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new BusinessRuleException("A workload rollup rebuild is already running");
+        }
+        try {
+            return doRebuild();
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private Map<String, Long> doRebuild() {
+        long cutoff = jdbc(workloadRollupDao::latestRevision);
+        List<long[]> gaps = jdbc(connection -> workloadRollupDao.revisionGaps(connection, cutoff));
+        Replayed replayed = new Replayed(cutoff, gaps);
+        long[] range = jdbc(workloadRollupDao::auditedTestIdRange);
+
+        Map<WorkloadRollupId, Long> totals = new ConcurrentHashMap<>();
+        long chunks = 0;
+        if (range != null) {
+            ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (long from = range[0]; from <= range[1]; from += chunkSize) {
+                    long fromId = from;
+                    long toId = Math.min(range[1], from + chunkSize - 1);
+                    futures.add(pool.submit(() -> replayChunk(fromId, toId, replayed, totals)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                chunks = futures.size();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Workload rollup rebuild interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Workload rollup rebuild failed", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        // Changes committed since the start either show up in the audit trail now or, while the
+        // lock is held, wait and apply their deltas on top of the replaced rows. A test changed
+        // meanwhile is replayed in full, less what the parallel replay counted for it.
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            workloadRollupDao.lock(connection);
+            Set<Long> changed = new TreeSet<>(workloadRollupDao.testsChangedAfter(connection, cutoff));
+            List<Long> late = workloadRollupDao.revisionsIn(connection, gaps);
+            if (!late.isEmpty()) {
+                changed.addAll(workloadRollupDao.testsChangedIn(connection, late));
+            }
+            if (!changed.isEmpty()) {
+                List<AuditedState> states = workloadRollupDao.auditedStates(connection, changed);
+                replay(connection, states, 1, totals);
+                replay(connection, states.stream().filter(replayed::includes).toList(), -1, totals);
+            }
+            workloadRollupDao.replaceAll(connection, totals);
+            return null;
+        }));
+
+        long rows = totals.values().stream().filter(count -> count != 0).count();
+        log.info("Rebuilt workload rollups: {} chunk(s) replayed, {} row(s) written", chunks, rows);
+        return Map.of("chunks", chunks, "rows", rows);
+    }
+
+    private void replayChunk(long fromId, long toId, Replayed replayed, Map<WorkloadRollupId, Long> totals) {
+        jdbc(connection -> {
+            List<AuditedState> states = workloadRollupDao.auditedStates(connection, fromId, toId, replayed.cutoff());
+            replay(connection, states.stream().filter(replayed::includes).toList(), 1, totals);
+            return null;
+        });
+    }
+
+    /**
+     * Replays audited states (per test in revision order) through {@link WorkloadRollupRules},
+     * adding the resulting counts times {@code sign} to {@code totals}.
+     */
+    private void replay(Connection connection, List<AuditedState> states, int sign,
+                        Map<WorkloadRollupId, Long> totals) throws SQLException {
+        List<WorkloadRollupRules.Contribution> contributions = new ArrayList<>();
+        AuditedState previous = null;
+        for (AuditedState state : states) {
+            if (previous != null && previous.sampleTestId() != state.sampleTestId()) {
+                previous = null;
+            }
+            WorkloadRollupRules.changes(state.sampleTestId(),
+                    previous != null ? previous.assigneeId() : null, previous != null ? previous.status() : null,
+                    state.assigneeId(), state.status(),
+                    LocalDate.ofInstant(state.at(), ZoneOffset.UTC), contributions);
+            previous = state;
+        }
+
+        List<Long> unresolved = WorkloadRollupRules.unresolvedTests(contributions);
+        Map<Long, Long> resultAnalysts = unresolved.isEmpty()
+                ? Map.of() : workloadRollupDao.resultAnalysts(connection, unresolved);
+        Map<WorkloadRollupId, Long> sums = new HashMap<>();
+        WorkloadRollupRules.sum(contributions, resultAnalysts, sums);
+        sums.forEach((id, delta) -> totals.merge(id, sign * delta, Long::sum));
+    }
+
+    /**
+     * The revisions the parallel replay counts: those up to the cutoff that were committed when it
+     * was taken, i.e. outside the gaps in the revision numbers at that time.
+     */
+    private record Replayed(long cutoff, List<long[]> gaps) {
+
+        boolean includes(AuditedState state) {
+            long revision = state.revision();
+            if (revision > cutoff) return false;
+            int low = 0;
+            int high = gaps.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long[] gap = gaps.get(mid);
+                if (revision < gap[0]) high = mid - 1;
+                else if (revision > gap[1]) low = mid + 1;
+                else return false;
+            }
+            return true;
+        }
+    }
+
+    private <T> T jdbc(ConnectionCallback<T> work) {
+        return jdbcTemplate.execute(work);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuildInBackground() {
+        if (!rebuildOnStartup) return;
+        startupThread.submit(() -> {
+            try {
+                if (workloadRollupRepository.count() > 0) return;
+                log.info("Workload rollups are empty; rebuilding them from the audit trail");
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Workload rollup rebuild stopped", e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        startupThread.shutdownNow();
+    }
+}
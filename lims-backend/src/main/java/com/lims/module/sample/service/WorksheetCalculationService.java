@@ -0,0 +1,63 @@
+package com.lims.module.sample.service;
+
+import com.lims.module.sample.entity.Job;
+import com.lims.module.sample.entity.SampleTest;
+import com.lims.module.sample.entity.WorksheetData;
+import com.lims.module.sample.formula.WorksheetValues;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Server-side calculation stage: computes a worksheet's {@code calculatedResults} from its data
+ * with the computed-variable engine, so stored results never depend on what the browser sent.
+ */
+@Service
+@RequiredArgsConstructor
+public class WorksheetCalculationService {
+
+    /** The {@code header.*} values by key, each read from the sample test. */
+    private static final Map<String, Function<SampleTest, String>> HEADERS = Map.of(
+            "sampleId", st -> st.getSample().getSampleNumber(),
+            "customer", st -> {
+                Job job = st.getSample().getJob();
+                return job != null && job.getClient() != null ? job.getClient().getName() : "";
+            },
+            "testMethod", st -> st.getTestMethod().getName(),
+            "receivedAt", st -> st.getSample().getReceivedAt() != null ? st.getSample().getReceivedAt().toString() : "");
+
+    private final ComputedVariableEvaluator computedVariableEvaluator;
+
+    /**
+     * Evaluates the computed variables of the worksheet's method definition against {@code data}.
+     *
+     * @return formatted results keyed by variable id
+     */
+    public Map<String, Object> calculate(WorksheetData wd, Map<String, Object> data) {
+        if (wd.getMethodDefinition() == null) return new HashMap<>();
+        WorksheetValues values = new WorksheetValues(data != null ? data : Map.of(), headerValues(wd.getSampleTest()));
+        return new LinkedHashMap<>(computedVariableEvaluator.evaluateAll(wd.getMethodDefinition(), values));
+    }
+
+    /**
+     * The keys formulas may reference as {@code header.<key>}.
+     */
+    public static Set<String> headerKeys() {
+        return HEADERS.keySet();
+    }
+
+    /**
+     * The {@code header.*} values formulas and report templates can reference.
+     */
+    public static Map<String, String> headerValues(SampleTest st) {
+        Map<String, String> headers = new HashMap<>();
+        if (st == null) return headers;
+        HEADERS.forEach((key, value) -> headers.put("header." + key, value.apply(st)));
+        return headers;
+    }
+}
@@ -4,15 +4,22 @@ import com.lims.module.sample.dto.WorksheetSubmitRequest;
 import com.lims.module.sample.dto.SpecimenSubmitRequest;
 import com.lims.module.sample.dto.SpecimenDTO;
 import com.lims.module.sample.dto.ReviewerEditRequest;
+import com.lims.module.sample.dto.WorksheetPatchRequest;
 import com.lims.module.sample.entity.*;
 import com.lims.module.sample.repository.SampleRepository;
 import com.lims.module.sample.repository.SampleTestRepository;
 import com.lims.module.sample.repository.TestResultRepository;
 import com.lims.module.sample.repository.WorksheetDataRepository;
 import com.lims.module.sample.repository.SpecimenRepository;
+import com.lims.module.sample.repository.WorksheetDataPatchWriter;
+import com.lims.module.sample.schema.CompiledSchema;
+import com.lims.module.sample.schema.SpecimenFingerprint;
 import com.lims.module.security.entity.User;
 import com.lims.module.security.repository.UserRepository;
+import com.lims.module.notification.dto.WorksheetPatchEvent;
 import com.lims.module.notification.service.DataSyncService;
+import com.lims.common.exception.ConflictException;
+import com.lims.common.json.JsonPatch;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -20,9 +27,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -36,6 +46,8 @@ public class WorksheetDataService {
         SUBMIT, REVIEW, AUTHORIZE
     }
 
+    private static final Object UNMAPPED = new Object();
+
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm").withZone(ZoneId.systemDefault());
 
     private final WorksheetDataRepository worksheetDataRepository;
@@ -46,9 +58,54 @@ public class WorksheetDataService {
     private final DataSyncService dataSyncService;
     private final MethodDefinitionService methodDefinitionService;
     private final SpecimenRepository specimenRepository;
-
+    private final CompiledSchemaCache compiledSchemaCache;
+    private final WorksheetDataPatchWriter worksheetDataPatchWriter;
+    private final WorksheetRevisionService worksheetRevisionService;
+    private final WorksheetCalculationService worksheetCalculationService;
+
+    /**
+     * Builds the worksheet response from two projection queries (worksheet with header context,
+     * specimen statuses with result ids and user names), independent of the number of specimens.
+     * The worksheet is created from the active method definition on first access.
+     */
     @Transactional
     public Map<String, Object> getWorksheet(Long sampleTestId) {
+        List<Object[]> view = worksheetDataRepository.findWorksheetView(sampleTestId);
+        if (view.isEmpty()) {
+            createWorksheet(sampleTestId);
+            view = worksheetDataRepository.findWorksheetView(sampleTestId);
+        }
+        Object[] row = view.get(0);
+        Long sampleId = (Long) row[4];
+
+        Map<Long, SpecimenDTO> specimenStatuses = new LinkedHashMap<>();
+        for (Object[] sp : specimenRepository.findWorksheetSpecimenStatuses(sampleId, sampleTestId)) {
+            specimenStatuses.putIfAbsent((Long) sp[0], SpecimenDTO.builder()
+                    .id((Long) sp[0])
+                    .sampleId(sampleId)
+                    .specimenNumber((Integer) sp[1])
+                    .label((String) sp[2])
+                    .scheduledTestDate((LocalDate) sp[3])
+                    .status((String) sp[4])
+                    .testedBy((String) sp[5])
+                    .testedAt((Instant) sp[6])
+                    .authorizedBy((String) sp[7])
+                    .authorizedAt((Instant) sp[8])
+                    .testResultId((Long) sp[9])
+                    .build());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("schema", row[3]);
+        response.put("data", row[0] != null ? row[0] : Map.of());
+        response.put("status", row[1]);
+        response.put("version", row[2]);
+        response.put("context", buildContextData(row));
+        response.put("specimenStatuses", new ArrayList<>(specimenStatuses.values()));
+        return response;
+    }
+
+    private void createWorksheet(Long sampleTestId) {
         SampleTest st = sampleTestRepository.findById(sampleTestId)
                 .orElseThrow(() -> new RuntimeException("Sample test not found"));
 
@@ -57,48 +114,15 @@ public class WorksheetDataService {
             throw new RuntimeException("No active worksheet definition found for this test method");
         }
 
-        WorksheetData wd = worksheetDataRepository.findBySampleTestId(sampleTestId)
-                .orElseGet(() -> {
-                    // Create if not exists - dynamic lazy initialization
-                    WorksheetData newWd = new WorksheetData();
-                    newWd.setSampleTest(st);
-                    newWd.setMethodDefinition(activeDef);
-                    newWd.setStatus("DRAFT");
-                    
-                    // Pre-fill from system mapping
-                    Map<String, Object> initialData = prefillSystemMappedData(st, activeDef);
-                    newWd.setData(initialData);
-                    
-                    return worksheetDataRepository.save(newWd);
-                });
-        
-        List<SpecimenDTO> specimenStatuses = specimenRepository.findBySampleIdOrderBySpecimenNumberAsc(st.getSample().getId())
-                .stream().map(sp -> {
-                    Long trId = testResultRepository.findBySampleTestIdAndSpecimenId(sampleTestId, sp.getId())
-                            .map(TestResult::getId).orElse(null);
-                    return SpecimenDTO.builder()
-                        .id(sp.getId())
-                        .sampleId(sp.getSample().getId())
-                        .specimenNumber(sp.getSpecimenNumber())
-                        .label(sp.getLabel())
-                        .scheduledTestDate(sp.getScheduledTestDate())
-                        .status(sp.getStatus())
-                        .testedBy(sp.getTestedBy() != null ? sp.getTestedBy().getDisplayName() : null)
-                        .testedAt(sp.getTestedAt())
-                        .authorizedBy(sp.getAuthorizedBy() != null ? sp.getAuthorizedBy().getDisplayName() : null)
-                        .authorizedAt(sp.getAuthorizedAt())
-                        .testResultId(trId)
-                        .build();
-                })
-                .collect(Collectors.toList());
+        // Dynamic lazy initialization, pre-filled from system mappings
+        WorksheetData newWd = new WorksheetData();
+        newWd.setSampleTest(st);
+        newWd.setMethodDefinition(activeDef);
+        newWd.setStatus("DRAFT");
+        newWd.setData(prefillSystemMappedData(st, activeDef));
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("schema", wd.getMethodDefinition().getSchemaDefinition());
-        response.put("data", wd.getData() != null ? wd.getData() : Map.of());
-        response.put("status", wd.getStatus());
-        response.put("context", buildContextData(st));
-        response.put("specimenStatuses", specimenStatuses);
-        return response;
+        WorksheetData created = worksheetDataRepository.save(newWd);
+        worksheetRevisionService.record(created, "CREATE");
     }
 
     @Transactional
@@ -107,7 +131,7 @@ public class WorksheetDataService {
                 .orElseThrow(() -> new RuntimeException("Worksheet data not found"));
 
         SampleTest st = wd.getSampleTest();
-        validateLockStatus(st, wd.getMethodDefinition().getSchemaDefinition(), request.getData(), wd.getData());
+        validateLockStatus(st, compiledSchemaCache.get(wd.getMethodDefinition()), request.getData(), wd.getData());
 
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User currentUser = userRepository.findByUsername(username)
@@ -115,11 +139,13 @@ public class WorksheetDataService {
 
         // 1. Update WorksheetData
         wd.setData(request.getData());
-        wd.setCalculatedResults(request.getCalculatedResults());
+        // Results are computed server-side; client-supplied calculatedResults are not trusted
+        wd.setCalculatedResults(worksheetCalculationService.calculate(wd, request.getData()));
         wd.setStatus("SUBMITTED");
         wd.setSubmittedBy(currentUser);
         wd.setSubmittedAt(Instant.now());
         worksheetDataRepository.save(wd);
+        worksheetRevisionService.record(wd, "SUBMIT");
 
         // 2. The Bridge: Update TestResult
         TestResult result = st.getResults().isEmpty() ? new TestResult() : st.getResults().get(0);
@@ -170,7 +196,7 @@ public class WorksheetDataService {
                 });
 
         SampleTest st = wd.getSampleTest();
-        validateLockStatus(st, wd.getMethodDefinition().getSchemaDefinition(), request.getData(), wd.getData());
+        validateLockStatus(st, compiledSchemaCache.get(wd.getMethodDefinition()), request.getData(), wd.getData());
 
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         User currentUser = userRepository.findByUsername(username)
@@ -178,46 +204,21 @@ public class WorksheetDataService {
 
         // 1. Update WorksheetData data
         Map<String, Object> data = request.getData() != null ? new HashMap<>(request.getData()) : new HashMap<>();
-        applyLateBindingSystemMappings(wd.getMethodDefinition().getSchemaDefinition(), data, currentUser, SystemMappingPassType.SUBMIT);
+        applyLateBindingSystemMappings(compiledSchemaCache.get(wd.getMethodDefinition()), data, currentUser, SystemMappingPassType.SUBMIT);
         wd.setData(data);
-        wd.setCalculatedResults(request.getCalculatedResults());
+        wd.setCalculatedResults(worksheetCalculationService.calculate(wd, data));
         wd.setStatus(isFinal ? "SUBMITTED_FINAL" : "SUBMITTED");
         wd.setSubmittedBy(currentUser);
         wd.setSubmittedAt(Instant.now());
         wd.setInterimSubmission(!isFinal);
         wd.setSubmissionCount(wd.getSubmissionCount() + 1);
         worksheetDataRepository.save(wd);
+        worksheetRevisionService.record(wd, isFinal ? "SUBMIT_FINAL" : "SUBMIT_INTERIM");
 
         Sample sample = st.getSample();
 
-        // 2. Process each finalized specimen index
-        for (Integer index : request.getSpecimenIndices()) {
-            Integer specimenNumber = index + 1;
-            Specimen specimen = specimenRepository.findBySampleIdAndSpecimenNumber(sample.getId(), specimenNumber)
-                    .orElseGet(() -> Specimen.builder()
-                            .sample(sample)
-                            .specimenNumber(specimenNumber)
-                            .build());
-
-            specimen.setStatus("TESTED");
-            specimen.setTestedBy(currentUser);
-            specimen.setTestedAt(Instant.now());
-            Specimen savedSpecimen = specimenRepository.save(specimen);
-
-            // 3. Create or update TestResult for this specimen
-            TestResult result = testResultRepository.findBySampleTestIdAndSpecimenId(sampleTestId, savedSpecimen.getId())
-                    .orElseGet(() -> TestResult.builder()
-                            .sampleTest(st)
-                            .specimen(savedSpecimen)
-                            .build());
-
-            result.setEnteredBy(currentUser);
-            result.setEnteredAt(Instant.now());
-
-
-
-            testResultRepository.save(result);
-        }
+        // 2./3. Mark the submitted specimens TESTED and upsert their results
+        upsertSpecimenResults(st, request.getSpecimenIndices(), currentUser);
 
         // 4. Update SampleTest status
         st.setStatus("UNDER_REVIEW");
@@ -229,17 +230,114 @@ public class WorksheetDataService {
         dataSyncService.broadcast("SAMPLE", sample.getId(), "SPECIMENS_SUBMITTED");
     }
 
+    /**
+     * Bulk path for specimen submission: reads all specimens of the sample and all specimen
+     * results of the test in one query each, then writes the changes with {@code saveAll} so
+     * Hibernate can flush them as JDBC batches (both tables use pooled sequence ids).
+     */
+    private void upsertSpecimenResults(SampleTest st, List<Integer> specimenIndices, User currentUser) {
+        if (specimenIndices == null || specimenIndices.isEmpty()) return;
+        Sample sample = st.getSample();
+        Instant now = Instant.now();
+
+        Map<Integer, Specimen> specimensByNumber = new HashMap<>();
+        for (Specimen sp : specimenRepository.findBySampleIdOrderBySpecimenNumberAsc(sample.getId())) {
+            specimensByNumber.putIfAbsent(sp.getSpecimenNumber(), sp);
+        }
+        Map<Long, TestResult> resultsBySpecimenId = new HashMap<>();
+        for (TestResult r : testResultRepository.findSpecimenResultsBySampleTestId(st.getId())) {
+            resultsBySpecimenId.putIfAbsent(r.getSpecimen().getId(), r);
+        }
+
+        Map<Integer, Specimen> touchedSpecimens = new LinkedHashMap<>();
+        for (Integer index : specimenIndices) {
+            Integer specimenNumber = index + 1;
+            Specimen specimen = specimensByNumber.computeIfAbsent(specimenNumber, n -> Specimen.builder()
+                    .sample(sample)
+                    .specimenNumber(n)
+                    .build());
+            specimen.setStatus("TESTED");
+            specimen.setTestedBy(currentUser);
+            specimen.setTestedAt(now);
+            touchedSpecimens.put(specimenNumber, specimen);
+        }
+        List<Specimen> savedSpecimens = specimenRepository.saveAll(touchedSpecimens.values());
+
+        List<TestResult> results = new ArrayList<>(savedSpecimens.size());
+        for (Specimen specimen : savedSpecimens) {
+            TestResult result = resultsBySpecimenId.get(specimen.getId());
+            if (result == null) {
+                result = TestResult.builder()
+                        .sampleTest(st)
+                        .specimen(specimen)
+                        .build();
+            }
+            result.setEnteredBy(currentUser);
+            result.setEnteredAt(now);
+            results.add(result);
+        }
+        testResultRepository.saveAll(results);
+    }
+
     @Transactional
     public void saveDraft(Long sampleTestId, Map<String, Object> data) {
         WorksheetData wd = worksheetDataRepository.findBySampleTestId(sampleTestId)
                 .orElseThrow(() -> new RuntimeException("Worksheet data not found"));
         SampleTest st = wd.getSampleTest();
-        validateLockStatus(st, wd.getMethodDefinition().getSchemaDefinition(), data, wd.getData());
+        validateLockStatus(st, compiledSchemaCache.get(wd.getMethodDefinition()), data, wd.getData());
         wd.setData(data);
         worksheetDataRepository.save(wd);
+        worksheetRevisionService.record(wd, "DRAFT_SAVE");
+    }
+
+    /**
+     * Delta autosave: applies an RFC 6902 patch to the worksheet data, provided the client's
+     * version is still current. On Postgres only the changed jsonb paths are written.
+     *
+     * @return the worksheet version after the patch
+     */
+    @Transactional
+    public Long patchDraft(Long sampleTestId, WorksheetPatchRequest request) {
+        WorksheetData wd = worksheetDataRepository.findBySampleTestId(sampleTestId)
+                .orElseThrow(() -> new RuntimeException("Worksheet data not found"));
+        if (request.getVersion() == null) {
+            throw new IllegalArgumentException("Patch must include the worksheet version it was based on");
+        }
+        if (!request.getVersion().equals(wd.getVersion())) {
+            throw new ConflictException("Worksheet was modified by another save (current version "
+                    + wd.getVersion() + ")", wd.getVersion());
+        }
+
+        SampleTest st = wd.getSampleTest();
+        JsonPatch.Result result = JsonPatch.apply(wd.getData(), request.getPatch());
+        validateLockStatus(st, compiledSchemaCache.get(wd.getMethodDefinition()), result.document(), wd.getData());
+        if (result.changedPaths().isEmpty()) {
+            return wd.getVersion();
+        }
+
+        Long newVersion;
+        if (worksheetDataPatchWriter.supportsPartialUpdate()) {
+            if (!worksheetDataPatchWriter.writeChangedPaths(wd.getId(), request.getVersion(), result)) {
+                throw new ConflictException("Worksheet was modified by another save", null);
+            }
+            newVersion = request.getVersion() + 1;
+        } else {
+            wd.setData(result.document());
+            worksheetDataRepository.saveAndFlush(wd);
+            newVersion = wd.getVersion();
+        }
+        worksheetRevisionService.record(wd, result.document(), "DRAFT_PATCH");
+
+        dataSyncService.broadcastWorksheetPatch(WorksheetPatchEvent.builder()
+                .sampleTestId(sampleTestId)
+                .version(newVersion)
+                .username(SecurityContextHolder.getContext().getAuthentication().getName())
+                .patch(request.getPatch())
+                .build());
+        return newVersion;
     }
 
-    private void validateLockStatus(SampleTest st, Map<String, Object> schema, Map<String, Object> newData, Map<String, Object> oldData) {
+    private void validateLockStatus(SampleTest st, CompiledSchema schema, Map<String, Object> newData, Map<String, Object> oldData) {
         String testStatus = st.getStatus();
         if ("AUTHORIZED".equals(testStatus)) {
             throw new RuntimeException("Cannot edit authorized worksheet");
@@ -252,65 +350,28 @@ public class WorksheetDataService {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void verifyAuthorizedDataNotModified(Long sampleId, Map<String, Object> schema, Map<String, Object> oldData, Map<String, Object> newData) {
-        if (schema == null || oldData == null || newData == null) return;
-        List<Map<String, Object>> sections = (List<Map<String, Object>>) schema.get("sections");
-        if (sections == null) return;
-
-        for (Map<String, Object> section : sections) {
-            if (Boolean.TRUE.equals(section.get("hasMultiDaySpecimen"))) {
-                String sectionId = (String) section.get("id");
-                Object oldSectionVal = oldData.get(sectionId);
-                Object newSectionVal = newData.get(sectionId);
-
-                if (!(oldSectionVal instanceof List) || !(newSectionVal instanceof List)) {
-                    continue;
-                }
-
-                List<Map<String, Object>> oldList = (List<Map<String, Object>>) oldSectionVal;
-                List<Map<String, Object>> newList = (List<Map<String, Object>>) newSectionVal;
-
-                List<Map<String, Object>> cols = (List<Map<String, Object>>) section.get("columns");
-                if (cols == null) {
-                    cols = (List<Map<String, Object>>) section.get("dataColumns");
+    /**
+     * Compares the lock fingerprint stored when each specimen was authorized with the fingerprint
+     * of its slice of the incoming data, so the cost does not depend on the size of the old data.
+     */
+    private void verifyAuthorizedDataNotModified(Long sampleId, CompiledSchema schema, Map<String, Object> oldData, Map<String, Object> newData) {
+        if (oldData == null || newData == null || !schema.hasMultiDaySpecimen()) return;
+
+        for (Object[] lock : specimenRepository.findAuthorizedLocks(sampleId)) {
+            Integer specimenNumber = (Integer) lock[0];
+            int idx = specimenNumber - 1;
+
+            for (CompiledSchema.Section section : schema.getMultiDaySpecimenSections()) {
+                if (oldData.get(section.id()) instanceof List<?> && newData.get(section.id()) instanceof List<?> newList
+                        && idx >= newList.size()) {
+                    throw new RuntimeException("Cannot delete authorized specimen column: " + specimenNumber);
                 }
+            }
 
-                List<Specimen> specimens = specimenRepository.findBySampleIdOrderBySpecimenNumberAsc(sampleId);
-                for (Specimen spec : specimens) {
-                    if ("AUTHORIZED".equals(spec.getStatus())) {
-                        int idx = spec.getSpecimenNumber() - 1;
-                        if (idx >= newList.size()) {
-                            throw new RuntimeException("Cannot delete authorized specimen column: " + spec.getSpecimenNumber());
-                        }
-                        Map<String, Object> oldSpecData = idx < oldList.size() ? oldList.get(idx) : Map.of();
-                        Map<String, Object> newSpecData = newList.get(idx);
-
-                        if (cols != null) {
-                            for (Map<String, Object> col : cols) {
-                                String colId = (String) col.get("id");
-                                String inputType = (String) col.get("inputType");
-                                String systemMapping = (String) col.get("systemMapping");
-                                Boolean isSummary = Boolean.TRUE.equals(col.get("isSummaryField"));
-
-                                // Skip system mapped fields, calculated fields, and summary fields from lock verification
-                                if (systemMapping != null || "CALCULATED".equals(inputType) || isSummary) {
-                                    continue;
-                                }
-
-                                Object oldVal = oldSpecData.get(colId);
-                                Object newVal = newSpecData.get(colId);
-
-                                String oldStr = oldVal != null ? String.valueOf(oldVal) : "";
-                                String newStr = newVal != null ? String.valueOf(newVal) : "";
-
-                                if (!oldStr.equals(newStr)) {
-                                    throw new RuntimeException("Cannot modify authorized specimen data for specimen: " + spec.getSpecimenNumber());
-                                }
-                            }
-                        }
-                    }
-                }
+            // Specimens authorized before fingerprints were recorded are checked against the stored data
+            String expected = lock[1] != null ? (String) lock[1] : SpecimenFingerprint.of(schema, oldData, idx);
+            if (!expected.equals(SpecimenFingerprint.of(schema, newData, idx))) {
+                throw new RuntimeException("Cannot modify authorized specimen data for specimen: " + specimenNumber);
             }
         }
     }
@@ -329,77 +390,34 @@ public class WorksheetDataService {
         sampleRepository.save(sample);
     }
 
+    @SuppressWarnings("unchecked")
     private Map<String, Object> prefillSystemMappedData(SampleTest st, MethodDefinition activeDef) {
         Map<String, Object> data = new HashMap<>();
-        Map<String, Object> schema = activeDef.getSchemaDefinition();
-        if (schema != null && schema.get("sections") instanceof List) {
-            List<Map<String, Object>> sections = (List<Map<String, Object>>) schema.get("sections");
-            for (Map<String, Object> section : sections) {
-                String sectionId = (String) section.get("id");
-                Map<String, Object> sectionData = new HashMap<>();
-                
-                // Scan fields for SINGLE_VALUE
-                if (section.get("fields") instanceof List) {
-                    List<Map<String, Object>> fields = (List<Map<String, Object>>) section.get("fields");
-                    for (Map<String, Object> field : fields) {
-                        String mapping = (String) field.get("systemMapping");
-                        if (mapping != null && !mapping.isEmpty()) {
-                            Object value = resolveSystemValue(st, mapping);
-                            if (value != null) {
-                                sectionData.put((String) field.get("id"), value);
-                            }
-                        }
-                    }
-                }
-                
-                // Scan columns for DATA_TABLE or GROUPED_TABLE (Only for trial/row defaults in future? 
-                // For now, mapping usually applies to SINGLE_VALUE fields)
-                // But let's handle it for consistency if they map a field in a single-row table.
-
-                // Scan cellMappings for MATRIX_TABLE
-                if (section.get("cellMappings") instanceof Map) {
-                    Map<String, String> cellMappings = (Map<String, String>) section.get("cellMappings");
-                    for (Map.Entry<String, String> entry : cellMappings.entrySet()) {
-                        String cellKey = entry.getKey();
-                        String mapping = entry.getValue();
-                        if (mapping != null && !mapping.isEmpty()) {
-                            String[] parts = parseCellKey(cellKey, section);
-                            if (parts != null && parts.length == 2) {
-                                Object value = resolveSystemValue(st, mapping);
-                                if (value != null) {
-                                    String rowId = parts[0];
-                                    String colId = parts[1];
-                                    Map<String, Object> rowData = (Map<String, Object>) sectionData.computeIfAbsent(rowId, k -> new HashMap<>());
-                                    rowData.put(colId, value);
-                                }
-                            }
-                        }
-                    }
+        for (CompiledSchema.Section section : compiledSchemaCache.get(activeDef).getSections()) {
+            Map<String, Object> sectionData = new HashMap<>();
+
+            // Mapped SINGLE_VALUE fields
+            for (CompiledSchema.SystemMapping fm : section.fieldMappings()) {
+                Object value = resolveSystemValue(st, fm.mapping());
+                if (value != null) {
+                    sectionData.put(fm.fieldId(), value);
                 }
+            }
 
-                if (!sectionData.isEmpty()) {
-                    data.put(sectionId, sectionData);
+            // Mapped MATRIX_TABLE cells
+            for (CompiledSchema.SystemMapping cm : section.cellMappings()) {
+                Object value = resolveSystemValue(st, cm.mapping());
+                if (value != null) {
+                    Map<String, Object> rowData = (Map<String, Object>) sectionData.computeIfAbsent(cm.rowId(), k -> new HashMap<>());
+                    rowData.put(cm.fieldId(), value);
                 }
             }
-        }
-        return data;
-    }
 
-    @SuppressWarnings("unchecked")
-    private String[] parseCellKey(String cellKey, Map<String, Object> section) {
-        if (cellKey == null || !cellKey.contains("_")) return null;
-
-        if (section != null && section.get("rowHeaders") instanceof List) {
-            List<Map<String, Object>> rowHeaders = (List<Map<String, Object>>) section.get("rowHeaders");
-            for (Map<String, Object> rh : rowHeaders) {
-                String rId = (String) rh.get("id");
-                if (rId != null && cellKey.startsWith(rId + "_")) {
-                    String colId = cellKey.substring(rId.length() + 1);
-                    return new String[]{ rId, colId };
-                }
+            if (!sectionData.isEmpty()) {
+                data.put(section.id(), sectionData);
             }
         }
-        return cellKey.split("_", 2);
+        return data;
     }
 
     private Object resolveSystemValue(SampleTest st, String mapping) {
@@ -419,22 +437,22 @@ public class WorksheetDataService {
         }
     }
 
-    private Map<String, Object> buildContextData(SampleTest st) {
+    /**
+     * Context values from a {@link WorksheetDataRepository#findWorksheetView} row.
+     */
+    private Map<String, Object> buildContextData(Object[] row) {
         Map<String, Object> ctx = new HashMap<>();
-        Sample s = st.getSample();
-        Job j = s.getJob();
-        
-        ctx.put("sample.sampleNumber", s.getSampleNumber());
-        ctx.put("sample.product.name", s.getProduct() != null ? s.getProduct().getName() : null);
-        ctx.put("sample.receivedAt", s.getReceivedAt() != null ? DATE_TIME_FORMATTER.format(s.getReceivedAt()) : null);
-        ctx.put("sample.sampledAt", s.getSampledAt() != null ? DATE_TIME_FORMATTER.format(s.getSampledAt()) : null);
-        
-        if (j != null) {
-            ctx.put("sample.job.jobNumber", j.getJobNumber());
-            ctx.put("sample.job.projectName", j.getProjectName());
-            ctx.put("sample.job.poNumber", j.getPoNumber());
-            if (j.getClient() != null) {
-                ctx.put("sample.job.client.name", j.getClient().getName());
+        ctx.put("sample.sampleNumber", row[5]);
+        ctx.put("sample.product.name", row[6]);
+        ctx.put("sample.receivedAt", row[7] != null ? DATE_TIME_FORMATTER.format((Instant) row[7]) : null);
+        ctx.put("sample.sampledAt", row[8] != null ? DATE_TIME_FORMATTER.format((Instant) row[8]) : null);
+
+        if (row[9] != null) {
+            ctx.put("sample.job.jobNumber", row[9]);
+            ctx.put("sample.job.projectName", row[10]);
+            ctx.put("sample.job.poNumber", row[11]);
+            if (row[12] != null) {
+                ctx.put("sample.job.client.name", row[12]);
             }
         }
         
@@ -445,188 +463,80 @@ public class WorksheetDataService {
     }
 
     @SuppressWarnings("unchecked")
-    private void applyLateBindingSystemMappings(Map<String, Object> schema, Map<String, Object> data, User currentUser, SystemMappingPassType passType) {
-        if (schema == null || !(schema.get("sections") instanceof List) || data == null) {
+    private void applyLateBindingSystemMappings(CompiledSchema schema, Map<String, Object> data, User currentUser, SystemMappingPassType passType) {
+        if (data == null) {
             return;
         }
-        List<Map<String, Object>> sections = (List<Map<String, Object>>) schema.get("sections");
-        Instant now = Instant.now();
-        String formattedNow = DATE_TIME_FORMATTER.format(now);
+        String formattedNow = DATE_TIME_FORMATTER.format(Instant.now());
 
-        for (Map<String, Object> section : sections) {
-            String sectionId = (String) section.get("id");
+        for (CompiledSchema.Section section : schema.getSections()) {
+            String sectionId = section.id();
             if (sectionId == null) continue;
 
             Object rawSecData = data.get(sectionId);
             Map<String, Object> sectionData = (rawSecData instanceof Map) ? (Map<String, Object>) rawSecData : null;
 
-            if (section.get("fields") instanceof List) {
-                List<Map<String, Object>> fields = (List<Map<String, Object>>) section.get("fields");
-                for (Map<String, Object> field : fields) {
-                    String mapping = (String) field.get("systemMapping");
-                    if (mapping == null || mapping.isEmpty()) continue;
-
-                    String fieldId = (String) field.get("id");
-                    if (fieldId == null) continue;
-
-                    if (sectionData == null) {
-                        sectionData = new HashMap<>();
-                        data.put(sectionId, sectionData);
-                    }
-
-                    if (passType == SystemMappingPassType.SUBMIT) {
-                        // Tester submission scope
-                        switch (mapping) {
-                            case "audit.testedBy.displayName":
-                                sectionData.put(fieldId, currentUser.getDisplayName());
-                                break;
-                            case "audit.testedBy.username":
-                                sectionData.put(fieldId, currentUser.getUsername());
-                                break;
-                            case "audit.testedAt.datetime":
-                                sectionData.put(fieldId, formattedNow);
-                                break;
-                            case "audit.testedBy.signature":
-                                String sig = currentUser.getSignatureImagePath();
-                                sectionData.put(fieldId, sig != null ? sig : "Signed by " + currentUser.getDisplayName());
-                                break;
-                            default:
-                                break;
-                        }
-                    } else if (passType == SystemMappingPassType.REVIEW) {
-                        // Reviewer scope
-                        switch (mapping) {
-                            case "audit.reviewedBy.displayName":
-                                sectionData.put(fieldId, currentUser.getDisplayName());
-                                break;
-                            case "audit.reviewedBy.username":
-                                sectionData.put(fieldId, currentUser.getUsername());
-                                break;
-                            case "audit.reviewedAt.datetime":
-                                sectionData.put(fieldId, formattedNow);
-                                break;
-                            case "audit.reviewedBy.signature":
-                                String sig = currentUser.getSignatureImagePath();
-                                sectionData.put(fieldId, sig != null ? sig : "Signed by " + currentUser.getDisplayName());
-                                break;
-                            default:
-                                break;
-                        }
-                    } else if (passType == SystemMappingPassType.AUTHORIZE) {
-                        // Authorizer scope
-                        switch (mapping) {
-                            case "audit.authorizedBy.displayName":
-                                sectionData.put(fieldId, currentUser.getDisplayName());
-                                break;
-                            case "audit.authorizedBy.username":
-                                sectionData.put(fieldId, currentUser.getUsername());
-                                break;
-                            case "audit.authorizedAt.datetime":
-                                sectionData.put(fieldId, formattedNow);
-                                break;
-                            case "audit.authorizedBy.signature":
-                                String sig = currentUser.getSignatureImagePath();
-                                sectionData.put(fieldId, sig != null ? sig : "Signed by " + currentUser.getDisplayName());
-                                break;
-                            default:
-                                break;
-                        }
-                    }
+            for (CompiledSchema.SystemMapping fm : section.fieldMappings()) {
+                if (sectionData == null) {
+                    sectionData = new HashMap<>();
+                    data.put(sectionId, sectionData);
+                }
+                Object value = resolveAuditValue(fm.mapping(), passType, currentUser, formattedNow);
+                if (value != UNMAPPED) {
+                    sectionData.put(fm.fieldId(), value);
                 }
             }
 
-            if (section.get("cellMappings") instanceof Map) {
-                Map<String, String> cellMappings = (Map<String, String>) section.get("cellMappings");
-                for (Map.Entry<String, String> entry : cellMappings.entrySet()) {
-                    String cellKey = entry.getKey();
-                    String mapping = entry.getValue();
-                    if (mapping == null || mapping.isEmpty()) continue;
-
-                    String[] parts = parseCellKey(cellKey, section);
-                    if (parts == null || parts.length != 2) continue;
-
-                    String rowId = parts[0];
-                    String colId = parts[1];
+            for (CompiledSchema.SystemMapping cm : section.cellMappings()) {
+                if (sectionData == null) {
+                    sectionData = new HashMap<>();
+                    data.put(sectionId, sectionData);
+                }
 
-                    if (sectionData == null) {
-                        sectionData = new HashMap<>();
-                        data.put(sectionId, sectionData);
-                    }
+                Object rawRowData = sectionData.get(cm.rowId());
+                Map<String, Object> rowData = (rawRowData instanceof Map)
+                        ? (Map<String, Object>) rawRowData
+                        : new HashMap<>();
+                sectionData.put(cm.rowId(), rowData);
 
-                    Object rawRowData = sectionData.get(rowId);
-                    Map<String, Object> rowData = (rawRowData instanceof Map)
-                            ? (Map<String, Object>) rawRowData
-                            : new HashMap<>();
-                    sectionData.put(rowId, rowData);
-
-                    if (passType == SystemMappingPassType.SUBMIT) {
-                        // Tester submission scope
-                        switch (mapping) {
-                            case "audit.testedBy.displayName":
-                                rowData.put(colId, currentUser.getDisplayName());
-                                break;
-                            case "audit.testedBy.username":
-                                rowData.put(colId, currentUser.getUsername());
-                                break;
-                            case "audit.testedAt.datetime":
-                                rowData.put(colId, formattedNow);
-                                break;
-                            case "audit.testedBy.signature":
-                                String sig = currentUser.getSignatureImagePath();
-                                rowData.put(colId, sig != null ? sig : "Signed by " + currentUser.getDisplayName());
-                                break;
-                            default:
-                                break;
-                        }
-                    } else if (passType == SystemMappingPassType.REVIEW) {
-                        // Reviewer scope
-                        switch (mapping) {
-                            case "audit.reviewedBy.displayName":
-                                rowData.put(colId, currentUser.getDisplayName());
-                                break;
-                            case "audit.reviewedBy.username":
-                                rowData.put(colId, currentUser.getUsername());
-                                break;
-                            case "audit.reviewedAt.datetime":
-                                rowData.put(colId, formattedNow);
-                                break;
-                            case "audit.reviewedBy.signature":
-                                String sig = currentUser.getSignatureImagePath();
-                                rowData.put(colId, sig != null ? sig : "Signed by " + currentUser.getDisplayName());
-                                break;
-                            default:
-                                break;
-                        }
-                    } else if (passType == SystemMappingPassType.AUTHORIZE) {
-                        // Authorizer scope
-                        switch (mapping) {
-                            case "audit.authorizedBy.displayName":
-                                rowData.put(colId, currentUser.getDisplayName());
-                                break;
-                            case "audit.authorizedBy.username":
-                                rowData.put(colId, currentUser.getUsername());
-                                break;
-                            case "audit.authorizedAt.datetime":
-                                rowData.put(colId, formattedNow);
-                                break;
-                            case "audit.authorizedBy.signature":
-                                String sig = currentUser.getSignatureImagePath();
-                                rowData.put(colId, sig != null ? sig : "Signed by " + currentUser.getDisplayName());
-                                break;
-                            default:
-                                break;
-                        }
-                    }
+                Object value = resolveAuditValue(cm.mapping(), passType, currentUser, formattedNow);
+                if (value != UNMAPPED) {
+                    rowData.put(cm.fieldId(), value);
                 }
             }
         }
     }
 
+    /**
+     * Resolves an {@code audit.*} mapping owned by the given pass (tester on submit, reviewer on
+     * review, authorizer on authorize); returns {@link #UNMAPPED} for mappings of other passes.
+     */
+    private Object resolveAuditValue(String mapping, SystemMappingPassType passType, User currentUser, String formattedNow) {
+        String role;
+        switch (passType) {
+            case SUBMIT: role = "tested"; break;
+            case REVIEW: role = "reviewed"; break;
+            case AUTHORIZE: role = "authorized"; break;
+            default: return UNMAPPED;
+        }
+        if (mapping.equals("audit." + role + "By.displayName")) {
+            return currentUser.getDisplayName();
+        } else if (mapping.equals("audit." + role + "By.username")) {
+            return currentUser.getUsername();
+        } else if (mapping.equals("audit." + role + "At.datetime")) {
+            return formattedNow;
+        } else if (mapping.equals("audit." + role + "By.signature")) {
+            String sig = currentUser.getSignatureImagePath();
+            return sig != null ? sig : "Signed by " + currentUser.getDisplayName();
+        }
+        return UNMAPPED;
+    }
+
     @Transactional
     public void applyAuthorizationMappings(WorksheetData wd, User currentUser) {
         if (wd == null || wd.getMethodDefinition() == null) return;
         Map<String, Object> data = wd.getData() != null ? new HashMap<>(wd.getData()) : new HashMap<>();
-        applyLateBindingSystemMappings(wd.getMethodDefinition().getSchemaDefinition(), data, currentUser, SystemMappingPassType.AUTHORIZE);
+        applyLateBindingSystemMappings(compiledSchemaCache.get(wd.getMethodDefinition()), data, currentUser, SystemMappingPassType.AUTHORIZE);
         wd.setData(data);
         worksheetDataRepository.save(wd);
     }
@@ -655,7 +565,7 @@ public class WorksheetDataService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         Map<String, Object> data = wd.getData() != null ? new HashMap<>(wd.getData()) : new HashMap<>();
-        applyLateBindingSystemMappings(wd.getMethodDefinition().getSchemaDefinition(), data, currentUser, SystemMappingPassType.REVIEW);
+        applyLateBindingSystemMappings(compiledSchemaCache.get(wd.getMethodDefinition()), data, currentUser, SystemMappingPassType.REVIEW);
         wd.setData(data);
 
         st.setStatus("COMPLETED");
@@ -663,6 +573,7 @@ public class WorksheetDataService {
             wd.setStatus("COMPLETED");
         }
         worksheetDataRepository.save(wd);
+        worksheetRevisionService.record(wd, "FINALIZE");
         sampleTestRepository.save(st);
         
         updateSampleStatusIfFinished(st.getSample());
@@ -692,6 +603,7 @@ public class WorksheetDataService {
         wd.setStatus("DRAFT");
         
         worksheetDataRepository.save(wd);
+        worksheetRevisionService.record(wd, "REJECT");
         sampleTestRepository.save(st);
         
         updateSampleStatusIfFinished(st.getSample());
@@ -708,29 +620,24 @@ public class WorksheetDataService {
             throw new RuntimeException("Worksheet is not in a reviewable state");
         }
 
-        Map<String, Object> schema = wd.getMethodDefinition().getSchemaDefinition();
+        CompiledSchema schema = compiledSchemaCache.get(wd.getMethodDefinition());
         Map<String, Object> mergedData = wd.getData() != null ? new HashMap<>(wd.getData()) : new HashMap<>();
         Map<String, Object> incomingData = request.getData() != null ? request.getData() : Map.of();
 
         // Only allow updating sections where isSpecimenData is explicitly FALSE
-        if (schema != null && schema.get("sections") instanceof List) {
-            List<Map<String, Object>> sections = (List<Map<String, Object>>) schema.get("sections");
-            for (Map<String, Object> section : sections) {
-                String sectionId = (String) section.get("id");
-                boolean isSpecimen = !Boolean.FALSE.equals(section.get("isSpecimenData"));
-
-                if (!isSpecimen) {
-                    // Non-specimen section: update with reviewer's modified values
-                    if (incomingData.containsKey(sectionId)) {
-                        mergedData.put(sectionId, incomingData.get(sectionId));
-                    }
+        for (CompiledSchema.Section section : schema.getSections()) {
+            if (!section.specimenData()) {
+                // Non-specimen section: update with reviewer's modified values
+                if (incomingData.containsKey(section.id())) {
+                    mergedData.put(section.id(), incomingData.get(section.id()));
                 }
-                // Specimen sections (isSpecimen == true): keep original mergedData[sectionId] untouched
             }
+            // Specimen sections (isSpecimen == true): keep original mergedData[sectionId] untouched
         }
 
         wd.setData(mergedData);
         worksheetDataRepository.save(wd);
+        worksheetRevisionService.record(wd, "REVIEWER_EDIT");
 
         dataSyncService.broadcast("SAMPLE", st.getSample().getId(), "REVIEWER_EDIT");
     }
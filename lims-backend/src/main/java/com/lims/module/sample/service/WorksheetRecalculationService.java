@@ -0,0 +1,318 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.common.exception.ResourceNotFoundException;
+import com.lims.module.notification.dto.JobProgressEvent;
+import com.lims.module.notification.service.DataSyncService;
+import com.lims.module.sample.entity.MethodDefinition;
+import com.lims.module.sample.entity.Specimen;
+import com.lims.module.sample.entity.TestMethod;
+import com.lims.module.sample.entity.WorksheetData;
+import com.lims.module.sample.event.MethodDefinitionPublishedEvent;
+import com.lims.module.sample.repository.MethodDefinitionRepository;
+import com.lims.module.sample.repository.SpecimenRepository;
+import com.lims.module.sample.repository.TestMethodRepository;
+import com.lims.module.sample.repository.WorksheetDataRepository;
+import com.lims.module.sample.schema.CompiledSchema;
+import com.lims.module.sample.schema.SpecimenFingerprint;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recalculates the open worksheets of a test method against a method definition version, e.g.
+ * after a corrected version is published. Worksheets are processed in chunks of
+ * {@code chunk-size}, each chunk in its own transaction on a virtual thread, with at most
+ * {@code parallelism} chunks (and so database connections) in flight at once.
+ * <p>
+ * Only worksheets that have not been reviewed are touched; reviewed and authorized results keep
+ * the calculation they were approved with. Draft and in-progress worksheets move to the new
+ * version if their data fits it (see {@link #rebind}); submitted ones keep the version their data
+ * was entered against and are recalculated only if already bound to this definition.
+ */
+@Service
+@Slf4j
+public class WorksheetRecalculationService {
+
+    static final List<String> RECALCULABLE_STATUSES = List.of("DRAFT", "IN_PROGRESS", "SUBMITTED", "SUBMITTED_FINAL");
+    /** Statuses whose data may still be edited, so the worksheet can move to a new definition version. */
+    static final List<String> REBINDABLE_STATUSES = List.of("DRAFT", "IN_PROGRESS");
+
+    private static final String JOB_TYPE = "WORKSHEET_RECALCULATION";
+    private static final Duration JOB_RETENTION = Duration.ofDays(1);
+
+    private final WorksheetDataRepository worksheetDataRepository;
+    private final MethodDefinitionRepository methodDefinitionRepository;
+    private final TestMethodRepository testMethodRepository;
+    private final SpecimenRepository specimenRepository;
+    private final CompiledSchemaCache compiledSchemaCache;
+    private final WorksheetCalculationService worksheetCalculationService;
+    private final WorksheetRevisionService worksheetRevisionService;
+    private final DataSyncService dataSyncService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final boolean recalculateOnPublish;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public WorksheetRecalculationService(WorksheetDataRepository worksheetDataRepository,
+                                         MethodDefinitionRepository methodDefinitionRepository,
+                                         TestMethodRepository testMethodRepository,
+                                         SpecimenRepository specimenRepository,
+                                         CompiledSchemaCache compiledSchemaCache,
+                                         WorksheetCalculationService worksheetCalculationService,
+                                         WorksheetRevisionService worksheetRevisionService,
+                                         DataSyncService dataSyncService,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${lims.worksheet.recalculation.chunk-size:100}") int chunkSize,
+                                         @Value("${lims.worksheet.recalculation.parallelism:4}") int parallelism,
+                                         @Value("${lims.worksheet.recalculation.on-publish:true}") boolean recalculateOnPublish) {
+        this.worksheetDataRepository = worksheetDataRepository;
+        this.methodDefinitionRepository = methodDefinitionRepository;
+        this.testMethodRepository = testMethodRepository;
+        this.specimenRepository = specimenRepository;
+        this.compiledSchemaCache = compiledSchemaCache;
+        this.worksheetCalculationService = worksheetCalculationService;
+        this.worksheetRevisionService = worksheetRevisionService;
+        this.dataSyncService = dataSyncService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.recalculateOnPublish = recalculateOnPublish;
+    }
+
+    @TransactionalEventListener
+    public void onDefinitionPublished(MethodDefinitionPublishedEvent event) {
+        if (recalculateOnPublish) {
+            start(event.testMethodId(), event.definitionId());
+        }
+    }
+
+    /**
+     * Starts recalculating all open worksheets of a test method against its active definition.
+     *
+     * @return the initial progress; poll {@link #getProgress} or subscribe to /topic/jobs/{jobId}
+     * @throws ResourceNotFoundException if the definition does not belong to the test method
+     * @throws BusinessRuleException if the definition is not the test method's active published one
+     */
+    public JobProgressEvent start(Long testMethodId, Long definitionId) {
+        MethodDefinition definition = methodDefinitionRepository.findById(definitionId)
+                .filter(d -> d.getTestMethod().getId().equals(testMethodId))
+                .orElseThrow(() -> new ResourceNotFoundException("MethodDefinition", definitionId));
+        TestMethod testMethod = testMethodRepository.findById(testMethodId)
+                .orElseThrow(() -> new ResourceNotFoundException("TestMethod", testMethodId));
+        if (!"PUBLISHED".equals(definition.getStatus()) || !definitionId.equals(testMethod.getActiveDefinitionId())) {
+            throw new BusinessRuleException("Worksheets can only be recalculated against the active published definition");
+        }
+        List<Long> ids = worksheetDataRepository.findIdsByTestMethodAndStatusIn(testMethodId, RECALCULABLE_STATUSES);
+
+        Instant now = Instant.now();
+        jobs.values().removeIf(j -> j.finishedAt != null && j.finishedAt.isBefore(now.minus(JOB_RETENTION)));
+        Job job = new Job(UUID.randomUUID().toString(), definitionId, ids.size(), now);
+        jobs.put(job.id, job);
+        log.info("Recalculating {} worksheets of test method {} against definition {} (job {})",
+                ids.size(), testMethodId, definitionId, job.id);
+        executor.submit(() -> run(job, ids));
+        return job.snapshot();
+    }
+
+    public JobProgressEvent getProgress(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Recalculation job " + jobId + " not found");
+        }
+        return job.snapshot();
+    }
+
+    private void run(Job job, List<Long> ids) {
+        Semaphore permits = new Semaphore(parallelism);
+        List<Future<?>> chunks = new ArrayList<>();
+        try {
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                permits.acquire();
+                chunks.add(executor.submit(() -> {
+                    try {
+                        processChunk(job, chunk);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<?> chunk : chunks) {
+                chunk.get();
+            }
+            job.finish("COMPLETED");
+        } catch (Exception e) {
+            log.error("Recalculation job {} failed", job.id, e);
+            job.finish("FAILED");
+        }
+        dataSyncService.broadcastJobProgress(job.snapshot());
+        dataSyncService.broadcast("METHOD_DEFINITION", job.definitionId, "WORKSHEETS_RECALCULATED");
+    }
+
+    private void processChunk(Job job, List<Long> chunk) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                MethodDefinition definition = methodDefinitionRepository.getReferenceById(job.definitionId);
+                worksheetDataRepository.findAllById(chunk).forEach(wd -> recalculate(wd, definition));
+            });
+            job.processed.addAndGet(chunk.size());
+        } catch (RuntimeException chunkFailure) {
+            // One conflicting worksheet (e.g. saved by an analyst meanwhile) must not sink the chunk
+            log.warn("Recalculation chunk failed for job {}, retrying worksheets individually: {}", job.id, chunkFailure.getMessage());
+            for (Long id : chunk) {
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> worksheetDataRepository.findById(id).ifPresent(wd ->
+                            recalculate(wd, methodDefinitionRepository.getReferenceById(job.definitionId))));
+                } catch (RuntimeException e) {
+                    log.warn("Recalculation of worksheet {} failed: {}", id, e.getMessage());
+                    job.failed.incrementAndGet();
+                }
+                job.processed.incrementAndGet();
+            }
+        }
+        dataSyncService.broadcastJobProgress(job.snapshot());
+    }
+
+    private void recalculate(WorksheetData wd, MethodDefinition definition) {
+        if (!RECALCULABLE_STATUSES.contains(wd.getStatus())) return;
+        if (REBINDABLE_STATUSES.contains(wd.getStatus())) {
+            rebind(wd, definition);
+        } else if (wd.getMethodDefinition() == null || !wd.getMethodDefinition().getId().equals(definition.getId())) {
+            // Submitted data was entered against its own version and is not migrated to a new schema
+            return;
+        }
+        wd.setCalculatedResults(worksheetCalculationService.calculate(wd, wd.getData()));
+        worksheetDataRepository.save(wd);
+        worksheetRevisionService.record(wd, "RECALCULATE");
+    }
+
+    /**
+     * Moves a draft or in-progress worksheet to {@code definition}. Every section holding values
+     * must still exist there, with its single-value fields. Authorized specimens must still match
+     * the fingerprint they were locked with; their fingerprints are then re-taken under the new
+     * version so later lock checks compare like with like.
+     *
+     * @throws BusinessRuleException if the data does not fit; the worksheet keeps its version
+     */
+    private void rebind(WorksheetData wd, MethodDefinition definition) {
+        if (wd.getMethodDefinition() != null && wd.getMethodDefinition().getId().equals(definition.getId())) return;
+        CompiledSchema from = compiledSchemaCache.get(wd.getMethodDefinition());
+        CompiledSchema to = compiledSchemaCache.get(definition);
+        String misfit = misfit(wd.getData(), to);
+        if (misfit != null) {
+            throw new BusinessRuleException("Worksheet " + wd.getId() + " does not fit definition version "
+                    + definition.getVersion() + ": " + misfit);
+        }
+
+        List<Specimen> authorized = specimenRepository.findBySampleIdAndStatus(
+                wd.getSampleTest().getSample().getId(), "AUTHORIZED");
+        if (!authorized.isEmpty() && from.hasMultiDaySpecimen() && !to.hasMultiDaySpecimen()) {
+            throw new BusinessRuleException("Worksheet " + wd.getId() + " has authorized specimens that definition version "
+                    + definition.getVersion() + " would no longer lock");
+        }
+        for (Specimen specimen : authorized) {
+            int index = specimen.getSpecimenNumber() - 1;
+            if (specimen.getLockFingerprint() != null
+                    && !specimen.getLockFingerprint().equals(SpecimenFingerprint.of(from, wd.getData(), index))) {
+                throw new BusinessRuleException("Worksheet " + wd.getId() + " no longer matches authorized specimen "
+                        + specimen.getSpecimenNumber());
+            }
+            specimen.setLockFingerprint(SpecimenFingerprint.of(to, wd.getData(), index));
+        }
+        specimenRepository.saveAll(authorized);
+        wd.setMethodDefinition(definition);
+    }
+
+    /**
+     * The first value in {@code data} the schema has no place for, or null if all fit.
+     */
+    private static String misfit(Map<String, Object> data, CompiledSchema schema) {
+        if (data == null) return null;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (isBlank(entry.getValue())) continue;
+            CompiledSchema.Section section = schema.getSection(entry.getKey());
+            if (section == null) {
+                return "section '" + entry.getKey() + "' no longer exists";
+            }
+            if ("SINGLE_VALUE".equals(section.type()) && entry.getValue() instanceof Map<?, ?> values) {
+                for (Map.Entry<?, ?> field : values.entrySet()) {
+                    if (!isBlank(field.getValue()) && section.fields().stream().noneMatch(f -> field.getKey().equals(f.id()))) {
+                        return "field '" + entry.getKey() + "." + field.getKey() + "' no longer exists";
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBlank(Object value) {
+        return value == null
+                || value instanceof String text && text.isEmpty()
+                || value instanceof Map<?, ?> map && map.values().stream().allMatch(WorksheetRecalculationService::isBlank)
+                || value instanceof Collection<?> list && list.stream().allMatch(WorksheetRecalculationService::isBlank);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Job {
+        final String id;
+        final Long definitionId;
+        final int total;
+        final Instant startedAt;
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        volatile String status = "RUNNING";
+        volatile Instant finishedAt;
+
+        Job(String id, Long definitionId, int total, Instant startedAt) {
+            this.id = id;
+            this.definitionId = definitionId;
+            this.total = total;
+            this.startedAt = startedAt;
+        }
+
+        void finish(String finalStatus) {
+            this.finishedAt = Instant.now();
+            this.status = finalStatus;
+        }
+
+        JobProgressEvent snapshot() {
+            return JobProgressEvent.builder()
+                    .jobId(id)
+                    .type(JOB_TYPE)
+                    .subjectId(definitionId)
+                    .status(status)
+                    .total(total)
+                    .processed(processed.get())
+                    .failed(failed.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.lims.module.sample.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lims.common.exception.BusinessRuleException;
+import com.lims.common.exception.ResourceNotFoundException;
+import com.lims.common.hash.Sha256;
+import com.lims.common.json.JsonDiff;
+import com.lims.common.json.JsonPatch;
+import com.lims.common.json.JsonPatchOperation;
+import com.lims.module.sample.dto.WorksheetRevisionDTO;
+import com.lims.module.sample.entity.WorksheetData;
+import com.lims.module.sample.entity.WorksheetRevision;
+import com.lims.module.sample.repository.LegacyWorksheetHistoryDao;
+import com.lims.module.sample.repository.WorksheetDataRepository;
+import com.lims.module.sample.repository.WorksheetRevisionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Revision history of worksheet documents ({@code data} + {@code calculatedResults}).
+ * <p>
+ * Each write stores only the structural diff from the previous revision; every
+ * {@code checkpoint-interval} revisions a full snapshot is stored as well, so rebuilding any
+ * revision replays at most that many diffs. Revisions are hash-chained: each
+ * {@code contentHash} covers the previous hash, the status and the canonical document, and
+ * rebuilding a revision verifies the chain from its checkpoint.
+ * <p>
+ * The latest document of recently written worksheets is kept in memory, so a save is diffed
+ * against it instead of rebuilding the head revision from the database; an unchanged document is
+ * recognised by its hash alone. Revisions of one worksheet are written under a row lock on it.
+ * <p>
+ * History from before this store existed stays in {@code worksheet_data_aud} as full snapshots
+ * and is served read-only by {@link #getLegacyHistory} and {@link #getLegacyRevision}.
+ */
+@Service
+@Slf4j
+public class WorksheetRevisionService {
+
+    private static final String DATA = "data";
+    private static final String CALCULATED_RESULTS = "calculatedResults";
+    private static final TypeReference<Map<String, Object>> DOCUMENT_TYPE = new TypeReference<>() {};
+
+    private final WorksheetRevisionRepository worksheetRevisionRepository;
+    private final WorksheetDataRepository worksheetDataRepository;
+    private final LegacyWorksheetHistoryDao legacyWorksheetHistoryDao;
+    private final ObjectMapper canonicalMapper;
+    private final int checkpointInterval;
+
+    /** Latest recorded document per worksheet id, in access order; guarded by itself. */
+    private final Map<Long, HeadDocument> heads;
+
+    /** A document as of a revision; only used while that revision is still the head. */
+    private record HeadDocument(int revisionNumber, String contentHash, Map<String, Object> document) {}
+
+    public WorksheetRevisionService(WorksheetRevisionRepository worksheetRevisionRepository,
+                                    WorksheetDataRepository worksheetDataRepository,
+                                    LegacyWorksheetHistoryDao legacyWorksheetHistoryDao,
+                                    ObjectMapper objectMapper,
+                                    @Value("${lims.worksheet.revisions.checkpoint-interval:20}") int checkpointInterval,
+                                    @Value("${lims.worksheet.revisions.head-cache-size:1000}") int headCacheSize) {
+        this.worksheetRevisionRepository = worksheetRevisionRepository;
+        this.worksheetDataRepository = worksheetDataRepository;
+        this.legacyWorksheetHistoryDao = legacyWorksheetHistoryDao;
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+        int maxHeads = Math.max(0, headCacheSize);
+        this.heads = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, HeadDocument> eldest) {
+                return size() > maxHeads;
+            }
+        };
+    }
+
+    /**
+     * Records the current state of a worksheet using its entity fields.
+     */
+    @Transactional
+    public void record(WorksheetData wd, String action) {
+        record(wd, wd.getData(), action);
+    }
+
+    /**
+     * Records a new revision of a worksheet whose data is {@code data} (which may differ from the
+     * entity when the write bypassed it). Nothing is stored if neither the document nor the
+     * status changed.
+     */
+    @Transactional
+    public void record(WorksheetData wd, Map<String, Object> data, String action) {
+        // Concurrent saves of one worksheet would otherwise both take the next revision number
+        worksheetDataRepository.findAndLockById(wd.getId());
+        Map<String, Object> document = document(data, wd.getCalculatedResults());
+        byte[] canonical = canonical(document);
+        WorksheetRevision head = worksheetRevisionRepository
+                .findTopByWorksheetDataIdOrderByRevisionNumberDesc(wd.getId()).orElse(null);
+
+        List<JsonPatchOperation> diff;
+        int number;
+        if (head == null) {
+            diff = JsonDiff.diff(Map.of(), document);
+            number = 1;
+        } else {
+            if (hash(head.getPreviousHash(), wd.getStatus(), canonical).equals(head.getContentHash())) {
+                return;
+            }
+            diff = JsonDiff.diff(headDocument(wd.getId(), head), document);
+            if (diff.isEmpty() && Objects.equals(head.getStatus(), wd.getStatus())) {
+                return;
+            }
+            number = head.getRevisionNumber() + 1;
+        }
+
+        String previousHash = head != null ? head.getContentHash() : null;
+        String contentHash = hash(previousHash, wd.getStatus(), canonical);
+        boolean checkpoint = number == 1 || (number - 1) % checkpointInterval == 0;
+        worksheetRevisionRepository.save(WorksheetRevision.builder()
+                .worksheetData(wd)
+                .sampleTestId(wd.getSampleTest().getId())
+                .revisionNumber(number)
+                .checkpoint(checkpoint)
+                .snapshot(checkpoint ? document : null)
+                .diff(diff)
+                .status(wd.getStatus())
+                .action(action)
+                .username(currentUsername())
+                .previousHash(previousHash)
+                .contentHash(contentHash)
+                .build());
+        // A rolled back revision leaves an entry that no longer matches the head, so it is ignored
+        synchronized (heads) {
+            heads.put(wd.getId(), new HeadDocument(number, contentHash, parse(canonical)));
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Page<WorksheetRevisionDTO> getHistory(Long sampleTestId, Pageable pageable) {
+        return worksheetRevisionRepository.findBySampleTestIdOrderByRevisionNumberDesc(sampleTestId, pageable)
+                .map(this::mapToDTO);
+    }
+
+    /**
+     * Rebuilds a single revision by replaying diffs forward from the nearest checkpoint.
+     */
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public WorksheetRevisionDTO getRevision(Long sampleTestId, Integer revisionNumber) {
+        WorksheetRevision revision = worksheetRevisionRepository.findBySampleTestIdAndRevisionNumber(sampleTestId, revisionNumber)
+                .orElseThrow(() -> new ResourceNotFoundException("Worksheet revision " + revisionNumber + " not found"));
+        Map<String, Object> document = rebuild(revision.getWorksheetData().getId(), revisionNumber, true);
+
+        WorksheetRevisionDTO dto = mapToDTO(revision);
+        Object data = document.get(DATA);
+        Object calculatedResults = document.get(CALCULATED_RESULTS);
+        dto.setData(data instanceof Map ? (Map<String, Object>) data : Map.of());
+        dto.setCalculatedResults(calculatedResults instanceof Map ? (Map<String, Object>) calculatedResults : Map.of());
+        return dto;
+    }
+
+    /**
+     * Pre-revision-store snapshots of a worksheet from the Envers audit trail, newest first; their
+     * revision numbers are audit revision ids.
+     */
+    @Transactional(readOnly = true)
+    public Page<WorksheetRevisionDTO> getLegacyHistory(Long sampleTestId, Pageable pageable) {
+        if (!legacyWorksheetHistoryDao.isColumnPresent()) {
+            return Page.empty(pageable);
+        }
+        List<WorksheetRevisionDTO> content = (pageable.isPaged()
+                ? legacyWorksheetHistoryDao.findPage(sampleTestId, pageable.getOffset(), pageable.getPageSize())
+                : legacyWorksheetHistoryDao.findPage(sampleTestId, 0, Integer.MAX_VALUE))
+                .stream().map(this::mapLegacyToDTO).toList();
+        return new PageImpl<>(content, pageable, legacyWorksheetHistoryDao.count(sampleTestId));
+    }
+
+    @Transactional(readOnly = true)
+    public WorksheetRevisionDTO getLegacyRevision(Long sampleTestId, Long auditRevision) {
+        LegacyWorksheetHistoryDao.Snapshot snapshot = legacyWorksheetHistoryDao.isColumnPresent()
+                ? legacyWorksheetHistoryDao.find(sampleTestId, auditRevision).orElse(null) : null;
+        if (snapshot == null) {
+            throw new ResourceNotFoundException("Legacy worksheet revision " + auditRevision + " not found");
+        }
+        WorksheetRevisionDTO dto = mapLegacyToDTO(snapshot);
+        dto.setData(parseJson(snapshot.data()));
+        dto.setCalculatedResults(parseJson(snapshot.calculatedResults()));
+        return dto;
+    }
+
+    private Map<String, Object> headDocument(Long worksheetDataId, WorksheetRevision head) {
+        HeadDocument cached;
+        synchronized (heads) {
+            cached = heads.get(worksheetDataId);
+        }
+        if (cached != null && cached.revisionNumber() == head.getRevisionNumber()
+                && cached.contentHash().equals(head.getContentHash())) {
+            return cached.document();
+        }
+        return rebuild(worksheetDataId, head.getRevisionNumber(), false);
+    }
+
+    private Map<String, Object> rebuild(Long worksheetDataId, Integer revisionNumber, boolean verify) {
+        Integer checkpointNumber = worksheetRevisionRepository.findCheckpointAtOrBefore(worksheetDataId, revisionNumber);
+        if (checkpointNumber == null) {
+            throw new BusinessRuleException("No checkpoint found for worksheet revision " + revisionNumber);
+        }
+        List<WorksheetRevision> chain = worksheetRevisionRepository
+                .findByWorksheetDataIdAndRevisionNumberBetweenOrderByRevisionNumberAsc(worksheetDataId, checkpointNumber, revisionNumber);
+
+        Map<String, Object> document = null;
+        for (WorksheetRevision revision : chain) {
+            document = document == null
+                    ? new HashMap<>(revision.getSnapshot() != null ? revision.getSnapshot() : Map.of())
+                    : JsonPatch.apply(document, revision.getDiff()).document();
+            if (verify && !hash(revision.getPreviousHash(), revision.getStatus(), canonical(document)).equals(revision.getContentHash())) {
+                throw new BusinessRuleException("Worksheet revision " + revision.getRevisionNumber()
+                        + " failed integrity verification");
+            }
+        }
+        return document != null ? document : Map.of();
+    }
+
+    private WorksheetRevisionDTO mapToDTO(WorksheetRevision revision) {
+        return WorksheetRevisionDTO.builder()
+                .revisionNumber(revision.getRevisionNumber())
+                .action(revision.getAction())
+                .status(revision.getStatus())
+                .username(revision.getUsername())
+                .createdAt(revision.getCreatedAt())
+                .checkpoint(revision.isCheckpoint())
+                .changedPaths(revision.getDiff().stream().map(JsonPatchOperation::getPath).toList())
+                .contentHash(revision.getContentHash())
+                .build();
+    }
+
+    private WorksheetRevisionDTO mapLegacyToDTO(LegacyWorksheetHistoryDao.Snapshot snapshot) {
+        return WorksheetRevisionDTO.builder()
+                .revisionNumber((int) snapshot.revision())
+                .action("LEGACY_SNAPSHOT")
+                .status(snapshot.status())
+                .username(snapshot.username())
+                .createdAt(snapshot.at())
+                .checkpoint(true)
+                .changedPaths(List.of())
+                .legacy(true)
+                .build();
+    }
+
+    private static Map<String, Object> document(Map<String, Object> data, Map<String, Object> calculatedResults) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put(DATA, data != null ? data : Map.of());
+        document.put(CALCULATED_RESULTS, calculatedResults != null ? calculatedResults : Map.of());
+        return document;
+    }
+
+    private byte[] canonical(Map<String, Object> document) {
+        try {
+            return canonicalMapper.writeValueAsBytes(document);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize worksheet revision", e);
+        }
+    }
+
+    /** A private copy of a canonical document, safe from later changes to the entity's maps. */
+    private Map<String, Object> parse(byte[] canonical) {
+        try {
+            return canonicalMapper.readValue(canonical, DOCUMENT_TYPE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read worksheet revision", e);
+        }
+    }
+
+    private Map<String, Object> parseJson(String json) {
+        if (json == null) return Map.of();
+        try {
+            return canonicalMapper.readValue(json, DOCUMENT_TYPE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read legacy worksheet snapshot", e);
+        }
+    }
+
+    private static String hash(String previousHash, String status, byte[] canonicalDocument) {
+        MessageDigest digest = Sha256.newDigest();
+        digest.update((previousHash != null ? previousHash : "").getBytes(StandardCharsets.UTF_8));
+        digest.update((status != null ? status : "").getBytes(StandardCharsets.UTF_8));
+        digest.update(canonicalDocument);
+        return Sha256.hex(digest);
+    }
+
+    private static String currentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : "SYSTEM";
+    }
+}
@@ -0,0 +1,8 @@
+package com.lims.module.security.event;
+
+/**
+ * Published when a user uploads a new signature image; {@code previousPath} is null for a
+ * first upload.
+ */
+public record SignatureReplacedEvent(Long userId, String previousPath, String newPath) {
+}
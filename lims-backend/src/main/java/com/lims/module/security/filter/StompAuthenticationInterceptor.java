@@ -0,0 +1,78 @@
+package com.lims.module.security.filter;
+
+import com.lims.module.security.repository.UserRepository;
+import com.lims.module.security.service.JwtService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Authenticates STOMP sessions with the bearer token sent in the CONNECT frame, the way
+ * {@link JwtAuthenticationFilter} does for HTTP requests. The session's user is what user
+ * destinations are resolved against; it also carries the {@link ClientScope} captured at connect
+ * time, so messages sent per user can be limited to the clients that user may see.
+ */
+@Component
+@RequiredArgsConstructor
+public class StompAuthenticationInterceptor implements ChannelInterceptor {
+
+    private final JwtService jwtService;
+    private final UserRepository userRepository;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return message;
+        }
+
+        String token = authHeader.substring(7);
+        if (jwtService.isTokenValid(token)) {
+            String username = jwtService.extractUsername(token);
+            var authorities = jwtService.extractRoles(token).stream()
+                    .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                    .toList();
+
+            var authToken = new UsernamePasswordAuthenticationToken(username, null, authorities);
+            authToken.setDetails(new ClientScope(Set.copyOf(userRepository.findAssociatedClientIds(username))));
+            accessor.setUser(authToken);
+        }
+        return message;
+    }
+
+    /**
+     * Clients a STOMP session's user is associated with; an empty set means all clients.
+     */
+    public record ClientScope(Set<Long> clientIds) {
+
+        public static ClientScope of(Principal principal) {
+            return principal instanceof UsernamePasswordAuthenticationToken auth && auth.getDetails() instanceof ClientScope scope
+                    ? scope
+                    : null;
+        }
+
+        public boolean covers(Long clientId) {
+            return clientIds.isEmpty() || clientIds.contains(clientId);
+        }
+
+        public boolean isUnrestricted() {
+            return clientIds.isEmpty();
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.lims.module.security.repository;
 
 import com.lims.module.security.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +14,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    @Query("SELECT c.id FROM User u JOIN u.associatedClients c WHERE u.username = :username")
+    List<Long> findAssociatedClientIds(@Param("username") String username);
 }
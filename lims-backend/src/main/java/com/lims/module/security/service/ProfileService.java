@@ -3,10 +3,12 @@ package com.lims.module.security.service;
 import com.lims.module.security.dto.UpdateProfileRequest;
 import com.lims.module.security.dto.UserProfileDTO;
 import com.lims.module.security.entity.Role;
+import com.lims.module.security.event.SignatureReplacedEvent;
 import com.lims.module.security.entity.User;
 import com.lims.module.security.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +29,7 @@ public class ProfileService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${lims.upload.dir:./uploads}")
     private String uploadDir;
@@ -101,6 +104,7 @@ public class ProfileService {
         }
 
         // Delete old signature if exists
+        String previousPath = user.getSignatureImagePath();
         if (user.getSignatureImagePath() != null) {
             Path oldPath = Paths.get(user.getSignatureImagePath());
             if (Files.exists(oldPath)) {
@@ -116,6 +120,7 @@ public class ProfileService {
 
         user.setSignatureImagePath(filePath.toString());
         userRepository.save(user);
+        eventPublisher.publishEvent(new SignatureReplacedEvent(user.getId(), previousPath, filePath.toString()));
     }
 
     public Path getSignatureFile(String username) {
@@ -0,0 +1,4 @@
+-- Specimens and test results are written in JDBC batches with a pooled sequence
+-- optimizer (allocationSize = 50); the sequence increment must match.
+ALTER SEQUENCE specimens_id_seq INCREMENT BY 50;
+ALTER SEQUENCE test_results_id_seq INCREMENT BY 50;
@@ -0,0 +1,5 @@
+-- Optimistic version for delta (JSON Patch) draft saves
+ALTER TABLE worksheet_data ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Audit table sync
+ALTER TABLE worksheet_data_aud ADD COLUMN version BIGINT;
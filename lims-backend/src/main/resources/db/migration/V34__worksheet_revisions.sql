@@ -0,0 +1,24 @@
+-- Diff-based worksheet revision store; replaces full data/calculated_results snapshots in worksheet_data_aud
+CREATE TABLE worksheet_revisions (
+    id                BIGSERIAL    PRIMARY KEY,
+    worksheet_data_id BIGINT       NOT NULL REFERENCES worksheet_data(id) ON DELETE CASCADE,
+    sample_test_id    BIGINT       NOT NULL,
+    revision_number   INT          NOT NULL,
+    is_checkpoint     BOOLEAN      NOT NULL DEFAULT false,
+    snapshot          JSONB,
+    diff              JSONB        NOT NULL,
+    status            VARCHAR(30)  NOT NULL,
+    action            VARCHAR(30)  NOT NULL,
+    username          VARCHAR(100) NOT NULL,
+    previous_hash     VARCHAR(64),
+    content_hash      VARCHAR(64)  NOT NULL,
+    created_at        TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    updated_at        TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    CONSTRAINT uq_worksheet_revisions_number UNIQUE (worksheet_data_id, revision_number)
+);
+
+CREATE INDEX idx_worksheet_revisions_sample_test ON worksheet_revisions(sample_test_id, revision_number DESC);
+
+-- Existing full snapshots stay in worksheet_data_aud for the record; new audit rows no longer carry the documents
+ALTER TABLE worksheet_data_aud ALTER COLUMN data DROP NOT NULL;
+ALTER TABLE worksheet_data_aud ALTER COLUMN calculated_results DROP NOT NULL;
@@ -0,0 +1,5 @@
+-- Hash of an authorized specimen's lock-checked worksheet values (see SpecimenFingerprint)
+ALTER TABLE specimens ADD COLUMN lock_fingerprint VARCHAR(64);
+
+-- Audit table sync
+ALTER TABLE specimens_aud ADD COLUMN lock_fingerprint VARCHAR(64);
@@ -0,0 +1,19 @@
+-- Asynchronous report generation jobs (rendered on the lims.report-generation queue)
+CREATE TABLE report_jobs (
+    id              BIGSERIAL    PRIMARY KEY,
+    job_id          VARCHAR(36)  NOT NULL UNIQUE,
+    report_type     VARCHAR(30)  NOT NULL,
+    subject_id      BIGINT       NOT NULL,
+    status          VARCHAR(20)  NOT NULL DEFAULT 'QUEUED',
+    requested_by    VARCHAR(100) NOT NULL,
+    file_name       VARCHAR(200),
+    result_path     VARCHAR(500),
+    result_size     BIGINT,
+    error_message   VARCHAR(1000),
+    started_at      TIMESTAMPTZ,
+    completed_at    TIMESTAMPTZ,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    updated_at      TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_report_jobs_status ON report_jobs(status, completed_at);
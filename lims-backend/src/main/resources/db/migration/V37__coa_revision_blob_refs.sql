@@ -0,0 +1,8 @@
+-- COA revision PDFs move out of the table into the blob store; the row keeps a reference and hash.
+-- pdf_snapshot stays until CoaSnapshotService has moved every legacy row out, then it is dropped.
+ALTER TABLE coa_revisions ADD COLUMN pdf_ref VARCHAR(100);
+ALTER TABLE coa_revisions ADD COLUMN pdf_sha256 VARCHAR(64);
+ALTER TABLE coa_revisions ADD COLUMN pdf_size BIGINT;
+ALTER TABLE coa_revisions ALTER COLUMN pdf_snapshot DROP NOT NULL;
+
+CREATE INDEX idx_coa_revisions_unmigrated ON coa_revisions(id) WHERE pdf_ref IS NULL;
@@ -0,0 +1,10 @@
+-- When a sample reached AUTHORIZED, for selecting COAs by authorization date.
+ALTER TABLE samples ADD COLUMN authorized_at TIMESTAMPTZ;
+ALTER TABLE samples_aud ADD COLUMN authorized_at TIMESTAMPTZ;
+
+-- Best estimate for samples authorized before the column existed
+UPDATE samples s
+SET authorized_at = COALESCE((SELECT MAX(sp.authorized_at) FROM specimens sp WHERE sp.sample_id = s.id), s.updated_at)
+WHERE s.status = 'AUTHORIZED';
+
+CREATE INDEX idx_samples_authorized_at ON samples(authorized_at) WHERE authorized_at IS NOT NULL;
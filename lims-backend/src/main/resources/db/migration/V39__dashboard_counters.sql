@@ -0,0 +1,13 @@
+-- Sample counts per client and status, maintained as samples change (see DashboardCounterListener)
+CREATE TABLE dashboard_counters (
+    client_id    BIGINT      NOT NULL REFERENCES clients(id),
+    status       VARCHAR(30) NOT NULL,
+    sample_count BIGINT      NOT NULL DEFAULT 0,
+    PRIMARY KEY (client_id, status)
+);
+
+INSERT INTO dashboard_counters (client_id, status, sample_count)
+SELECT j.client_id, s.status, COUNT(*)
+FROM samples s
+JOIN jobs j ON j.id = s.job_id
+GROUP BY j.client_id, s.status;
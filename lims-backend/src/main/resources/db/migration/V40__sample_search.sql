@@ -0,0 +1,25 @@
+-- Denormalized search text per sample, maintained by SampleSearchIndexer
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE sample_search (
+    sample_id BIGINT      PRIMARY KEY REFERENCES samples(id) ON DELETE CASCADE,
+    client_id BIGINT      NOT NULL,
+    status    VARCHAR(30) NOT NULL,
+    document  TEXT        NOT NULL,
+    tsv       TSVECTOR    GENERATED ALWAYS AS (to_tsvector('simple', document)) STORED
+);
+
+INSERT INTO sample_search (sample_id, client_id, status, document)
+SELECT s.id, j.client_id, s.status,
+       LOWER(CONCAT_WS(' ', s.sample_number, s.barcode, s.description, s.status,
+                       j.job_number, j.project_name, c.name, p.name))
+FROM samples s
+JOIN jobs j ON j.id = s.job_id
+JOIN clients c ON c.id = j.client_id
+JOIN products p ON p.id = s.product_id;
+
+-- Prefix matches of whole words
+CREATE INDEX idx_sample_search_tsv ON sample_search USING GIN (tsv);
+-- Substring (LIKE '%x%') and misspelled (<%) matches
+CREATE INDEX idx_sample_search_trgm ON sample_search USING GIN (document gin_trgm_ops);
+CREATE INDEX idx_sample_search_client ON sample_search(client_id);
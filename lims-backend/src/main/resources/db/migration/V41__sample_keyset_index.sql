@@ -0,0 +1,2 @@
+-- Keyset paging of the sample list and the register export walk this index
+CREATE INDEX idx_samples_created_at_id ON samples(created_at, id);
@@ -0,0 +1,76 @@
+-- Every status a sample or sample test takes, appended by StatusTransitionRecorder.
+-- Client, product and test method are copied in so analytics never join back to the samples.
+CREATE TABLE status_transitions (
+    id              BIGSERIAL    PRIMARY KEY,
+    entity_type     VARCHAR(20)  NOT NULL,  -- SAMPLE | SAMPLE_TEST
+    entity_id       BIGINT       NOT NULL,
+    sample_id       BIGINT       NOT NULL,
+    client_id       BIGINT       NOT NULL,
+    product_id      BIGINT       NOT NULL,
+    test_method_id  BIGINT,
+    from_status     VARCHAR(30),
+    to_status       VARCHAR(30)  NOT NULL,
+    occurred_at     TIMESTAMPTZ  NOT NULL,
+    aggregated      BOOLEAN      NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX idx_status_transitions_entity ON status_transitions(entity_type, entity_id, id);
+CREATE INDEX idx_status_transitions_pending ON status_transitions(id) WHERE NOT aggregated;
+
+-- LatencyHistogram bucket counts per metric, status, client, product, test method (0 for
+-- sample-level metrics) and UTC day; maintained by TatAnalyticsService.
+CREATE TABLE tat_histograms (
+    metric          VARCHAR(20)  NOT NULL,
+    status          VARCHAR(30)  NOT NULL,
+    client_id       BIGINT       NOT NULL,
+    product_id      BIGINT       NOT NULL,
+    test_method_id  BIGINT       NOT NULL,
+    occurred_on     DATE         NOT NULL,
+    bucket          INT          NOT NULL,
+    sample_count    BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (metric, status, client_id, product_id, test_method_id, occurred_on, bucket)
+);
+
+CREATE INDEX idx_tat_histograms_day ON tat_histograms(occurred_on);
+
+-- History so far, from the audit trail: the first revision of each sample and test and every
+-- revision that changed its status. Left unaggregated so the next aggregation run folds it in.
+INSERT INTO status_transitions (entity_type, entity_id, sample_id, client_id, product_id, test_method_id,
+                                from_status, to_status, occurred_at)
+SELECT entity_type, entity_id, sample_id, client_id, product_id, test_method_id, from_status, to_status, occurred_at
+FROM (
+    SELECT 'SAMPLE' AS entity_type, a.id AS entity_id, s.id AS sample_id, j.client_id, s.product_id,
+           CAST(NULL AS BIGINT) AS test_method_id,
+           a.prev_status AS from_status, a.status AS to_status, a.occurred_at
+    FROM (
+        SELECT sa.id, sa.status, sa.rev,
+               LAG(sa.status) OVER (PARTITION BY sa.id ORDER BY sa.rev) AS prev_status,
+               ROW_NUMBER() OVER (PARTITION BY sa.id ORDER BY sa.rev) AS n,
+               to_timestamp(r.revtstmp / 1000.0) AS occurred_at
+        FROM samples_aud sa
+        JOIN revinfo r ON r.rev = sa.rev
+        WHERE sa.revtype IN (0, 1) AND sa.status IS NOT NULL
+    ) a
+    JOIN samples s ON s.id = a.id
+    JOIN jobs j ON j.id = s.job_id
+    WHERE a.n = 1 OR a.status IS DISTINCT FROM a.prev_status
+
+    UNION ALL
+
+    SELECT 'SAMPLE_TEST', a.id, s.id, j.client_id, s.product_id, t.test_method_id,
+           a.prev_status, a.status, a.occurred_at
+    FROM (
+        SELECT ta.id, ta.status, ta.rev,
+               LAG(ta.status) OVER (PARTITION BY ta.id ORDER BY ta.rev) AS prev_status,
+               ROW_NUMBER() OVER (PARTITION BY ta.id ORDER BY ta.rev) AS n,
+               to_timestamp(r.revtstmp / 1000.0) AS occurred_at
+        FROM sample_tests_aud ta
+        JOIN revinfo r ON r.rev = ta.rev
+        WHERE ta.revtype IN (0, 1) AND ta.status IS NOT NULL
+    ) a
+    JOIN sample_tests t ON t.id = a.id
+    JOIN samples s ON s.id = t.sample_id
+    JOIN jobs j ON j.id = s.job_id
+    WHERE a.n = 1 OR a.status IS DISTINCT FROM a.prev_status
+) history
+ORDER BY occurred_at, entity_type, entity_id;
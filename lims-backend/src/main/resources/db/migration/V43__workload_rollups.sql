@@ -0,0 +1,13 @@
+-- Sample tests per analyst, UTC day and bucket (ASSIGNED | SUBMITTED | AUTHORIZED | OPEN), kept
+-- current by WorkloadRollupListener. OPEN rows hold signed changes in open tests; their sum up
+-- to a day is the analyst's open workload on that day.
+-- Filled from the audit trail by WorkloadRollupService on the first start after this migration.
+CREATE TABLE workload_rollups (
+    analyst_id   BIGINT       NOT NULL REFERENCES users(id),
+    occurred_on  DATE         NOT NULL,
+    bucket       VARCHAR(20)  NOT NULL,
+    test_count   BIGINT       NOT NULL DEFAULT 0,
+    PRIMARY KEY (analyst_id, occurred_on, bucket)
+);
+
+CREATE INDEX idx_workload_rollups_day ON workload_rollups(occurred_on);
@@ -0,0 +1,14 @@
+-- Report job output moves to the blob store, so any node can serve the download; the column keeps
+-- the blob reference. Jobs also track their render attempts and when they were last queued, so a
+-- sweep can re-queue jobs whose message or worker was lost and retry renders deferred as busy.
+ALTER TABLE report_jobs RENAME COLUMN result_path TO result_ref;
+ALTER TABLE report_jobs ALTER COLUMN result_ref TYPE VARCHAR(100);
+ALTER TABLE report_jobs ADD COLUMN attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE report_jobs ADD COLUMN queued_at TIMESTAMPTZ;
+ALTER TABLE report_jobs ADD COLUMN retry_at TIMESTAMPTZ;
+
+UPDATE report_jobs SET queued_at = created_at WHERE status = 'QUEUED';
+-- Files of finished jobs were on the node that rendered them and cannot be served any more
+UPDATE report_jobs SET result_ref = NULL WHERE status = 'COMPLETED';
+
+CREATE INDEX idx_report_jobs_pending ON report_jobs(status, started_at) WHERE status IN ('QUEUED', 'RUNNING');
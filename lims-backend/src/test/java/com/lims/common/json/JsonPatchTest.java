@@ -0,0 +1,73 @@
+package com.lims.common.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonPatchTest {
+
+    private static JsonPatchOperation op(String op, String path, Object value) {
+        return JsonPatchOperation.builder().op(op).path(path).value(value).build();
+    }
+
+    private static Map<String, Object> document() {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("info", new LinkedHashMap<>(Map.of("temp", "20")));
+        doc.put("rows", new ArrayList<>(List.of(
+                new LinkedHashMap<>(Map.of("mass", "1")),
+                new LinkedHashMap<>(Map.of("mass", "2")))));
+        return doc;
+    }
+
+    @Test
+    void reportsOnlyChangedPathsAndLeavesInputUntouched() {
+        Map<String, Object> doc = document();
+
+        JsonPatch.Result result = JsonPatch.apply(doc, List.of(
+                op("replace", "/rows/1/mass", "9"),
+                op("add", "/matrix", Map.of()),
+                op("add", "/matrix/r1", Map.of("c1", "5"))));
+
+        assertEquals(List.of(List.of("rows", "1", "mass"), List.of("matrix")), result.changedPaths());
+        assertEquals("9", ((Map<?, ?>) ((List<?>) result.document().get("rows")).get(1)).get("mass"));
+        assertEquals("2", ((Map<?, ?>) ((List<?>) doc.get("rows")).get(1)).get("mass"));
+    }
+
+    @Test
+    void arrayRemovalMarksWholeArrayAndRemovedMembersAreAbsent() {
+        JsonPatch.Result result = JsonPatch.apply(document(), List.of(
+                op("remove", "/rows/0", null),
+                op("remove", "/info/temp", null)));
+
+        assertEquals(List.of(List.of("rows"), List.of("info", "temp")), result.changedPaths());
+        assertSame(JsonPatch.ABSENT, result.valueAt(List.of("info", "temp")));
+    }
+
+    @Test
+    void failedTestOperationRejectsWholePatch() {
+        assertThrows(JsonPatchException.class, () -> JsonPatch.apply(document(), List.of(
+                op("replace", "/info/temp", "21"),
+                op("test", "/info/temp", "20"))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void diffReplaysToTarget() {
+        Map<String, Object> target = document();
+        ((Map<String, Object>) target.get("info")).remove("temp");
+        ((Map<String, Object>) target.get("info")).put("humidity", "45");
+        ((List<Object>) target.get("rows")).remove(1);
+        ((Map<String, Object>) ((List<?>) target.get("rows")).get(0)).put("mass", "1.5");
+        target.put("notes", "re-weighed");
+
+        List<JsonPatchOperation> diff = JsonDiff.diff(document(), target);
+
+        assertEquals(target, JsonPatch.apply(document(), diff).document());
+        assertTrue(JsonDiff.diff(target, target).isEmpty());
+    }
+}
@@ -0,0 +1,55 @@
+package com.lims.common.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesAreWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long s = 1; s <= 1000; s++) {
+            histogram.record(s * 60);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertWithinTenPercent(500 * 60, histogram.percentile(50));
+        assertWithinTenPercent(900 * 60, histogram.percentile(90));
+        assertWithinTenPercent(990 * 60, histogram.percentile(99));
+        assertWithinTenPercent(500 * 60, histogram.mean());
+    }
+
+    @Test
+    void mergingEqualsRecordingIntoOne() {
+        LatencyHistogram monday = new LatencyHistogram();
+        LatencyHistogram tuesday = new LatencyHistogram();
+        LatencyHistogram both = new LatencyHistogram();
+        for (long s = 1; s <= 500; s++) {
+            monday.record(s * 37);
+            tuesday.record(s * 3600);
+            both.record(s * 37);
+            both.record(s * 3600);
+        }
+
+        monday.merge(tuesday);
+
+        assertEquals(both.buckets(), monday.buckets());
+        assertEquals(both.percentile(99), monday.percentile(99));
+    }
+
+    @Test
+    void bucketBoundsEncloseTheDuration() {
+        for (long seconds : new long[]{2, 10, 11, 3600, 86_400, 31_536_000}) {
+            int bucket = LatencyHistogram.bucketOf(seconds);
+            assertTrue(LatencyHistogram.lowerBoundSeconds(bucket) < seconds);
+            assertTrue(LatencyHistogram.upperBoundSeconds(bucket) >= seconds * (1 - 1e-9));
+        }
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(0, new LatencyHistogram().percentile(50));
+    }
+
+    private static void assertWithinTenPercent(double expected, double actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * 0.1, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,107 @@
+package com.lims.module.sample;
+
+import com.lims.module.sample.dto.SampleDTO;
+import com.lims.module.sample.entity.*;
+import com.lims.module.sample.service.SampleService;
+import com.lims.module.security.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A page of the sample list must cost a fixed number of statements, however many samples,
+ * specimens, jobs, clients and products it shows.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Transactional
+class SampleListQueryCountTest {
+
+    private static final int SPECIMENS_PER_SAMPLE = 3;
+
+    @Autowired EntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired SampleService sampleService;
+
+    User analyst;
+    int created;
+
+    @BeforeEach
+    void setup() {
+        analyst = User.builder().username("list-analyst").displayName("List Analyst").build();
+        entityManager.persist(analyst);
+    }
+
+    @Test
+    @WithMockUser(username = "list-viewer", roles = {"USER"})
+    void listPageUsesFixedNumberOfQueries() {
+        createSamples(2);
+        long fewSamples = statementsForFirstPage(2);
+
+        createSamples(28);
+        long manySamples = statementsForFirstPage(30);
+
+        // User lookup, page of ids, sample rows, specimens
+        assertEquals(4, fewSamples);
+        assertEquals(fewSamples, manySamples);
+    }
+
+    private long statementsForFirstPage(int expectedSamples) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<SampleDTO> page = sampleService.listSamples(null, null, PageRequest.of(0, 50, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertEquals(expectedSamples, page.getContent().size());
+        SampleDTO newest = page.getContent().get(0);
+        assertEquals("LIST-SAM-" + created, newest.getSampleNumber());
+        assertEquals("List Client " + created, newest.getClientName());
+        assertEquals(SPECIMENS_PER_SAMPLE, newest.getSpecimenCount());
+        assertEquals(1, newest.getAuthorizedSpecimenCount());
+        assertEquals("List Analyst", newest.getSpecimens().get(0).getTestedBy());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void createSamples(int count) {
+        for (int i = 0; i < count; i++) {
+            int n = ++created;
+            // A job, client and product per sample, so eager to-one fetching would show up
+            Client client = Client.builder().name("List Client " + n).code("LC-" + n).build();
+            entityManager.persist(client);
+            Product product = Product.builder().name("List Product " + n).code("LP-" + n).build();
+            entityManager.persist(product);
+            Job job = Job.builder().jobNumber("LIST-JOB-" + n).client(client).projectName("List").build();
+            entityManager.persist(job);
+            Sample sample = Sample.builder().sampleNumber("LIST-SAM-" + n).job(job).product(product)
+                    .receivedBy(analyst).receivedAt(Instant.now()).build();
+            entityManager.persist(sample);
+            for (int s = 1; s <= SPECIMENS_PER_SAMPLE; s++) {
+                entityManager.persist(Specimen.builder()
+                        .sample(sample)
+                        .specimenNumber(s)
+                        .status(s == 1 ? "AUTHORIZED" : "TESTED")
+                        .testedBy(analyst)
+                        .testedAt(Instant.now())
+                        .authorizedBy(s == 1 ? analyst : null)
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,102 @@
+package com.lims.module.sample;
+
+import com.lims.module.sample.dto.SpecimenDTO;
+import com.lims.module.sample.entity.*;
+import com.lims.module.sample.service.WorksheetDataService;
+import com.lims.module.security.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Opening a worksheet must cost a fixed number of statements, however many specimens it has.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Transactional
+class WorksheetViewQueryCountTest {
+
+    private static final int SPECIMENS = 28;
+
+    @Autowired EntityManager entityManager;
+    @Autowired EntityManagerFactory entityManagerFactory;
+    @Autowired WorksheetDataService worksheetDataService;
+
+    Long sampleTestId;
+
+    @BeforeEach
+    void setup() {
+        User analyst = User.builder().username("qc-analyst").displayName("QC Analyst").build();
+        entityManager.persist(analyst);
+        Client client = Client.builder().name("Cube Client").code("QC-C").build();
+        entityManager.persist(client);
+        Product product = Product.builder().name("Concrete Cube").code("QC-P").build();
+        entityManager.persist(product);
+        Job job = Job.builder().jobNumber("QC-JOB-1").client(client).projectName("Bridge").build();
+        entityManager.persist(job);
+        Sample sample = Sample.builder().sampleNumber("QC-SAM-1").job(job).product(product).receivedAt(Instant.now()).build();
+        entityManager.persist(sample);
+        TestMethod method = TestMethod.builder().name("Compressive Strength").code("QC-CS").hasWorksheet(true).build();
+        entityManager.persist(method);
+        MethodDefinition definition = MethodDefinition.builder()
+                .testMethod(method)
+                .status("PUBLISHED")
+                .schemaDefinition(Map.of("sections", List.of()))
+                .build();
+        entityManager.persist(definition);
+        SampleTest sampleTest = SampleTest.builder().sample(sample).testMethod(method).status("IN_PROGRESS").build();
+        entityManager.persist(sampleTest);
+        entityManager.persist(WorksheetData.builder()
+                .sampleTest(sampleTest)
+                .methodDefinition(definition)
+                .data(Map.of("cubes", Map.of("mass", "2.41")))
+                .build());
+
+        for (int n = 1; n <= SPECIMENS; n++) {
+            Specimen specimen = Specimen.builder()
+                    .sample(sample)
+                    .specimenNumber(n)
+                    .status("TESTED")
+                    .testedBy(analyst)
+                    .testedAt(Instant.now())
+                    .build();
+            entityManager.persist(specimen);
+            entityManager.persist(TestResult.builder().sampleTest(sampleTest).specimen(specimen).enteredBy(analyst).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        sampleTestId = sampleTest.getId();
+    }
+
+    @Test
+    @WithMockUser(username = "qc-analyst", roles = {"ANALYST"})
+    @SuppressWarnings("unchecked")
+    void getWorksheetUsesFixedNumberOfQueries() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Map<String, Object> worksheet = worksheetDataService.getWorksheet(sampleTestId);
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals("QC-SAM-1", ((Map<String, Object>) worksheet.get("context")).get("sample.sampleNumber"));
+        assertEquals("Cube Client", ((Map<String, Object>) worksheet.get("context")).get("sample.job.client.name"));
+
+        List<SpecimenDTO> specimens = (List<SpecimenDTO>) worksheet.get("specimenStatuses");
+        assertEquals(SPECIMENS, specimens.size());
+        assertTrue(specimens.stream().allMatch(sp -> "QC Analyst".equals(sp.getTestedBy()) && sp.getTestResultId() != null));
+    }
+}
@@ -0,0 +1,61 @@
+package com.lims.module.sample.formula;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormulaGraphTest {
+
+    private static Map<String, Object> cv(String id, String expression) {
+        return Map.of("id", id, "expression", expression);
+    }
+
+    @Test
+    void evaluatesAggregatesAndCalcReferencesInDependencyOrder() {
+        FormulaGraph graph = FormulaGraph.compile(List.of(
+                Map.of("id", "doubled", "expression", "calc:avgMass * 2", "format", "%.2f"),
+                cv("avgMass", "AVG(results.*.mass)"),
+                cv("label", "IF(header.customer == 'ACME', 'priority', 'standard')")));
+        WorksheetValues values = new WorksheetValues(
+                Map.of("results", List.of(Map.of("mass", "10"), Map.of("mass", 20), Map.of("mass", ""))),
+                Map.of("header.customer", "ACME"));
+
+        Map<String, String> results = graph.evaluate(values);
+
+        assertTrue(graph.errors().isEmpty());
+        assertEquals("15", results.get("avgMass"));
+        assertEquals("30.00", results.get("doubled"));
+        assertEquals("priority", results.get("label"));
+    }
+
+    @Test
+    void recomputesOnlyVariablesReadingTheChangedSection() {
+        FormulaGraph graph = FormulaGraph.compile(List.of(
+                cv("temp", "info.temp + 1"),
+                cv("total", "SUM(results.*.mass)"),
+                cv("ratio", "calc:total / calc:temp")));
+        FormulaGraph.Session session = graph.newSession(new WorksheetValues(
+                Map.of("info", Map.of("temp", "9"), "results", List.of(Map.of("mass", "5"))), Map.of()));
+        assertEquals(3, session.recompute());
+
+        session.updateSection("results", List.of(Map.of("mass", "5"), Map.of("mass", "15")));
+
+        assertEquals(2, session.recompute());
+        assertEquals(2.0, session.value("ratio"));
+    }
+
+    @Test
+    void reportsCyclesUnknownReferencesAndTypeErrors() {
+        FormulaGraph graph = FormulaGraph.compile(List.of(
+                cv("a", "calc:b + 1"),
+                cv("b", "calc:a + 1"),
+                cv("c", "calc:missing"),
+                cv("d", "header.customer * 2")));
+
+        assertEquals(4, graph.errors().size());
+        assertEquals("", graph.evaluate(new WorksheetValues(Map.of(), Map.of())).get("a"));
+    }
+}
@@ -0,0 +1,36 @@
+package com.lims.module.sample.service;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MergedRegionIndexTest {
+
+    private final MergedRegionIndex index = new MergedRegionIndex(List.of(
+            new CellRangeAddress(0, 0, 0, 3),   // A1:D1
+            new CellRangeAddress(2, 4, 1, 2))); // B3:C5
+
+    @Test
+    void topLeftCellOfARegionIsDrawn() {
+        assertFalse(index.isMergedButNotFirst(0, 0));
+        assertFalse(index.isMergedButNotFirst(2, 1));
+    }
+
+    @Test
+    void coveredCellsAreSkipped() {
+        assertTrue(index.isMergedButNotFirst(0, 3));
+        assertTrue(index.isMergedButNotFirst(3, 1));
+        assertTrue(index.isMergedButNotFirst(4, 2));
+    }
+
+    @Test
+    void cellsOutsideAnyRegionAreNotMerged() {
+        assertNull(index.regionAt(1, 0));
+        assertNull(index.regionAt(3, 0));
+        assertNull(index.regionAt(3, 3));
+        assertFalse(index.isMergedButNotFirst(5, 1));
+    }
+}
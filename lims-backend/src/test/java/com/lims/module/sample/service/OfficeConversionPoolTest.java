@@ -0,0 +1,75 @@
+package com.lims.module.sample.service;
+
+import com.lims.common.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jodconverter.core.DocumentConverter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OfficeConversionPoolTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void rejectsWithRetryHintWhenProcessesAndQueueAreFull() throws Exception {
+        OfficeConversionPool pool = new OfficeConversionPool(mock(DocumentConverter.class), registry, 1, 0, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.execute("first", converter -> {
+                    running.countDown();
+                    release.await();
+                    return "done";
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        ServiceBusyException busy = assertThrows(ServiceBusyException.class,
+                () -> pool.execute("second", converter -> "never"));
+        assertTrue(busy.getRetryAfterSeconds() >= 1);
+        assertEquals(1.0, registry.get("lims.conversion.rejected").counter().count());
+        assertEquals(1.0, registry.get("lims.conversion.active").gauge().value());
+
+        release.countDown();
+        assertEquals("done", first.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", pool.execute("third", converter -> "ok"));
+        assertEquals(2, registry.get("lims.conversion.duration").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void timesOutInQueueWhenNoProcessFreesUp() throws Exception {
+        OfficeConversionPool pool = new OfficeConversionPool(mock(DocumentConverter.class), registry, 1, 1, 0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                pool.execute("first", converter -> {
+                    running.countDown();
+                    release.await();
+                    return null;
+                });
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ServiceBusyException.class, () -> pool.execute("queued", converter -> "never"));
+        assertEquals(1, registry.get("lims.conversion.queue.wait").timer().count());
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,77 @@
+package com.lims.module.sample.service;
+
+import com.lims.module.sample.entity.WorkloadRollup;
+import com.lims.module.sample.entity.WorkloadRollupId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadRollupRulesTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 2);
+    private static final long TEST = 7L;
+    private static final long ALICE = 1L;
+    private static final long BOB = 2L;
+
+    @Test
+    void assignedTestIsOpenUntilSubmittedThenAuthorized() {
+        List<WorkloadRollupRules.Contribution> changes = new ArrayList<>();
+        WorkloadRollupRules.changes(TEST, null, null, ALICE, "PENDING", DAY, changes);
+        WorkloadRollupRules.changes(TEST, ALICE, "PENDING", ALICE, "IN_PROGRESS", DAY, changes);
+        WorkloadRollupRules.changes(TEST, ALICE, "IN_PROGRESS", ALICE, "UNDER_REVIEW", DAY, changes);
+        WorkloadRollupRules.changes(TEST, ALICE, "UNDER_REVIEW", ALICE, "AUTHORIZED", DAY, changes);
+
+        Map<WorkloadRollupId, Long> rollups = sum(changes, Map.of());
+
+        assertEquals(1L, rollups.get(id(ALICE, WorkloadRollup.ASSIGNED)));
+        assertEquals(1L, rollups.get(id(ALICE, WorkloadRollup.SUBMITTED)));
+        assertEquals(1L, rollups.get(id(ALICE, WorkloadRollup.AUTHORIZED)));
+        assertEquals(0L, rollups.get(id(ALICE, WorkloadRollup.OPEN)));
+    }
+
+    @Test
+    void openCountDependsOnlyOnTheStatesAtEitherEnd() {
+        List<WorkloadRollupRules.Contribution> stepByStep = new ArrayList<>();
+        WorkloadRollupRules.changes(TEST, null, "PENDING", ALICE, "PENDING", DAY, stepByStep);
+        WorkloadRollupRules.changes(TEST, ALICE, "PENDING", BOB, "IN_PROGRESS", DAY, stepByStep);
+        WorkloadRollupRules.changes(TEST, BOB, "IN_PROGRESS", BOB, "COMPLETED", DAY, stepByStep);
+
+        // The same changes as one audit revision would record them
+        List<WorkloadRollupRules.Contribution> atOnce = new ArrayList<>();
+        WorkloadRollupRules.changes(TEST, null, "PENDING", BOB, "COMPLETED", DAY, atOnce);
+
+        Map<WorkloadRollupId, Long> a = sum(stepByStep, Map.of());
+        Map<WorkloadRollupId, Long> b = sum(atOnce, Map.of());
+        assertEquals(a.getOrDefault(id(ALICE, WorkloadRollup.OPEN), 0L), b.getOrDefault(id(ALICE, WorkloadRollup.OPEN), 0L));
+        assertEquals(a.getOrDefault(id(BOB, WorkloadRollup.OPEN), 0L), b.getOrDefault(id(BOB, WorkloadRollup.OPEN), 0L));
+        assertEquals(1L, b.get(id(BOB, WorkloadRollup.SUBMITTED)));
+    }
+
+    @Test
+    void unassignedWorkIsCreditedToTheResultAnalyst() {
+        List<WorkloadRollupRules.Contribution> changes = new ArrayList<>();
+        WorkloadRollupRules.changes(TEST, null, "PENDING", null, "UNDER_REVIEW", DAY, changes);
+        WorkloadRollupRules.changes(8L, null, "PENDING", null, "UNDER_REVIEW", DAY, changes);
+
+        assertEquals(List.of(TEST, 8L), WorkloadRollupRules.unresolvedTests(changes));
+        Map<WorkloadRollupId, Long> rollups = sum(changes, Map.of(TEST, BOB));
+
+        assertEquals(Map.of(id(BOB, WorkloadRollup.SUBMITTED), 1L), rollups);
+    }
+
+    private static Map<WorkloadRollupId, Long> sum(List<WorkloadRollupRules.Contribution> changes, Map<Long, Long> resultAnalysts) {
+        Map<WorkloadRollupId, Long> rollups = new HashMap<>();
+        WorkloadRollupRules.sum(changes, resultAnalysts, rollups);
+        return rollups;
+    }
+
+    private static WorkloadRollupId id(long analyst, String bucket) {
+        return new WorkloadRollupId(analyst, DAY, bucket);
+    }
+}
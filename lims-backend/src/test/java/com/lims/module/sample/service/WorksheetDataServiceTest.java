@@ -10,13 +10,17 @@ import com.lims.module.sample.repository.TestResultRepository;
 import com.lims.module.sample.repository.WorksheetDataRepository;
 import com.lims.module.security.repository.UserRepository;
 import com.lims.module.notification.service.DataSyncService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -35,11 +39,15 @@ class WorksheetDataServiceTest {
     @Mock private DataSyncService dataSyncService;
     @Mock private MethodDefinitionService methodDefinitionService;
     @Mock private com.lims.module.sample.repository.SpecimenRepository specimenRepository;
+    @Mock private com.lims.module.sample.repository.WorksheetDataPatchWriter worksheetDataPatchWriter;
+    @Mock private WorksheetRevisionService worksheetRevisionService;
+    @Mock private WorksheetCalculationService worksheetCalculationService;
 
     private WorksheetDataService worksheetDataService;
 
     @BeforeEach
     void setUp() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("analyst", null));
         worksheetDataService = new WorksheetDataService(
                 worksheetDataRepository,
                 sampleTestRepository,
@@ -48,10 +56,24 @@ class WorksheetDataServiceTest {
                 userRepository,
                 dataSyncService,
                 methodDefinitionService,
-                specimenRepository
+                specimenRepository,
+                new CompiledSchemaCache(),
+                worksheetDataPatchWriter,
+                worksheetRevisionService,
+                worksheetCalculationService
         );
     }
 
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /** A {@code findWorksheetView} row for a freshly created draft worksheet. */
+    private static Object[] viewRow() {
+        return new Object[]{Map.of(), "DRAFT", 0L, Map.of(), 5L, "SAM-001", null, null, null, null, null, null, null};
+    }
+
     @Test
     void shouldCreateWorksheetDataWithMethodDefinitionWhenNotFound() {
         // Arrange
@@ -71,7 +93,7 @@ class WorksheetDataServiceTest {
 
         when(sampleTestRepository.findById(sampleTestId)).thenReturn(Optional.of(sampleTest));
         when(methodDefinitionService.getActiveDefinitionEntity(testMethodId)).thenReturn(activeDef);
-        when(worksheetDataRepository.findBySampleTestId(sampleTestId)).thenReturn(Optional.empty());
+        when(worksheetDataRepository.findWorksheetView(sampleTestId)).thenReturn(List.of(), List.<Object[]>of(viewRow()));
         
         // Mock save to return the saved object (simulating DB assigning ID)
         when(worksheetDataRepository.save(any(WorksheetData.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -124,7 +146,7 @@ class WorksheetDataServiceTest {
 
         when(sampleTestRepository.findById(sampleTestId)).thenReturn(Optional.of(sampleTest));
         when(methodDefinitionService.getActiveDefinitionEntity(testMethodId)).thenReturn(activeDef);
-        when(worksheetDataRepository.findBySampleTestId(sampleTestId)).thenReturn(Optional.empty());
+        when(worksheetDataRepository.findWorksheetView(sampleTestId)).thenReturn(List.of(), List.<Object[]>of(viewRow()));
         when(worksheetDataRepository.save(any(WorksheetData.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
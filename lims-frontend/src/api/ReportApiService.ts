@@ -1,17 +1,25 @@
 import apiClient from './client';
 
 export interface TatReportDTO {
+    /** SAMPLE_TAT | TEST_TAT (received/created to authorized) or SAMPLE_DWELL | TEST_DWELL (time in a status) */
+    metric: 'SAMPLE_TAT' | 'TEST_TAT' | 'SAMPLE_DWELL' | 'TEST_DWELL';
     status: string;
     count: number;
     averageTatHours: number;
     minTatHours: number;
     maxTatHours: number;
+    p50TatHours: number;
+    p90TatHours: number;
+    p99TatHours: number;
 }
 
 export interface WorkloadReportDTO {
     analystName: string;
-    samplesAssigned: number;
+    testsAssigned: number;
+    /** Submitted for review in the range */
     testsCompleted: number;
+    testsAuthorized: number;
+    /** Assigned and not yet submitted at the end of the range */
     testsPending: number;
 }
 
@@ -26,14 +34,29 @@ export interface OverdueSampleDTO {
     assignedTo: string;
 }
 
+export interface ReportJobDTO {
+    jobId: string;
+    reportType: 'COA' | 'TRF' | 'WORKSHEET';
+    subjectId: number;
+    status: 'QUEUED' | 'RUNNING' | 'COMPLETED' | 'FAILED';
+    requestedBy: string;
+    fileName?: string;
+    resultSize?: number;
+    errorMessage?: string;
+    createdAt: string;
+    startedAt?: string;
+    completedAt?: string;
+}
+
 export const ReportApiService = {
     getTatReport: async (): Promise<TatReportDTO[]> => {
         const response = await apiClient.get('/reports/tat');
         return response.data;
     },
 
-    getWorkloadReport: async (): Promise<WorkloadReportDTO[]> => {
-        const response = await apiClient.get('/reports/workload');
+    /** Dates are UTC days (YYYY-MM-DD), both inclusive; omitted bounds mean all history up to today. */
+    getWorkloadReport: async (from?: string, to?: string): Promise<WorkloadReportDTO[]> => {
+        const response = await apiClient.get('/reports/workload', { params: { from, to } });
         return response.data;
     },
 
@@ -42,6 +65,23 @@ export const ReportApiService = {
         return response.data;
     },
 
+    submitReportJob: async (reportType: ReportJobDTO['reportType'], subjectId: number): Promise<ReportJobDTO> => {
+        const response = await apiClient.post('/reports/jobs', { reportType, subjectId });
+        return response.data;
+    },
+
+    getReportJob: async (jobId: string): Promise<ReportJobDTO> => {
+        const response = await apiClient.get(`/reports/jobs/${jobId}`);
+        return response.data;
+    },
+
+    downloadReportJob: async (jobId: string): Promise<Blob> => {
+        const response = await apiClient.get(`/reports/jobs/${jobId}/download`, {
+            responseType: 'blob',
+        });
+        return response.data;
+    },
+
     downloadCoa: async (sampleId: number): Promise<Blob> => {
         const response = await apiClient.get(`/reports/coa/${sampleId}`, {
             responseType: 'blob',
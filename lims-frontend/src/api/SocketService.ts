@@ -8,6 +8,17 @@ export interface DataSyncEvent {
     action: string;   // e.g. "RESULT_ENTERED", "RECEIVED", "REVIEW_AUTHORIZE"
 }
 
+// Summed over all clients; per-client changes are not broadcast
+export interface DashboardCounterDelta {
+    status: string;   // sample status, e.g. "REGISTERED"
+    delta: number;
+}
+
+export interface DashboardCounterEvent {
+    type: 'DELTA' | 'RESYNC';   // RESYNC: counters were corrected server-side, refetch
+    deltas?: DashboardCounterDelta[];
+}
+
 class SocketService {
     private client: Client | null = null;
 
@@ -17,6 +28,9 @@ class SocketService {
     // Global data-sync listeners (operations refresh)
     private syncListeners: Set<(event: DataSyncEvent) => void> = new Set();
 
+    // Dashboard counter listeners (live sample counts)
+    private dashboardListeners: Set<(event: DashboardCounterEvent) => void> = new Set();
+
     connect() {
         if (this.client?.active) return;
 
@@ -49,6 +63,17 @@ class SocketService {
                         this.syncListeners.forEach(listener => listener(event));
                     }
                 });
+
+                // Channel 3: Dashboard counters. Deltas are per user, covering only the clients
+                // this user may see (applied in place, no refetch); RESYNC goes to everyone
+                const onDashboardEvent = (message: IMessage) => {
+                    if (message.body) {
+                        const event: DashboardCounterEvent = JSON.parse(message.body);
+                        this.dashboardListeners.forEach(listener => listener(event));
+                    }
+                };
+                this.client?.subscribe('/user/queue/dashboard', onDashboardEvent);
+                this.client?.subscribe('/topic/dashboard', onDashboardEvent);
             },
             onStompError: (frame: IFrame) => {
                 console.error('Broker reported error: ' + frame.headers['message']);
@@ -77,11 +102,21 @@ class SocketService {
         return () => { this.syncListeners.delete(callback); };
     }
 
+    /** Subscribe to dashboard counter changes */
+    subscribeDashboardCounters(callback: (event: DashboardCounterEvent) => void) {
+        this.dashboardListeners.add(callback);
+        if (!this.client?.active) {
+            this.connect();
+        }
+        return () => { this.dashboardListeners.delete(callback); };
+    }
+
     disconnect() {
         this.client?.deactivate();
         this.client = null;
         this.notificationListeners.clear();
         this.syncListeners.clear();
+        this.dashboardListeners.clear();
     }
 }
 
@@ -34,8 +34,20 @@ export const WorksheetService = {
     return apiClient.post(`/worksheet/${sampleTestId}/reject-review`);
   },
   
-  getHistory: async (sampleTestId: string | number) => {
-    return apiClient.get(`/worksheet/${sampleTestId}/history`);
+  getHistory: async (sampleTestId: string | number, page = 0, size = 50) => {
+    return apiClient.get(`/worksheet/${sampleTestId}/history`, { params: { page, size } });
+  },
+
+  getRevision: async (sampleTestId: string | number, revisionNumber: number) => {
+    return apiClient.get(`/worksheet/${sampleTestId}/history/${revisionNumber}`);
+  },
+
+  getLegacyHistory: async (sampleTestId: string | number, page = 0, size = 50) => {
+    return apiClient.get(`/worksheet/${sampleTestId}/history/legacy`, { params: { page, size } });
+  },
+
+  getLegacyRevision: async (sampleTestId: string | number, auditRevision: number) => {
+    return apiClient.get(`/worksheet/${sampleTestId}/history/legacy/${auditRevision}`);
   },
 
   reviewerEdit: async (sampleTestId: string | number, data: Record<string, any>, comment?: string) => {
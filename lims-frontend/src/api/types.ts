@@ -104,6 +104,7 @@ export interface DashboardStats {
     awaitingAuthorizationCount: number;
     authorizedTodayCount: number;
     rejectedCount: number;
+    clientIds: number[] | null;   // clients the counts cover; null for all clients
 }
 export interface SampleTestDTO {
     id: number;
@@ -1,7 +1,32 @@
 import { useEffect } from 'react';
 import { useQueryClient } from '@tanstack/react-query';
 import { socketService } from '../api/SocketService';
-import type { DataSyncEvent } from '../api/SocketService';
+import type { DataSyncEvent, DashboardCounterEvent } from '../api/SocketService';
+import type { DashboardStats } from '../api/types';
+
+// Sample status -> dashboard figure it counts towards
+const STAT_BY_STATUS: Record<string, keyof Omit<DashboardStats, 'clientIds'>> = {
+    REGISTERED: 'unreceivedCount',
+    RECEIVED: 'inProgressCount',
+    IN_PROGRESS: 'inProgressCount',
+    COMPLETED: 'awaitingAuthorizationCount',
+    AUTHORIZED: 'authorizedTodayCount',
+    REJECTED: 'rejectedCount',
+};
+
+// Cached queries holding DashboardStats
+const STATS_QUERY_KEYS = [['dashboard', 'stats'], ['sampleStats']];
+
+function applyDeltas(stats: DashboardStats | undefined, event: DashboardCounterEvent): DashboardStats | undefined {
+    if (!stats) return stats;
+    const next = { ...stats };
+    for (const d of event.deltas ?? []) {
+        const stat = STAT_BY_STATUS[d.status];
+        if (!stat) continue;
+        next[stat] += d.delta;
+    }
+    return next;
+}
 
 /**
  * GlobalSyncProvider listens to the /topic/operations-sync WebSocket channel
@@ -9,6 +34,9 @@ import type { DataSyncEvent } from '../api/SocketService';
  * 
  * This ensures that all "operations" pages (Sample List, Sample Detail, etc.)
  * update immediately when any user makes a change, without manually refreshing.
+ *
+ * Dashboard counts are not refetched: the deltas pushed to this user, already
+ * limited to the clients they may see, are applied to the cached stats instead.
  */
 export function GlobalSyncProvider() {
     const queryClient = useQueryClient();
@@ -22,18 +50,31 @@ export function GlobalSyncProvider() {
                 queryClient.invalidateQueries({ queryKey: ['samples'] });       // Sample list pages
                 queryClient.invalidateQueries({ queryKey: ['sample', String(event.entityId)] }); // Specific detail page
                 queryClient.invalidateQueries({ queryKey: ['sample-tests', String(event.entityId)] }); // Tests tab
-                queryClient.invalidateQueries({ queryKey: ['dashboard'] });     // Dashboard stats
+                queryClient.invalidateQueries({ queryKey: ['dashboard'], predicate: q => q.queryKey[1] !== 'stats' }); // Dashboard panels
                 queryClient.invalidateQueries({ queryKey: ['review-queue'] });  // Review queue
             }
 
             if (event.entity === 'JOB') {
                 queryClient.invalidateQueries({ queryKey: ['jobs'] });
                 queryClient.invalidateQueries({ queryKey: ['job', String(event.entityId)] });
-                queryClient.invalidateQueries({ queryKey: ['dashboard'] });
+                queryClient.invalidateQueries({ queryKey: ['dashboard'], predicate: q => q.queryKey[1] !== 'stats' });
+            }
+        });
+
+        const unsubscribeDashboard = socketService.subscribeDashboardCounters((event: DashboardCounterEvent) => {
+            for (const queryKey of STATS_QUERY_KEYS) {
+                if (event.type === 'RESYNC') {
+                    queryClient.invalidateQueries({ queryKey });
+                } else {
+                    queryClient.setQueryData<DashboardStats>(queryKey, stats => applyDeltas(stats, event));
+                }
             }
         });
 
-        return () => unsubscribe();
+        return () => {
+            unsubscribe();
+            unsubscribeDashboard();
+        };
     }, [queryClient]);
 
     // This component renders nothing; it's purely a side-effect provider
@@ -1,6 +1,6 @@
 import { useState } from 'react';
 import { useQuery } from '@tanstack/react-query';
-import { Tabs, Card, Table, Tag, Typography, Input, Button, message, Empty, Statistic, Row, Col, Tooltip, Progress } from 'antd';
+import { Tabs, Card, Table, Tag, Typography, Input, Button, message, Empty, Statistic, Row, Col, Tooltip, Progress, DatePicker } from 'antd';
 import { DownloadOutlined, ClockCircleOutlined, TeamOutlined, WarningOutlined, FilePdfOutlined } from '@ant-design/icons';
 import { BarChart, Bar, XAxis, YAxis, CartesianGrid, Tooltip as RechartsTooltip, ResponsiveContainer, Cell, Legend } from 'recharts';
 import { ReportApiService } from '../../api/ReportApiService';
@@ -97,10 +97,11 @@ function TatTab() {
         queryFn: ReportApiService.getTatReport,
     });
 
-    const totalSamples = data?.reduce((sum, row) => sum + row.count, 0) || 0;
-    const overallAvgTat = data && data.length > 0
-        ? data.reduce((sum, row) => sum + row.averageTatHours * row.count, 0) / totalSamples
-        : 0;
+    // Percentiles come from histograms, so they are bucket bounds within 10% of the exact value
+    const sampleTat = data?.find(row => row.metric === 'SAMPLE_TAT');
+    const testTat = data?.find(row => row.metric === 'TEST_TAT');
+    const dwell = data?.filter(row => row.metric === 'SAMPLE_DWELL') || [];
+    const hours = (v?: number) => (v ?? 0).toFixed(1);
 
     const columns = [
         {
@@ -116,20 +117,34 @@ function TatTab() {
             sorter: (a: TatReportDTO, b: TatReportDTO) => a.count - b.count,
         },
         {
-            title: 'Avg TAT (hrs)',
+            title: 'Avg (hrs)',
             dataIndex: 'averageTatHours',
             key: 'averageTatHours',
             render: (v: number) => v.toFixed(1),
             sorter: (a: TatReportDTO, b: TatReportDTO) => a.averageTatHours - b.averageTatHours,
         },
         {
-            title: 'Min TAT (hrs)',
-            dataIndex: 'minTatHours',
-            key: 'minTatHours',
+            title: 'p50 (hrs)',
+            dataIndex: 'p50TatHours',
+            key: 'p50TatHours',
             render: (v: number) => v.toFixed(1),
+            sorter: (a: TatReportDTO, b: TatReportDTO) => a.p50TatHours - b.p50TatHours,
         },
         {
-            title: 'Max TAT (hrs)',
+            title: 'p90 (hrs)',
+            dataIndex: 'p90TatHours',
+            key: 'p90TatHours',
+            render: (v: number) => v.toFixed(1),
+            sorter: (a: TatReportDTO, b: TatReportDTO) => a.p90TatHours - b.p90TatHours,
+        },
+        {
+            title: 'p99 (hrs)',
+            dataIndex: 'p99TatHours',
+            key: 'p99TatHours',
+            render: (v: number) => v.toFixed(1),
+        },
+        {
+            title: 'Max (hrs)',
             dataIndex: 'maxTatHours',
             key: 'maxTatHours',
             render: (v: number) => v.toFixed(1),
@@ -142,8 +157,8 @@ function TatTab() {
                 <Col span={8}>
                     <Card>
                         <Statistic
-                            title="Total Samples"
-                            value={totalSamples}
+                            title="Samples Authorized (90 days)"
+                            value={sampleTat?.count || 0}
                             prefix={<ClockCircleOutlined />}
                         />
                     </Card>
@@ -151,8 +166,8 @@ function TatTab() {
                 <Col span={8}>
                     <Card>
                         <Statistic
-                            title="Overall Avg TAT"
-                            value={overallAvgTat.toFixed(1)}
+                            title="Sample TAT p50 / p90"
+                            value={`${hours(sampleTat?.p50TatHours)} / ${hours(sampleTat?.p90TatHours)}`}
                             suffix="hours"
                             prefix={<ClockCircleOutlined />}
                         />
@@ -161,42 +176,44 @@ function TatTab() {
                 <Col span={8}>
                     <Card>
                         <Statistic
-                            title="Status Groups"
-                            value={data?.length || 0}
+                            title="Test TAT p50 / p90"
+                            value={`${hours(testTat?.p50TatHours)} / ${hours(testTat?.p90TatHours)}`}
+                            suffix="hours"
                         />
                     </Card>
                 </Col>
             </Row>
 
-            {data && data.length > 0 && (
-                <Card title="Turnaround Time by Status" style={{ marginBottom: 24 }}>
+            {dwell.length > 0 && (
+                <Card title="Time in Status" style={{ marginBottom: 24 }}>
                     <ResponsiveContainer width="100%" height={300}>
-                        <BarChart data={data} margin={{ top: 5, right: 30, left: 20, bottom: 5 }}>
+                        <BarChart data={dwell} margin={{ top: 5, right: 30, left: 20, bottom: 5 }}>
                             <CartesianGrid strokeDasharray="3 3" />
                             <XAxis dataKey="status" />
-                            <YAxis label={{ value: 'Avg Hours', angle: -90, position: 'insideLeft' }} />
+                            <YAxis label={{ value: 'Hours', angle: -90, position: 'insideLeft' }} />
                             <RechartsTooltip
-                                formatter={(value: any) => [
+                                formatter={(value: any, name: any) => [
                                     (value !== null && value !== undefined) ? `${Number(value).toFixed(1)} hrs` : '-',
-                                    'Avg TAT'
+                                    name
                                 ]}
                             />
                             <Legend />
-                            <Bar dataKey="averageTatHours" name="Avg TAT (hours)" radius={[4, 4, 0, 0]}>
-                                {data.map((entry, index) => (
+                            <Bar dataKey="p50TatHours" name="p50 (hours)" radius={[4, 4, 0, 0]}>
+                                {dwell.map((entry, index) => (
                                     <Cell key={`cell-${index}`} fill={STATUS_COLORS[entry.status] || '#8884d8'} />
                                 ))}
                             </Bar>
+                            <Bar dataKey="p90TatHours" name="p90 (hours)" fill="#bfbfbf" radius={[4, 4, 0, 0]} />
                         </BarChart>
                     </ResponsiveContainer>
                 </Card>
             )}
 
-            <Card title="Detailed Breakdown">
+            <Card title="Time in Status — Detailed Breakdown">
                 <Table
-                    dataSource={data}
+                    dataSource={dwell}
                     columns={columns}
-                    rowKey="status"
+                    rowKey={(row: TatReportDTO) => `${row.metric}-${row.status}`}
                     loading={isLoading}
                     pagination={false}
                     size="middle"
@@ -208,9 +225,12 @@ function TatTab() {
 
 // ====== Workload Tab ======
 function WorkloadTab() {
+    const [range, setRange] = useState<[dayjs.Dayjs, dayjs.Dayjs]>([dayjs().subtract(29, 'day'), dayjs()]);
+    const from = range[0].format('YYYY-MM-DD');
+    const to = range[1].format('YYYY-MM-DD');
     const { data, isLoading } = useQuery({
-        queryKey: ['reports', 'workload'],
-        queryFn: ReportApiService.getWorkloadReport,
+        queryKey: ['reports', 'workload', from, to],
+        queryFn: () => ReportApiService.getWorkloadReport(from, to),
     });
 
     const columns = [
@@ -221,17 +241,23 @@ function WorkloadTab() {
             render: (name: string) => <Text strong>{name}</Text>,
         },
         {
-            title: 'Samples Assigned',
-            dataIndex: 'samplesAssigned',
-            key: 'samplesAssigned',
-            sorter: (a: WorkloadReportDTO, b: WorkloadReportDTO) => a.samplesAssigned - b.samplesAssigned,
+            title: 'Tests Assigned',
+            dataIndex: 'testsAssigned',
+            key: 'testsAssigned',
+            sorter: (a: WorkloadReportDTO, b: WorkloadReportDTO) => a.testsAssigned - b.testsAssigned,
         },
         {
-            title: 'Tests Completed',
+            title: 'Tests Submitted',
             dataIndex: 'testsCompleted',
             key: 'testsCompleted',
             render: (v: number) => <Tag color="green">{v}</Tag>,
         },
+        {
+            title: 'Tests Authorized',
+            dataIndex: 'testsAuthorized',
+            key: 'testsAuthorized',
+            render: (v: number) => <Tag color="blue">{v}</Tag>,
+        },
         {
             title: 'Tests Pending',
             dataIndex: 'testsPending',
@@ -260,6 +286,16 @@ function WorkloadTab() {
 
     return (
         <div>
+            <div style={{ marginBottom: 16 }}>
+                <DatePicker.RangePicker
+                    value={range}
+                    allowClear={false}
+                    onChange={(dates) => {
+                        if (dates && dates[0] && dates[1]) setRange([dates[0], dates[1]]);
+                    }}
+                />
+            </div>
+
             {data && data.length > 0 && (
                 <Card title="Tests per Analyst" style={{ marginBottom: 24 }}>
                     <ResponsiveContainer width="100%" height={300}>
@@ -269,8 +305,8 @@ function WorkloadTab() {
                             <YAxis />
                             <RechartsTooltip />
                             <Legend />
-                            <Bar dataKey="testsCompleted" name="Completed" fill="#52c41a" stackId="a" radius={[0, 0, 0, 0]} />
-                            <Bar dataKey="testsPending" name="Pending" fill="#faad14" stackId="a" radius={[4, 4, 0, 0]} />
+                            <Bar dataKey="testsCompleted" name="Submitted" fill="#52c41a" stackId="a" radius={[0, 0, 0, 0]} />
+                            <Bar dataKey="testsPending" name="Open" fill="#faad14" stackId="a" radius={[4, 4, 0, 0]} />
                         </BarChart>
                     </ResponsiveContainer>
                 </Card>
@@ -284,7 +320,7 @@ function WorkloadTab() {
                     loading={isLoading}
                     pagination={false}
                     size="middle"
-                    locale={{ emptyText: <Empty description="No workload data available. Assign tests to analysts to see data." /> }}
+                    locale={{ emptyText: <Empty description="No workload in this period." /> }}
                 />
             </Card>
         </div>
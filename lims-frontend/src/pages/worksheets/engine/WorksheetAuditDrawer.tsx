@@ -21,7 +21,7 @@ export const WorksheetAuditDrawer: React.FC<AuditDrawerProps> = ({ sampleTestId,
         try {
           setLoading(true);
           const response = await WorksheetService.getHistory(sampleTestId);
-          setHistory(response.data);
+          setHistory(response.data.content || []);
         } catch (err) {
           console.error('Failed to load history', err);
         } finally {
@@ -49,15 +49,14 @@ export const WorksheetAuditDrawer: React.FC<AuditDrawerProps> = ({ sampleTestId,
             children: (
               <Card size="small" style={{ marginBottom: 16 }}>
                 <div style={{ marginBottom: 8, display: 'flex', justifyContent: 'space-between', alignItems: 'center' }}>
-                  <Text strong>Rev #{rev.revision?.id || idx + 1}</Text>
+                  <Text strong>Rev #{rev.revisionNumber || idx + 1}</Text>
                   <Tag color={rev.status === 'SUBMITTED' ? 'green' : 'blue'}>{rev.status}</Tag>
                 </div>
                 <div style={{ fontSize: 11, color: '#999', marginBottom: 8 }}>
-                  Changed at: {new Date(rev.revision?.timestamp).toLocaleString()} 
+                  Changed at: {new Date(rev.createdAt).toLocaleString()} by {rev.username}
                 </div>
-                {/* We could show a diff here, but for now we just show it exists */}
                 <Text type="secondary" style={{ fontSize: 11 }}>
-                  Captured Snapshot of {Object.keys(rev.data || {}).length} sections.
+                  {rev.action}: {(rev.changedPaths || []).length} changed value(s)
                 </Text>
               </Card>
             ),